@@ -67,6 +67,17 @@ public abstract class CheckSum {
         update(numberInBytes);
     }
 
+    /**
+     * Update the underlying buffer using the long
+     * 
+     * @param number number to be stored in checksum buffer
+     */
+    public void update(long number) {
+        byte[] numberInBytes = new byte[ByteUtils.SIZE_OF_LONG];
+        ByteUtils.writeLong(numberInBytes, number, 0);
+        update(numberInBytes);
+    }
+
     /**
      * Update the underlying buffer using the short
      * 
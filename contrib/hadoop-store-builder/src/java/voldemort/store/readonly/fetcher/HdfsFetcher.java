@@ -371,12 +371,19 @@ public class HdfsFetcher implements FileFetcher {
 
             // if both same, lexicographically
             if((f1.endsWith(".index") && f2.endsWith(".index"))
-               || (f1.endsWith(".data") && f2.endsWith(".data"))) {
+               || (f1.endsWith(".data") && f2.endsWith(".data"))
+               || (f1.endsWith(".bloom") && f2.endsWith(".bloom"))) {
                 return f1.compareToIgnoreCase(f2);
             }
 
+            // data files first, then bloom filters, then index files, in the
+            // same order as the checksums are combined by the builder
             if(f1.endsWith(".index")) {
                 return 1;
+            } else if(f2.endsWith(".index")) {
+                return -1;
+            } else if(f1.endsWith(".bloom")) {
+                return 1;
             } else {
                 return -1;
             }
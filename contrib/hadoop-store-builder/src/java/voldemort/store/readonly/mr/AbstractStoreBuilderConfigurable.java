@@ -25,6 +25,7 @@ import org.apache.hadoop.mapred.JobConf;
 import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.store.StoreDefinition;
+import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.xml.ClusterMapper;
 import voldemort.xml.StoreDefinitionsMapper;
 
@@ -42,6 +43,8 @@ public class AbstractStoreBuilderConfigurable {
     private StoreDefinition storeDef;
     private boolean saveKeys;
     private boolean reducerPerBucket;
+    private boolean largeOffsets;
+    private int bloomFilterBitsPerKey;
 
     public void configure(JobConf conf) {
         this.cluster = new ClusterMapper().readCluster(new StringReader(conf.get("cluster.xml")));
@@ -56,6 +59,8 @@ public class AbstractStoreBuilderConfigurable {
 
         this.saveKeys = conf.getBoolean("save.keys", false);
         this.reducerPerBucket = conf.getBoolean("reducer.per.bucket", false);
+        this.largeOffsets = conf.getBoolean("large.offsets", false);
+        this.bloomFilterBitsPerKey = conf.getInt("bloom.filter.bits.per.key", 0);
     }
 
     @SuppressWarnings("unused")
@@ -74,6 +79,26 @@ public class AbstractStoreBuilderConfigurable {
         return this.reducerPerBucket;
     }
 
+    public boolean getLargeOffsets() {
+        return this.largeOffsets;
+    }
+
+    public int getBloomFilterBitsPerKey() {
+        return this.bloomFilterBitsPerKey;
+    }
+
+    /**
+     * @return The read-only format of the chunks being built
+     */
+    public ReadOnlyStorageFormat getStorageFormat() {
+        if(largeOffsets)
+            return ReadOnlyStorageFormat.READONLY_V3;
+        else if(saveKeys)
+            return ReadOnlyStorageFormat.READONLY_V2;
+        else
+            return ReadOnlyStorageFormat.READONLY_V1;
+    }
+
     public StoreDefinition getStoreDef() {
         checkNotNull(storeDef);
         return storeDef;
@@ -61,6 +61,7 @@ public class HadoopStoreBuilder {
 
     public static final long MIN_CHUNK_SIZE = 1L;
     public static final long MAX_CHUNK_SIZE = (long) (1.9 * 1024 * 1024 * 1024);
+    public static final long MAX_LARGE_OFFSETS_CHUNK_SIZE = Long.MAX_VALUE;
     public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
 
     private static final Logger logger = Logger.getLogger(HadoopStoreBuilder.class);
@@ -78,6 +79,8 @@ public class HadoopStoreBuilder {
     private CheckSumType checkSumType = CheckSumType.NONE;
     private boolean saveKeys = false;
     private boolean reducerPerBucket = false;
+    private boolean largeOffsets = false;
+    private int bloomFilterBitsPerKey = 0;
     private int numChunks = -1;
 
     /**
@@ -143,6 +146,29 @@ public class HadoopStoreBuilder {
                               Path tempDir,
                               Path outputDir,
                               Path inputPath) {
+        this(conf,
+             mapperClass,
+             inputFormatClass,
+             cluster,
+             storeDef,
+             chunkSizeBytes,
+             tempDir,
+             outputDir,
+             inputPath,
+             false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HadoopStoreBuilder(Configuration conf,
+                               Class<? extends AbstractHadoopStoreBuilderMapper<?, ?>> mapperClass,
+                               Class<? extends InputFormat> inputFormatClass,
+                               Cluster cluster,
+                               StoreDefinition storeDef,
+                               long chunkSizeBytes,
+                               Path tempDir,
+                               Path outputDir,
+                               Path inputPath,
+                               boolean largeOffsets) {
         super();
         this.config = conf;
         this.mapperClass = Utils.notNull(mapperClass);
@@ -153,9 +179,11 @@ public class HadoopStoreBuilder {
         this.chunkSizeBytes = chunkSizeBytes;
         this.tempDir = tempDir;
         this.outputDir = Utils.notNull(outputDir);
-        if(chunkSizeBytes > MAX_CHUNK_SIZE || chunkSizeBytes < MIN_CHUNK_SIZE)
+        this.largeOffsets = largeOffsets;
+        long maxChunkSize = largeOffsets ? MAX_LARGE_OFFSETS_CHUNK_SIZE : MAX_CHUNK_SIZE;
+        if(chunkSizeBytes > maxChunkSize || chunkSizeBytes < MIN_CHUNK_SIZE)
             throw new VoldemortException("Invalid chunk size, chunk size must be in the range "
-                                         + MIN_CHUNK_SIZE + "..." + MAX_CHUNK_SIZE);
+                                         + MIN_CHUNK_SIZE + "..." + maxChunkSize);
     }
 
     /**
@@ -243,6 +271,114 @@ public class HadoopStoreBuilder {
         this.reducerPerBucket = reducerPerBucket;
     }
 
+    /**
+     * Create the store builder
+     * 
+     * @param conf A base configuration to start with
+     * @param mapperClass The class to use as the mapper
+     * @param inputFormatClass The input format to use for reading values
+     * @param cluster The voldemort cluster for which the stores are being built
+     * @param storeDef The store definition of the store
+     * @param chunkSizeBytes The size of the chunks used by the read-only store
+     * @param tempDir The temporary directory to use in hadoop for intermediate
+     *        reducer output
+     * @param outputDir The directory in which to place the built stores
+     * @param inputPath The path from which to read input data
+     * @param checkSumType The checksum algorithm to use
+     * @param saveKeys Boolean to signify if we want to save the key as well
+     * @param reducerPerBucket Boolean to signify whether we want to have a
+     *        single reducer for a bucket ( thereby resulting in all chunk files
+     *        for a bucket being generated in a single reducer )
+     * @param largeOffsets Boolean to signify whether we want to build
+     *        {@link ReadOnlyStorageFormat#READONLY_V3} with 64-bit positions,
+     *        which lifts the 2 GB limit on the chunk size. Requires saveKeys
+     */
+    @SuppressWarnings("unchecked")
+    public HadoopStoreBuilder(Configuration conf,
+                              Class<? extends AbstractHadoopStoreBuilderMapper<?, ?>> mapperClass,
+                              Class<? extends InputFormat> inputFormatClass,
+                              Cluster cluster,
+                              StoreDefinition storeDef,
+                              long chunkSizeBytes,
+                              Path tempDir,
+                              Path outputDir,
+                              Path inputPath,
+                              CheckSumType checkSumType,
+                              boolean saveKeys,
+                              boolean reducerPerBucket,
+                              boolean largeOffsets) {
+        this(conf,
+             mapperClass,
+             inputFormatClass,
+             cluster,
+             storeDef,
+             chunkSizeBytes,
+             tempDir,
+             outputDir,
+             inputPath,
+             largeOffsets);
+        this.checkSumType = checkSumType;
+        this.saveKeys = saveKeys;
+        this.reducerPerBucket = reducerPerBucket;
+        if(largeOffsets && !saveKeys)
+            throw new VoldemortException("Large offsets are only supported when saving keys");
+    }
+
+    /**
+     * Create the store builder
+     * 
+     * @param conf A base configuration to start with
+     * @param mapperClass The class to use as the mapper
+     * @param inputFormatClass The input format to use for reading values
+     * @param cluster The voldemort cluster for which the stores are being built
+     * @param storeDef The store definition of the store
+     * @param chunkSizeBytes The size of the chunks used by the read-only store
+     * @param tempDir The temporary directory to use in hadoop for intermediate
+     *        reducer output
+     * @param outputDir The directory in which to place the built stores
+     * @param inputPath The path from which to read input data
+     * @param checkSumType The checksum algorithm to use
+     * @param saveKeys Boolean to signify if we want to save the key as well
+     * @param reducerPerBucket Boolean to signify whether we want to have a
+     *        single reducer for a bucket ( thereby resulting in all chunk files
+     *        for a bucket being generated in a single reducer )
+     * @param largeOffsets Boolean to signify whether we want to build
+     *        {@link ReadOnlyStorageFormat#READONLY_V3} with 64-bit positions,
+     *        which lifts the 2 GB limit on the chunk size. Requires saveKeys
+     * @param bloomFilterBitsPerKey If positive, a bloom filter using this many
+     *        bits per key is built for every chunk
+     */
+    @SuppressWarnings("unchecked")
+    public HadoopStoreBuilder(Configuration conf,
+                              Class<? extends AbstractHadoopStoreBuilderMapper<?, ?>> mapperClass,
+                              Class<? extends InputFormat> inputFormatClass,
+                              Cluster cluster,
+                              StoreDefinition storeDef,
+                              long chunkSizeBytes,
+                              Path tempDir,
+                              Path outputDir,
+                              Path inputPath,
+                              CheckSumType checkSumType,
+                              boolean saveKeys,
+                              boolean reducerPerBucket,
+                              boolean largeOffsets,
+                              int bloomFilterBitsPerKey) {
+        this(conf,
+             mapperClass,
+             inputFormatClass,
+             cluster,
+             storeDef,
+             chunkSizeBytes,
+             tempDir,
+             outputDir,
+             inputPath,
+             checkSumType,
+             saveKeys,
+             reducerPerBucket,
+             largeOffsets);
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    }
+
     /**
      * Create the store builder
      * 
@@ -294,6 +430,116 @@ public class HadoopStoreBuilder {
             throw new VoldemortException("Number of chunks should be greater than zero");
     }
 
+    /**
+     * Create the store builder
+     * 
+     * @param conf A base configuration to start with
+     * @param mapperClass The class to use as the mapper
+     * @param inputFormatClass The input format to use for reading values
+     * @param cluster The voldemort cluster for which the stores are being built
+     * @param storeDef The store definition of the store
+     * @param tempDir The temporary directory to use in hadoop for intermediate
+     *        reducer output
+     * @param outputDir The directory in which to place the built stores
+     * @param inputPath The path from which to read input data
+     * @param checkSumType The checksum algorithm to use
+     * @param saveKeys Boolean to signify if we want to save the key as well
+     * @param reducerPerBucket Boolean to signify whether we want to have a
+     *        single reducer for a bucket ( thereby resulting in all chunk files
+     *        for a bucket being generated in a single reducer )
+     * @param numChunks Number of chunks per bucket ( partition or partition
+     *        replica )
+     * @param largeOffsets Boolean to signify whether we want to build
+     *        {@link ReadOnlyStorageFormat#READONLY_V3} with 64-bit positions,
+     *        which lifts the 2 GB limit on the chunk size. Requires saveKeys
+     */
+    @SuppressWarnings("unchecked")
+    public HadoopStoreBuilder(Configuration conf,
+                              Class<? extends AbstractHadoopStoreBuilderMapper<?, ?>> mapperClass,
+                              Class<? extends InputFormat> inputFormatClass,
+                              Cluster cluster,
+                              StoreDefinition storeDef,
+                              Path tempDir,
+                              Path outputDir,
+                              Path inputPath,
+                              CheckSumType checkSumType,
+                              boolean saveKeys,
+                              boolean reducerPerBucket,
+                              int numChunks,
+                              boolean largeOffsets) {
+        this(conf,
+             mapperClass,
+             inputFormatClass,
+             cluster,
+             storeDef,
+             tempDir,
+             outputDir,
+             inputPath,
+             checkSumType,
+             saveKeys,
+             reducerPerBucket,
+             numChunks);
+        this.largeOffsets = largeOffsets;
+        if(largeOffsets && !saveKeys)
+            throw new VoldemortException("Large offsets are only supported when saving keys");
+    }
+
+    /**
+     * Create the store builder
+     * 
+     * @param conf A base configuration to start with
+     * @param mapperClass The class to use as the mapper
+     * @param inputFormatClass The input format to use for reading values
+     * @param cluster The voldemort cluster for which the stores are being built
+     * @param storeDef The store definition of the store
+     * @param tempDir The temporary directory to use in hadoop for intermediate
+     *        reducer output
+     * @param outputDir The directory in which to place the built stores
+     * @param inputPath The path from which to read input data
+     * @param checkSumType The checksum algorithm to use
+     * @param saveKeys Boolean to signify if we want to save the key as well
+     * @param reducerPerBucket Boolean to signify whether we want to have a
+     *        single reducer for a bucket ( thereby resulting in all chunk files
+     *        for a bucket being generated in a single reducer )
+     * @param numChunks Number of chunks per bucket ( partition or partition
+     *        replica )
+     * @param largeOffsets Boolean to signify whether we want to build
+     *        {@link ReadOnlyStorageFormat#READONLY_V3} with 64-bit positions,
+     *        which lifts the 2 GB limit on the chunk size. Requires saveKeys
+     * @param bloomFilterBitsPerKey If positive, a bloom filter using this many
+     *        bits per key is built for every chunk
+     */
+    @SuppressWarnings("unchecked")
+    public HadoopStoreBuilder(Configuration conf,
+                              Class<? extends AbstractHadoopStoreBuilderMapper<?, ?>> mapperClass,
+                              Class<? extends InputFormat> inputFormatClass,
+                              Cluster cluster,
+                              StoreDefinition storeDef,
+                              Path tempDir,
+                              Path outputDir,
+                              Path inputPath,
+                              CheckSumType checkSumType,
+                              boolean saveKeys,
+                              boolean reducerPerBucket,
+                              int numChunks,
+                              boolean largeOffsets,
+                              int bloomFilterBitsPerKey) {
+        this(conf,
+             mapperClass,
+             inputFormatClass,
+             cluster,
+             storeDef,
+             tempDir,
+             outputDir,
+             inputPath,
+             checkSumType,
+             saveKeys,
+             reducerPerBucket,
+             numChunks,
+             largeOffsets);
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    }
+
     /**
      * Run the job
      */
@@ -306,6 +552,8 @@ public class HadoopStoreBuilder {
                      new StoreDefinitionsMapper().writeStoreList(Collections.singletonList(storeDef)));
             conf.setBoolean("save.keys", saveKeys);
             conf.setBoolean("reducer.per.bucket", reducerPerBucket);
+            conf.setBoolean("large.offsets", largeOffsets);
+            conf.setInt("bloom.filter.bits.per.key", bloomFilterBitsPerKey);
             conf.setPartitionerClass(HadoopStoreBuilderPartitioner.class);
             conf.setMapperClass(mapperClass);
             conf.setMapOutputKeyClass(BytesWritable.class);
@@ -381,7 +629,9 @@ public class HadoopStoreBuilder {
             conf.setNumReduceTasks(numReducers);
 
             logger.info("Number of chunks: " + numChunks + ", number of reducers: " + numReducers
-                        + ", save keys: " + saveKeys + ", reducerPerBucket: " + reducerPerBucket);
+                        + ", save keys: " + saveKeys + ", reducerPerBucket: " + reducerPerBucket
+                        + ", large offsets: " + largeOffsets + ", bloom filter bits per key: "
+                        + bloomFilterBitsPerKey);
             logger.info("Building store...");
             RunningJob job = JobClient.runJob(conf);
 
@@ -414,13 +664,18 @@ public class HadoopStoreBuilder {
 
                 ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
 
-                if(saveKeys) {
+                if(largeOffsets) {
+                    metadata.add(ReadOnlyStorageMetadata.FORMAT,
+                                 ReadOnlyStorageFormat.READONLY_V3.getCode());
+                } else if(saveKeys) {
                     metadata.add(ReadOnlyStorageMetadata.FORMAT,
                                  ReadOnlyStorageFormat.READONLY_V2.getCode());
                 } else {
                     metadata.add(ReadOnlyStorageMetadata.FORMAT,
                                  ReadOnlyStorageFormat.READONLY_V1.getCode());
                 }
+                if(bloomFilterBitsPerKey > 0)
+                    metadata.add(ReadOnlyStorageMetadata.BLOOM_FILTER, Boolean.toString(true));
 
                 Path nodePath = new Path(outputDir.toString(), "node-" + node.getId());
 
@@ -508,12 +763,18 @@ public class HadoopStoreBuilder {
 
             // if both same, lexicographically
             if((f1.contains(".index") && f2.contains(".index"))
-               || (f1.contains(".data") && f2.contains(".data"))) {
+               || (f1.contains(".data") && f2.contains(".data"))
+               || (f1.contains(".bloom") && f2.contains(".bloom"))) {
                 return f1.compareToIgnoreCase(f2);
             }
 
+            // data files first, then bloom filters, then index files
             if(f1.contains(".index")) {
                 return 1;
+            } else if(f2.contains(".index")) {
+                return -1;
+            } else if(f1.contains(".bloom")) {
+                return 1;
             } else {
                 return -1;
             }
@@ -50,7 +50,7 @@ public class HadoopStoreBuilderReducer extends AbstractStoreBuilderConfigurable
 
     private DataOutputStream indexFileStream = null;
     private DataOutputStream valueFileStream = null;
-    private int position;
+    private long position;
     private String taskId = null;
 
     private int nodeId = -1;
@@ -89,12 +89,18 @@ public class HadoopStoreBuilderReducer extends AbstractStoreBuilderConfigurable
 
         // Write key and position
         this.indexFileStream.write(key.get(), 0, key.getSize());
-        this.indexFileStream.writeInt(this.position);
+        if(getLargeOffsets())
+            this.indexFileStream.writeLong(this.position);
+        else
+            this.indexFileStream.writeInt((int) this.position);
 
         // Run key through checksum digest
         if(this.checkSumDigestIndex != null) {
             this.checkSumDigestIndex.update(key.get(), 0, key.getSize());
-            this.checkSumDigestIndex.update(this.position);
+            if(getLargeOffsets())
+                this.checkSumDigestIndex.update(this.position);
+            else
+                this.checkSumDigestIndex.update((int) this.position);
         }
 
         short numTuples = 0;
@@ -191,7 +197,7 @@ public class HadoopStoreBuilderReducer extends AbstractStoreBuilderConfigurable
             this.checkSumDigestValue.update(value);
         }
 
-        if(this.position < 0)
+        if(!getLargeOffsets() && this.position > Integer.MAX_VALUE)
             throw new VoldemortException("Chunk overflow exception: chunk " + chunkId
                                          + " has exceeded " + Integer.MAX_VALUE + " bytes.");
 
@@ -288,6 +294,16 @@ public class HadoopStoreBuilderReducer extends AbstractStoreBuilderConfigurable
             }
         }
 
+        if(getBloomFilterBitsPerKey() > 0)
+            HadoopStoreBuilderUtils.writeBloomFilter(fs,
+                                                     this.taskIndexFileName,
+                                                     outputFs,
+                                                     nodeDir,
+                                                     fileNamePrefix,
+                                                     getStorageFormat(),
+                                                     getBloomFilterBitsPerKey(),
+                                                     this.checkSumType);
+
         // Generate the final chunk files
         Path indexFile = new Path(nodeDir, fileNamePrefix + ".index");
         Path valueFile = new Path(nodeDir, fileNamePrefix + ".data");
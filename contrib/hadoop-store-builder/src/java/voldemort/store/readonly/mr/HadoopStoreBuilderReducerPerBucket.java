@@ -50,7 +50,7 @@ public class HadoopStoreBuilderReducerPerBucket extends AbstractStoreBuilderConf
 
     private DataOutputStream[] indexFileStream = null;
     private DataOutputStream[] valueFileStream = null;
-    private int[] position;
+    private long[] position;
     private String taskId = null;
 
     private int nodeId = -1;
@@ -91,12 +91,18 @@ public class HadoopStoreBuilderReducerPerBucket extends AbstractStoreBuilderConf
 
         // Write key and position
         this.indexFileStream[chunkId].write(key.get(), 0, key.getSize());
-        this.indexFileStream[chunkId].writeInt(this.position[chunkId]);
+        if(getLargeOffsets())
+            this.indexFileStream[chunkId].writeLong(this.position[chunkId]);
+        else
+            this.indexFileStream[chunkId].writeInt((int) this.position[chunkId]);
 
         // Run key through checksum digest
         if(this.checkSumDigestIndex[chunkId] != null) {
             this.checkSumDigestIndex[chunkId].update(key.get(), 0, key.getSize());
-            this.checkSumDigestIndex[chunkId].update(this.position[chunkId]);
+            if(getLargeOffsets())
+                this.checkSumDigestIndex[chunkId].update(this.position[chunkId]);
+            else
+                this.checkSumDigestIndex[chunkId].update((int) this.position[chunkId]);
         }
 
         short numTuples = 0;
@@ -189,7 +195,7 @@ public class HadoopStoreBuilderReducerPerBucket extends AbstractStoreBuilderConf
             this.checkSumDigestValue[chunkId].update(value);
         }
 
-        if(this.position[chunkId] < 0)
+        if(!getLargeOffsets() && this.position[chunkId] > Integer.MAX_VALUE)
             throw new VoldemortException("Chunk overflow exception: chunk " + chunkId
                                          + " has exceeded " + Integer.MAX_VALUE + " bytes.");
 
@@ -206,7 +212,7 @@ public class HadoopStoreBuilderReducerPerBucket extends AbstractStoreBuilderConf
 
             this.checkSumDigestIndex = new CheckSum[getNumChunks()];
             this.checkSumDigestValue = new CheckSum[getNumChunks()];
-            this.position = new int[getNumChunks()];
+            this.position = new long[getNumChunks()];
             this.taskIndexFileName = new Path[getNumChunks()];
             this.taskValueFileName = new Path[getNumChunks()];
             this.indexFileStream = new DataOutputStream[getNumChunks()];
@@ -302,6 +308,16 @@ public class HadoopStoreBuilderReducerPerBucket extends AbstractStoreBuilderConf
                 }
             }
 
+            if(getBloomFilterBitsPerKey() > 0)
+                HadoopStoreBuilderUtils.writeBloomFilter(fs,
+                                                         this.taskIndexFileName[chunkId],
+                                                         outputFs,
+                                                         nodeDir,
+                                                         chunkFileName,
+                                                         getStorageFormat(),
+                                                         getBloomFilterBitsPerKey(),
+                                                         this.checkSumType);
+
             // Generate the final chunk files
             Path indexFile = new Path(nodeDir, chunkFileName + ".index");
             Path valueFile = new Path(nodeDir, chunkFileName + ".data");
@@ -7,6 +7,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -15,6 +16,9 @@ import org.apache.hadoop.fs.PathFilter;
 import voldemort.VoldemortException;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.ReadOnlyUtils;
+import voldemort.store.readonly.checksum.CheckSum;
+import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
+import voldemort.store.readonly.chunk.BloomFilter;
 import voldemort.store.readonly.chunk.DataFileChunk;
 import voldemort.store.readonly.chunk.DataFileChunkSet;
 import voldemort.utils.ByteUtils;
@@ -56,6 +60,54 @@ public class HadoopStoreBuilderUtils {
         return new String(stream.toByteArray());
     }
 
+    /**
+     * Reads back a finished index file, builds the bloom filter for its chunk
+     * and writes it as chunkName.bloom into the node directory, along with a
+     * chunkName.bloom.checksum if checksums are enabled
+     * 
+     * @param fs Filesystem of the index file
+     * @param indexFile The index file
+     * @param outputFs Filesystem of the node directory
+     * @param nodeDir The node directory
+     * @param chunkName The file name prefix of the chunk
+     * @param format The format of the index file
+     * @param bitsPerKey The number of bits to use per key
+     * @param checkSumType The checksum type
+     * @throws IOException
+     */
+    public static void writeBloomFilter(FileSystem fs,
+                                        Path indexFile,
+                                        FileSystem outputFs,
+                                        Path nodeDir,
+                                        String chunkName,
+                                        ReadOnlyStorageFormat format,
+                                        int bitsPerKey,
+                                        CheckSumType checkSumType) throws IOException {
+        FSDataInputStream input = fs.open(indexFile);
+        byte[] bloomFilter;
+        try {
+            bloomFilter = BloomFilter.fromIndex(input,
+                                                fs.getFileStatus(indexFile).getLen(),
+                                                ReadOnlyUtils.getKeyHashSize(format),
+                                                ReadOnlyUtils.getPositionSize(format),
+                                                bitsPerKey).toByteArray();
+        } finally {
+            input.close();
+        }
+
+        FSDataOutputStream output = outputFs.create(new Path(nodeDir, chunkName + ".bloom"));
+        output.write(bloomFilter);
+        output.close();
+
+        CheckSum checkSumDigest = CheckSum.getInstance(checkSumType);
+        if(checkSumDigest != null) {
+            checkSumDigest.update(bloomFilter);
+            output = outputFs.create(new Path(nodeDir, chunkName + ".bloom.checksum"));
+            output.write(checkSumDigest.getCheckSum());
+            output.close();
+        }
+    }
+
     /**
      * Given a filesystem and path to a node, gets all the data files (
      * irrespective of partition, replica, etc )
@@ -181,10 +233,10 @@ public class HadoopStoreBuilderUtils {
         });
 
         List<DataFileChunk> dataFiles = Lists.newArrayList();
-        List<Integer> dataFileSizes = Lists.newArrayList();
+        List<Long> dataFileSizes = Lists.newArrayList();
         for(FileStatus file: fileList) {
             dataFiles.add(new HdfsDataFileChunk(fs, file));
-            dataFileSizes.add((int) file.getLen());
+            dataFileSizes.add(file.getLen());
         }
         return new DataFileChunkSet(dataFiles, dataFileSizes);
     }
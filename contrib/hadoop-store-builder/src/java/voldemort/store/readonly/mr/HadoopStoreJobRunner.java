@@ -28,7 +28,9 @@ import org.jdom.JDOMException;
 import voldemort.cluster.Cluster;
 import voldemort.server.VoldemortConfig;
 import voldemort.store.StoreDefinition;
+import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
+import voldemort.store.readonly.chunk.BloomFilter;
 import voldemort.utils.CmdUtils;
 import voldemort.utils.ReflectUtils;
 import voldemort.xml.ClusterMapper;
@@ -76,6 +78,12 @@ public class HadoopStoreJobRunner extends Configured implements Tool {
         parser.accepts("force-overwrite", "deletes final output directory if present.");
         parser.accepts("save-keys", "save the keys in the data file");
         parser.accepts("reducer-per-bucket", "run single reducer per bucket");
+        parser.accepts("large-offsets",
+                       "build format " + ReadOnlyStorageFormat.READONLY_V3.getCode()
+                               + " with 64-bit offsets, allowing chunks over 2 GB (needs save-keys)");
+        parser.accepts("bloom-filter", "build a bloom filter per chunk with the given bits per key")
+              .withOptionalArg()
+              .ofType(Integer.class);
         parser.accepts("help", "print usage information");
         return parser;
     }
@@ -126,6 +134,12 @@ public class HadoopStoreJobRunner extends Configured implements Tool {
         Path outputDir = new Path((String) options.valueOf("output"));
         boolean saveKeys = options.has("save-keys");
         boolean reducerPerBucket = options.has("reducer-per-bucket");
+        boolean largeOffsets = options.has("large-offsets");
+        int bloomFilterBitsPerKey = 0;
+        if(options.hasArgument("bloom-filter"))
+            bloomFilterBitsPerKey = (Integer) options.valueOf("bloom-filter");
+        else if(options.has("bloom-filter"))
+            bloomFilterBitsPerKey = BloomFilter.DEFAULT_BITS_PER_KEY;
 
         List<String> addJars = new ArrayList<String>();
 
@@ -180,7 +194,9 @@ public class HadoopStoreJobRunner extends Configured implements Tool {
                                                             inputPath,
                                                             checkSumType,
                                                             saveKeys,
-                                                            reducerPerBucket);
+                                                            reducerPerBucket,
+                                                            largeOffsets,
+                                                            bloomFilterBitsPerKey);
 
         builder.build();
         return 0;
@@ -92,12 +92,17 @@ public class CheckSumTests extends TestCase {
 
                 // if both same, lexicographically
                 if((f1.endsWith(".index") && f2.endsWith(".index"))
-                   || (f1.endsWith(".data") && f2.endsWith(".data"))) {
+                   || (f1.endsWith(".data") && f2.endsWith(".data"))
+                   || (f1.endsWith(".bloom") && f2.endsWith(".bloom"))) {
                     return f1.compareToIgnoreCase(f2);
                 }
 
                 if(f1.endsWith(".index")) {
                     return 1;
+                } else if(f2.endsWith(".index")) {
+                    return -1;
+                } else if(f1.endsWith(".bloom")) {
+                    return 1;
                 } else {
                     return -1;
                 }
@@ -133,6 +133,22 @@ public class HdfsFetcherTest extends TestCase {
         assertNotNull(fetchedFile);
         assertEquals(fetchedFile.getAbsolutePath(), testDestinationDirectory.getAbsolutePath()
                                                     + "8");
+
+        // Bloom filter files are covered by the checksum too
+        File bloomFile = new File(testSourceDirectory, "0_0.bloom");
+        FileUtils.writeByteArrayToFile(bloomFile, TestUtils.randomBytes(50));
+        fetchedFile = fetcher.fetch(testSourceDirectory.getAbsolutePath(),
+                                    testDestinationDirectory.getAbsolutePath() + "9");
+        assertNull(fetchedFile);
+
+        metadata.add(ReadOnlyStorageMetadata.CHECKSUM,
+                     new String(Hex.encodeHex(CheckSumTests.calculateCheckSum(testSourceDirectory.listFiles(),
+                                                                              CheckSumType.CRC32))));
+        FileUtils.writeStringToFile(metadataFile, metadata.toJsonString());
+        fetchedFile = fetcher.fetch(testSourceDirectory.getAbsolutePath(),
+                                    testDestinationDirectory.getAbsolutePath() + "10");
+        assertNotNull(fetchedFile);
+        assertTrue(new File(fetchedFile, "0_0.bloom").exists());
     }
 
     public void testFetch() throws Exception {
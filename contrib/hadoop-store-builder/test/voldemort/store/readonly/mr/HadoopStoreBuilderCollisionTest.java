@@ -68,8 +68,11 @@ public class HadoopStoreBuilderCollisionTest {
     public class CustomBinarySearchStrategy extends BinarySearchStrategy {
 
         @Override
-        public int indexOf(ByteBuffer index, byte[] key, int indexFileSize) {
-            return super.indexOf(index, oldMd5ToNewMd5.get(new ByteArray(key)), indexFileSize);
+        public long indexOf(ByteBuffer index, byte[] key, int indexFileSize, int positionSize) {
+            return super.indexOf(index,
+                                 oldMd5ToNewMd5.get(new ByteArray(key)),
+                                 indexFileSize,
+                                 positionSize);
         }
     }
 
@@ -81,17 +81,24 @@ public class HadoopStoreBuilderTest {
 
     private SearchStrategy searchStrategy;
     private boolean saveKeys;
+    private boolean largeOffsets;
 
     @Parameters
     public static Collection<Object[]> configs() {
-        return Arrays.asList(new Object[][] { { new BinarySearchStrategy(), true },
-                { new InterpolationSearchStrategy(), true }, { new BinarySearchStrategy(), false },
-                { new InterpolationSearchStrategy(), false } });
+        return Arrays.asList(new Object[][] { { new BinarySearchStrategy(), true, false },
+                { new InterpolationSearchStrategy(), true, false },
+                { new BinarySearchStrategy(), false, false },
+                { new InterpolationSearchStrategy(), false, false },
+                { new BinarySearchStrategy(), true, true },
+                { new InterpolationSearchStrategy(), true, true } });
     }
 
-    public HadoopStoreBuilderTest(SearchStrategy searchStrategy, boolean saveKeys) {
+    public HadoopStoreBuilderTest(SearchStrategy searchStrategy,
+                                  boolean saveKeys,
+                                  boolean largeOffsets) {
         this.saveKeys = saveKeys;
         this.searchStrategy = searchStrategy;
+        this.largeOffsets = largeOffsets;
     }
 
     public static class TextStoreMapper extends
@@ -160,7 +167,8 @@ public class HadoopStoreBuilderTest {
                                                             new Path(inputFile.getAbsolutePath()),
                                                             CheckSumType.MD5,
                                                             saveKeys,
-                                                            false);
+                                                            false,
+                                                            largeOffsets);
         builder.build();
 
         // Should not produce node--1 directory + have one folder for every node
@@ -224,7 +232,8 @@ public class HadoopStoreBuilderTest {
                                                             new Path(inputFile.getAbsolutePath()),
                                                             CheckSumType.MD5,
                                                             saveKeys,
-                                                            false);
+                                                            false,
+                                                            largeOffsets);
         builder.build();
 
         builder = new HadoopStoreBuilder(new Configuration(),
@@ -238,7 +247,8 @@ public class HadoopStoreBuilderTest {
                                          new Path(inputFile.getAbsolutePath()),
                                          CheckSumType.MD5,
                                          saveKeys,
-                                         false);
+                                         false,
+                                         largeOffsets);
         builder.build();
 
         // Check if checkSum is generated in outputDir
@@ -249,7 +259,10 @@ public class HadoopStoreBuilderTest {
         Assert.assertTrue(metadataFile.exists());
 
         ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata(metadataFile);
-        if(saveKeys)
+        if(largeOffsets)
+            Assert.assertEquals(metadata.get(ReadOnlyStorageMetadata.FORMAT),
+                                ReadOnlyStorageFormat.READONLY_V3.getCode());
+        else if(saveKeys)
             Assert.assertEquals(metadata.get(ReadOnlyStorageMetadata.FORMAT),
                                 ReadOnlyStorageFormat.READONLY_V2.getCode());
         else
@@ -265,6 +278,16 @@ public class HadoopStoreBuilderTest {
                                                                CheckSumType.MD5);
         Assert.assertEquals(0, ByteUtils.compare(checkSumBytes, md5));
 
+        // Index entries hold 8 bytes of the key's md5 and the position, which
+        // is 8 bytes with large offsets and 4 bytes otherwise
+        if(saveKeys) {
+            long indexBytes = 0;
+            for(File file: nodeFile.listFiles())
+                if(file.getName().endsWith(".index"))
+                    indexBytes += file.length();
+            Assert.assertEquals(values.size() * (largeOffsets ? 16 : 12), indexBytes);
+        }
+
         // check if fetching works
         HdfsFetcher fetcher = new HdfsFetcher();
 
@@ -147,6 +147,14 @@ public class KratiStorageEngine implements StorageEngine<ByteArray, byte[], byte
         return StoreUtils.keys(entries());
     }
 
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
     public boolean delete(ByteArray key, Version maxVersion) throws VoldemortException {
         StoreUtils.assertValidKey(key);
 
@@ -312,4 +320,8 @@ public class KratiStorageEngine implements StorageEngine<ByteArray, byte[], byte
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
+import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormatType;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
@@ -51,12 +52,14 @@ import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.routed.RoutedStoreFactory;
 import voldemort.store.serialized.SerializingStore;
 import voldemort.store.slop.Slop;
+import voldemort.store.stats.StatTrackingNonblockingStore;
 import voldemort.store.stats.StatTrackingStore;
 import voldemort.store.stats.StoreStats;
 import voldemort.store.stats.StoreStatsJmx;
 import voldemort.store.versioned.InconsistencyResolvingStore;
 import voldemort.utils.ByteArray;
 import voldemort.utils.JmxUtils;
+import voldemort.utils.Pair;
 import voldemort.versioning.ChainedResolver;
 import voldemort.versioning.InconsistencyResolver;
 import voldemort.versioning.TimeBasedInconsistencyResolver;
@@ -114,7 +117,10 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
         this.clientZoneId = config.getClientZoneId();
         this.routedStoreFactory = new RoutedStoreFactory(config.isPipelineRoutedStoreEnabled(),
                                                          threadPool,
-                                                         config.getRoutingTimeout(TimeUnit.MILLISECONDS));
+                                                         config.getRoutingTimeout(TimeUnit.MILLISECONDS),
+                                                         config.getHedgedRequestPercentile(),
+                                                         config.getGetBatchWindow(TimeUnit.MICROSECONDS),
+                                                         config.getGetBatchMaxKeys());
 
         if(this.isJmxEnabled) {
             JmxUtils.registerMbean(threadPool,
@@ -136,10 +142,119 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
         return new DefaultStoreClient<K, V>(storeName, resolver, this, 3);
     }
 
+    /**
+     * Get an {@link AsyncStoreClient} for the given store. Asynchronous
+     * clients require the pipeline routed store.
+     * 
+     * @param storeName The name of the store
+     * @return An asynchronous client for the store
+     */
+    public <K, V> AsyncStoreClient<K, V> getAsyncStoreClient(String storeName) {
+        return getAsyncStoreClient(storeName, null);
+    }
+
+    /**
+     * Get an {@link AsyncStoreClient} for the given store, resolving
+     * inconsistent versions with the given resolver.
+     * 
+     * @param storeName The name of the store
+     * @param resolver The inconsistency resolver, or null to use the
+     *        time-based resolver
+     * @return An asynchronous client for the store
+     */
     @SuppressWarnings("unchecked")
+    public <K, V> AsyncStoreClient<K, V> getAsyncStoreClient(String storeName,
+                                                             InconsistencyResolver<Versioned<V>> resolver) {
+        Pair<Cluster, StoreDefinition> metadata = bootstrapStore(storeName);
+        StoreDefinition storeDef = metadata.getSecond();
+        Store<ByteArray, byte[], byte[]> routedStore = createRoutedStore(metadata.getFirst(),
+                                                                         storeDef);
+
+        if(!(routedStore instanceof NonblockingStore))
+            throw new VoldemortException("Asynchronous client for store '" + storeName
+                                         + "' requires the pipeline routed store.");
+
+        NonblockingStore nonblockingStore = (NonblockingStore) routedStore;
+
+        if(isJmxEnabled)
+            nonblockingStore = new StatTrackingNonblockingStore(nonblockingStore,
+                                                                trackStats(routedStore).getStats());
+
+        Serializer<K> keySerializer = (Serializer<K>) serializerFactory.getSerializer(storeDef.getKeySerializer());
+        Serializer<V> valueSerializer = (Serializer<V>) serializerFactory.getSerializer(storeDef.getValueSerializer());
+
+        return new DefaultAsyncStoreClient<K, V>(storeName,
+                                                 nonblockingStore,
+                                                 keySerializer,
+                                                 valueSerializer,
+                                                 getCompressionStrategy(storeDef.getKeySerializer()),
+                                                 getCompressionStrategy(storeDef.getValueSerializer()),
+                                                 getResolver(resolver),
+                                                 config.getRoutingTimeout(TimeUnit.MILLISECONDS));
+    }
+
     public <K, V, T> Store<K, V, T> getRawStore(String storeName,
                                                 InconsistencyResolver<Versioned<V>> resolver) {
+        Pair<Cluster, StoreDefinition> metadata = bootstrapStore(storeName);
+        StoreDefinition storeDef = metadata.getSecond();
+        Store<ByteArray, byte[], byte[]> store = createRoutedStore(metadata.getFirst(), storeDef);
+        store = new LoggingStore<ByteArray, byte[], byte[]>(store);
+
+        if(isJmxEnabled)
+            store = trackStats(store);
+
+        return getRawStore(storeDef, store, resolver);
+    }
+
+    private StatTrackingStore trackStats(Store<ByteArray, byte[], byte[]> store) {
+        StatTrackingStore statStore = new StatTrackingStore(store, this.stats);
+        JmxUtils.registerMbean(new StoreStatsJmx(statStore.getStats()),
+                               JmxUtils.createObjectName(JmxUtils.getPackageName(statStore.getClass()),
+                                                         statStore.getName() + jmxId()));
+        return statStore;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V, T> Store<K, V, T> getRawStore(StoreDefinition storeDef,
+                                                 Store<ByteArray, byte[], byte[]> store,
+                                                 InconsistencyResolver<Versioned<V>> resolver) {
+        if(storeDef.getKeySerializer().hasCompression()
+           || storeDef.getValueSerializer().hasCompression()) {
+            store = new CompressingStore(store,
+                                         getCompressionStrategy(storeDef.getKeySerializer()),
+                                         getCompressionStrategy(storeDef.getValueSerializer()));
+        }
+
+        Serializer<K> keySerializer = (Serializer<K>) serializerFactory.getSerializer(storeDef.getKeySerializer());
+        Serializer<V> valueSerializer = (Serializer<V>) serializerFactory.getSerializer(storeDef.getValueSerializer());
+
+        if(storeDef.isView() && (storeDef.getTransformsSerializer() == null))
+            throw new SerializationException("Transforms serializer must be specified with a view ");
+
+        Serializer<T> transformsSerializer = (Serializer<T>) serializerFactory.getSerializer(storeDef.getTransformsSerializer() != null ? storeDef.getTransformsSerializer()
+                                                                                                                                       : new SerializerDefinition("identity"));
+
+        Store<K, V, T> serializedStore = SerializingStore.wrap(store,
+                                                               keySerializer,
+                                                               valueSerializer,
+                                                               transformsSerializer);
+
+        // Add inconsistency resolving decorator, using their inconsistency
+        // resolver (if they gave us one)
+        serializedStore = new InconsistencyResolvingStore<K, V, T>(serializedStore,
+                                                                   getResolver(resolver));
+        return serializedStore;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> InconsistencyResolver<Versioned<V>> getResolver(InconsistencyResolver<Versioned<V>> resolver) {
+        InconsistencyResolver<Versioned<V>> secondaryResolver = resolver == null ? new TimeBasedInconsistencyResolver()
+                                                                                : resolver;
+        return new ChainedResolver<Versioned<V>>(new VectorClockInconsistencyResolver(),
+                                                 secondaryResolver);
+    }
 
+    private Pair<Cluster, StoreDefinition> bootstrapStore(String storeName) {
         if(logger.isDebugEnabled()) {
             logger.debug("Client zone-id [" + clientZoneId + "]");
             logger.debug("Attempting to obtain metadata for store [" + storeName + "] ");
@@ -170,6 +285,11 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
             logger.debug(cluster.toString(true));
             logger.debug(storeDef.toString());
         }
+        return Pair.create(cluster, storeDef);
+    }
+
+    private Store<ByteArray, byte[], byte[]> createRoutedStore(Cluster cluster,
+                                                               StoreDefinition storeDef) {
         boolean repairReads = !storeDef.isView();
 
         // construct mapping
@@ -214,46 +334,9 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
                                                                            nonblockingSlopStores,
                                                                            repairReads,
                                                                            clientZoneId,
-                                                                           getFailureDetector());
-        store = new LoggingStore(store);
-
-        if(isJmxEnabled) {
-            StatTrackingStore statStore = new StatTrackingStore(store, this.stats);
-            store = statStore;
-            JmxUtils.registerMbean(new StoreStatsJmx(statStore.getStats()),
-                                   JmxUtils.createObjectName(JmxUtils.getPackageName(store.getClass()),
-                                                             store.getName() + jmxId()));
-        }
-
-        if(storeDef.getKeySerializer().hasCompression()
-           || storeDef.getValueSerializer().hasCompression()) {
-            store = new CompressingStore(store,
-                                         getCompressionStrategy(storeDef.getKeySerializer()),
-                                         getCompressionStrategy(storeDef.getValueSerializer()));
-        }
-
-        Serializer<K> keySerializer = (Serializer<K>) serializerFactory.getSerializer(storeDef.getKeySerializer());
-        Serializer<V> valueSerializer = (Serializer<V>) serializerFactory.getSerializer(storeDef.getValueSerializer());
-
-        if(storeDef.isView() && (storeDef.getTransformsSerializer() == null))
-            throw new SerializationException("Transforms serializer must be specified with a view ");
-
-        Serializer<T> transformsSerializer = (Serializer<T>) serializerFactory.getSerializer(storeDef.getTransformsSerializer() != null ? storeDef.getTransformsSerializer()
-                                                                                                                                       : new SerializerDefinition("identity"));
-
-        Store<K, V, T> serializedStore = SerializingStore.wrap(store,
-                                                               keySerializer,
-                                                               valueSerializer,
-                                                               transformsSerializer);
-
-        // Add inconsistency resolving decorator, using their inconsistency
-        // resolver (if they gave us one)
-        InconsistencyResolver<Versioned<V>> secondaryResolver = resolver == null ? new TimeBasedInconsistencyResolver()
-                                                                                : resolver;
-        serializedStore = new InconsistencyResolvingStore<K, V, T>(serializedStore,
-                                                                   new ChainedResolver<Versioned<V>>(new VectorClockInconsistencyResolver(),
-                                                                                                     secondaryResolver));
-        return serializedStore;
+                                                                           getFailureDetector(),
+                                                                           config.getHedgedRequestPercentile(storeDef.getName()));
+        return store;
     }
 
     protected ClientConfig getConfig() {
@@ -384,6 +467,7 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
     }
 
     public void close() {
+        this.routedStoreFactory.close();
         this.threadPool.shutdown();
 
         try {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.client;
+
+import java.util.Map;
+
+import voldemort.annotations.concurrency.Threadsafe;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+/**
+ * An asynchronous version of {@link StoreClient}. Every operation returns as
+ * soon as the request has been submitted; its result is delivered through the
+ * returned {@link StoreFuture}.
+ * 
+ * @param <K> The type of the key being stored
+ * @param <V> The type of the value being stored
+ * 
+ * @see StoreClient
+ */
+@Threadsafe
+public interface AsyncStoreClient<K, V> {
+
+    /**
+     * Get the versioned value associated with the given key, or null if no
+     * value is associated with the key.
+     * 
+     * @param key The key to retrieve
+     * @return A future for the value
+     */
+    public StoreFuture<Versioned<V>> get(K key);
+
+    /**
+     * Gets the versioned values associated with the given keys. Keys that
+     * have no value are not present in the returned map.
+     * 
+     * @param keys The keys to retrieve
+     * @return A future for the map of keys to values
+     */
+    public StoreFuture<Map<K, Versioned<V>>> getAll(Iterable<K> keys);
+
+    /**
+     * Associate the given value to the key, clobbering any existing values
+     * stored for the key.
+     * 
+     * @param key The key
+     * @param value The value
+     * @return A future for the version of the value that was stored
+     */
+    public StoreFuture<Version> put(K key, V value);
+
+    /**
+     * Put the given Versioned value into the store for the given key if the
+     * version is greater to or concurrent with existing values. The future
+     * completes with an ObsoleteVersionException otherwise.
+     * 
+     * @param key The key
+     * @param versioned The value and its version
+     * @return A future for the version of the value that was stored
+     */
+    public StoreFuture<Version> put(K key, Versioned<V> versioned);
+
+    /**
+     * Delete any version of the given key which equal to or less than the
+     * current versions
+     * 
+     * @param key The key
+     * @param version The version
+     * @return A future that is true if anything was deleted
+     */
+    public StoreFuture<Boolean> delete(K key, Version version);
+
+    /**
+     * Read the value of the key, compute its new value with the given action
+     * and store it, starting over as long as the write fails with an
+     * ObsoleteVersionException. This is useful for implementing a
+     * read-modify-store loop that could be pre-empted by another concurrent
+     * update, and should be repeated until it succeeds.
+     * 
+     * @param key The key to update
+     * @param action The action computing the new value
+     * @return A future that is true if the action is successfully applied,
+     *         false if the 3 attempts all result in ObsoleteVersionException
+     */
+    public StoreFuture<Boolean> applyUpdate(K key, AsyncUpdateAction<V> action);
+
+    /**
+     * Read the value of the key, compute its new value with the given action
+     * and store it, starting over as long as the write fails with an
+     * ObsoleteVersionException and fewer than maxTries attempts have been
+     * made.
+     * 
+     * @param key The key to update
+     * @param action The action computing the new value
+     * @param maxTries The maximum number of attempts
+     * @return A future that is true if the action is successfully applied,
+     *         false if maxTries failed attempts have been made
+     */
+    public StoreFuture<Boolean> applyUpdate(K key, AsyncUpdateAction<V> action, int maxTries);
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.client;
+
+/**
+ * A read-modify-store cycle on a single key of an {@link AsyncStoreClient}.
+ * Unlike an {@link UpdateAction} it is not handed a client to call, it only
+ * computes the new value from the current one, so that the client can chain
+ * the read and the write without a thread waiting in between.
+ * 
+ * The update action must be idempotent since it may be called multiple times.
+ * 
+ * @param <V> The type of the value being stored
+ */
+public abstract class AsyncUpdateAction<V> {
+
+    /**
+     * Compute the value to store.
+     * 
+     * @param value The current value of the key, or null if it has none
+     * @return The new value
+     */
+    public abstract V update(V value);
+
+    /**
+     * A hook for the user to override with any rollback actions they want
+     * performed when the update fails (say due to an exception or due to too
+     * many ObsoleteVersionExceptions).
+     */
+    public void rollback() {}
+
+}
@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
@@ -64,6 +66,10 @@ public class ClientConfig {
     private volatile boolean enableLazy = true;
 
     private volatile boolean enablePipelineRoutedStore = true;
+    private volatile double hedgedRequestPercentile = 0;
+    private final Map<String, Double> storeHedgedRequestPercentiles = new ConcurrentHashMap<String, Double>();
+    private volatile long getBatchWindowUs = 0;
+    private volatile int getBatchMaxKeys = 100;
     private volatile int clientZoneId = Zone.DEFAULT_ZONE_ID;
 
     private volatile String failureDetectorImplementation = FailureDetectorConfig.DEFAULT_IMPLEMENTATION_CLASS_NAME;
@@ -98,6 +104,9 @@ public class ClientConfig {
     public static final String REQUEST_FORMAT_PROPERTY = "request_format";
     public static final String ENABLE_JMX_PROPERTY = "enable_jmx";
     public static final String ENABLE_PIPELINE_ROUTED_STORE_PROPERTY = "enable_pipeline_routed_store";
+    public static final String HEDGED_REQUEST_PERCENTILE_PROPERTY = "hedged_request_percentile";
+    public static final String GET_BATCH_WINDOW_US_PROPERTY = "get_batch_window_us";
+    public static final String GET_BATCH_MAX_KEYS_PROPERTY = "get_batch_max_keys";
     public static final String ENABLE_HINTED_HANDOFF_PROPERTY = "enable_hinted_handoff";
     public static final String ENABLE_LAZY_PROPERTY = "enable-lazy";
     public static final String CLIENT_ZONE_ID = "client_zone_id";
@@ -199,6 +208,22 @@ public class ClientConfig {
         if(props.containsKey(ENABLE_PIPELINE_ROUTED_STORE_PROPERTY))
             this.setEnablePipelineRoutedStore(props.getBoolean(ENABLE_PIPELINE_ROUTED_STORE_PROPERTY));
 
+        if(props.containsKey(HEDGED_REQUEST_PERCENTILE_PROPERTY))
+            this.setHedgedRequestPercentile(props.getDouble(HEDGED_REQUEST_PERCENTILE_PROPERTY));
+
+        for(String key: props.keySet()) {
+            if(key.startsWith(HEDGED_REQUEST_PERCENTILE_PROPERTY + "."))
+                this.setHedgedRequestPercentile(key.substring(HEDGED_REQUEST_PERCENTILE_PROPERTY.length() + 1),
+                                                props.getDouble(key));
+        }
+
+        if(props.containsKey(GET_BATCH_WINDOW_US_PROPERTY))
+            this.setGetBatchWindow(props.getLong(GET_BATCH_WINDOW_US_PROPERTY),
+                                   TimeUnit.MICROSECONDS);
+
+        if(props.containsKey(GET_BATCH_MAX_KEYS_PROPERTY))
+            this.setGetBatchMaxKeys(props.getInt(GET_BATCH_MAX_KEYS_PROPERTY));
+
         if(props.containsKey(CLIENT_ZONE_ID))
             this.setClientZoneId(props.getInt(CLIENT_ZONE_ID));
 
@@ -543,6 +568,97 @@ public class ClientConfig {
         return this;
     }
 
+    public double getHedgedRequestPercentile() {
+        return hedgedRequestPercentile;
+    }
+
+    /**
+     * If a get takes longer than this percentile of the recent response times
+     * of the nodes it went to, the pipeline routed store also sends it to the
+     * next node in the preference list and uses whichever answers first. Only
+     * reads that ask fewer nodes than the replication factor can be hedged,
+     * so this has no effect on stores whose preferred reads equal their
+     * replication factor.
+     * 
+     * @param hedgedRequestPercentile Percentile between 0 and 100, or 0 to
+     *        disable hedged requests (the default)
+     */
+    public ClientConfig setHedgedRequestPercentile(double hedgedRequestPercentile) {
+        validateHedgedRequestPercentile(hedgedRequestPercentile);
+        this.hedgedRequestPercentile = hedgedRequestPercentile;
+        return this;
+    }
+
+    /**
+     * The hedged request percentile for a single store, which can be set with
+     * hedged_request_percentile.&lt;store name&gt; and otherwise defaults to
+     * hedged_request_percentile
+     */
+    public double getHedgedRequestPercentile(String storeName) {
+        Double storeHedgedRequestPercentile = storeHedgedRequestPercentiles.get(storeName);
+        return storeHedgedRequestPercentile != null ? storeHedgedRequestPercentile
+                                                    : hedgedRequestPercentile;
+    }
+
+    /**
+     * Overrides the hedged request percentile for a single store, which can
+     * also be set with hedged_request_percentile.&lt;store name&gt;
+     * 
+     * @param storeName The name of the store
+     * @param hedgedRequestPercentile Percentile between 0 and 100, or 0 to
+     *        disable hedged requests for the store
+     * @see #setHedgedRequestPercentile(double)
+     */
+    public ClientConfig setHedgedRequestPercentile(String storeName, double hedgedRequestPercentile) {
+        validateHedgedRequestPercentile(hedgedRequestPercentile);
+        this.storeHedgedRequestPercentiles.put(storeName, hedgedRequestPercentile);
+        return this;
+    }
+
+    private void validateHedgedRequestPercentile(double hedgedRequestPercentile) {
+        if(hedgedRequestPercentile < 0 || hedgedRequestPercentile >= 100)
+            throw new IllegalArgumentException("Hedged request percentile must be at least 0 and less than 100.");
+    }
+
+    public long getGetBatchWindow(TimeUnit unit) {
+        return unit.convert(getBatchWindowUs, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Gets and getAlls that are sent to the same node within this window are
+     * coalesced into a single getAll request to that node. A short window
+     * (tens to hundreds of microseconds) trades a little latency for far
+     * fewer requests when many threads read from the same store.
+     * 
+     * @param getBatchWindow The batching window, or 0 to send every request
+     *        immediately (the default)
+     * @param unit The time unit of the window
+     */
+    public ClientConfig setGetBatchWindow(long getBatchWindow, TimeUnit unit) {
+        if(getBatchWindow < 0)
+            throw new IllegalArgumentException("Get batch window cannot be negative.");
+        this.getBatchWindowUs = unit.toMicros(getBatchWindow);
+        return this;
+    }
+
+    public int getGetBatchMaxKeys() {
+        return getBatchMaxKeys;
+    }
+
+    /**
+     * A batch is sent as soon as it has this many distinct keys, without
+     * waiting for the end of the {@link #setGetBatchWindow(long, TimeUnit)
+     * batching window}.
+     * 
+     * @param getBatchMaxKeys The maximum number of keys in a batch
+     */
+    public ClientConfig setGetBatchMaxKeys(int getBatchMaxKeys) {
+        if(getBatchMaxKeys <= 0)
+            throw new IllegalArgumentException("Get batch max keys must be positive.");
+        this.getBatchMaxKeys = getBatchMaxKeys;
+        return this;
+    }
+
     public String getFailureDetectorImplementation() {
         return failureDetectorImplementation;
     }
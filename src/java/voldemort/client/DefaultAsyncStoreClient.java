@@ -0,0 +1,381 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import voldemort.annotations.concurrency.Threadsafe;
+import voldemort.serialization.Serializer;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.InconsistencyResolver;
+import voldemort.versioning.InconsistentDataException;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The default {@link AsyncStoreClient}. Requests are submitted to the
+ * {@link NonblockingStore nonblocking} routed store and their futures are
+ * completed from its callbacks, so no client thread waits on the network.
+ * 
+ * <p/>
+ * 
+ * Unlike {@link DefaultStoreClient}, this client does not re-bootstrap its
+ * metadata on an InvalidMetadataException; the future simply completes with
+ * the exception.
+ * 
+ * @param <K> The type of the key being stored
+ * @param <V> The type of the value being stored
+ */
+@Threadsafe
+public class DefaultAsyncStoreClient<K, V> implements AsyncStoreClient<K, V> {
+
+    private final String storeName;
+
+    private final NonblockingStore store;
+
+    private final Serializer<K> keySerializer;
+
+    private final Serializer<V> valueSerializer;
+
+    private final CompressionStrategy keyCompressionStrategy;
+
+    private final CompressionStrategy valueCompressionStrategy;
+
+    private final InconsistencyResolver<Versioned<V>> resolver;
+
+    private final long timeoutMs;
+
+    public DefaultAsyncStoreClient(String storeName,
+                                   NonblockingStore store,
+                                   Serializer<K> keySerializer,
+                                   Serializer<V> valueSerializer,
+                                   CompressionStrategy keyCompressionStrategy,
+                                   CompressionStrategy valueCompressionStrategy,
+                                   InconsistencyResolver<Versioned<V>> resolver,
+                                   long timeoutMs) {
+        this.storeName = storeName;
+        this.store = store;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.keyCompressionStrategy = keyCompressionStrategy;
+        this.valueCompressionStrategy = valueCompressionStrategy;
+        this.resolver = resolver;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public StoreFuture<Versioned<V>> get(final K key) {
+        final StoreFuture<Versioned<V>> future = new StoreFuture<Versioned<V>>();
+
+        try {
+            store.submitGetRequest(toByteArray(key), null, new Callback<Versioned<V>>(future) {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void handleResult(Object result) throws Exception {
+                    future.complete(getItemOrThrow(key, (List<Versioned<byte[]>>) result));
+                }
+
+            }, timeoutMs);
+        } catch(Exception e) {
+            future.completeWithException(e);
+        }
+
+        return future;
+    }
+
+    public StoreFuture<Map<K, Versioned<V>>> getAll(Iterable<K> keys) {
+        final StoreFuture<Map<K, Versioned<V>>> future = new StoreFuture<Map<K, Versioned<V>>>();
+
+        try {
+            final Map<ByteArray, K> byteKeys = new HashMap<ByteArray, K>();
+
+            for(K key: keys)
+                byteKeys.put(toByteArray(key), key);
+
+            store.submitGetAllRequest(byteKeys.keySet(),
+                                      null,
+                                      new Callback<Map<K, Versioned<V>>>(future) {
+
+                                          @Override
+                                          @SuppressWarnings("unchecked")
+                                          protected void handleResult(Object result)
+                                                  throws Exception {
+                                              Map<ByteArray, List<Versioned<byte[]>>> items = (Map<ByteArray, List<Versioned<byte[]>>>) result;
+                                              Map<K, Versioned<V>> values = Maps.newHashMapWithExpectedSize(items.size());
+
+                                              for(Map.Entry<ByteArray, List<Versioned<byte[]>>> entry: items.entrySet()) {
+                                                  K key = byteKeys.get(entry.getKey());
+                                                  values.put(key,
+                                                             getItemOrThrow(key, entry.getValue()));
+                                              }
+
+                                              future.complete(values);
+                                          }
+
+                                      },
+                                      timeoutMs);
+        } catch(Exception e) {
+            future.completeWithException(e);
+        }
+
+        return future;
+    }
+
+    public StoreFuture<Version> put(final K key, final V value) {
+        final StoreFuture<Version> future = new StoreFuture<Version>();
+
+        try {
+            store.submitGetVersionsRequest(toByteArray(key), new Callback<Version>(future) {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void handleResult(Object result) throws Exception {
+                    List<Version> versions = (List<Version>) result;
+
+                    if(versions.isEmpty())
+                        put(key, Versioned.value(value, new VectorClock()), future);
+                    else if(versions.size() == 1)
+                        put(key, Versioned.value(value, versions.get(0)), future);
+                    else
+                        putResolved(key, value, future);
+                }
+
+            }, timeoutMs);
+        } catch(Exception e) {
+            future.completeWithException(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * There are concurrent versions of the key, so fetch and resolve them
+     * before putting the new value on top of the winner.
+     */
+    private void putResolved(final K key, final V value, final StoreFuture<Version> future) {
+        get(key).addListener(new StoreFutureListener<Versioned<V>>() {
+
+            public void futureCompleted(StoreFuture<Versioned<V>> getFuture) {
+                try {
+                    Versioned<V> versioned = getFuture.get();
+
+                    if(versioned == null)
+                        versioned = Versioned.value(value, new VectorClock());
+                    else
+                        versioned.setObject(value);
+
+                    put(key, versioned, future);
+                } catch(Exception e) {
+                    future.completeWithException(unwrap(e));
+                }
+            }
+
+        });
+    }
+
+    public StoreFuture<Version> put(K key, Versioned<V> versioned) {
+        StoreFuture<Version> future = new StoreFuture<Version>();
+        put(key, versioned, future);
+        return future;
+    }
+
+    private void put(K key, final Versioned<V> versioned, StoreFuture<Version> future) {
+        try {
+            byte[] value = valueCompressionStrategy.deflate(valueSerializer.toBytes(versioned.getValue()));
+            store.submitPutRequest(toByteArray(key),
+                                   new Versioned<byte[]>(value, versioned.getVersion()),
+                                   null,
+                                   new Callback<Version>(future) {
+
+                                       @Override
+                                       protected void handleResult(Object result) {
+                                           future.complete(versioned.getVersion());
+                                       }
+
+                                   },
+                                   timeoutMs);
+        } catch(Exception e) {
+            future.completeWithException(e);
+        }
+    }
+
+    public StoreFuture<Boolean> delete(K key, Version version) {
+        StoreFuture<Boolean> future = new StoreFuture<Boolean>();
+
+        try {
+            store.submitDeleteRequest(toByteArray(key), version, new Callback<Boolean>(future) {
+
+                @Override
+                protected void handleResult(Object result) {
+                    future.complete((Boolean) result);
+                }
+
+            }, timeoutMs);
+        } catch(Exception e) {
+            future.completeWithException(e);
+        }
+
+        return future;
+    }
+
+    public StoreFuture<Boolean> applyUpdate(K key, AsyncUpdateAction<V> action) {
+        return applyUpdate(key, action, 3);
+    }
+
+    public StoreFuture<Boolean> applyUpdate(K key, AsyncUpdateAction<V> action, int maxTries) {
+        StoreFuture<Boolean> future = new StoreFuture<Boolean>();
+        applyUpdate(key, action, maxTries, future);
+        return future;
+    }
+
+    /**
+     * Gets the value, and once it is in puts the updated value, starting over
+     * from the put's callback if the put turns out to be obsolete.
+     */
+    private void applyUpdate(final K key,
+                             final AsyncUpdateAction<V> action,
+                             final int triesLeft,
+                             final StoreFuture<Boolean> future) {
+        if(triesLeft <= 0) {
+            // we have seen too many ObsoleteVersionExceptions
+            try {
+                action.rollback();
+                future.complete(false);
+            } catch(Exception e) {
+                future.completeWithException(e);
+            }
+            return;
+        }
+
+        get(key).addListener(new StoreFutureListener<Versioned<V>>() {
+
+            public void futureCompleted(StoreFuture<Versioned<V>> getFuture) {
+                try {
+                    Versioned<V> versioned = getFuture.get();
+                    V value = action.update(versioned == null ? null : versioned.getValue());
+
+                    if(versioned == null)
+                        versioned = Versioned.value(value);
+                    else
+                        versioned.setObject(value);
+
+                    put(key, versioned).addListener(new StoreFutureListener<Version>() {
+
+                        public void futureCompleted(StoreFuture<Version> putFuture) {
+                            try {
+                                putFuture.get();
+                                future.complete(true);
+                            } catch(Exception e) {
+                                if(unwrap(e) instanceof ObsoleteVersionException)
+                                    applyUpdate(key, action, triesLeft - 1, future);
+                                else
+                                    rollback(action, unwrap(e), future);
+                            }
+                        }
+
+                    });
+                } catch(Exception e) {
+                    rollback(action, unwrap(e), future);
+                }
+            }
+
+        });
+    }
+
+    private void rollback(AsyncUpdateAction<V> action, Exception e, StoreFuture<Boolean> future) {
+        try {
+            action.rollback();
+        } finally {
+            future.completeWithException(e);
+        }
+    }
+
+    private ByteArray toByteArray(K key) throws IOException {
+        return new ByteArray(keyCompressionStrategy.deflate(keySerializer.toBytes(key)));
+    }
+
+    private Versioned<V> getItemOrThrow(K key, List<Versioned<byte[]>> values) throws IOException {
+        List<Versioned<V>> items = new ArrayList<Versioned<V>>(values.size());
+
+        for(Versioned<byte[]> value: values) {
+            byte[] bytes = valueCompressionStrategy.inflate(value.getValue());
+            items.add(new Versioned<V>(valueSerializer.toObject(bytes), value.getVersion()));
+        }
+
+        items = resolver.resolveConflicts(items);
+
+        if(items.size() == 0)
+            return null;
+        else if(items.size() == 1)
+            return items.get(0);
+        else
+            throw new InconsistentDataException("Unresolved versions returned from get(" + key
+                                                + ") = " + items, items);
+    }
+
+    private static Exception unwrap(Exception e) {
+        if(e instanceof ExecutionException && e.getCause() instanceof Exception)
+            return (Exception) e.getCause();
+
+        return e;
+    }
+
+    /**
+     * Completes the future with the exception if the request failed, and
+     * otherwise hands the result on to {@link #handleResult(Object)}.
+     */
+    private abstract static class Callback<T> implements NonblockingStoreCallback {
+
+        protected final StoreFuture<T> future;
+
+        protected Callback(StoreFuture<T> future) {
+            this.future = future;
+        }
+
+        public void requestComplete(Object result, long requestTime) {
+            if(result instanceof Exception) {
+                future.completeWithException((Exception) result);
+                return;
+            }
+
+            try {
+                handleResult(result);
+            } catch(Exception e) {
+                future.completeWithException(e);
+            }
+        }
+
+        protected abstract void handleResult(Object result) throws Exception;
+
+    }
+
+}
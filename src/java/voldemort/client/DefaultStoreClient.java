@@ -82,6 +82,27 @@ public class DefaultStoreClient<K, V> implements StoreClient<K, V> {
         bootStrap();
     }
 
+    /**
+     * Create a client around a store the factory has just bootstrapped, only
+     * bootstrapping again if the metadata turns out to be invalid
+     */
+    DefaultStoreClient(String storeName,
+                       InconsistencyResolver<Versioned<V>> resolver,
+                       StoreClientFactory storeFactory,
+                       int maxMetadataRefreshAttempts,
+                       Store<K, V, Object> store) {
+        this.storeName = Utils.notNull(storeName);
+        this.resolver = resolver;
+        this.storeFactory = Utils.notNull(storeFactory);
+        this.metadataRefreshAttempts = maxMetadataRefreshAttempts;
+        this.store = Utils.notNull(store);
+
+        JmxUtils.registerMbean(this,
+                               JmxUtils.createObjectName(JmxUtils.getPackageName(this.getClass()),
+                                                         JmxUtils.getClassName(this.getClass())
+                                                                 + "." + storeName));
+    }
+
     @JmxOperation(description = "bootstrap metadata from the cluster.")
     public void bootStrap() {
         logger.info("Bootstrapping metadata for store " + this.storeName);
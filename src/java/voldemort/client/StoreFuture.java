@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import voldemort.annotations.concurrency.Threadsafe;
+
+/**
+ * The pending result of an {@link AsyncStoreClient} operation. In addition to
+ * the usual {@link Future} methods, a {@link StoreFutureListener listener} can
+ * be registered to be called back when the result arrives, so that no thread
+ * needs to wait for it.
+ * 
+ * <p/>
+ * 
+ * Requests can't be cancelled once they were sent, so {@link #cancel(boolean)}
+ * always returns false.
+ * 
+ * @param <T> The type of the result
+ */
+@Threadsafe
+public class StoreFuture<T> implements Future<T> {
+
+    private static final Logger logger = Logger.getLogger(StoreFuture.class);
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private final List<StoreFutureListener<T>> listeners = new ArrayList<StoreFutureListener<T>>();
+
+    private T result;
+
+    private Exception exception;
+
+    private boolean isDone;
+
+    /**
+     * Registers a listener to call once the future completes. If it's already
+     * complete, the listener is called right away by the calling thread.
+     * 
+     * @param listener The listener
+     */
+    public void addListener(StoreFutureListener<T> listener) {
+        synchronized(this) {
+            if(!isDone) {
+                listeners.add(listener);
+                return;
+            }
+        }
+
+        notifyListener(listener);
+    }
+
+    /**
+     * Completes the future with the given result.
+     * 
+     * @return False if the future was already complete
+     */
+    public boolean complete(T result) {
+        return complete(result, null);
+    }
+
+    /**
+     * Completes the future with the given exception, which {@link #get()} will
+     * throw wrapped in an {@link ExecutionException}.
+     * 
+     * @return False if the future was already complete
+     */
+    public boolean completeWithException(Exception exception) {
+        return complete(null, exception);
+    }
+
+    private boolean complete(T result, Exception exception) {
+        List<StoreFutureListener<T>> toNotify;
+
+        synchronized(this) {
+            if(isDone)
+                return false;
+
+            this.result = result;
+            this.exception = exception;
+            this.isDone = true;
+            toNotify = new ArrayList<StoreFutureListener<T>>(listeners);
+            listeners.clear();
+        }
+
+        latch.countDown();
+
+        for(StoreFutureListener<T> listener: toNotify)
+            notifyListener(listener);
+
+        return true;
+    }
+
+    private void notifyListener(StoreFutureListener<T> listener) {
+        try {
+            listener.futureCompleted(this);
+        } catch(Exception e) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn(e, e);
+        }
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return false;
+    }
+
+    public synchronized boolean isDone() {
+        return isDone;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        if(!latch.await(timeout, unit))
+            throw new TimeoutException();
+
+        return getResult();
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if(exception != null)
+            throw new ExecutionException(exception);
+
+        return result;
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.client;
+
+/**
+ * A callback that is invoked once a {@link StoreFuture} completes.
+ * 
+ * @param <T> The type of the future's result
+ */
+public interface StoreFutureListener<T> {
+
+    /**
+     * Invoked when the future completes, either successfully or with an
+     * exception. This may be invoked by one of the client's internal threads,
+     * so implementations should not block.
+     * 
+     * @param future The future that completed; {@link StoreFuture#get()} will
+     *        not block
+     */
+    public void futureCompleted(StoreFuture<T> future);
+
+}
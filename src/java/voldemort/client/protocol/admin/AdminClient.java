@@ -27,6 +27,7 @@ import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -48,6 +49,7 @@ import voldemort.client.SocketStoreClientFactory;
 import voldemort.client.protocol.RequestFormatType;
 import voldemort.client.protocol.VoldemortFilter;
 import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.StreamFrameBuilder;
 import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.client.protocol.pb.VAdminProto.RebalancePartitionInfoMap;
 import voldemort.client.protocol.pb.VProto;
@@ -230,7 +232,10 @@ public class AdminClient {
      * </li>
      * <li>While entryIterator has entries, the client will keep sending the
      * updates one after another to the server, buffering the data, without
-     * waiting for a response from the server.</li>
+     * waiting for a response from the server. If
+     * {@link AdminClientConfig#getStreamFrameMaxEntries()} is set the updates
+     * are packed (and optionally compressed) into frames of many entries each.
+     * </li>
      * <li>After iteration is complete, send an end of stream message, force a
      * flush of the buffer, check the response on the server to check if a
      * {@link VoldemortException} has occured.</li>
@@ -247,6 +252,42 @@ public class AdminClient {
                               String storeName,
                               Iterator<Pair<ByteArray, Versioned<byte[]>>> entryIterator,
                               VoldemortFilter filter) {
+        updateEntries(nodeId, storeName, entryIterator, filter, false);
+    }
+
+    /**
+     * Bulk load a stream of key/value entries, sorted by key, into the given
+     * node. Entries are streamed as by
+     * {@link #updateEntries(int, String, Iterator, VoldemortFilter)}, but a
+     * BDB store writes them into a separate deferred-write database without
+     * per entry transactions. Only keys which do not arrive in order are
+     * checked against the versions already loaded. Once the stream ends the
+     * entries already in the store are reconciled with the loaded ones and the
+     * loaded database replaces the store's database.
+     * <p>
+     * Meant for initial loads and restores of nodes which are not yet taking
+     * traffic, other stores fall back to updating the entries one by one.
+     * 
+     * @param nodeId Id of the remote node (where we wish to load the entries)
+     * @param storeName Store name for the entries
+     * @param entryIterator Iterator of key-value pairs for the entries, sorted
+     *        by key
+     * @param filter Custom filter implementation to filter out entries which
+     *        should not be loaded.
+     * @throws VoldemortException
+     */
+    public void bulkLoadEntries(int nodeId,
+                                String storeName,
+                                Iterator<Pair<ByteArray, Versioned<byte[]>>> entryIterator,
+                                VoldemortFilter filter) {
+        updateEntries(nodeId, storeName, entryIterator, filter, true);
+    }
+
+    private void updateEntries(int nodeId,
+                               String storeName,
+                               Iterator<Pair<ByteArray, Versioned<byte[]>>> entryIterator,
+                               VoldemortFilter filter,
+                               boolean bulkLoad) {
         Node node = this.getAdminClientCluster().getNodeById(nodeId);
         SocketDestination destination = new SocketDestination(node.getHost(),
                                                               node.getAdminPort(),
@@ -257,6 +298,7 @@ public class AdminClient {
         boolean firstMessage = true;
         long printStatsTimer = System.currentTimeMillis() + PRINT_STATS_INTERVAL;
         long entryCount = 0;
+        StreamFrameBuilder frameBuilder = newFrameBuilder();
 
         try {
             if(entryIterator.hasNext()) {
@@ -267,13 +309,28 @@ public class AdminClient {
                                                                                           .setVersioned(ProtoUtils.encodeVersioned(entry.getSecond()))
                                                                                           .build();
                     VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
-                                                                                                                               .setStore(storeName)
-                                                                                                                               .setPartitionEntry(partitionEntry);
+                                                                                                                               .setStore(storeName);
                     entryCount++;
+                    if(frameBuilder != null) {
+                        frameBuilder.add(partitionEntry);
+                        if(!frameBuilder.isFull() && entryIterator.hasNext())
+                            continue;
+                        updateRequest.setFrame(frameBuilder.build());
+                    } else {
+                        updateRequest.setPartitionEntry(partitionEntry);
+                    }
+
                     if(firstMessage) {
                         if(filter != null) {
                             updateRequest.setFilter(encodeFilter(filter));
                         }
+                        if(frameBuilder != null
+                           && adminClientConfig.getStreamFrameCompression() != null) {
+                            updateRequest.setFrameCompression(adminClientConfig.getStreamFrameCompression());
+                        }
+                        if(bulkLoad) {
+                            updateRequest.setBulkLoad(true);
+                        }
 
                         ProtoUtils.writeMessage(outputStream,
                                                 VAdminProto.VoldemortAdminRequest.newBuilder()
@@ -344,6 +401,13 @@ public class AdminClient {
             fetchRequest.setInitialCluster(new ClusterMapper().writeCluster(initialCluster));
         }
 
+        if(adminClientConfig.getStreamFrameMaxEntries() > 0) {
+            fetchRequest.setFrameMaxEntries(adminClientConfig.getStreamFrameMaxEntries())
+                        .setFrameMaxBytes(adminClientConfig.getStreamFrameMaxBytes());
+            if(adminClientConfig.getStreamFrameCompression() != null)
+                fetchRequest.setFrameCompression(adminClientConfig.getStreamFrameCompression());
+        }
+
         VAdminProto.VoldemortAdminRequest request = VAdminProto.VoldemortAdminRequest.newBuilder()
                                                                                      .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_ENTRIES)
                                                                                      .setFetchPartitionEntries(fetchRequest)
@@ -353,6 +417,18 @@ public class AdminClient {
 
     }
 
+    /**
+     * Creates the frame builder for streaming entries to a server, or null if
+     * frames are disabled in the client config
+     */
+    private StreamFrameBuilder newFrameBuilder() {
+        if(adminClientConfig.getStreamFrameMaxEntries() <= 0)
+            return null;
+        return new StreamFrameBuilder(adminClientConfig.getStreamFrameMaxEntries(),
+                                      adminClientConfig.getStreamFrameMaxBytes(),
+                                      adminClientConfig.getStreamFrameCompression());
+    }
+
     private VAdminProto.FetchPartitionEntriesResponse responseFromStream(DataInputStream inputStream,
                                                                          int size)
             throws IOException {
@@ -476,26 +552,41 @@ public class AdminClient {
             throw new VoldemortException(e);
         }
 
+        final String frameCompression = adminClientConfig.getStreamFrameCompression();
         return new AbstractIterator<Pair<ByteArray, Versioned<byte[]>>>() {
 
+            private Iterator<ByteString> frameEntries = Collections.<ByteString> emptyList()
+                                                                   .iterator();
+
             @Override
             public Pair<ByteArray, Versioned<byte[]>> computeNext() {
                 try {
-                    int size = inputStream.readInt();
-                    if(size == -1) {
-                        pool.checkin(destination, sands);
-                        return endOfData();
-                    }
+                    VAdminProto.PartitionEntry partitionEntry;
+                    if(frameEntries.hasNext()) {
+                        partitionEntry = VAdminProto.PartitionEntry.parseFrom(frameEntries.next());
+                    } else {
+                        int size = inputStream.readInt();
+                        if(size == -1) {
+                            pool.checkin(destination, sands);
+                            return endOfData();
+                        }
 
-                    VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
-                                                                                            size);
+                        VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
+                                                                                                size);
 
-                    if(response.hasError()) {
-                        pool.checkin(destination, sands);
-                        throwException(response.getError());
-                    }
+                        if(response.hasError()) {
+                            pool.checkin(destination, sands);
+                            throwException(response.getError());
+                        }
 
-                    VAdminProto.PartitionEntry partitionEntry = response.getPartitionEntry();
+                        if(response.hasFrame()) {
+                            frameEntries = StreamFrameBuilder.parse(response.getFrame(),
+                                                                    frameCompression)
+                                                             .iterator();
+                            return computeNext();
+                        }
+                        partitionEntry = response.getPartitionEntry();
+                    }
 
                     return Pair.create(ProtoUtils.decodeBytes(partitionEntry.getKey()),
                                        ProtoUtils.decodeVersioned(partitionEntry.getVersioned()));
@@ -606,11 +697,18 @@ public class AdminClient {
             throw new VoldemortException(e);
         }
 
+        final String frameCompression = adminClientConfig.getStreamFrameCompression();
         return new AbstractIterator<ByteArray>() {
 
+            private Iterator<ByteString> frameKeys = Collections.<ByteString> emptyList()
+                                                                .iterator();
+
             @Override
             public ByteArray computeNext() {
                 try {
+                    if(frameKeys.hasNext())
+                        return ProtoUtils.decodeBytes(frameKeys.next());
+
                     int size = inputStream.readInt();
                     if(size == -1) {
                         pool.checkin(destination, sands);
@@ -625,6 +723,12 @@ public class AdminClient {
                         throwException(response.getError());
                     }
 
+                    if(response.hasFrame()) {
+                        frameKeys = StreamFrameBuilder.parse(response.getFrame(), frameCompression)
+                                                      .iterator();
+                        return computeNext();
+                    }
+
                     return ProtoUtils.decodeBytes(response.getKey());
                 } catch(IOException e) {
                     close(sands.getSocket());
@@ -715,7 +819,7 @@ public class AdminClient {
         // current node list, find its replica
         for(Node node: cluster.getNodes()) {
             for(int partitionId: node.getPartitionIds()) {
-                List<Integer> replicatingPartitions = strategy.getReplicatingPartitionList(partitionId);
+                List<Integer> replicatingPartitions = Lists.newArrayList(strategy.getReplicatingPartitionList(partitionId));
                 List<Integer> extraCopyReplicatingPartitions = Lists.newArrayList(replicatingPartitions);
 
                 if(replicatingPartitions.size() <= 1) {
@@ -2043,6 +2147,91 @@ public class AdminClient {
                                          + ") to store " + storeName + " does not exist");
         }
 
+        // Add the metadata file if it doesn't exist - We do this because
+        // for new nodes the stores don't start with any metadata file. The
+        // files are copied as is, so use the format of the source node
+        File metadataFile = new File(destinationDirPath, ".metadata");
+        if(!metadataFile.exists()) {
+            String format = getROStorageFormat(nodeId, Lists.newArrayList(storeName))
+                            .get(storeName);
+            ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+            metadata.add(ReadOnlyStorageMetadata.FORMAT,
+                         format != null ? format : ReadOnlyStorageFormat.READONLY_V2.getCode());
+            try {
+                FileUtils.writeStringToFile(metadataFile, metadata.toJsonString());
+            } catch(IOException e) {
+                throw new VoldemortException("Could not write metadata file for store "
+                                             + storeName, e);
+            }
+        }
+
+        VAdminProto.FetchPartitionFilesRequest fetchPartitionFileRequest = VAdminProto.FetchPartitionFilesRequest.newBuilder()
+                                                                                                                 .addAllReplicaToPartition(ProtoUtils.encodePartitionTuple(replicaToPartitionList))
+                                                                                                                 .setStore(storeName)
+                                                                                                                 .build();
+        receivePartitionFiles(nodeId,
+                              fetchPartitionFileRequest,
+                              destinationDirPath,
+                              notAcceptedBuckets,
+                              running);
+    }
+
+    /**
+     * Fetch a snapshot of the entries of some partitions of a BDB store. The
+     * donor writes the entries of the partitions to a single file in btree
+     * order, which is copied to the given directory. This is run on the
+     * stealer node side
+     * 
+     * @param nodeId The node id from where to copy
+     * @param storeName The name of the BDB store
+     * @param replicaToPartitionList Map of replica type to partition list
+     * @param initialCluster The cluster to compute partition membership with,
+     *        or null to use the donor's current cluster
+     * @param destinationDirPath The destination path
+     * @param running A boolean which will control when we want to stop the
+     *        copying of the snapshot
+     * @return The snapshot file, or null if the copy was stopped
+     */
+    public File fetchPartitionSnapshot(int nodeId,
+                                       String storeName,
+                                       HashMap<Integer, List<Integer>> replicaToPartitionList,
+                                       Cluster initialCluster,
+                                       String destinationDirPath,
+                                       AtomicBoolean running) {
+        if(!Utils.isReadableDir(destinationDirPath)) {
+            throw new VoldemortException("The destination path (" + destinationDirPath
+                                         + ") to store " + storeName + " does not exist");
+        }
+
+        VAdminProto.FetchPartitionFilesRequest.Builder fetchPartitionFileRequest = VAdminProto.FetchPartitionFilesRequest.newBuilder()
+                                                                                                                         .addAllReplicaToPartition(ProtoUtils.encodePartitionTuple(replicaToPartitionList))
+                                                                                                                         .setStore(storeName);
+        if(initialCluster != null) {
+            fetchPartitionFileRequest.setInitialCluster(new ClusterMapper().writeCluster(initialCluster));
+        }
+        List<File> files = receivePartitionFiles(nodeId,
+                                                 fetchPartitionFileRequest.build(),
+                                                 destinationDirPath,
+                                                 null,
+                                                 running);
+        if(!running.get()) {
+            for(File file: files)
+                file.delete();
+            return null;
+        }
+        if(files.size() != 1) {
+            throw new VoldemortException("Expected a single snapshot of store " + storeName
+                                         + " from node " + nodeId + " but received " + files);
+        }
+        return files.get(0);
+    }
+
+    private List<File> receivePartitionFiles(int nodeId,
+                                             VAdminProto.FetchPartitionFilesRequest fetchPartitionFileRequest,
+                                             String destinationDirPath,
+                                             Set<Object> notAcceptedBuckets,
+                                             AtomicBoolean running) {
+        List<File> files = Lists.newArrayList();
         Node node = this.getAdminClientCluster().getNodeById(nodeId);
         final SocketDestination destination = new SocketDestination(node.getHost(),
                                                                     node.getAdminPort(),
@@ -2053,21 +2242,6 @@ public class AdminClient {
 
         try {
 
-            // Add the metadata file if it doesn't exist - We do this because
-            // for new nodes the stores don't start with any metadata file
-
-            File metadataFile = new File(destinationDirPath, ".metadata");
-            if(!metadataFile.exists()) {
-                ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
-                metadata.add(ReadOnlyStorageMetadata.FORMAT,
-                             ReadOnlyStorageFormat.READONLY_V2.getCode());
-                FileUtils.writeStringToFile(metadataFile, metadata.toJsonString());
-            }
-
-            VAdminProto.FetchPartitionFilesRequest fetchPartitionFileRequest = VAdminProto.FetchPartitionFilesRequest.newBuilder()
-                                                                                                                     .addAllReplicaToPartition(ProtoUtils.encodePartitionTuple(replicaToPartitionList))
-                                                                                                                     .setStore(storeName)
-                                                                                                                     .build();
             VAdminProto.VoldemortAdminRequest request = VAdminProto.VoldemortAdminRequest.newBuilder()
                                                                                          .setFetchPartitionFiles(fetchPartitionFileRequest)
                                                                                          .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_FILES)
@@ -2105,23 +2279,27 @@ public class AdminClient {
                 }
                 logger.info("Receiving file " + fileEntry.getFileName());
 
-                FileChannel fileChannel = new FileOutputStream(new File(destinationDirPath,
-                                                                        fileEntry.getFileName())).getChannel();
+                File file = new File(destinationDirPath, fileEntry.getFileName());
+                FileChannel fileChannel = new FileOutputStream(file).getChannel();
                 ReadableByteChannel channelIn = Channels.newChannel(inputStream);
                 fileChannel.transferFrom(channelIn, 0, fileEntry.getFileSizeBytes());
                 fileChannel.force(true);
                 fileChannel.close();
 
                 logger.info("Completed file " + fileEntry.getFileName());
+                files.add(file);
             }
 
+            // the rest of the stream is still coming if we were stopped
+            if(!running.get())
+                close(sands.getSocket());
         } catch(IOException e) {
             close(sands.getSocket());
             throw new VoldemortException(e);
         } finally {
             pool.checkin(destination, sands);
         }
-
+        return files;
     }
 
     /**
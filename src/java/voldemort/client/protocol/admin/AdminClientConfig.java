@@ -20,6 +20,9 @@ public class AdminClientConfig {
     private volatile boolean adminSocketKeepAlive = false;
     private volatile int restoreDataTimeoutSec = 365 * 24 * 60 * 60;
     private volatile int maxBackoffDelayMs = 60 * 1000;
+    private volatile int streamFrameMaxEntries = 0;
+    private volatile int streamFrameMaxBytes = 1024 * 1024;
+    private volatile String streamFrameCompression = null;
 
     public static final String MAX_CONNECTIONS_PER_NODE_PROPERTY = "max_connections";
     public static final String MAX_TOTAL_CONNECTIONS_PROPERTY = "max_total_connections";
@@ -31,6 +34,9 @@ public class AdminClientConfig {
     public static final String ADMIN_SOCKET_KEEPALIVE_PROPERTY = "admin_socket_keepalive";
     public static final String RESTORE_DATA_TIMEOUT_SEC = "restore.data.timeout.sec";
     public static final String MAX_BACKOFF_DELAY_MS = "max.backoff.delay.ms";
+    public static final String STREAM_FRAME_MAX_ENTRIES = "stream.frame.max.entries";
+    public static final String STREAM_FRAME_MAX_BYTES = "stream.frame.max.bytes";
+    public static final String STREAM_FRAME_COMPRESSION = "stream.frame.compression";
 
     // sets better default for AdminClient
     public AdminClientConfig() {
@@ -63,6 +69,15 @@ public class AdminClientConfig {
 
         if(props.containsKey(MAX_BACKOFF_DELAY_MS))
             this.setMaxBackoffDelayMs(props.getInt(MAX_BACKOFF_DELAY_MS));
+
+        if(props.containsKey(STREAM_FRAME_MAX_ENTRIES))
+            this.setStreamFrameMaxEntries(props.getInt(STREAM_FRAME_MAX_ENTRIES));
+
+        if(props.containsKey(STREAM_FRAME_MAX_BYTES))
+            this.setStreamFrameMaxBytes(props.getInt(STREAM_FRAME_MAX_BYTES));
+
+        if(props.containsKey(STREAM_FRAME_COMPRESSION))
+            this.setStreamFrameCompression(props.getString(STREAM_FRAME_COMPRESSION));
     }
 
     /* Propery names for propery-based configuration */
@@ -148,4 +163,50 @@ public class AdminClientConfig {
     public int getRestoreDataTimeoutSec() {
         return restoreDataTimeoutSec;
     }
+
+    public int getStreamFrameMaxEntries() {
+        return streamFrameMaxEntries;
+    }
+
+    /**
+     * Maximum number of entries packed into one frame when streaming entries
+     * to or from a server. Zero (the default) sends every entry as its own
+     * message, which is what servers without frame support expect.
+     * 
+     * @param streamFrameMaxEntries Maximum entries per frame
+     */
+    public AdminClientConfig setStreamFrameMaxEntries(int streamFrameMaxEntries) {
+        this.streamFrameMaxEntries = streamFrameMaxEntries;
+        return this;
+    }
+
+    public int getStreamFrameMaxBytes() {
+        return streamFrameMaxBytes;
+    }
+
+    /**
+     * Maximum uncompressed size of a frame, a frame is sent as soon as it
+     * reaches either this size or the maximum number of entries
+     * 
+     * @param streamFrameMaxBytes Maximum bytes per frame
+     */
+    public AdminClientConfig setStreamFrameMaxBytes(int streamFrameMaxBytes) {
+        this.streamFrameMaxBytes = streamFrameMaxBytes;
+        return this;
+    }
+
+    public String getStreamFrameCompression() {
+        return streamFrameCompression;
+    }
+
+    /**
+     * Compression applied to each frame, one of "gzip", "lzf" or "snappy".
+     * Null (the default) leaves frames uncompressed.
+     * 
+     * @param streamFrameCompression Compression type
+     */
+    public AdminClientConfig setStreamFrameCompression(String streamFrameCompression) {
+        this.streamFrameCompression = streamFrameCompression;
+        return this;
+    }
 }
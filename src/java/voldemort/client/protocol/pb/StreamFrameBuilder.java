@@ -0,0 +1,149 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.client.protocol.pb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import voldemort.serialization.Compression;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.compress.CompressionStrategyFactory;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+
+/**
+ * Packs many streamed items (partition entries or keys) into a single frame so
+ * that the admin streaming protocol pays the per-message cost once per frame
+ * rather than once per entry.
+ * <p>
+ * A frame is the concatenation of length-delimited items, optionally
+ * compressed as a whole. A frame is full once it holds the maximum number of
+ * items or its uncompressed size reaches the maximum number of bytes,
+ * whichever comes first.
+ */
+public class StreamFrameBuilder {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private final int maxEntries;
+    private final int maxBytes;
+    private final CompressionStrategy compressionStrategy;
+    private final ByteArrayOutputStream buffer;
+    private CodedOutputStream output;
+    private int numEntries;
+    private int numBytes;
+
+    public StreamFrameBuilder(int maxEntries, int maxBytes, String compression) {
+        if(maxEntries <= 0)
+            throw new IllegalArgumentException("Maximum entries per frame must be positive.");
+        if(maxBytes <= 0)
+            throw new IllegalArgumentException("Maximum bytes per frame must be positive.");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.compressionStrategy = getCompressionStrategy(compression);
+        this.buffer = new ByteArrayOutputStream(Math.min(maxBytes, DEFAULT_MAX_BYTES) + 1024);
+        reset();
+    }
+
+    /**
+     * Appends a message, such as a partition entry, to the current frame
+     */
+    public void add(Message message) throws IOException {
+        int size = message.getSerializedSize();
+        output.writeRawVarint32(size);
+        message.writeTo(output);
+        added(size);
+    }
+
+    /**
+     * Appends raw bytes, such as a key, to the current frame
+     */
+    public void add(ByteString bytes) throws IOException {
+        output.writeBytesNoTag(bytes);
+        added(bytes.size());
+    }
+
+    private void added(int size) {
+        numEntries++;
+        numBytes += CodedOutputStream.computeRawVarint32Size(size) + size;
+    }
+
+    public boolean isFull() {
+        return numEntries >= maxEntries || numBytes >= maxBytes;
+    }
+
+    public boolean isEmpty() {
+        return numEntries == 0;
+    }
+
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    /**
+     * Returns the (compressed) contents of the current frame and starts a new,
+     * empty one
+     */
+    public ByteString build() throws IOException {
+        output.flush();
+        byte[] frame = compressionStrategy.deflate(buffer.toByteArray());
+        reset();
+        return ByteString.copyFrom(frame);
+    }
+
+    private void reset() {
+        buffer.reset();
+        output = CodedOutputStream.newInstance(buffer);
+        numEntries = 0;
+        numBytes = 0;
+    }
+
+    /**
+     * Splits a frame produced by {@link #build()} back into its items
+     * 
+     * @param frame The frame as received on the wire
+     * @param compression The compression type the frame was built with
+     * @return The items, in the order they were added
+     * @throws IOException If the frame cannot be decompressed or is truncated
+     */
+    public static List<ByteString> parse(ByteString frame, String compression)
+            throws IOException {
+        byte[] data = getCompressionStrategy(compression).inflate(frame.toByteArray());
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        input.setSizeLimit(data.length);
+        List<ByteString> items = new ArrayList<ByteString>();
+        while(!input.isAtEnd())
+            items.add(input.readBytes());
+        return items;
+    }
+
+    /**
+     * Maps the compression type named in a stream request to a strategy. An
+     * empty or missing type means no compression.
+     */
+    public static CompressionStrategy getCompressionStrategy(String compression) {
+        if(compression == null || compression.length() == 0)
+            return new CompressionStrategyFactory().get(null);
+        return new CompressionStrategyFactory().get(new Compression(compression, null));
+    }
+}
@@ -2172,7 +2172,7 @@ public final class VAdminProto {
     public boolean hasStore() { return hasStore; }
     public java.lang.String getStore() { return store_; }
     
-    // required .voldemort.PartitionEntry partition_entry = 2;
+    // optional .voldemort.PartitionEntry partition_entry = 2;
     public static final int PARTITION_ENTRY_FIELD_NUMBER = 2;
     private boolean hasPartitionEntry;
     private voldemort.client.protocol.pb.VAdminProto.PartitionEntry partitionEntry_;
@@ -2186,14 +2186,36 @@ public final class VAdminProto {
     public boolean hasFilter() { return hasFilter; }
     public voldemort.client.protocol.pb.VAdminProto.VoldemortFilter getFilter() { return filter_; }
     
+    // optional bytes frame = 4;
+    public static final int FRAME_FIELD_NUMBER = 4;
+    private boolean hasFrame;
+    private com.google.protobuf.ByteString frame_ = com.google.protobuf.ByteString.EMPTY;
+    public boolean hasFrame() { return hasFrame; }
+    public com.google.protobuf.ByteString getFrame() { return frame_; }
+    
+    // optional string frame_compression = 5;
+    public static final int FRAME_COMPRESSION_FIELD_NUMBER = 5;
+    private boolean hasFrameCompression;
+    private java.lang.String frameCompression_ = "";
+    public boolean hasFrameCompression() { return hasFrameCompression; }
+    public java.lang.String getFrameCompression() { return frameCompression_; }
+    
+    // optional bool bulk_load = 6;
+    public static final int BULK_LOAD_FIELD_NUMBER = 6;
+    private boolean hasBulkLoad;
+    private boolean bulkLoad_ = false;
+    public boolean hasBulkLoad() { return hasBulkLoad; }
+    public boolean getBulkLoad() { return bulkLoad_; }
+    
     private void initFields() {
       partitionEntry_ = voldemort.client.protocol.pb.VAdminProto.PartitionEntry.getDefaultInstance();
       filter_ = voldemort.client.protocol.pb.VAdminProto.VoldemortFilter.getDefaultInstance();
     }
     public final boolean isInitialized() {
       if (!hasStore) return false;
-      if (!hasPartitionEntry) return false;
-      if (!getPartitionEntry().isInitialized()) return false;
+      if (hasPartitionEntry()) {
+        if (!getPartitionEntry().isInitialized()) return false;
+      }
       if (hasFilter()) {
         if (!getFilter().isInitialized()) return false;
       }
@@ -2212,6 +2234,15 @@ public final class VAdminProto {
       if (hasFilter()) {
         output.writeMessage(3, getFilter());
       }
+      if (hasFrame()) {
+        output.writeBytes(4, getFrame());
+      }
+      if (hasFrameCompression()) {
+        output.writeString(5, getFrameCompression());
+      }
+      if (hasBulkLoad()) {
+        output.writeBool(6, getBulkLoad());
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -2233,6 +2264,18 @@ public final class VAdminProto {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(3, getFilter());
       }
+      if (hasFrame()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, getFrame());
+      }
+      if (hasFrameCompression()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(5, getFrameCompression());
+      }
+      if (hasBulkLoad()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(6, getBulkLoad());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -2400,6 +2443,15 @@ public final class VAdminProto {
         if (other.hasFilter()) {
           mergeFilter(other.getFilter());
         }
+        if (other.hasFrame()) {
+          setFrame(other.getFrame());
+        }
+        if (other.hasFrameCompression()) {
+          setFrameCompression(other.getFrameCompression());
+        }
+        if (other.hasBulkLoad()) {
+          setBulkLoad(other.getBulkLoad());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -2447,6 +2499,18 @@ public final class VAdminProto {
               setFilter(subBuilder.buildPartial());
               break;
             }
+            case 34: {
+              setFrame(input.readBytes());
+              break;
+            }
+            case 42: {
+              setFrameCompression(input.readString());
+              break;
+            }
+            case 48: {
+              setBulkLoad(input.readBool());
+              break;
+            }
           }
         }
       }
@@ -2473,7 +2537,7 @@ public final class VAdminProto {
         return this;
       }
       
-      // required .voldemort.PartitionEntry partition_entry = 2;
+      // optional .voldemort.PartitionEntry partition_entry = 2;
       public boolean hasPartitionEntry() {
         return result.hasPartitionEntry();
       }
@@ -2547,6 +2611,66 @@ public final class VAdminProto {
         return this;
       }
       
+      // optional bytes frame = 4;
+      public boolean hasFrame() {
+        return result.hasFrame();
+      }
+      public com.google.protobuf.ByteString getFrame() {
+        return result.getFrame();
+      }
+      public Builder setFrame(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasFrame = true;
+        result.frame_ = value;
+        return this;
+      }
+      public Builder clearFrame() {
+        result.hasFrame = false;
+        result.frame_ = getDefaultInstance().getFrame();
+        return this;
+      }
+      
+      // optional string frame_compression = 5;
+      public boolean hasFrameCompression() {
+        return result.hasFrameCompression();
+      }
+      public java.lang.String getFrameCompression() {
+        return result.getFrameCompression();
+      }
+      public Builder setFrameCompression(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasFrameCompression = true;
+        result.frameCompression_ = value;
+        return this;
+      }
+      public Builder clearFrameCompression() {
+        result.hasFrameCompression = false;
+        result.frameCompression_ = getDefaultInstance().getFrameCompression();
+        return this;
+      }
+      
+      // optional bool bulk_load = 6;
+      public boolean hasBulkLoad() {
+        return result.hasBulkLoad();
+      }
+      public boolean getBulkLoad() {
+        return result.getBulkLoad();
+      }
+      public Builder setBulkLoad(boolean value) {
+        result.hasBulkLoad = true;
+        result.bulkLoad_ = value;
+        return this;
+      }
+      public Builder clearBulkLoad() {
+        result.hasBulkLoad = false;
+        result.bulkLoad_ = false;
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:voldemort.UpdatePartitionEntriesRequest)
     }
     
@@ -4091,6 +4215,13 @@ public final class VAdminProto {
       return replicaToPartition_.get(index);
     }
     
+    // optional string initial_cluster = 3;
+    public static final int INITIAL_CLUSTER_FIELD_NUMBER = 3;
+    private boolean hasInitialCluster;
+    private java.lang.String initialCluster_ = "";
+    public boolean hasInitialCluster() { return hasInitialCluster; }
+    public java.lang.String getInitialCluster() { return initialCluster_; }
+    
     private void initFields() {
     }
     public final boolean isInitialized() {
@@ -4110,6 +4241,9 @@ public final class VAdminProto {
       for (voldemort.client.protocol.pb.VAdminProto.PartitionTuple element : getReplicaToPartitionList()) {
         output.writeMessage(2, element);
       }
+      if (hasInitialCluster()) {
+        output.writeString(3, getInitialCluster());
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -4127,6 +4261,10 @@ public final class VAdminProto {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(2, element);
       }
+      if (hasInitialCluster()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(3, getInitialCluster());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -4298,6 +4436,9 @@ public final class VAdminProto {
           }
           result.replicaToPartition_.addAll(other.replicaToPartition_);
         }
+        if (other.hasInitialCluster()) {
+          setInitialCluster(other.getInitialCluster());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -4333,6 +4474,10 @@ public final class VAdminProto {
               addReplicaToPartition(subBuilder.buildPartial());
               break;
             }
+            case 26: {
+              setInitialCluster(input.readString());
+              break;
+            }
           }
         }
       }
@@ -4410,6 +4555,27 @@ public final class VAdminProto {
         return this;
       }
       
+      // optional string initial_cluster = 3;
+      public boolean hasInitialCluster() {
+        return result.hasInitialCluster();
+      }
+      public java.lang.String getInitialCluster() {
+        return result.getInitialCluster();
+      }
+      public Builder setInitialCluster(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasInitialCluster = true;
+        result.initialCluster_ = value;
+        return this;
+      }
+      public Builder clearInitialCluster() {
+        result.hasInitialCluster = false;
+        result.initialCluster_ = getDefaultInstance().getInitialCluster();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:voldemort.FetchPartitionFilesRequest)
     }
     
@@ -4496,6 +4662,27 @@ public final class VAdminProto {
     public boolean hasInitialCluster() { return hasInitialCluster; }
     public java.lang.String getInitialCluster() { return initialCluster_; }
     
+    // optional int32 frame_max_entries = 7;
+    public static final int FRAME_MAX_ENTRIES_FIELD_NUMBER = 7;
+    private boolean hasFrameMaxEntries;
+    private int frameMaxEntries_ = 0;
+    public boolean hasFrameMaxEntries() { return hasFrameMaxEntries; }
+    public int getFrameMaxEntries() { return frameMaxEntries_; }
+    
+    // optional int32 frame_max_bytes = 8;
+    public static final int FRAME_MAX_BYTES_FIELD_NUMBER = 8;
+    private boolean hasFrameMaxBytes;
+    private int frameMaxBytes_ = 0;
+    public boolean hasFrameMaxBytes() { return hasFrameMaxBytes; }
+    public int getFrameMaxBytes() { return frameMaxBytes_; }
+    
+    // optional string frame_compression = 9;
+    public static final int FRAME_COMPRESSION_FIELD_NUMBER = 9;
+    private boolean hasFrameCompression;
+    private java.lang.String frameCompression_ = "";
+    public boolean hasFrameCompression() { return hasFrameCompression; }
+    public java.lang.String getFrameCompression() { return frameCompression_; }
+    
     private void initFields() {
       filter_ = voldemort.client.protocol.pb.VAdminProto.VoldemortFilter.getDefaultInstance();
     }
@@ -4531,6 +4718,15 @@ public final class VAdminProto {
       if (hasInitialCluster()) {
         output.writeString(6, getInitialCluster());
       }
+      if (hasFrameMaxEntries()) {
+        output.writeInt32(7, getFrameMaxEntries());
+      }
+      if (hasFrameMaxBytes()) {
+        output.writeInt32(8, getFrameMaxBytes());
+      }
+      if (hasFrameCompression()) {
+        output.writeString(9, getFrameCompression());
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -4564,6 +4760,18 @@ public final class VAdminProto {
         size += com.google.protobuf.CodedOutputStream
           .computeStringSize(6, getInitialCluster());
       }
+      if (hasFrameMaxEntries()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(7, getFrameMaxEntries());
+      }
+      if (hasFrameMaxBytes()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(8, getFrameMaxBytes());
+      }
+      if (hasFrameCompression()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(9, getFrameCompression());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -4747,6 +4955,15 @@ public final class VAdminProto {
         if (other.hasInitialCluster()) {
           setInitialCluster(other.getInitialCluster());
         }
+        if (other.hasFrameMaxEntries()) {
+          setFrameMaxEntries(other.getFrameMaxEntries());
+        }
+        if (other.hasFrameMaxBytes()) {
+          setFrameMaxBytes(other.getFrameMaxBytes());
+        }
+        if (other.hasFrameCompression()) {
+          setFrameCompression(other.getFrameCompression());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -4803,6 +5020,18 @@ public final class VAdminProto {
               setInitialCluster(input.readString());
               break;
             }
+            case 56: {
+              setFrameMaxEntries(input.readInt32());
+              break;
+            }
+            case 64: {
+              setFrameMaxBytes(input.readInt32());
+              break;
+            }
+            case 74: {
+              setFrameCompression(input.readString());
+              break;
+            }
           }
         }
       }
@@ -4974,6 +5203,63 @@ public final class VAdminProto {
         return this;
       }
       
+      // optional int32 frame_max_entries = 7;
+      public boolean hasFrameMaxEntries() {
+        return result.hasFrameMaxEntries();
+      }
+      public int getFrameMaxEntries() {
+        return result.getFrameMaxEntries();
+      }
+      public Builder setFrameMaxEntries(int value) {
+        result.hasFrameMaxEntries = true;
+        result.frameMaxEntries_ = value;
+        return this;
+      }
+      public Builder clearFrameMaxEntries() {
+        result.hasFrameMaxEntries = false;
+        result.frameMaxEntries_ = 0;
+        return this;
+      }
+      
+      // optional int32 frame_max_bytes = 8;
+      public boolean hasFrameMaxBytes() {
+        return result.hasFrameMaxBytes();
+      }
+      public int getFrameMaxBytes() {
+        return result.getFrameMaxBytes();
+      }
+      public Builder setFrameMaxBytes(int value) {
+        result.hasFrameMaxBytes = true;
+        result.frameMaxBytes_ = value;
+        return this;
+      }
+      public Builder clearFrameMaxBytes() {
+        result.hasFrameMaxBytes = false;
+        result.frameMaxBytes_ = 0;
+        return this;
+      }
+      
+      // optional string frame_compression = 9;
+      public boolean hasFrameCompression() {
+        return result.hasFrameCompression();
+      }
+      public java.lang.String getFrameCompression() {
+        return result.getFrameCompression();
+      }
+      public Builder setFrameCompression(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasFrameCompression = true;
+        result.frameCompression_ = value;
+        return this;
+      }
+      public Builder clearFrameCompression() {
+        result.hasFrameCompression = false;
+        result.frameCompression_ = getDefaultInstance().getFrameCompression();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:voldemort.FetchPartitionEntriesRequest)
     }
     
@@ -5034,6 +5320,13 @@ public final class VAdminProto {
     public boolean hasError() { return hasError; }
     public voldemort.client.protocol.pb.VProto.Error getError() { return error_; }
     
+    // optional bytes frame = 4;
+    public static final int FRAME_FIELD_NUMBER = 4;
+    private boolean hasFrame;
+    private com.google.protobuf.ByteString frame_ = com.google.protobuf.ByteString.EMPTY;
+    public boolean hasFrame() { return hasFrame; }
+    public com.google.protobuf.ByteString getFrame() { return frame_; }
+    
     private void initFields() {
       partitionEntry_ = voldemort.client.protocol.pb.VAdminProto.PartitionEntry.getDefaultInstance();
       error_ = voldemort.client.protocol.pb.VProto.Error.getDefaultInstance();
@@ -5060,6 +5353,9 @@ public final class VAdminProto {
       if (hasError()) {
         output.writeMessage(3, getError());
       }
+      if (hasFrame()) {
+        output.writeBytes(4, getFrame());
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -5081,6 +5377,10 @@ public final class VAdminProto {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(3, getError());
       }
+      if (hasFrame()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, getFrame());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -5248,6 +5548,9 @@ public final class VAdminProto {
         if (other.hasError()) {
           mergeError(other.getError());
         }
+        if (other.hasFrame()) {
+          setFrame(other.getFrame());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -5295,6 +5598,10 @@ public final class VAdminProto {
               setError(subBuilder.buildPartial());
               break;
             }
+            case 34: {
+              setFrame(input.readBytes());
+              break;
+            }
           }
         }
       }
@@ -5395,6 +5702,27 @@ public final class VAdminProto {
         return this;
       }
       
+      // optional bytes frame = 4;
+      public boolean hasFrame() {
+        return result.hasFrame();
+      }
+      public com.google.protobuf.ByteString getFrame() {
+        return result.getFrame();
+      }
+      public Builder setFrame(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasFrame = true;
+        result.frame_ = value;
+        return this;
+      }
+      public Builder clearFrame() {
+        result.hasFrame = false;
+        result.frame_ = getDefaultInstance().getFrame();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:voldemort.FetchPartitionEntriesResponse)
     }
     
@@ -21866,179 +22194,184 @@ public final class VAdminProto {
       ".Error\"7\n\tFileEntry\022\021\n\tfile_name\030\001 \002(\t\022\027" +
       "\n\017file_size_bytes\030\002 \002(\003\"F\n\016PartitionEntr",
       "y\022\013\n\003key\030\001 \002(\014\022\'\n\tversioned\030\002 \002(\0132\024.vold" +
-      "emort.Versioned\"\216\001\n\035UpdatePartitionEntri" +
+      "emort.Versioned\"\313\001\n\035UpdatePartitionEntri" +
       "esRequest\022\r\n\005store\030\001 \002(\t\0222\n\017partition_en" +
-      "try\030\002 \002(\0132\031.voldemort.PartitionEntry\022*\n\006" +
+      "try\030\002 \001(\0132\031.voldemort.PartitionEntry\022*\n\006" +
       "filter\030\003 \001(\0132\032.voldemort.VoldemortFilter" +
-      "\"A\n\036UpdatePartitionEntriesResponse\022\037\n\005er" +
-      "ror\030\001 \001(\0132\020.voldemort.Error\"-\n\017Voldemort" +
-      "Filter\022\014\n\004name\030\001 \002(\t\022\014\n\004data\030\002 \002(\014\"\257\001\n\030U" +
-      "pdateSlopEntriesRequest\022\r\n\005store\030\001 \002(\t\022\013" +
-      "\n\003key\030\002 \002(\014\022\'\n\007version\030\003 \002(\0132\026.voldemort",
-      ".VectorClock\022,\n\014request_type\030\004 \002(\0162\026.vol" +
-      "demort.RequestType\022\r\n\005value\030\005 \001(\014\022\021\n\ttra" +
-      "nsform\030\006 \001(\014\"<\n\031UpdateSlopEntriesRespons" +
-      "e\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"d\n\032Fe" +
-      "tchPartitionFilesRequest\022\r\n\005store\030\001 \002(\t\022" +
-      "7\n\024replica_to_partition\030\002 \003(\0132\031.voldemor" +
-      "t.PartitionTuple\"\327\001\n\034FetchPartitionEntri" +
-      "esRequest\0227\n\024replica_to_partition\030\001 \003(\0132" +
-      "\031.voldemort.PartitionTuple\022\r\n\005store\030\002 \002(" +
-      "\t\022*\n\006filter\030\003 \001(\0132\032.voldemort.VoldemortF",
-      "ilter\022\024\n\014fetch_values\030\004 \001(\010\022\024\n\014skip_reco" +
-      "rds\030\005 \001(\003\022\027\n\017initial_cluster\030\006 \001(\t\"\201\001\n\035F" +
-      "etchPartitionEntriesResponse\0222\n\017partitio" +
-      "n_entry\030\001 \001(\0132\031.voldemort.PartitionEntry" +
-      "\022\013\n\003key\030\002 \001(\014\022\037\n\005error\030\003 \001(\0132\020.voldemort" +
-      ".Error\"\254\001\n\035DeletePartitionEntriesRequest" +
-      "\022\r\n\005store\030\001 \002(\t\0227\n\024replica_to_partition\030" +
-      "\002 \003(\0132\031.voldemort.PartitionTuple\022*\n\006filt" +
-      "er\030\003 \001(\0132\032.voldemort.VoldemortFilter\022\027\n\017" +
-      "initial_cluster\030\004 \001(\t\"P\n\036DeletePartition",
-      "EntriesResponse\022\r\n\005count\030\001 \001(\003\022\037\n\005error\030" +
-      "\002 \001(\0132\020.voldemort.Error\"\317\001\n\035InitiateFetc" +
-      "hAndUpdateRequest\022\017\n\007node_id\030\001 \002(\005\022\r\n\005st" +
-      "ore\030\002 \002(\t\022*\n\006filter\030\003 \001(\0132\032.voldemort.Vo" +
-      "ldemortFilter\0227\n\024replica_to_partition\030\004 " +
-      "\003(\0132\031.voldemort.PartitionTuple\022\027\n\017initia" +
-      "l_cluster\030\005 \001(\t\022\020\n\010optimize\030\006 \001(\010\"1\n\033Asy" +
-      "ncOperationStatusRequest\022\022\n\nrequest_id\030\001" +
-      " \002(\005\"/\n\031AsyncOperationStopRequest\022\022\n\nreq" +
-      "uest_id\030\001 \002(\005\"=\n\032AsyncOperationStopRespo",
-      "nse\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"2\n\031" +
-      "AsyncOperationListRequest\022\025\n\rshow_comple" +
-      "te\030\002 \002(\010\"R\n\032AsyncOperationListResponse\022\023" +
-      "\n\013request_ids\030\001 \003(\005\022\037\n\005error\030\002 \001(\0132\020.vol" +
-      "demort.Error\":\n\016PartitionTuple\022\024\n\014replic" +
-      "a_type\030\001 \002(\005\022\022\n\npartitions\030\002 \003(\005\"e\n\026PerS" +
-      "torePartitionTuple\022\022\n\nstore_name\030\001 \002(\t\0227" +
-      "\n\024replica_to_partition\030\002 \003(\0132\031.voldemort" +
-      ".PartitionTuple\"\370\001\n\031RebalancePartitionIn" +
-      "foMap\022\022\n\nstealer_id\030\001 \002(\005\022\020\n\010donor_id\030\002 ",
-      "\002(\005\022\017\n\007attempt\030\003 \002(\005\022C\n\030replica_to_add_p" +
-      "artition\030\004 \003(\0132!.voldemort.PerStoreParti" +
-      "tionTuple\022F\n\033replica_to_delete_partition" +
-      "\030\005 \003(\0132!.voldemort.PerStorePartitionTupl" +
-      "e\022\027\n\017initial_cluster\030\006 \002(\t\"f\n\034InitiateRe" +
-      "balanceNodeRequest\022F\n\030rebalance_partitio" +
-      "n_info\030\001 \002(\0132$.voldemort.RebalancePartit" +
-      "ionInfoMap\"m\n#InitiateRebalanceNodeOnDon" +
-      "orRequest\022F\n\030rebalance_partition_info\030\001 " +
-      "\003(\0132$.voldemort.RebalancePartitionInfoMa",
-      "p\"\212\001\n\034AsyncOperationStatusResponse\022\022\n\nre" +
-      "quest_id\030\001 \001(\005\022\023\n\013description\030\002 \001(\t\022\016\n\006s" +
-      "tatus\030\003 \001(\t\022\020\n\010complete\030\004 \001(\010\022\037\n\005error\030\005" +
-      " \001(\0132\020.voldemort.Error\"\'\n\026TruncateEntrie" +
-      "sRequest\022\r\n\005store\030\001 \002(\t\":\n\027TruncateEntri" +
-      "esResponse\022\037\n\005error\030\001 \001(\0132\020.voldemort.Er" +
-      "ror\"*\n\017AddStoreRequest\022\027\n\017storeDefinitio" +
-      "n\030\001 \002(\t\"3\n\020AddStoreResponse\022\037\n\005error\030\001 \001" +
-      "(\0132\020.voldemort.Error\"\'\n\022DeleteStoreReque" +
-      "st\022\021\n\tstoreName\030\001 \002(\t\"6\n\023DeleteStoreResp",
-      "onse\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"P\n" +
-      "\021FetchStoreRequest\022\022\n\nstore_name\030\001 \002(\t\022\021" +
-      "\n\tstore_dir\030\002 \002(\t\022\024\n\014push_version\030\003 \001(\003\"" +
-      "9\n\020SwapStoreRequest\022\022\n\nstore_name\030\001 \002(\t\022" +
-      "\021\n\tstore_dir\030\002 \002(\t\"P\n\021SwapStoreResponse\022" +
-      "\037\n\005error\030\001 \001(\0132\020.voldemort.Error\022\032\n\022prev" +
-      "ious_store_dir\030\002 \001(\t\"@\n\024RollbackStoreReq" +
-      "uest\022\022\n\nstore_name\030\001 \002(\t\022\024\n\014push_version" +
-      "\030\002 \002(\003\"8\n\025RollbackStoreResponse\022\037\n\005error" +
-      "\030\001 \001(\0132\020.voldemort.Error\"&\n\020RepairJobReq",
-      "uest\022\022\n\nstore_name\030\001 \001(\t\"4\n\021RepairJobRes" +
-      "ponse\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"=" +
-      "\n\024ROStoreVersionDirMap\022\022\n\nstore_name\030\001 \002" +
-      "(\t\022\021\n\tstore_dir\030\002 \002(\t\"/\n\031GetROMaxVersion" +
-      "DirRequest\022\022\n\nstore_name\030\001 \003(\t\"y\n\032GetROM" +
-      "axVersionDirResponse\022:\n\021ro_store_version" +
-      "s\030\001 \003(\0132\037.voldemort.ROStoreVersionDirMap" +
-      "\022\037\n\005error\030\002 \001(\0132\020.voldemort.Error\"3\n\035Get" +
-      "ROCurrentVersionDirRequest\022\022\n\nstore_name" +
-      "\030\001 \003(\t\"}\n\036GetROCurrentVersionDirResponse",
+      "\022\r\n\005frame\030\004 \001(\014\022\031\n\021frame_compression\030\005 \001" +
+      "(\t\022\021\n\tbulk_load\030\006 \001(\010\"A\n\036UpdatePartition" +
+      "EntriesResponse\022\037\n\005error\030\001 \001(\0132\020.voldemo" +
+      "rt.Error\"-\n\017VoldemortFilter\022\014\n\004name\030\001 \002(" +
+      "\t\022\014\n\004data\030\002 \002(\014\"\257\001\n\030UpdateSlopEntriesReq",
+      "uest\022\r\n\005store\030\001 \002(\t\022\013\n\003key\030\002 \002(\014\022\'\n\007vers" +
+      "ion\030\003 \002(\0132\026.voldemort.VectorClock\022,\n\014req" +
+      "uest_type\030\004 \002(\0162\026.voldemort.RequestType\022" +
+      "\r\n\005value\030\005 \001(\014\022\021\n\ttransform\030\006 \001(\014\"<\n\031Upd" +
+      "ateSlopEntriesResponse\022\037\n\005error\030\001 \001(\0132\020." +
+      "voldemort.Error\"}\n\032FetchPartitionFilesRe" +
+      "quest\022\r\n\005store\030\001 \002(\t\0227\n\024replica_to_parti" +
+      "tion\030\002 \003(\0132\031.voldemort.PartitionTuple\022\027\n" +
+      "\017initial_cluster\030\003 \001(\t\"\246\002\n\034FetchPartitio" +
+      "nEntriesRequest\0227\n\024replica_to_partition\030",
+      "\001 \003(\0132\031.voldemort.PartitionTuple\022\r\n\005stor" +
+      "e\030\002 \002(\t\022*\n\006filter\030\003 \001(\0132\032.voldemort.Vold" +
+      "emortFilter\022\024\n\014fetch_values\030\004 \001(\010\022\024\n\014ski" +
+      "p_records\030\005 \001(\003\022\027\n\017initial_cluster\030\006 \001(\t" +
+      "\022\031\n\021frame_max_entries\030\007 \001(\005\022\027\n\017frame_max" +
+      "_bytes\030\010 \001(\005\022\031\n\021frame_compression\030\t \001(\t\"" +
+      "\220\001\n\035FetchPartitionEntriesResponse\0222\n\017par" +
+      "tition_entry\030\001 \001(\0132\031.voldemort.Partition" +
+      "Entry\022\013\n\003key\030\002 \001(\014\022\037\n\005error\030\003 \001(\0132\020.vold" +
+      "emort.Error\022\r\n\005frame\030\004 \001(\014\"\254\001\n\035DeletePar",
+      "titionEntriesRequest\022\r\n\005store\030\001 \002(\t\0227\n\024r" +
+      "eplica_to_partition\030\002 \003(\0132\031.voldemort.Pa" +
+      "rtitionTuple\022*\n\006filter\030\003 \001(\0132\032.voldemort" +
+      ".VoldemortFilter\022\027\n\017initial_cluster\030\004 \001(" +
+      "\t\"P\n\036DeletePartitionEntriesResponse\022\r\n\005c" +
+      "ount\030\001 \001(\003\022\037\n\005error\030\002 \001(\0132\020.voldemort.Er" +
+      "ror\"\317\001\n\035InitiateFetchAndUpdateRequest\022\017\n" +
+      "\007node_id\030\001 \002(\005\022\r\n\005store\030\002 \002(\t\022*\n\006filter\030" +
+      "\003 \001(\0132\032.voldemort.VoldemortFilter\0227\n\024rep" +
+      "lica_to_partition\030\004 \003(\0132\031.voldemort.Part",
+      "itionTuple\022\027\n\017initial_cluster\030\005 \001(\t\022\020\n\010o" +
+      "ptimize\030\006 \001(\010\"1\n\033AsyncOperationStatusReq" +
+      "uest\022\022\n\nrequest_id\030\001 \002(\005\"/\n\031AsyncOperati" +
+      "onStopRequest\022\022\n\nrequest_id\030\001 \002(\005\"=\n\032Asy" +
+      "ncOperationStopResponse\022\037\n\005error\030\001 \001(\0132\020" +
+      ".voldemort.Error\"2\n\031AsyncOperationListRe" +
+      "quest\022\025\n\rshow_complete\030\002 \002(\010\"R\n\032AsyncOpe" +
+      "rationListResponse\022\023\n\013request_ids\030\001 \003(\005\022" +
+      "\037\n\005error\030\002 \001(\0132\020.voldemort.Error\":\n\016Part" +
+      "itionTuple\022\024\n\014replica_type\030\001 \002(\005\022\022\n\npart",
+      "itions\030\002 \003(\005\"e\n\026PerStorePartitionTuple\022\022" +
+      "\n\nstore_name\030\001 \002(\t\0227\n\024replica_to_partiti" +
+      "on\030\002 \003(\0132\031.voldemort.PartitionTuple\"\370\001\n\031" +
+      "RebalancePartitionInfoMap\022\022\n\nstealer_id\030" +
+      "\001 \002(\005\022\020\n\010donor_id\030\002 \002(\005\022\017\n\007attempt\030\003 \002(\005" +
+      "\022C\n\030replica_to_add_partition\030\004 \003(\0132!.vol" +
+      "demort.PerStorePartitionTuple\022F\n\033replica" +
+      "_to_delete_partition\030\005 \003(\0132!.voldemort.P" +
+      "erStorePartitionTuple\022\027\n\017initial_cluster" +
+      "\030\006 \002(\t\"f\n\034InitiateRebalanceNodeRequest\022F",
+      "\n\030rebalance_partition_info\030\001 \002(\0132$.volde" +
+      "mort.RebalancePartitionInfoMap\"m\n#Initia" +
+      "teRebalanceNodeOnDonorRequest\022F\n\030rebalan" +
+      "ce_partition_info\030\001 \003(\0132$.voldemort.Reba" +
+      "lancePartitionInfoMap\"\212\001\n\034AsyncOperation" +
+      "StatusResponse\022\022\n\nrequest_id\030\001 \001(\005\022\023\n\013de" +
+      "scription\030\002 \001(\t\022\016\n\006status\030\003 \001(\t\022\020\n\010compl" +
+      "ete\030\004 \001(\010\022\037\n\005error\030\005 \001(\0132\020.voldemort.Err" +
+      "or\"\'\n\026TruncateEntriesRequest\022\r\n\005store\030\001 " +
+      "\002(\t\":\n\027TruncateEntriesResponse\022\037\n\005error\030",
+      "\001 \001(\0132\020.voldemort.Error\"*\n\017AddStoreReque" +
+      "st\022\027\n\017storeDefinition\030\001 \002(\t\"3\n\020AddStoreR" +
+      "esponse\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error" +
+      "\"\'\n\022DeleteStoreRequest\022\021\n\tstoreName\030\001 \002(" +
+      "\t\"6\n\023DeleteStoreResponse\022\037\n\005error\030\001 \001(\0132" +
+      "\020.voldemort.Error\"P\n\021FetchStoreRequest\022\022" +
+      "\n\nstore_name\030\001 \002(\t\022\021\n\tstore_dir\030\002 \002(\t\022\024\n" +
+      "\014push_version\030\003 \001(\003\"9\n\020SwapStoreRequest\022" +
+      "\022\n\nstore_name\030\001 \002(\t\022\021\n\tstore_dir\030\002 \002(\t\"P" +
+      "\n\021SwapStoreResponse\022\037\n\005error\030\001 \001(\0132\020.vol",
+      "demort.Error\022\032\n\022previous_store_dir\030\002 \001(\t" +
+      "\"@\n\024RollbackStoreRequest\022\022\n\nstore_name\030\001" +
+      " \002(\t\022\024\n\014push_version\030\002 \002(\003\"8\n\025RollbackSt" +
+      "oreResponse\022\037\n\005error\030\001 \001(\0132\020.voldemort.E" +
+      "rror\"&\n\020RepairJobRequest\022\022\n\nstore_name\030\001" +
+      " \001(\t\"4\n\021RepairJobResponse\022\037\n\005error\030\001 \001(\013" +
+      "2\020.voldemort.Error\"=\n\024ROStoreVersionDirM" +
+      "ap\022\022\n\nstore_name\030\001 \002(\t\022\021\n\tstore_dir\030\002 \002(" +
+      "\t\"/\n\031GetROMaxVersionDirRequest\022\022\n\nstore_" +
+      "name\030\001 \003(\t\"y\n\032GetROMaxVersionDirResponse",
       "\022:\n\021ro_store_versions\030\001 \003(\0132\037.voldemort." +
       "ROStoreVersionDirMap\022\037\n\005error\030\002 \001(\0132\020.vo" +
-      "ldemort.Error\"/\n\031GetROStorageFormatReque" +
-      "st\022\022\n\nstore_name\030\001 \003(\t\"y\n\032GetROStorageFo" +
-      "rmatResponse\022:\n\021ro_store_versions\030\001 \003(\0132" +
-      "\037.voldemort.ROStoreVersionDirMap\022\037\n\005erro" +
-      "r\030\002 \001(\0132\020.voldemort.Error\"@\n\027FailedFetch" +
-      "StoreRequest\022\022\n\nstore_name\030\001 \002(\t\022\021\n\tstor" +
-      "e_dir\030\002 \002(\t\";\n\030FailedFetchStoreResponse\022" +
-      "\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"\346\001\n\033Reb",
-      "alanceStateChangeRequest\022K\n\035rebalance_pa" +
-      "rtition_info_list\030\001 \003(\0132$.voldemort.Reba" +
-      "lancePartitionInfoMap\022\026\n\016cluster_string\030" +
-      "\002 \002(\t\022\017\n\007swap_ro\030\003 \002(\010\022\037\n\027change_cluster" +
-      "_metadata\030\004 \002(\010\022\036\n\026change_rebalance_stat" +
-      "e\030\005 \002(\010\022\020\n\010rollback\030\006 \002(\010\"?\n\034RebalanceSt" +
-      "ateChangeResponse\022\037\n\005error\030\001 \001(\0132\020.volde" +
-      "mort.Error\"G\n DeleteStoreRebalanceStateR" +
-      "equest\022\022\n\nstore_name\030\001 \002(\t\022\017\n\007node_id\030\002 " +
-      "\002(\005\"D\n!DeleteStoreRebalanceStateResponse",
-      "\022\037\n\005error\030\001 \001(\0132\020.voldemort.Error\"\200\016\n\025Vo" +
-      "ldemortAdminRequest\022)\n\004type\030\001 \002(\0162\033.vold" +
-      "emort.AdminRequestType\0223\n\014get_metadata\030\002" +
-      " \001(\0132\035.voldemort.GetMetadataRequest\0229\n\017u" +
-      "pdate_metadata\030\003 \001(\0132 .voldemort.UpdateM" +
-      "etadataRequest\022J\n\030update_partition_entri" +
-      "es\030\004 \001(\0132(.voldemort.UpdatePartitionEntr" +
-      "iesRequest\022H\n\027fetch_partition_entries\030\005 " +
-      "\001(\0132\'.voldemort.FetchPartitionEntriesReq" +
-      "uest\022J\n\030delete_partition_entries\030\006 \001(\0132(",
-      ".voldemort.DeletePartitionEntriesRequest" +
-      "\022K\n\031initiate_fetch_and_update\030\007 \001(\0132(.vo" +
-      "ldemort.InitiateFetchAndUpdateRequest\022F\n" +
-      "\026async_operation_status\030\010 \001(\0132&.voldemor" +
-      "t.AsyncOperationStatusRequest\022H\n\027initiat" +
-      "e_rebalance_node\030\t \001(\0132\'.voldemort.Initi" +
-      "ateRebalanceNodeRequest\022B\n\024async_operati" +
-      "on_stop\030\n \001(\0132$.voldemort.AsyncOperation" +
-      "StopRequest\022B\n\024async_operation_list\030\013 \001(" +
-      "\0132$.voldemort.AsyncOperationListRequest\022",
-      ";\n\020truncate_entries\030\014 \001(\0132!.voldemort.Tr" +
-      "uncateEntriesRequest\022-\n\tadd_store\030\r \001(\0132" +
-      "\032.voldemort.AddStoreRequest\0223\n\014delete_st" +
-      "ore\030\016 \001(\0132\035.voldemort.DeleteStoreRequest" +
-      "\0221\n\013fetch_store\030\017 \001(\0132\034.voldemort.FetchS" +
-      "toreRequest\022/\n\nswap_store\030\020 \001(\0132\033.voldem" +
-      "ort.SwapStoreRequest\0227\n\016rollback_store\030\021" +
-      " \001(\0132\037.voldemort.RollbackStoreRequest\022D\n" +
-      "\026get_ro_max_version_dir\030\022 \001(\0132$.voldemor" +
-      "t.GetROMaxVersionDirRequest\022L\n\032get_ro_cu",
-      "rrent_version_dir\030\023 \001(\0132(.voldemort.GetR" +
-      "OCurrentVersionDirRequest\022D\n\025fetch_parti" +
-      "tion_files\030\024 \001(\0132%.voldemort.FetchPartit" +
-      "ionFilesRequest\022@\n\023update_slop_entries\030\026" +
-      " \001(\0132#.voldemort.UpdateSlopEntriesReques" +
-      "t\022>\n\022failed_fetch_store\030\030 \001(\0132\".voldemor" +
-      "t.FailedFetchStoreRequest\022C\n\025get_ro_stor" +
-      "age_format\030\031 \001(\0132$.voldemort.GetROStorag" +
-      "eFormatRequest\022F\n\026rebalance_state_change" +
-      "\030\032 \001(\0132&.voldemort.RebalanceStateChangeR",
-      "equest\022/\n\nrepair_job\030\033 \001(\0132\033.voldemort.R" +
-      "epairJobRequest\022X\n initiate_rebalance_no" +
-      "de_on_donor\030\034 \001(\0132..voldemort.InitiateRe" +
-      "balanceNodeOnDonorRequest\022Q\n\034delete_stor" +
-      "e_rebalance_state\030\035 \001(\0132+.voldemort.Dele" +
-      "teStoreRebalanceStateRequest*\241\005\n\020AdminRe" +
-      "questType\022\020\n\014GET_METADATA\020\000\022\023\n\017UPDATE_ME" +
-      "TADATA\020\001\022\034\n\030UPDATE_PARTITION_ENTRIES\020\002\022\033" +
-      "\n\027FETCH_PARTITION_ENTRIES\020\003\022\034\n\030DELETE_PA" +
-      "RTITION_ENTRIES\020\004\022\035\n\031INITIATE_FETCH_AND_",
-      "UPDATE\020\005\022\032\n\026ASYNC_OPERATION_STATUS\020\006\022\033\n\027" +
-      "INITIATE_REBALANCE_NODE\020\007\022\030\n\024ASYNC_OPERA" +
-      "TION_STOP\020\010\022\030\n\024ASYNC_OPERATION_LIST\020\t\022\024\n" +
-      "\020TRUNCATE_ENTRIES\020\n\022\r\n\tADD_STORE\020\013\022\020\n\014DE" +
-      "LETE_STORE\020\014\022\017\n\013FETCH_STORE\020\r\022\016\n\nSWAP_ST" +
-      "ORE\020\016\022\022\n\016ROLLBACK_STORE\020\017\022\032\n\026GET_RO_MAX_" +
-      "VERSION_DIR\020\020\022\036\n\032GET_RO_CURRENT_VERSION_" +
-      "DIR\020\021\022\031\n\025FETCH_PARTITION_FILES\020\022\022\027\n\023UPDA" +
-      "TE_SLOP_ENTRIES\020\024\022\026\n\022FAILED_FETCH_STORE\020" +
-      "\026\022\031\n\025GET_RO_STORAGE_FORMAT\020\027\022\032\n\026REBALANC",
-      "E_STATE_CHANGE\020\030\022\016\n\nREPAIR_JOB\020\031\022$\n INIT" +
-      "IATE_REBALANCE_NODE_ON_DONOR\020\032\022 \n\034DELETE" +
-      "_STORE_REBALANCE_STATE\020\033B-\n\034voldemort.cl" +
-      "ient.protocol.pbB\013VAdminProtoH\001"
+      "ldemort.Error\"3\n\035GetROCurrentVersionDirR" +
+      "equest\022\022\n\nstore_name\030\001 \003(\t\"}\n\036GetROCurre" +
+      "ntVersionDirResponse\022:\n\021ro_store_version" +
+      "s\030\001 \003(\0132\037.voldemort.ROStoreVersionDirMap" +
+      "\022\037\n\005error\030\002 \001(\0132\020.voldemort.Error\"/\n\031Get" +
+      "ROStorageFormatRequest\022\022\n\nstore_name\030\001 \003" +
+      "(\t\"y\n\032GetROStorageFormatResponse\022:\n\021ro_s" +
+      "tore_versions\030\001 \003(\0132\037.voldemort.ROStoreV",
+      "ersionDirMap\022\037\n\005error\030\002 \001(\0132\020.voldemort." +
+      "Error\"@\n\027FailedFetchStoreRequest\022\022\n\nstor" +
+      "e_name\030\001 \002(\t\022\021\n\tstore_dir\030\002 \002(\t\";\n\030Faile" +
+      "dFetchStoreResponse\022\037\n\005error\030\001 \001(\0132\020.vol" +
+      "demort.Error\"\346\001\n\033RebalanceStateChangeReq" +
+      "uest\022K\n\035rebalance_partition_info_list\030\001 " +
+      "\003(\0132$.voldemort.RebalancePartitionInfoMa" +
+      "p\022\026\n\016cluster_string\030\002 \002(\t\022\017\n\007swap_ro\030\003 \002" +
+      "(\010\022\037\n\027change_cluster_metadata\030\004 \002(\010\022\036\n\026c" +
+      "hange_rebalance_state\030\005 \002(\010\022\020\n\010rollback\030",
+      "\006 \002(\010\"?\n\034RebalanceStateChangeResponse\022\037\n" +
+      "\005error\030\001 \001(\0132\020.voldemort.Error\"G\n Delete" +
+      "StoreRebalanceStateRequest\022\022\n\nstore_name" +
+      "\030\001 \002(\t\022\017\n\007node_id\030\002 \002(\005\"D\n!DeleteStoreRe" +
+      "balanceStateResponse\022\037\n\005error\030\001 \001(\0132\020.vo" +
+      "ldemort.Error\"\200\016\n\025VoldemortAdminRequest\022" +
+      ")\n\004type\030\001 \002(\0162\033.voldemort.AdminRequestTy" +
+      "pe\0223\n\014get_metadata\030\002 \001(\0132\035.voldemort.Get" +
+      "MetadataRequest\0229\n\017update_metadata\030\003 \001(\013" +
+      "2 .voldemort.UpdateMetadataRequest\022J\n\030up",
+      "date_partition_entries\030\004 \001(\0132(.voldemort" +
+      ".UpdatePartitionEntriesRequest\022H\n\027fetch_" +
+      "partition_entries\030\005 \001(\0132\'.voldemort.Fetc" +
+      "hPartitionEntriesRequest\022J\n\030delete_parti" +
+      "tion_entries\030\006 \001(\0132(.voldemort.DeletePar" +
+      "titionEntriesRequest\022K\n\031initiate_fetch_a" +
+      "nd_update\030\007 \001(\0132(.voldemort.InitiateFetc" +
+      "hAndUpdateRequest\022F\n\026async_operation_sta" +
+      "tus\030\010 \001(\0132&.voldemort.AsyncOperationStat" +
+      "usRequest\022H\n\027initiate_rebalance_node\030\t \001",
+      "(\0132\'.voldemort.InitiateRebalanceNodeRequ" +
+      "est\022B\n\024async_operation_stop\030\n \001(\0132$.vold" +
+      "emort.AsyncOperationStopRequest\022B\n\024async" +
+      "_operation_list\030\013 \001(\0132$.voldemort.AsyncO" +
+      "perationListRequest\022;\n\020truncate_entries\030" +
+      "\014 \001(\0132!.voldemort.TruncateEntriesRequest" +
+      "\022-\n\tadd_store\030\r \001(\0132\032.voldemort.AddStore" +
+      "Request\0223\n\014delete_store\030\016 \001(\0132\035.voldemor" +
+      "t.DeleteStoreRequest\0221\n\013fetch_store\030\017 \001(" +
+      "\0132\034.voldemort.FetchStoreRequest\022/\n\nswap_",
+      "store\030\020 \001(\0132\033.voldemort.SwapStoreRequest" +
+      "\0227\n\016rollback_store\030\021 \001(\0132\037.voldemort.Rol" +
+      "lbackStoreRequest\022D\n\026get_ro_max_version_" +
+      "dir\030\022 \001(\0132$.voldemort.GetROMaxVersionDir" +
+      "Request\022L\n\032get_ro_current_version_dir\030\023 " +
+      "\001(\0132(.voldemort.GetROCurrentVersionDirRe" +
+      "quest\022D\n\025fetch_partition_files\030\024 \001(\0132%.v" +
+      "oldemort.FetchPartitionFilesRequest\022@\n\023u" +
+      "pdate_slop_entries\030\026 \001(\0132#.voldemort.Upd" +
+      "ateSlopEntriesRequest\022>\n\022failed_fetch_st",
+      "ore\030\030 \001(\0132\".voldemort.FailedFetchStoreRe" +
+      "quest\022C\n\025get_ro_storage_format\030\031 \001(\0132$.v" +
+      "oldemort.GetROStorageFormatRequest\022F\n\026re" +
+      "balance_state_change\030\032 \001(\0132&.voldemort.R" +
+      "ebalanceStateChangeRequest\022/\n\nrepair_job" +
+      "\030\033 \001(\0132\033.voldemort.RepairJobRequest\022X\n i" +
+      "nitiate_rebalance_node_on_donor\030\034 \001(\0132.." +
+      "voldemort.InitiateRebalanceNodeOnDonorRe" +
+      "quest\022Q\n\034delete_store_rebalance_state\030\035 " +
+      "\001(\0132+.voldemort.DeleteStoreRebalanceStat",
+      "eRequest*\241\005\n\020AdminRequestType\022\020\n\014GET_MET" +
+      "ADATA\020\000\022\023\n\017UPDATE_METADATA\020\001\022\034\n\030UPDATE_P" +
+      "ARTITION_ENTRIES\020\002\022\033\n\027FETCH_PARTITION_EN" +
+      "TRIES\020\003\022\034\n\030DELETE_PARTITION_ENTRIES\020\004\022\035\n" +
+      "\031INITIATE_FETCH_AND_UPDATE\020\005\022\032\n\026ASYNC_OP" +
+      "ERATION_STATUS\020\006\022\033\n\027INITIATE_REBALANCE_N" +
+      "ODE\020\007\022\030\n\024ASYNC_OPERATION_STOP\020\010\022\030\n\024ASYNC" +
+      "_OPERATION_LIST\020\t\022\024\n\020TRUNCATE_ENTRIES\020\n\022" +
+      "\r\n\tADD_STORE\020\013\022\020\n\014DELETE_STORE\020\014\022\017\n\013FETC" +
+      "H_STORE\020\r\022\016\n\nSWAP_STORE\020\016\022\022\n\016ROLLBACK_ST",
+      "ORE\020\017\022\032\n\026GET_RO_MAX_VERSION_DIR\020\020\022\036\n\032GET" +
+      "_RO_CURRENT_VERSION_DIR\020\021\022\031\n\025FETCH_PARTI" +
+      "TION_FILES\020\022\022\027\n\023UPDATE_SLOP_ENTRIES\020\024\022\026\n" +
+      "\022FAILED_FETCH_STORE\020\026\022\031\n\025GET_RO_STORAGE_" +
+      "FORMAT\020\027\022\032\n\026REBALANCE_STATE_CHANGE\020\030\022\016\n\n" +
+      "REPAIR_JOB\020\031\022$\n INITIATE_REBALANCE_NODE_" +
+      "ON_DONOR\020\032\022 \n\034DELETE_STORE_REBALANCE_STA" +
+      "TE\020\033B-\n\034voldemort.client.protocol.pbB\013VA" +
+      "dminProtoH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -22098,7 +22431,7 @@ public final class VAdminProto {
           internal_static_voldemort_UpdatePartitionEntriesRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_voldemort_UpdatePartitionEntriesRequest_descriptor,
-              new java.lang.String[] { "Store", "PartitionEntry", "Filter", },
+              new java.lang.String[] { "Store", "PartitionEntry", "Filter", "Frame", "FrameCompression", "BulkLoad", },
               voldemort.client.protocol.pb.VAdminProto.UpdatePartitionEntriesRequest.class,
               voldemort.client.protocol.pb.VAdminProto.UpdatePartitionEntriesRequest.Builder.class);
           internal_static_voldemort_UpdatePartitionEntriesResponse_descriptor =
@@ -22138,7 +22471,7 @@ public final class VAdminProto {
           internal_static_voldemort_FetchPartitionFilesRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_voldemort_FetchPartitionFilesRequest_descriptor,
-              new java.lang.String[] { "Store", "ReplicaToPartition", },
+              new java.lang.String[] { "Store", "ReplicaToPartition", "InitialCluster", },
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionFilesRequest.class,
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionFilesRequest.Builder.class);
           internal_static_voldemort_FetchPartitionEntriesRequest_descriptor =
@@ -22146,7 +22479,7 @@ public final class VAdminProto {
           internal_static_voldemort_FetchPartitionEntriesRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_voldemort_FetchPartitionEntriesRequest_descriptor,
-              new java.lang.String[] { "ReplicaToPartition", "Store", "Filter", "FetchValues", "SkipRecords", "InitialCluster", },
+              new java.lang.String[] { "ReplicaToPartition", "Store", "Filter", "FetchValues", "SkipRecords", "InitialCluster", "FrameMaxEntries", "FrameMaxBytes", "FrameCompression", },
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest.class,
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest.Builder.class);
           internal_static_voldemort_FetchPartitionEntriesResponse_descriptor =
@@ -22154,7 +22487,7 @@ public final class VAdminProto {
           internal_static_voldemort_FetchPartitionEntriesResponse_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_voldemort_FetchPartitionEntriesResponse_descriptor,
-              new java.lang.String[] { "PartitionEntry", "Key", "Error", },
+              new java.lang.String[] { "PartitionEntry", "Key", "Error", "Frame", },
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesResponse.class,
               voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesResponse.Builder.class);
           internal_static_voldemort_DeletePartitionEntriesRequest_descriptor =
@@ -43,11 +43,22 @@ import voldemort.versioning.Versioned;
 /**
  * The {@link voldemort.client.protocol.RequestFormat} for a low-overhead custom
  * binary protocol
- * 
+ * <p/>
+ * Protocol version 4 uses the same request and response bodies as version 3.
+ * The request id and size that frame each body on the wire are written and
+ * read by the
+ * {@link voldemort.store.socket.clientrequest.MultiplexedClientRequestExecutor}
+ * that owns the connection.
  * 
  */
 public class VoldemortNativeClientRequestFormat implements RequestFormat {
 
+    /**
+     * Size of the header framing each request and response from protocol
+     * version 4 on: the request id followed by the size of the body.
+     */
+    public static final int FRAME_HEADER_SIZE = 2 * ByteUtils.SIZE_OF_INT;
+
     private final ErrorCodeMapper mapper;
     private final int protocolVersion;
 
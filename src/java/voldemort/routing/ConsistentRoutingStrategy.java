@@ -18,6 +18,7 @@ package voldemort.routing;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +44,9 @@ import com.google.common.collect.Sets;
  * 
  * A preference list of nodes to route to is created by taking the partition
  * into which the key hashes, and then taking the next N nodes on the ring.
+ * The preference lists of all partitions are computed up front, so routing a
+ * key only costs a hash and a table lookup. The lists returned are shared and
+ * can't be modified.
  * 
  * 
  */
@@ -53,6 +57,10 @@ public class ConsistentRoutingStrategy implements RoutingStrategy {
     private final Node[] partitionToNode;
     private final HashFunction hash;
 
+    // master partition -> replicating partitions / preference list
+    private List<List<Integer>> partitionToReplicatingPartitions;
+    private List<List<Node>> partitionToPreferenceList;
+
     private static final Logger logger = Logger.getLogger(ConsistentRoutingStrategy.class);
 
     public ConsistentRoutingStrategy(Collection<Node> nodes, int numReplicas) {
@@ -68,6 +76,18 @@ public class ConsistentRoutingStrategy implements RoutingStrategy {
     }
 
     public ConsistentRoutingStrategy(HashFunction hash, Collection<Node> nodes, int numReplicas) {
+        this(hash, nodes, numReplicas, true);
+    }
+
+    /**
+     * @param buildPreferenceLists False if a subclass needs to initialize
+     *        itself before it can {@link #buildPreferenceLists() build the
+     *        preference lists}, in which case it must call it itself
+     */
+    protected ConsistentRoutingStrategy(HashFunction hash,
+                                        Collection<Node> nodes,
+                                        int numReplicas,
+                                        boolean buildPreferenceLists) {
         this.numReplicas = numReplicas;
         this.hash = hash;
         // sanity check that we dont assign the same partition to multiple nodes
@@ -87,6 +107,33 @@ public class ConsistentRoutingStrategy implements RoutingStrategy {
                 throw new IllegalArgumentException("Invalid configuration, missing partition " + i);
             this.partitionToNode[i] = m.get(i);
         }
+
+        if(buildPreferenceLists)
+            buildPreferenceLists();
+    }
+
+    /**
+     * Computes the replicating partitions and preference list of every
+     * partition on the ring using
+     * {@link #computeReplicatingPartitionList(int)}.
+     */
+    protected final void buildPreferenceLists() {
+        List<List<Integer>> replicatingPartitions = new ArrayList<List<Integer>>(partitionToNode.length);
+        List<List<Node>> preferenceLists = new ArrayList<List<Node>>(partitionToNode.length);
+
+        for(int partition = 0; partition < partitionToNode.length; partition++) {
+            List<Integer> partitionList = computeReplicatingPartitionList(partition);
+            List<Node> preferenceList = new ArrayList<Node>(partitionList.size());
+
+            for(int replica: partitionList)
+                preferenceList.add(partitionToNode[replica]);
+
+            replicatingPartitions.add(Collections.unmodifiableList(partitionList));
+            preferenceLists.add(Collections.unmodifiableList(preferenceList));
+        }
+
+        this.partitionToReplicatingPartitions = replicatingPartitions;
+        this.partitionToPreferenceList = preferenceLists;
     }
 
     /**
@@ -103,33 +150,41 @@ public class ConsistentRoutingStrategy implements RoutingStrategy {
     }
 
     public List<Node> routeRequest(byte[] key) {
-        List<Integer> partitionList = getPartitionList(key);
-
-        if(partitionList.size() == 0)
-            return new ArrayList<Node>(0);
-        // pull out the nodes corresponding to the target partitions
-        List<Node> preferenceList = new ArrayList<Node>(partitionList.size());
-        for(int partition: partitionList) {
-            preferenceList.add(partitionToNode[partition]);
-        }
+        if(partitionToNode.length == 0)
+            return Collections.emptyList();
+
+        int index = getMasterPartition(key);
+        List<Node> preferenceList = partitionToPreferenceList.get(index);
+
         if(logger.isDebugEnabled()) {
             StringBuilder nodeList = new StringBuilder();
-            for(int partition: partitionList) {
-                nodeList.append(partitionToNode[partition].getId() + ",");
+            for(Node node: preferenceList) {
+                nodeList.append(node.getId() + ",");
             }
             logger.debug("Key " + ByteUtils.toHexString(key) + " mapped to Nodes [" + nodeList
-                         + "] Partitions [" + partitionList + "]");
+                         + "] Partitions [" + partitionToReplicatingPartitions.get(index) + "]");
         }
         return preferenceList;
     }
 
     public List<Integer> getReplicatingPartitionList(int index) {
+        if(partitionToNode.length == 0)
+            return Collections.emptyList();
+
+        return partitionToReplicatingPartitions.get(index);
+    }
+
+    /**
+     * Walks the ring from the given partition to find the partitions it is
+     * replicated to. Only used to build the preference lists.
+     * 
+     * @param index Partition id for which we are generating the preference list
+     * @return The List of partitionId where this partition is replicated.
+     */
+    protected List<Integer> computeReplicatingPartitionList(int index) {
         List<Node> preferenceList = new ArrayList<Node>(numReplicas);
         List<Integer> replicationPartitionsList = new ArrayList<Integer>(numReplicas);
 
-        if(partitionToNode.length == 0) {
-            return new ArrayList<Integer>(0);
-        }
         // go over clockwise to find the next 'numReplicas' unique nodes
         // to replicate to
         for(int i = 0; i < partitionToNode.length; i++) {
@@ -170,15 +225,22 @@ public class ConsistentRoutingStrategy implements RoutingStrategy {
     }
 
     public List<Integer> getPartitionList(byte[] key) {
+        if(partitionToNode.length == 0)
+            return Collections.emptyList();
+
+        // Now based on the preference list, pick the replicating partitions and
+        // return
+        return partitionToReplicatingPartitions.get(getMasterPartition(key));
+    }
+
+    private int getMasterPartition(byte[] key) {
         // hash the key and perform a modulo on the total number of partitions,
         // to get the master partition
-        int index = abs(hash.hash(key)) % (Math.max(1, this.partitionToNode.length));
+        int index = abs(hash.hash(key)) % partitionToNode.length;
         if(logger.isDebugEnabled()) {
             logger.debug("Key " + ByteUtils.toHexString(key) + " primary partition " + index);
         }
-        // Now based on the preference list, pick the replicating partitions and
-        // return
-        return getReplicatingPartitionList(index);
+        return index;
     }
 
     public String getType() {
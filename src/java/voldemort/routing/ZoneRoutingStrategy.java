@@ -44,8 +44,9 @@ public class ZoneRoutingStrategy extends ConsistentRoutingStrategy {
                                Collection<Node> nodes,
                                HashMap<Integer, Integer> zoneReplicationFactor,
                                int numReplicas) {
-        super(hash, nodes, numReplicas);
+        super(hash, nodes, numReplicas, false);
         this.zoneReplicationFactor = zoneReplicationFactor;
+        buildPreferenceLists();
     }
 
     /**
@@ -55,7 +56,7 @@ public class ZoneRoutingStrategy extends ConsistentRoutingStrategy {
      * @return The List of partitionId where this partition is replicated.
      */
     @Override
-    public List<Integer> getReplicatingPartitionList(int index) {
+    protected List<Integer> computeReplicatingPartitionList(int index) {
         List<Node> preferenceNodesList = new ArrayList<Node>(getNumReplicas());
         List<Integer> replicationPartitionsList = new ArrayList<Integer>(getNumReplicas());
 
@@ -25,8 +25,11 @@ import java.util.Properties;
 import voldemort.client.protocol.RequestFormatType;
 import voldemort.cluster.failuredetector.FailureDetectorConfig;
 import voldemort.server.scheduler.slop.StreamingSlopPusherJob;
+import voldemort.store.bdb.BdbGroupCommitter;
+import voldemort.store.bdb.BdbRuntimeConfig;
 import voldemort.store.bdb.BdbStorageConfiguration;
 import voldemort.store.memory.CacheStorageConfiguration;
+import voldemort.store.memory.OffHeapCacheStorageEngine;
 import voldemort.store.memory.InMemoryStorageConfiguration;
 import voldemort.store.mysql.MysqlStorageConfiguration;
 import voldemort.store.readonly.BinarySearchStrategy;
@@ -63,11 +66,17 @@ public class VoldemortConfig implements Serializable {
     private boolean bdbFlushTransactions;
     private boolean bdbSortedDuplicates;
     private String bdbDataDirectory;
+    private String bdbSnapshotDirectory;
     private long bdbMaxLogFileSize;
     private int bdbBtreeFanout;
     private long bdbCheckpointBytes;
     private long bdbCheckpointMs;
     private boolean bdbOneEnvPerStore;
+    private boolean bdbPrefixKeysWithPartitionId;
+    private boolean bdbGroupCommit;
+    private int bdbGroupCommitMaxBatchSize;
+    private int bdbParallelGetAllThreads;
+    private int bdbParallelGetAllMinKeys;
     private int bdbCleanerMinFileUtilization;
     private int bdbCleanerMinUtilization;
     private int bdbCleanerLookAheadCacheSize;
@@ -92,6 +101,9 @@ public class VoldemortConfig implements Serializable {
     private String readOnlyStorageDir;
     private String readOnlySearchStrategy;
     private int readOnlyDeleteBackupTimeMs;
+    private boolean readOnlyMmapDataFiles;
+    private boolean readOnlyNonBlockingSwap;
+    private boolean readOnlySwapWarmup;
 
     private int coreThreads;
     private int maxThreads;
@@ -103,6 +115,8 @@ public class VoldemortConfig implements Serializable {
     private boolean useNioConnector;
     private int nioConnectorSelectors;
     private int nioAdminConnectorSelectors;
+    private int nioConnectorRequestWorkerThreads;
+    private int nioConnectorRequestQueueSize;
 
     private int clientSelectors;
     private int clientRoutingTimeoutMs;
@@ -137,6 +151,10 @@ public class VoldemortConfig implements Serializable {
     private boolean enableJmxClusterName;
 
     private List<String> storageConfigurations;
+    private int storageOpenThreads;
+    private long cacheStorageSize;
+    private int cacheStorageSegments;
+    private long readCacheSize;
 
     private Props allProps;
 
@@ -174,7 +192,9 @@ public class VoldemortConfig implements Serializable {
     private int maxRebalancingAttempt;
     private long rebalancingTimeoutSec;
     private int maxParallelStoresRebalancing;
+    private int maxParallelPartitionStreamsRebalancing;
     private boolean rebalancingOptimization;
+    private boolean rebalancingBdbFileShipping;
 
     public VoldemortConfig(Properties props) {
         this(new Props(props));
@@ -197,12 +217,23 @@ public class VoldemortConfig implements Serializable {
         this.bdbFlushTransactions = props.getBoolean("bdb.flush.transactions", false);
         this.bdbDataDirectory = props.getString("bdb.data.directory", this.dataDirectory
                                                                       + File.separator + "bdb");
+        this.bdbSnapshotDirectory = props.getString("bdb.snapshot.directory", this.dataDirectory
+                                                                              + File.separator
+                                                                              + "bdb-snapshots");
         this.bdbMaxLogFileSize = props.getBytes("bdb.max.logfile.size", 60 * 1024 * 1024);
         this.bdbBtreeFanout = props.getInt("bdb.btree.fanout", 512);
         this.bdbCheckpointBytes = props.getLong("bdb.checkpoint.interval.bytes", 20 * 1024 * 1024);
         this.bdbCheckpointMs = props.getLong("bdb.checkpoint.interval.ms", 30 * Time.MS_PER_SECOND);
         this.bdbSortedDuplicates = props.getBoolean("bdb.enable.sorted.duplicates", true);
         this.bdbOneEnvPerStore = props.getBoolean("bdb.one.env.per.store", false);
+        this.bdbPrefixKeysWithPartitionId = props.getBoolean("bdb.prefix.keys.with.partitionid",
+                                                             false);
+        this.bdbGroupCommit = props.getBoolean("bdb.group.commit", false);
+        this.bdbGroupCommitMaxBatchSize = props.getInt("bdb.group.commit.max.batch.size",
+                                                       BdbGroupCommitter.DEFAULT_MAX_BATCH_SIZE);
+        this.bdbParallelGetAllThreads = props.getInt("bdb.parallel.getall.threads", 0);
+        this.bdbParallelGetAllMinKeys = props.getInt("bdb.parallel.getall.min.keys",
+                                                     BdbRuntimeConfig.DEFAULT_PARALLEL_READ_MIN_KEYS);
         this.bdbCleanerMinFileUtilization = props.getInt("bdb.cleaner.min.file.utilization", 5);
         this.bdbCleanerMinUtilization = props.getInt("bdb.cleaner.minUtilization", 50);
         this.bdbCleanerThreads = props.getInt("bdb.cleaner.threads", 1);
@@ -224,6 +255,9 @@ public class VoldemortConfig implements Serializable {
                                                                              + File.separator
                                                                              + "read-only");
         this.readOnlyDeleteBackupTimeMs = props.getInt("readonly.delete.backup.ms", 0);
+        this.readOnlyMmapDataFiles = props.getBoolean("readonly.mmap.data.files", false);
+        this.readOnlyNonBlockingSwap = props.getBoolean("readonly.nonblocking.swap", false);
+        this.readOnlySwapWarmup = props.getBoolean("readonly.swap.warmup", false);
 
         this.mysqlUsername = props.getString("mysql.user", "root");
         this.mysqlPassword = props.getString("mysql.password", "");
@@ -257,6 +291,9 @@ public class VoldemortConfig implements Serializable {
         this.nioAdminConnectorSelectors = props.getInt("nio.admin.connector.selectors",
                                                        Math.max(8, Runtime.getRuntime()
                                                                           .availableProcessors()));
+        this.nioConnectorRequestWorkerThreads = props.getInt("nio.connector.request.worker.threads",
+                                                             0);
+        this.nioConnectorRequestQueueSize = props.getInt("nio.connector.request.queue.size", 1000);
 
         this.clientSelectors = props.getInt("client.selectors", 4);
         this.clientMaxConnectionsPerNode = props.getInt("client.max.connections.per.node", 50);
@@ -305,6 +342,13 @@ public class VoldemortConfig implements Serializable {
                                                                     CacheStorageConfiguration.class.getName(),
                                                                     ReadOnlyStorageConfiguration.class.getName()));
 
+        this.storageOpenThreads = props.getInt("storage.open.threads", 1);
+        this.cacheStorageSize = props.getBytes("cache.storage.size",
+                                               CacheStorageConfiguration.DEFAULT_CACHE_SIZE);
+        this.cacheStorageSegments = props.getInt("cache.storage.segments",
+                                                 OffHeapCacheStorageEngine.DEFAULT_NUM_SEGMENTS);
+        this.readCacheSize = props.getBytes("read.cache.size", 0);
+
         // start at midnight (0-23)
         this.retentionCleanupFirstStartTimeInHour = props.getInt("retention.cleanup.first.start.hour",
                                                                  0);
@@ -323,7 +367,10 @@ public class VoldemortConfig implements Serializable {
         this.maxRebalancingAttempt = props.getInt("max.rebalancing.attempts", 3);
         this.rebalancingTimeoutSec = props.getLong("rebalancing.timeout.seconds", 10 * 24 * 60 * 60);
         this.maxParallelStoresRebalancing = props.getInt("max.parallel.stores.rebalancing", 3);
+        this.maxParallelPartitionStreamsRebalancing = props.getInt("max.parallel.partition.streams.rebalancing",
+                                                                   1);
         this.rebalancingOptimization = props.getBoolean("rebalancing.optimization", true);
+        this.rebalancingBdbFileShipping = props.getBoolean("rebalancing.bdb.file.shipping", false);
 
         this.failureDetectorImplementation = props.getString("failuredetector.implementation",
                                                              FailureDetectorConfig.DEFAULT_IMPLEMENTATION_CLASS_NAME);
@@ -535,6 +582,19 @@ public class VoldemortConfig implements Serializable {
         this.bdbDataDirectory = bdbDataDirectory;
     }
 
+    /**
+     * The directory in which snapshots of bdb partitions are built before
+     * being shipped to a stealer. It is emptied on startup. Given by
+     * "bdb.snapshot.directory" default: data.directory/bdb-snapshots
+     */
+    public String getBdbSnapshotDirectory() {
+        return bdbSnapshotDirectory;
+    }
+
+    public void setBdbSnapshotDirectory(String bdbSnapshotDirectory) {
+        this.bdbSnapshotDirectory = bdbSnapshotDirectory;
+    }
+
     /**
      * The maximum size of a single .jdb log file in bytes. Given by
      * "bdb.max.logfile.size" default: 60MB
@@ -1176,6 +1236,89 @@ public class VoldemortConfig implements Serializable {
         return bdbOneEnvPerStore;
     }
 
+    /**
+     * If true, BDB stores prefix each key with its master partition so that
+     * a partition can be scanned on its own. The layout is not compatible
+     * with existing databases, so a store that already holds keys in the
+     * other layout refuses to open after this is changed.
+     */
+    public boolean isBdbPrefixKeysWithPartitionId() {
+        return bdbPrefixKeysWithPartitionId;
+    }
+
+    public void setBdbPrefixKeysWithPartitionId(boolean bdbPrefixKeysWithPartitionId) {
+        this.bdbPrefixKeysWithPartitionId = bdbPrefixKeysWithPartitionId;
+    }
+
+    /**
+     * If true, concurrent puts and deletes against the same BDB environment
+     * are collected into batches that share a single transaction commit.
+     * Callers still return only once their write has been committed.
+     * 
+     * <ul>
+     * <li>property: "bdb.group.commit"</li>
+     * <li>default: false</li>
+     * </ul>
+     */
+    public boolean isBdbGroupCommit() {
+        return bdbGroupCommit;
+    }
+
+    public void setBdbGroupCommit(boolean bdbGroupCommit) {
+        this.bdbGroupCommit = bdbGroupCommit;
+    }
+
+    /**
+     * The largest number of writes committed together in one group commit.
+     * 
+     * <ul>
+     * <li>property: "bdb.group.commit.max.batch.size"</li>
+     * <li>default: 128</li>
+     * </ul>
+     */
+    public int getBdbGroupCommitMaxBatchSize() {
+        return bdbGroupCommitMaxBatchSize;
+    }
+
+    public void setBdbGroupCommitMaxBatchSize(int bdbGroupCommitMaxBatchSize) {
+        this.bdbGroupCommitMaxBatchSize = bdbGroupCommitMaxBatchSize;
+    }
+
+    /**
+     * The number of threads shared by all BDB stores for reading large getAll
+     * batches in parallel. Each batch is split into contiguous key ranges that
+     * are read with their own cursor. 0 reads every batch on the calling
+     * thread.
+     * 
+     * <ul>
+     * <li>property: "bdb.parallel.getall.threads"</li>
+     * <li>default: 0</li>
+     * </ul>
+     */
+    public int getBdbParallelGetAllThreads() {
+        return bdbParallelGetAllThreads;
+    }
+
+    public void setBdbParallelGetAllThreads(int bdbParallelGetAllThreads) {
+        this.bdbParallelGetAllThreads = bdbParallelGetAllThreads;
+    }
+
+    /**
+     * The smallest getAll batch that is read in parallel.
+     * 
+     * <ul>
+     * <li>property: "bdb.parallel.getall.min.keys"</li>
+     * <li>default: 1000</li>
+     * </ul>
+     */
+    public int getBdbParallelGetAllMinKeys() {
+        return bdbParallelGetAllMinKeys;
+    }
+
+    public void setBdbParallelGetAllMinKeys(int bdbParallelGetAllMinKeys) {
+        this.bdbParallelGetAllMinKeys = bdbParallelGetAllMinKeys;
+    }
+
     public int getSocketBufferSize() {
         return socketBufferSize;
     }
@@ -1216,6 +1359,31 @@ public class VoldemortConfig implements Serializable {
         this.nioAdminConnectorSelectors = nioAdminConnectorSelectors;
     }
 
+    /**
+     * The number of threads executing client requests for the NIO connector
+     * given by "nio.connector.request.worker.threads" default: 0, which
+     * executes requests on the selector threads
+     */
+    public int getNioConnectorRequestWorkerThreads() {
+        return nioConnectorRequestWorkerThreads;
+    }
+
+    public void setNioConnectorRequestWorkerThreads(int nioConnectorRequestWorkerThreads) {
+        this.nioConnectorRequestWorkerThreads = nioConnectorRequestWorkerThreads;
+    }
+
+    /**
+     * The maximum number of requests waiting for an NIO worker thread given by
+     * "nio.connector.request.queue.size" default: 1000
+     */
+    public int getNioConnectorRequestQueueSize() {
+        return nioConnectorRequestQueueSize;
+    }
+
+    public void setNioConnectorRequestQueueSize(int nioConnectorRequestQueueSize) {
+        this.nioConnectorRequestQueueSize = nioConnectorRequestQueueSize;
+    }
+
     public int getAdminSocketBufferSize() {
         return adminStreamBufferSize;
     }
@@ -1232,6 +1400,82 @@ public class VoldemortConfig implements Serializable {
         this.storageConfigurations = storageConfigurations;
     }
 
+    /**
+     * The number of threads used to open stores when the server starts. With
+     * a single thread stores are opened one after another.
+     */
+    public int getStorageOpenThreads() {
+        return storageOpenThreads;
+    }
+
+    public void setStorageOpenThreads(int storageOpenThreads) {
+        this.storageOpenThreads = storageOpenThreads;
+    }
+
+    /**
+     * The most bytes of values each store of type "cache" holds off the heap.
+     * 
+     * <ul>
+     * <li>property: "cache.storage.size"</li>
+     * <li>default: 64MB</li>
+     * </ul>
+     */
+    public long getCacheStorageSize() {
+        return cacheStorageSize;
+    }
+
+    public void setCacheStorageSize(long cacheStorageSize) {
+        this.cacheStorageSize = cacheStorageSize;
+    }
+
+    /**
+     * The number of independently locked segments of each cache store.
+     * 
+     * <ul>
+     * <li>property: "cache.storage.segments"</li>
+     * <li>default: 16</li>
+     * </ul>
+     */
+    public int getCacheStorageSegments() {
+        return cacheStorageSegments;
+    }
+
+    public void setCacheStorageSegments(int cacheStorageSegments) {
+        this.cacheStorageSegments = cacheStorageSegments;
+    }
+
+    /**
+     * The number of bytes of recently read values each store keeps in front
+     * of its storage engine. 0 disables the cache. Read-only stores and views
+     * are never cached.
+     * 
+     * <ul>
+     * <li>property: "read.cache.size"</li>
+     * <li>default: 0</li>
+     * </ul>
+     */
+    public long getReadCacheSize() {
+        return readCacheSize;
+    }
+
+    /**
+     * The read cache size for a single store, which can be set with
+     * read.cache.size.&lt;store name&gt; and otherwise defaults to
+     * read.cache.size
+     * 
+     * @param storeName The name of the store
+     * @return The size of the cache in bytes
+     */
+    public long getReadCacheSize(String storeName) {
+        if(allProps == null)
+            return readCacheSize;
+        return allProps.getBytes("read.cache.size." + storeName, readCacheSize);
+    }
+
+    public void setReadCacheSize(long readCacheSize) {
+        this.readCacheSize = readCacheSize;
+    }
+
     public Props getAllProps() {
         return this.allProps;
     }
@@ -1388,10 +1632,62 @@ public class VoldemortConfig implements Serializable {
         return readOnlySearchStrategy;
     }
 
+    /**
+     * The search strategy for a single read-only store, which can be set with
+     * readonly.search.strategy.&lt;store name&gt; and otherwise defaults to
+     * readonly.search.strategy
+     * 
+     * @param storeName The name of the store
+     * @return The class name of the search strategy
+     */
+    public String getReadOnlySearchStrategy(String storeName) {
+        if(allProps == null)
+            return readOnlySearchStrategy;
+        return allProps.getString("readonly.search.strategy." + storeName, readOnlySearchStrategy);
+    }
+
     public void setReadOnlySearchStrategy(String readOnlySearchStrategy) {
         this.readOnlySearchStrategy = readOnlySearchStrategy;
     }
 
+    public boolean isReadOnlyMmapDataFiles() {
+        return readOnlyMmapDataFiles;
+    }
+
+    /**
+     * If true, the data files of read-only stores are memory-mapped like the
+     * index files, and values are read straight from the mapped pages instead
+     * of with positional reads.
+     */
+    public void setReadOnlyMmapDataFiles(boolean readOnlyMmapDataFiles) {
+        this.readOnlyMmapDataFiles = readOnlyMmapDataFiles;
+    }
+
+    public boolean isReadOnlyNonBlockingSwap() {
+        return readOnlyNonBlockingSwap;
+    }
+
+    /**
+     * If true, a swap of a read-only store opens the new version before taking
+     * the store's lock, so reads are served from the old version until the new
+     * one is swapped in rather than blocking for the whole swap.
+     */
+    public void setReadOnlyNonBlockingSwap(boolean readOnlyNonBlockingSwap) {
+        this.readOnlyNonBlockingSwap = readOnlyNonBlockingSwap;
+    }
+
+    public boolean isReadOnlySwapWarmup() {
+        return readOnlySwapWarmup;
+    }
+
+    /**
+     * If true, a non-blocking swap loads the mapped files of the new version
+     * into memory before swapping it in.
+     */
+    public void setReadOnlySwapWarmup(boolean readOnlySwapWarmup) {
+        this.readOnlySwapWarmup = readOnlySwapWarmup;
+    }
+
     public boolean isNetworkClassLoaderEnabled() {
         return enableNetworkClassLoader;
     }
@@ -1416,6 +1712,19 @@ public class VoldemortConfig implements Serializable {
         this.maxParallelStoresRebalancing = maxParallelStoresRebalancing;
     }
 
+    /**
+     * The number of partition-range streams a stealer runs in parallel for
+     * each read-write store it pulls from a donor. Given by
+     * "max.parallel.partition.streams.rebalancing" default: 1
+     */
+    public int getMaxParallelPartitionStreamsRebalancing() {
+        return maxParallelPartitionStreamsRebalancing;
+    }
+
+    public void setMaxParallelPartitionStreamsRebalancing(int maxParallelPartitionStreamsRebalancing) {
+        this.maxParallelPartitionStreamsRebalancing = maxParallelPartitionStreamsRebalancing;
+    }
+
     public boolean getRebalancingOptimization() {
         return rebalancingOptimization;
     }
@@ -1424,6 +1733,20 @@ public class VoldemortConfig implements Serializable {
         this.rebalancingOptimization = rebalancingOptimization;
     }
 
+    /**
+     * Whether a stealer pulls the partitions of a BDB store as a sorted
+     * snapshot file built by the donor, and loads it in batches, instead of
+     * streaming the entries one at a time. Given by
+     * "rebalancing.bdb.file.shipping" default: false
+     */
+    public boolean getRebalancingBdbFileShipping() {
+        return rebalancingBdbFileShipping;
+    }
+
+    public void setRebalancingBdbFileShipping(boolean rebalancingBdbFileShipping) {
+        this.rebalancingBdbFileShipping = rebalancingBdbFileShipping;
+    }
+
     public boolean isEnableJmxClusterName() {
         return enableJmxClusterName;
     }
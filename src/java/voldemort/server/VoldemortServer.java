@@ -180,6 +180,8 @@ public class VoldemortServer extends AbstractService {
                                                   identityNode.getSocketPort(),
                                                   voldemortConfig.getSocketBufferSize(),
                                                   voldemortConfig.getNioConnectorSelectors(),
+                                                  voldemortConfig.getNioConnectorRequestWorkerThreads(),
+                                                  voldemortConfig.getNioConnectorRequestQueueSize(),
                                                   "nio-socket-server",
                                                   voldemortConfig.isJmxEnabled()));
             } else {
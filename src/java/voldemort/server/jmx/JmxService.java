@@ -38,6 +38,7 @@ import voldemort.server.VoldemortService;
 import voldemort.store.Store;
 import voldemort.store.bdb.BdbStorageEngine;
 import voldemort.store.bdb.stats.BdbEnvironmentStats;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.utils.ByteArray;
 import voldemort.utils.JmxUtils;
 
@@ -78,16 +79,12 @@ public class JmxService extends AbstractService {
         for(VoldemortService service: services)
             registerBean(service, JmxUtils.createObjectName(service.getClass()));
         for(Store<ByteArray, byte[], byte[]> store: this.storeRepository.getAllStorageEngines()) {
-            if(server.getVoldemortConfig().isEnableJmxClusterName())
-                registerBean(store,
-                             JmxUtils.createObjectName(this.cluster.getName()
-                                                               + "."
-                                                               + JmxUtils.getPackageName(store.getClass()),
-                                                       store.getName()));
-            else
-                registerBean(store,
-                             JmxUtils.createObjectName(JmxUtils.getPackageName(store.getClass()),
-                                                       store.getName()));
+            registerStoreBean(store);
+            if(store instanceof CachingStorageEngine) {
+                // the cached engine has beans of its own
+                store = ((CachingStorageEngine) store).getInnerEngine();
+                registerStoreBean(store);
+            }
             if(store instanceof BdbStorageEngine) {
                 // Temp hack for now
                 BdbStorageEngine bdbStore = (BdbStorageEngine) store;
@@ -105,6 +102,18 @@ public class JmxService extends AbstractService {
         registeredBeans.clear();
     }
 
+    private void registerStoreBean(Store<ByteArray, byte[], byte[]> store) {
+        if(server.getVoldemortConfig().isEnableJmxClusterName())
+            registerBean(store,
+                         JmxUtils.createObjectName(this.cluster.getName() + "."
+                                                           + JmxUtils.getPackageName(store.getClass()),
+                                                   store.getName()));
+        else
+            registerBean(store,
+                         JmxUtils.createObjectName(JmxUtils.getPackageName(store.getClass()),
+                                                   store.getName()));
+    }
+
     private void registerBean(Object o, ObjectName name) {
         synchronized(registeredBeans) {
             try {
@@ -16,6 +16,8 @@
 
 package voldemort.server.niosocket;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -24,11 +26,14 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Level;
 
 import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormatType;
+import voldemort.client.protocol.vold.VoldemortNativeClientRequestFormat;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.server.protocol.RequestHandlerFactory;
 import voldemort.server.protocol.StreamRequestHandler;
@@ -46,6 +51,19 @@ import voldemort.utils.SelectorManagerWorker;
  * The bulk of the complexity in this class surrounds partial reads and writes,
  * as well as determining when all the data needed for the request has been
  * read.
+ * <p/>
+ * If a {@link NioRequestWorkerPool} is provided, complete (non-streaming)
+ * requests are handed off to it instead of being executed on the selector
+ * thread. While the request is being executed the connection is not
+ * registered for any selector events; once it completes, the handler is queued
+ * back to its {@link NioSelectorManager} which writes the response from the
+ * selector thread.
+ * <p/>
+ * For multiplexed protocols (see {@link RequestFormatType#isMultiplexed()})
+ * the connection keeps reading while requests execute: every framed request is
+ * executed independently and its response is queued for writing as soon as it
+ * is ready, so responses may go out in a different order than the requests
+ * came in.
  * 
  * 
  * @see voldemort.server.protocol.RequestHandler
@@ -59,12 +77,36 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
 
     private StreamRequestHandler streamRequestHandler;
 
+    private final NioSelectorManager selectorManager;
+
+    private final NioRequestWorkerPool workerPool;
+
+    private volatile Throwable workerError;
+
+    private boolean isMultiplexed;
+
+    private final Queue<ByteBuffer> responseQueue;
+
+    private ByteBuffer currentResponse;
+
     public AsyncRequestHandler(Selector selector,
                                SocketChannel socketChannel,
                                RequestHandlerFactory requestHandlerFactory,
                                int socketBufferSize) {
+        this(selector, socketChannel, requestHandlerFactory, socketBufferSize, null, null);
+    }
+
+    public AsyncRequestHandler(Selector selector,
+                               SocketChannel socketChannel,
+                               RequestHandlerFactory requestHandlerFactory,
+                               int socketBufferSize,
+                               NioSelectorManager selectorManager,
+                               NioRequestWorkerPool workerPool) {
         super(selector, socketChannel, socketBufferSize);
         this.requestHandlerFactory = requestHandlerFactory;
+        this.selectorManager = selectorManager;
+        this.workerPool = workerPool;
+        this.responseQueue = new ConcurrentLinkedQueue<ByteBuffer>();
     }
 
     @Override
@@ -96,6 +138,11 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
             }
         }
 
+        if(isMultiplexed) {
+            handleMultiplexedRequests(selectionKey);
+            return;
+        }
+
         if(streamRequestHandler != null) {
             // We're continuing an existing streaming request from our last pass
             // through. So handle it and return.
@@ -114,12 +161,76 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         // rewind the buffer for reading and execute the request.
         inputStream.getBuffer().rewind();
 
+        if(workerPool != null && selectorManager != null) {
+            // Stop listening for events on this connection until the worker
+            // has produced the response; the client doesn't send another
+            // request before it has read the response to this one.
+            selectionKey.interestOps(0);
+
+            if(workerPool.submit(this, new WorkerRequest()))
+                return;
+
+            // The queue is full, so fall back to executing on the selector
+            // thread, which pushes back on the clients of this selector.
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+
         if(logger.isTraceEnabled())
             logger.trace("Starting execution for " + socketChannel.socket());
 
         streamRequestHandler = requestHandler.handleRequest(new DataInputStream(inputStream),
                                                             new DataOutputStream(outputStream));
 
+        completeRequest(selectionKey);
+    }
+
+    /**
+     * Invoked on the selector thread once a request handed off to the worker
+     * pool has been executed. Prepares the response for writing, continues a
+     * streaming request or closes the connection if the request failed.
+     */
+
+    void completeWorkerRequest() {
+        SelectionKey selectionKey = socketChannel.keyFor(selector);
+
+        if(isClosed() || selectionKey == null || !selectionKey.isValid()) {
+            close();
+            return;
+        }
+
+        Throwable t = workerError;
+
+        if(t != null) {
+            workerError = null;
+
+            if(t instanceof IOException) {
+                if(logger.isInfoEnabled())
+                    logger.info("Connection reset from " + socketChannel.socket()
+                                + " with message - " + t.getMessage());
+            } else if(logger.isEnabledFor(Level.ERROR)) {
+                logger.error(t.getMessage(), t);
+            }
+
+            close();
+            return;
+        }
+
+        if(isMultiplexed) {
+            updateMultiplexedInterest(selectionKey);
+            return;
+        }
+
+        try {
+            completeRequest(selectionKey);
+        } catch(Throwable e) {
+            if(logger.isEnabledFor(Level.ERROR))
+                logger.error(e.getMessage(), e);
+
+            close();
+        }
+    }
+
+    private void completeRequest(SelectionKey selectionKey) throws IOException {
         if(streamRequestHandler != null) {
             // In the case of a StreamRequestHandler, we handle that separately
             // (attempting to process multiple "segments").
@@ -135,8 +246,90 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         prepForWrite(selectionKey);
     }
 
+    /**
+     * Executes every complete request frame in the input buffer, either on the
+     * worker pool or inline, and keeps any trailing partial frame for the next
+     * read.
+     */
+
+    private void handleMultiplexedRequests(SelectionKey selectionKey) throws IOException {
+        ByteBuffer buffer = inputStream.getBuffer();
+        int headerSize = VoldemortNativeClientRequestFormat.FRAME_HEADER_SIZE;
+
+        while(buffer.remaining() >= headerSize) {
+            int requestSize = buffer.getInt(buffer.position() + ByteUtils.SIZE_OF_INT);
+
+            if(requestSize < 0)
+                throw new IOException("Invalid request size " + requestSize + " from "
+                                      + socketChannel.socket());
+
+            if(buffer.remaining() < headerSize + requestSize)
+                break;
+
+            byte[] frame = new byte[headerSize + requestSize];
+            buffer.get(frame);
+
+            MultiplexedRequest request = new MultiplexedRequest(frame);
+
+            if(workerPool == null || selectorManager == null || !workerPool.submit(this, request)) {
+                request.execute();
+
+                if(workerError != null)
+                    throw new VoldemortException(workerError);
+            }
+        }
+
+        // Move the partial frame (if any) to the start of the buffer and get
+        // ready for the next read.
+        int remaining = buffer.remaining();
+
+        if(remaining == 0 && buffer.capacity() >= resizeThreshold) {
+            inputStream.setBuffer(ByteBuffer.allocate(socketBufferSize));
+        } else {
+            buffer.compact();
+            handleIncompleteRequest(remaining);
+        }
+
+        updateMultiplexedInterest(selectionKey);
+    }
+
+    private void updateMultiplexedInterest(SelectionKey selectionKey) {
+        if(currentResponse != null || !responseQueue.isEmpty())
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        else
+            selectionKey.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void writeMultiplexedResponses(SelectionKey selectionKey) throws IOException {
+        while(true) {
+            if(currentResponse == null) {
+                currentResponse = responseQueue.poll();
+
+                if(currentResponse == null)
+                    break;
+            }
+
+            socketChannel.write(currentResponse);
+
+            // The socket's send buffer is full, wait to be selected again.
+            if(currentResponse.hasRemaining())
+                return;
+
+            currentResponse = null;
+        }
+
+        // Responses queued by workers from now on are followed by a
+        // completion that sets the write interest again.
+        updateMultiplexedInterest(selectionKey);
+    }
+
     @Override
     protected void write(SelectionKey selectionKey) throws IOException {
+        if(isMultiplexed) {
+            writeMultiplexedResponses(selectionKey);
+            return;
+        }
+
         if(outputStream.getBuffer().hasRemaining()) {
             // If we have data, write what we can now...
             try {
@@ -299,6 +492,88 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         return state;
     }
 
+    /**
+     * Closes a stream request left unfinished by the connection closing, for
+     * example on a client disconnect, so that it releases what it holds.
+     */
+    @Override
+    protected void closeInternal() {
+        super.closeInternal();
+
+        if(streamRequestHandler != null) {
+            try {
+                streamRequestHandler.close(new DataOutputStream(outputStream));
+            } catch(Exception e) {
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn("Error closing abandoned stream request for "
+                                + socketChannel.socket(), e);
+            } finally {
+                streamRequestHandler = null;
+            }
+        }
+    }
+
+    /**
+     * Executes a fully-read request on a worker thread and hands the
+     * connection back to the selector when done.
+     */
+
+    private class WorkerRequest implements Runnable {
+
+        public void run() {
+            try {
+                if(logger.isTraceEnabled())
+                    logger.trace("Starting worker execution for " + socketChannel.socket());
+
+                streamRequestHandler = requestHandler.handleRequest(new DataInputStream(inputStream),
+                                                                    new DataOutputStream(outputStream));
+            } catch(Throwable t) {
+                workerError = t;
+            } finally {
+                selectorManager.completeRequest(AsyncRequestHandler.this);
+            }
+        }
+
+    }
+
+    /**
+     * Executes a single framed request of a multiplexed connection and queues
+     * its response for writing.
+     */
+
+    private class MultiplexedRequest implements Runnable {
+
+        private final byte[] frame;
+
+        public MultiplexedRequest(byte[] frame) {
+            this.frame = frame;
+        }
+
+        /**
+         * Runs on a worker thread and hands the connection back to the
+         * selector once the response is queued.
+         */
+        public void run() {
+            try {
+                execute();
+            } finally {
+                selectorManager.completeRequest(AsyncRequestHandler.this);
+            }
+        }
+
+        public void execute() {
+            try {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                requestHandler.handleRequest(new DataInputStream(new ByteArrayInputStream(frame)),
+                                             new DataOutputStream(response));
+                responseQueue.add(ByteBuffer.wrap(response.toByteArray()));
+            } catch(Throwable t) {
+                workerError = t;
+            }
+        }
+
+    }
+
     /**
      * Returns true if the request should continue.
      * 
@@ -319,11 +594,21 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
             String proto = ByteUtils.getString(protoBytes, "UTF-8");
             RequestFormatType requestFormatType = RequestFormatType.fromCode(proto);
             requestHandler = requestHandlerFactory.getRequestHandler(requestFormatType);
+            isMultiplexed = requestFormatType.isMultiplexed();
 
             if(logger.isInfoEnabled())
                 logger.info("Protocol negotiated for " + socketChannel.socket() + ": "
                             + requestFormatType.getDisplayName());
 
+            if(isMultiplexed) {
+                // Responses of multiplexed connections all go through the
+                // response queue, including the negotiation.
+                responseQueue.add(ByteBuffer.wrap(ByteUtils.getBytes("ok", "UTF-8")));
+                inputStream.getBuffer().clear();
+                updateMultiplexedInterest(selectionKey);
+                return false;
+            }
+
             // The protocol negotiation is the first request, so respond by
             // sticking the bytes in the output buffer, signaling the Selector,
             // and returning false to denote no further processing is needed.
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.niosocket;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxManaged;
+import voldemort.store.stats.RequestCounter;
+import voldemort.utils.DaemonThreadFactory;
+
+/**
+ * NioRequestWorkerPool is a bounded pool of threads that execute complete
+ * requests on behalf of the {@link NioSelectorManager} instances. When it is
+ * enabled the selector threads only frame requests and write responses, so a
+ * slow storage engine lookup no longer stalls every other connection that is
+ * multiplexed on the same selector.
+ * <p/>
+ * The pool has a fixed number of threads and a bounded queue. When the queue
+ * is full {@link #submit(AsyncRequestHandler, Runnable)} returns false and the
+ * caller executes the request inline on the selector thread, which pushes
+ * back on the clients of that selector rather than dropping their requests.
+ */
+
+@JmxManaged(description = "Worker pool executing requests for the NIO socket server.")
+public class NioRequestWorkerPool {
+
+    private static final int STATS_WINDOW_MS = 60 * 1000;
+
+    private final ThreadPoolExecutor threadPool;
+
+    private final RequestCounter queueWaitCounter;
+
+    private final RequestCounter serviceTimeCounter;
+
+    private final AtomicLong rejectedRequests;
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    public NioRequestWorkerPool(int workerThreads, int queueSize) {
+        if(workerThreads <= 0)
+            throw new IllegalArgumentException("Number of worker threads must be positive.");
+        if(queueSize <= 0)
+            throw new IllegalArgumentException("Request queue size must be positive.");
+
+        this.threadPool = new ThreadPoolExecutor(workerThreads,
+                                                 workerThreads,
+                                                 0,
+                                                 TimeUnit.MILLISECONDS,
+                                                 new ArrayBlockingQueue<Runnable>(queueSize),
+                                                 new DaemonThreadFactory("voldemort-niosocket-worker"));
+        this.queueWaitCounter = new RequestCounter(STATS_WINDOW_MS);
+        this.serviceTimeCounter = new RequestCounter(STATS_WINDOW_MS);
+        this.rejectedRequests = new AtomicLong(0);
+    }
+
+    /**
+     * Queues the given request for execution.
+     * 
+     * @param handler The connection on whose behalf the request is run
+     * @param request The request itself
+     * @return True if the request was queued, false if the queue is full or
+     *         the pool has been shut down and the caller must run the request
+     *         itself
+     */
+
+    public boolean submit(AsyncRequestHandler handler, Runnable request) {
+        try {
+            threadPool.execute(new QueuedRequest(handler, request));
+            return true;
+        } catch(RejectedExecutionException e) {
+            rejectedRequests.incrementAndGet();
+
+            if(logger.isDebugEnabled())
+                logger.debug("Request queue full, executing inline for " + handler);
+
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        threadPool.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return threadPool.awaitTermination(timeout, unit);
+    }
+
+    @JmxGetter(name = "requestQueueDepth", description = "The number of requests waiting for a worker thread.")
+    public int getQueueDepth() {
+        return threadPool.getQueue().size();
+    }
+
+    @JmxGetter(name = "activeWorkers", description = "The number of worker threads executing a request.")
+    public int getActiveWorkers() {
+        return threadPool.getActiveCount();
+    }
+
+    @JmxGetter(name = "averageQueueWaitTimeInMs", description = "The avg. time in ms requests waited in the queue.")
+    public double getAverageQueueWaitTimeInMs() {
+        return queueWaitCounter.getAverageTimeInMs();
+    }
+
+    @JmxGetter(name = "maxQueueWaitTimeInMs", description = "The max. time in ms a request waited in the queue.")
+    public long getMaxQueueWaitTimeInMs() {
+        return queueWaitCounter.getMaxLatencyInMs();
+    }
+
+    @JmxGetter(name = "averageServiceTimeInMs", description = "The avg. time in ms a worker spent executing a request.")
+    public double getAverageServiceTimeInMs() {
+        return serviceTimeCounter.getAverageTimeInMs();
+    }
+
+    @JmxGetter(name = "rejectedRequests", description = "The number of requests run on the selector thread because the queue was full.")
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    private class QueuedRequest implements Runnable {
+
+        private final AsyncRequestHandler handler;
+
+        private final Runnable request;
+
+        private final long enqueuedNs;
+
+        public QueuedRequest(AsyncRequestHandler handler, Runnable request) {
+            this.handler = handler;
+            this.request = request;
+            this.enqueuedNs = System.nanoTime();
+        }
+
+        public void run() {
+            long startNs = System.nanoTime();
+            queueWaitCounter.addRequest(startNs - enqueuedNs);
+
+            try {
+                request.run();
+            } finally {
+                serviceTimeCounter.addRequest(System.nanoTime() - startNs);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "QueuedRequest(" + handler + ")";
+        }
+
+    }
+
+}
@@ -99,13 +99,26 @@ public class NioSelectorManager extends SelectorManager {
 
     private final int socketBufferSize;
 
+    private final NioRequestWorkerPool workerPool;
+
+    private final Queue<AsyncRequestHandler> completedRequestQueue;
+
     public NioSelectorManager(InetSocketAddress endpoint,
                               RequestHandlerFactory requestHandlerFactory,
                               int socketBufferSize) {
+        this(endpoint, requestHandlerFactory, socketBufferSize, null);
+    }
+
+    public NioSelectorManager(InetSocketAddress endpoint,
+                              RequestHandlerFactory requestHandlerFactory,
+                              int socketBufferSize,
+                              NioRequestWorkerPool workerPool) {
         this.endpoint = endpoint;
         this.socketChannelQueue = new ConcurrentLinkedQueue<SocketChannel>();
         this.requestHandlerFactory = requestHandlerFactory;
         this.socketBufferSize = socketBufferSize;
+        this.workerPool = workerPool;
+        this.completedRequestQueue = new ConcurrentLinkedQueue<AsyncRequestHandler>();
     }
 
     public void accept(SocketChannel socketChannel) {
@@ -116,8 +129,32 @@ public class NioSelectorManager extends SelectorManager {
         selector.wakeup();
     }
 
+    /**
+     * Called from a worker thread once it has executed a request for the given
+     * handler. The response is written from the selector thread on its next
+     * pass through {@link #processEvents()}.
+     * 
+     * @param handler Handler whose request has been executed
+     */
+
+    public void completeRequest(AsyncRequestHandler handler) {
+        completedRequestQueue.add(handler);
+        selector.wakeup();
+    }
+
     @Override
     protected void processEvents() {
+        AsyncRequestHandler completed = null;
+
+        while((completed = completedRequestQueue.poll()) != null) {
+            if(isClosed.get()) {
+                completed.close();
+                continue;
+            }
+
+            completed.completeWorkerRequest();
+        }
+
         try {
             SocketChannel socketChannel = null;
 
@@ -155,7 +192,9 @@ public class NioSelectorManager extends SelectorManager {
                     AsyncRequestHandler attachment = new AsyncRequestHandler(selector,
                                                                              socketChannel,
                                                                              requestHandlerFactory,
-                                                                             socketBufferSize);
+                                                                             socketBufferSize,
+                                                                             this,
+                                                                             workerPool);
 
                     if(!isClosed.get())
                         socketChannel.register(selector, SelectionKey.OP_READ, attachment);
@@ -36,6 +36,7 @@ import voldemort.server.ServiceType;
 import voldemort.server.StatusManager;
 import voldemort.server.protocol.RequestHandlerFactory;
 import voldemort.utils.DaemonThreadFactory;
+import voldemort.utils.JmxUtils;
 
 /**
  * NioSocketService is an NIO-based socket service, comparable to the
@@ -47,6 +48,11 @@ import voldemort.utils.DaemonThreadFactory;
  * to a positive integer value. Otherwise, the number of selectors will be equal
  * to the number of CPUs visible to the JVM.
  * <p/>
+ * By default requests are executed on the selector thread that read them.
+ * Setting "nio.connector.request.worker.threads" to a positive value instead
+ * hands complete requests to a bounded {@link NioRequestWorkerPool} so that
+ * one slow request doesn't stall the other connections on its selector.
+ * <p/>
  * This code uses the NIO APIs directly. It would be a good idea to consider
  * some of the NIO frameworks to handle this more cleanly, efficiently, and to
  * handle corner cases.
@@ -73,6 +79,8 @@ public class NioSocketService extends AbstractSocketService {
 
     private final StatusManager statusManager;
 
+    private final NioRequestWorkerPool requestWorkerPool;
+
     private final Thread acceptorThread;
 
     private final Logger logger = Logger.getLogger(getClass());
@@ -83,6 +91,24 @@ public class NioSocketService extends AbstractSocketService {
                             int selectors,
                             String serviceName,
                             boolean enableJmx) {
+        this(requestHandlerFactory, port, socketBufferSize, selectors, 0, 0, serviceName, enableJmx);
+    }
+
+    /**
+     * @param requestWorkerThreads Number of threads executing requests off the
+     *        selector threads; if zero, requests are executed inline on the
+     *        selector thread that read them
+     * @param requestQueueSize Maximum number of requests waiting for a worker
+     *        thread before they are executed inline again
+     */
+    public NioSocketService(RequestHandlerFactory requestHandlerFactory,
+                            int port,
+                            int socketBufferSize,
+                            int selectors,
+                            int requestWorkerThreads,
+                            int requestQueueSize,
+                            String serviceName,
+                            boolean enableJmx) {
         super(ServiceType.SOCKET, port, serviceName, enableJmx);
         this.requestHandlerFactory = requestHandlerFactory;
         this.socketBufferSize = socketBufferSize;
@@ -99,6 +125,12 @@ public class NioSocketService extends AbstractSocketService {
         this.selectorManagerThreadPool = Executors.newFixedThreadPool(selectorManagers.length,
                                                                       new DaemonThreadFactory("voldemort-niosocket-server"));
         this.statusManager = new StatusManager((ThreadPoolExecutor) this.selectorManagerThreadPool);
+
+        if(requestWorkerThreads > 0)
+            this.requestWorkerPool = new NioRequestWorkerPool(requestWorkerThreads,
+                                                              requestQueueSize);
+        else
+            this.requestWorkerPool = null;
         this.acceptorThread = new Thread(new Acceptor(), "NioSocketService.Acceptor");
     }
 
@@ -117,7 +149,8 @@ public class NioSocketService extends AbstractSocketService {
             for(int i = 0; i < selectorManagers.length; i++) {
                 selectorManagers[i] = new NioSelectorManager(endpoint,
                                                              requestHandlerFactory,
-                                                             socketBufferSize);
+                                                             socketBufferSize,
+                                                             requestWorkerPool);
                 selectorManagerThreadPool.execute(selectorManagers[i]);
             }
 
@@ -131,6 +164,9 @@ public class NioSocketService extends AbstractSocketService {
         }
 
         enableJmx(this);
+
+        if(enableJmx && requestWorkerPool != null)
+            JmxUtils.registerMbean(serviceName + "-worker-pool", requestWorkerPool);
     }
 
     @Override
@@ -196,6 +232,23 @@ public class NioSocketService extends AbstractSocketService {
                 logger.warn(e.getMessage(), e);
         }
 
+        if(requestWorkerPool != null) {
+            try {
+                // Requests still executing will find their selector closed
+                // and simply close their connection.
+                requestWorkerPool.shutdown();
+
+                if(!requestWorkerPool.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    if(logger.isEnabledFor(Level.WARN))
+                        logger.warn("Request worker pool did not stop cleanly after "
+                                    + SHUTDOWN_TIMEOUT_MS + " ms");
+                }
+            } catch(Exception e) {
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn(e.getMessage(), e);
+            }
+        }
+
         try {
             serverSocketChannel.socket().close();
         } catch(Exception e) {
@@ -14,6 +14,7 @@ import voldemort.store.ErrorCodeMapper;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.stats.StreamStats;
 import voldemort.store.stats.StreamStatsJmx;
+import voldemort.utils.EventThrottler;
 import voldemort.utils.JmxUtils;
 
 /**
@@ -31,6 +32,8 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
     private final AsyncOperationService asyncService;
     private final Rebalancer rebalancer;
     private final StreamStats stats;
+    private final EventThrottler fetchAndUpdateThrottler;
+    private final EventThrottler fetchThrottler;
 
     public SocketRequestHandlerFactory(StorageService storageService,
                                        StoreRepository repository,
@@ -45,6 +48,13 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
         this.asyncService = asyncService;
         this.rebalancer = rebalancer;
         this.stats = new StreamStats();
+        // one write budget shared by all fetch and update streams on this
+        // server, however many run in parallel
+        this.fetchAndUpdateThrottler = voldemortConfig == null ? null
+                                                               : new EventThrottler(voldemortConfig.getStreamMaxWriteBytesPerSec());
+        // and one read budget shared by all the fetch streams it serves
+        this.fetchThrottler = voldemortConfig == null ? null
+                                                      : new EventThrottler(voldemortConfig.getStreamMaxReadBytesPerSec());
         if(null != voldemortConfig && voldemortConfig.isJmxEnabled())
             if(this.voldemortConfig.isEnableJmxClusterName())
                 JmxUtils.registerMbean(new StreamStatsJmx(stats),
@@ -67,6 +77,8 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
                 return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 2);
             case VOLDEMORT_V3:
                 return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 3);
+            case VOLDEMORT_V4:
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 4);
             case PROTOCOL_BUFFERS:
                 return new ProtoBuffRequestHandler(new ErrorCodeMapper(), repository);
             case ADMIN_PROTOCOL_BUFFERS:
@@ -77,7 +89,9 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
                                                       voldemortConfig,
                                                       asyncService,
                                                       rebalancer,
-                                                      stats);
+                                                      stats,
+                                                      fetchAndUpdateThrottler,
+                                                      fetchThrottler);
             default:
                 throw new VoldemortException("Unknown wire format " + type);
         }
@@ -51,6 +51,10 @@ import voldemort.store.ErrorCodeMapper;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreOperationFailureException;
+import voldemort.store.bdb.BdbPartitionSnapshot;
+import voldemort.store.bdb.BdbStorageConfiguration;
+import voldemort.store.bdb.BdbStorageEngine;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.FileFetcher;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
@@ -88,6 +92,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
 
     private final static Object lock = new Object();
 
+    private final static int SNAPSHOT_LOAD_BATCH_SIZE = 1000;
+
     private final ErrorCodeMapper errorCodeMapper;
     private final MetadataStore metadataStore;
     private final StorageService storageService;
@@ -97,6 +103,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
     private final AsyncOperationService asyncService;
     private final Rebalancer rebalancer;
     private final StreamStats stats;
+    private final EventThrottler fetchAndUpdateThrottler;
+    private final EventThrottler fetchThrottler;
     private FileFetcher fileFetcher;
 
     public AdminServiceRequestHandler(ErrorCodeMapper errorCodeMapper,
@@ -106,7 +114,9 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                       VoldemortConfig voldemortConfig,
                                       AsyncOperationService asyncService,
                                       Rebalancer rebalancer,
-                                      StreamStats stats) {
+                                      StreamStats stats,
+                                      EventThrottler fetchAndUpdateThrottler,
+                                      EventThrottler fetchThrottler) {
         this.errorCodeMapper = errorCodeMapper;
         this.storageService = storageService;
         this.metadataStore = metadataStore;
@@ -117,6 +127,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
         this.asyncService = asyncService;
         this.rebalancer = rebalancer;
         this.stats = stats;
+        this.fetchAndUpdateThrottler = fetchAndUpdateThrottler;
+        this.fetchThrottler = fetchThrottler;
         setFetcherClass(voldemortConfig);
     }
 
@@ -511,6 +523,15 @@ public class AdminServiceRequestHandler implements RequestHandler {
     }
 
     public StreamRequestHandler handleFetchPartitionFiles(VAdminProto.FetchPartitionFilesRequest request) {
+        StoreDefinition storeDef = metadataStore.getStoreDef(request.getStore());
+        if(storeDef.getType().compareTo(BdbStorageConfiguration.TYPE_NAME) == 0) {
+            return new FetchPartitionSnapshotStreamRequestHandler(request,
+                                                                  metadataStore,
+                                                                  voldemortConfig,
+                                                                  storeRepository,
+                                                                  stats,
+                                                                  fetchThrottler);
+        }
         return new FetchPartitionFileStreamRequestHandler(request,
                                                           metadataStore,
                                                           voldemortConfig,
@@ -532,7 +553,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                                         voldemortConfig,
                                                         storeRepository,
                                                         networkClassLoader,
-                                                        stats);
+                                                        stats,
+                                                        fetchThrottler);
         } else
             return new FetchKeysStreamRequestHandler(request,
                                                      metadataStore,
@@ -540,7 +562,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                                      voldemortConfig,
                                                      storeRepository,
                                                      networkClassLoader,
-                                                     stats);
+                                                     stats,
+                                                     fetchThrottler);
     }
 
     public StreamRequestHandler handleUpdatePartitionEntries(VAdminProto.UpdatePartitionEntriesRequest request) {
@@ -840,6 +863,11 @@ public class AdminServiceRequestHandler implements RequestHandler {
         final StoreDefinition storeDef = metadataStore.getStoreDef(storeName);
         final boolean isReadOnlyStore = storeDef.getType()
                                                 .compareTo(ReadOnlyStorageConfiguration.TYPE_NAME) == 0;
+        // snapshots cannot apply a filter, so those requests keep streaming
+        final boolean shipBdbSnapshot = voldemortConfig.getRebalancingBdbFileShipping()
+                                        && !request.hasFilter()
+                                        && storeDef.getType()
+                                                   .compareTo(BdbStorageConfiguration.TYPE_NAME) == 0;
 
         try {
             asyncService.submitOperation(requestId, new AsyncOperation(requestId,
@@ -863,8 +891,6 @@ public class AdminServiceRequestHandler implements RequestHandler {
                         StorageEngine<ByteArray, byte[], byte[]> storageEngine = getStorageEngine(storeRepository,
                                                                                                   storeName);
 
-                        EventThrottler throttler = new EventThrottler(voldemortConfig.getStreamMaxWriteBytesPerSec());
-
                         if(isReadOnlyStore) {
                             ReadOnlyStorageEngine readOnlyStorageEngine = ((ReadOnlyStorageEngine) storageEngine);
                             String destinationDir = readOnlyStorageEngine.getCurrentDirPath();
@@ -926,7 +952,34 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                 optimizedReplicaToPartitionList.putAll(replicaToPartitionList);
                             }
 
-                            if(optimizedReplicaToPartitionList.size() > 0) {
+                            StorageEngine<ByteArray, byte[], byte[]> innerEngine = storageEngine;
+                            if(innerEngine instanceof CachingStorageEngine)
+                                innerEngine = ((CachingStorageEngine) innerEngine).getInnerEngine();
+
+                            boolean snapshotLoaded = false;
+                            if(optimizedReplicaToPartitionList.size() > 0 && shipBdbSnapshot
+                               && innerEngine instanceof BdbStorageEngine) {
+                                try {
+                                    snapshotLoaded = loadSnapshot(adminClient,
+                                                                  (BdbStorageEngine) innerEngine,
+                                                                  optimizedReplicaToPartitionList);
+                                } finally {
+                                    // the loaded entries bypassed the read
+                                    // cache
+                                    if(storageEngine instanceof CachingStorageEngine)
+                                        ((CachingStorageEngine) storageEngine).clear();
+                                }
+                            }
+
+                            if(snapshotLoaded) {
+                                logger.info("Loaded snapshot of RW store '" + storeName
+                                            + "' from node " + nodeId + " ( "
+                                            + optimizedReplicaToPartitionList + " )");
+                            } else if(optimizedReplicaToPartitionList.size() > 0
+                                      && !running.get()) {
+                                logger.info("Fetch and update stopped before fetching entries from node "
+                                            + nodeId + " for store '" + storeName + "'");
+                            } else if(optimizedReplicaToPartitionList.size() > 0) {
                                 Iterator<Pair<ByteArray, Versioned<byte[]>>> entriesIterator = adminClient.fetchEntries(nodeId,
                                                                                                                         storeName,
                                                                                                                         optimizedReplicaToPartitionList,
@@ -949,7 +1002,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                     }
 
                                     long totalTime = (System.currentTimeMillis() - startTime) / 1000;
-                                    throttler.maybeThrottle(key.length() + valueSize(value));
+                                    fetchAndUpdateThrottler.maybeThrottle(key.length()
+                                                                          + valueSize(value));
                                     if((numTuples % 100000) == 0 && numTuples > 0) {
                                         logger.info(numTuples + " entries copied from node "
                                                     + nodeId + " for store '" + storeName + "'c");
@@ -981,6 +1035,59 @@ public class AdminServiceRequestHandler implements RequestHandler {
                         adminClient.stop();
                     }
                 }
+
+                /**
+                 * Copies a snapshot of the partitions from the donor and
+                 * loads it in key order, a batch of entries per transaction.
+                 * Returns false if the snapshot could not be copied or
+                 * loaded, in which case the entries are streamed instead;
+                 * entries already loaded are simply obsolete by then. Also
+                 * returns false if the operation was stopped before the
+                 * snapshot was copied.
+                 */
+                private boolean loadSnapshot(AdminClient adminClient,
+                                             BdbStorageEngine storageEngine,
+                                             HashMap<Integer, List<Integer>> partitions) {
+                    File snapshot = null;
+                    try {
+                        updateStatus("Fetching snapshot of RW store '" + storeName
+                                     + "' from node " + nodeId + " ( " + partitions + " )");
+                        long startTime = System.currentTimeMillis();
+                        File snapshotDir = new File(voldemortConfig.getBdbSnapshotDirectory());
+                        Utils.mkdirs(snapshotDir);
+                        snapshot = adminClient.fetchPartitionSnapshot(nodeId,
+                                                                      storeName,
+                                                                      partitions,
+                                                                      initialCluster,
+                                                                      snapshotDir.getAbsolutePath(),
+                                                                      running);
+                        if(snapshot == null)
+                            return false;
+
+                        updateStatus("Loading snapshot of RW store '" + storeName
+                                     + "' from node " + nodeId + " ( " + snapshot.length()
+                                     + " bytes )");
+                        BdbPartitionSnapshot.Reader reader = new BdbPartitionSnapshot.Reader(snapshot);
+                        try {
+                            long numLoaded = storageEngine.putAll(reader, SNAPSHOT_LOAD_BATCH_SIZE);
+                            logger.info("Loaded " + numLoaded + " entries from node " + nodeId
+                                        + " for store '" + storeName + "' in "
+                                        + (System.currentTimeMillis() - startTime) / 1000
+                                        + " seconds");
+                        } finally {
+                            reader.close();
+                        }
+                        return true;
+                    } catch(Exception e) {
+                        logger.warn("Could not load snapshot of store '" + storeName
+                                    + "' from node " + nodeId
+                                    + ", falling back to streaming entries", e);
+                        return false;
+                    } finally {
+                        if(snapshot != null && !snapshot.delete())
+                            logger.warn("Could not delete snapshot " + snapshot);
+                    }
+                }
             });
 
         } catch(VoldemortException e) {
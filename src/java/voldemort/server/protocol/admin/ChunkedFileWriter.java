@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.admin;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.log4j.Logger;
+
+import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.VAdminProto;
+import voldemort.utils.EventThrottler;
+
+/**
+ * Streams a single file to an admin client, one block per call, prefixed by a
+ * {@link VAdminProto.FileEntry} header carrying its name and size
+ */
+class ChunkedFileWriter {
+
+    private final static Logger logger = Logger.getLogger(ChunkedFileWriter.class);
+
+    private final File fileToWrite;
+    private final DataOutputStream outStream;
+    private final FileChannel dataChannel;
+    private final WritableByteChannel outChannel;
+    private final EventThrottler throttler;
+    private final long blockSize;
+    private final boolean nioEnabled;
+    private long currentPos;
+
+    public ChunkedFileWriter(File fileToWrite,
+                             DataOutputStream stream,
+                             EventThrottler throttler,
+                             long blockSize,
+                             boolean nioEnabled) throws FileNotFoundException {
+        this.fileToWrite = fileToWrite;
+        this.outStream = stream;
+        this.dataChannel = new FileInputStream(fileToWrite).getChannel();
+        this.outChannel = Channels.newChannel(outStream);
+        this.throttler = throttler;
+        this.blockSize = blockSize;
+        this.nioEnabled = nioEnabled;
+        this.currentPos = 0;
+    }
+
+    public void close() throws IOException {
+        dataChannel.close();
+        if(nioEnabled) {
+            outChannel.close();
+        }
+    }
+
+    public void writeHeader() throws IOException {
+        VAdminProto.FileEntry response = VAdminProto.FileEntry.newBuilder()
+                                                              .setFileName(fileToWrite.getName())
+                                                              .setFileSizeBytes(dataChannel.size())
+                                                              .build();
+
+        ProtoUtils.writeMessage(outStream, response);
+        throttler.maybeThrottle(response.getSerializedSize());
+    }
+
+    /**
+     * This function returns the number of bytes left. Zero means everything is
+     * done
+     */
+    public long streamFile() throws IOException {
+        long bytesRemaining = dataChannel.size() - currentPos;
+        if(0 < bytesRemaining) {
+            long bytesToWrite = Math.min(bytesRemaining, blockSize);
+            long bytesWritten = dataChannel.transferTo(currentPos, bytesToWrite, outChannel);
+            currentPos += bytesWritten;
+            logger.debug(bytesWritten + " bytes written");
+            throttler.maybeThrottle((int) bytesWritten);
+        }
+        bytesRemaining = dataChannel.size() - currentPos;
+        return bytesRemaining;
+    }
+}
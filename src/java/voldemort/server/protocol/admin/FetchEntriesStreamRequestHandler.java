@@ -3,7 +3,6 @@ package voldemort.server.protocol.admin;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.List;
 
 import voldemort.client.protocol.pb.ProtoUtils;
 import voldemort.client.protocol.pb.VAdminProto;
@@ -11,33 +10,80 @@ import voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
 import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreUtils;
+import voldemort.store.bdb.BdbStorageEngine;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.stats.StreamStats;
 import voldemort.store.stats.StreamStats.Operation;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
 import voldemort.utils.NetworkClassLoader;
-import voldemort.utils.RebalanceUtils;
+import voldemort.utils.Pair;
 import voldemort.versioning.Versioned;
 
+import com.google.common.base.Predicate;
 import com.google.protobuf.Message;
 
 /**
  * FetchEntries fetches and return key/value entry.
  * <p>
- * For performance reason use storageEngine.keys() iterator to filter out
- * unwanted keys and then call storageEngine.get() for valid keys.
+ * For performance reason the entries are read with a single
+ * storageEngine.entries() cursor, which yields key, clock and value together.
+ * Whether a key belongs to the requested partitions is decided once per key
+ * from its routing hash, and applies to all of its versions. A BDB store
+ * decides it before reading the versions, so the values of keys that are not
+ * fetched are never read.
  * <p>
  */
 
 public class FetchEntriesStreamRequestHandler extends FetchStreamRequestHandler {
 
+    private final ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entriesIterator;
+
+    /**
+     * True if the iterator only yields the entries of requested keys
+     */
+    private final boolean keyFiltered;
+
+    private ByteArray lastKey;
+
+    private boolean lastKeyRequested;
+
+    /**
+     * Decides whether a key is fetched, counting the keys scanned. Asked once
+     * per key.
+     */
+    private final Predicate<ByteArray> keyFilter = new Predicate<ByteArray>() {
+
+        public boolean apply(ByteArray key) {
+            boolean requested = isRequestedKey(key) && counter % skipRecords == 0;
+
+            // log progress
+            counter++;
+
+            if(0 == counter % 100000) {
+                long totalTime = (System.currentTimeMillis() - startTime) / 1000;
+
+                logger.info("Fetch entries scanned " + counter + " entries, fetched " + fetched
+                            + " entries for store '" + storageEngine.getName()
+                            + "' replicaToPartitionList:" + replicaToPartitionList + " in "
+                            + totalTime + " s");
+            }
+            return requested;
+        }
+    };
+
     public FetchEntriesStreamRequestHandler(FetchPartitionEntriesRequest request,
                                             MetadataStore metadataStore,
                                             ErrorCodeMapper errorCodeMapper,
                                             VoldemortConfig voldemortConfig,
                                             StoreRepository storeRepository,
                                             NetworkClassLoader networkClassLoader,
-                                            StreamStats stats) {
+                                            StreamStats stats,
+                                            EventThrottler throttler) {
         super(request,
               metadataStore,
               errorCodeMapper,
@@ -45,7 +91,22 @@ public class FetchEntriesStreamRequestHandler extends FetchStreamRequestHandler
               storeRepository,
               networkClassLoader,
               stats,
+              throttler,
               Operation.FETCH_ENTRIES);
+        StorageEngine<ByteArray, byte[], byte[]> innerEngine = storageEngine;
+        if(innerEngine instanceof CachingStorageEngine)
+            innerEngine = ((CachingStorageEngine) innerEngine).getInnerEngine();
+
+        if(scanPartitions != null) {
+            this.entriesIterator = StoreUtils.entries(storageEngine, scanPartitions);
+            this.keyFiltered = false;
+        } else if(innerEngine instanceof BdbStorageEngine) {
+            this.entriesIterator = ((BdbStorageEngine) innerEngine).entries(keyFilter);
+            this.keyFiltered = true;
+        } else {
+            this.entriesIterator = storageEngine.entries();
+            this.keyFiltered = false;
+        }
         logger.info("Starting fetch entries for store '" + storageEngine.getName()
                     + "' with replica to partition mapping " + replicaToPartitionList);
     }
@@ -53,32 +114,41 @@ public class FetchEntriesStreamRequestHandler extends FetchStreamRequestHandler
     public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
                                                    DataOutputStream outputStream)
             throws IOException {
-        if(!keyIterator.hasNext())
+        if(!entriesIterator.hasNext()) {
+            if(frameBuilder != null)
+                writeFrame(outputStream);
             return StreamRequestHandlerState.COMPLETE;
+        }
 
         long startNs = System.nanoTime();
-        ByteArray key = keyIterator.next();
-
-        if(RebalanceUtils.checkKeyBelongsToPartition(nodeId,
-                                                     key.get(),
-                                                     replicaToPartitionList,
-                                                     initialCluster,
-                                                     storeDef)
-
-           && counter % skipRecords == 0) {
-            List<Versioned<byte[]>> values = storageEngine.get(key, null);
-            stats.recordDiskTime(handle, System.nanoTime() - startNs);
-            for(Versioned<byte[]> value: values) {
-                throttler.maybeThrottle(key.length());
-                if(filter.accept(key, value)) {
-                    fetched++;
-                    handle.incrementEntriesScanned();
-                    VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
+        Pair<ByteArray, Versioned<byte[]>> entry = entriesIterator.next();
+        stats.recordDiskTime(handle, System.nanoTime() - startNs);
+        ByteArray key = entry.getFirst();
+
+        // versions of a key are adjacent, so each key is checked (and counted)
+        // only once
+        if(!keyFiltered && !key.equals(lastKey)) {
+            lastKey = key;
+            lastKeyRequested = keyFilter.apply(key);
+        }
 
-                    VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
-                                                                                          .setKey(ProtoUtils.encodeBytes(key))
-                                                                                          .setVersioned(ProtoUtils.encodeVersioned(value))
-                                                                                          .build();
+        if(keyFiltered || lastKeyRequested) {
+            Versioned<byte[]> value = entry.getSecond();
+            throttler.maybeThrottle(key.length());
+            if(filter.accept(key, value)) {
+                fetched++;
+                handle.incrementEntriesScanned();
+                VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
+                                                                                      .setKey(ProtoUtils.encodeBytes(key))
+                                                                                      .setVersioned(ProtoUtils.encodeVersioned(value))
+                                                                                      .build();
+
+                if(frameBuilder != null) {
+                    frameBuilder.add(partitionEntry);
+                    if(frameBuilder.isFull())
+                        writeFrame(outputStream);
+                } else {
+                    VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
                     response.setPartitionEntry(partitionEntry);
 
                     Message message = response.build();
@@ -86,32 +156,25 @@ public class FetchEntriesStreamRequestHandler extends FetchStreamRequestHandler
                     startNs = System.nanoTime();
                     ProtoUtils.writeMessage(outputStream, message);
                     stats.recordNetworkTime(handle, System.nanoTime() - startNs);
-
-                    throttler.maybeThrottle(AdminServiceRequestHandler.valueSize(value));
                 }
-            }
-        } else {
-            stats.recordDiskTime(handle, System.nanoTime() - startNs);
-        }
-
-        // log progress
-        counter++;
-
-        if(0 == counter % 100000) {
-            long totalTime = (System.currentTimeMillis() - startTime) / 1000;
 
-            logger.info("Fetch entries scanned " + counter + " entries, fetched " + fetched
-                        + " entries for store '" + storageEngine.getName()
-                        + "' replicaToPartitionList:" + replicaToPartitionList + " in " + totalTime
-                        + " s");
+                throttler.maybeThrottle(AdminServiceRequestHandler.valueSize(value));
+            }
         }
 
-        if(keyIterator.hasNext())
+        if(entriesIterator.hasNext())
             return StreamRequestHandlerState.WRITING;
         else {
+            if(frameBuilder != null)
+                writeFrame(outputStream);
             stats.closeHandle(handle);
             return StreamRequestHandlerState.COMPLETE;
         }
     }
 
+    @Override
+    protected void closeIterator() {
+        entriesIterator.close();
+    }
+
 }
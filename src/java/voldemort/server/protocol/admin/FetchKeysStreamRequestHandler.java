@@ -10,24 +10,29 @@ import voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
 import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StoreUtils;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.stats.StreamStats;
 import voldemort.store.stats.StreamStats.Operation;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
 import voldemort.utils.NetworkClassLoader;
-import voldemort.utils.RebalanceUtils;
 
 import com.google.protobuf.Message;
 
 public class FetchKeysStreamRequestHandler extends FetchStreamRequestHandler {
 
+    private final ClosableIterator<ByteArray> keyIterator;
+
     public FetchKeysStreamRequestHandler(FetchPartitionEntriesRequest request,
                                          MetadataStore metadataStore,
                                          ErrorCodeMapper errorCodeMapper,
                                          VoldemortConfig voldemortConfig,
                                          StoreRepository storeRepository,
                                          NetworkClassLoader networkClassLoader,
-                                         StreamStats stats) {
+                                         StreamStats stats,
+                                         EventThrottler throttler) {
         super(request,
               metadataStore,
               errorCodeMapper,
@@ -35,7 +40,12 @@ public class FetchKeysStreamRequestHandler extends FetchStreamRequestHandler {
               storeRepository,
               networkClassLoader,
               stats,
+              throttler,
               Operation.FETCH_KEYS);
+        if(scanPartitions != null)
+            this.keyIterator = StoreUtils.keys(storageEngine, scanPartitions);
+        else
+            this.keyIterator = storageEngine.keys();
         logger.info("Starting fetch keys for store '" + storageEngine.getName()
                     + "' with replica to partition mapping " + replicaToPartitionList);
     }
@@ -43,30 +53,35 @@ public class FetchKeysStreamRequestHandler extends FetchStreamRequestHandler {
     public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
                                                    DataOutputStream outputStream)
             throws IOException {
-        if(!keyIterator.hasNext())
+        if(!keyIterator.hasNext()) {
+            if(frameBuilder != null)
+                writeFrame(outputStream);
             return StreamRequestHandlerState.COMPLETE;
+        }
 
         long startNs = System.nanoTime();
         ByteArray key = keyIterator.next();
         stats.recordDiskTime(handle, System.nanoTime() - startNs);
 
         throttler.maybeThrottle(key.length());
-        if(RebalanceUtils.checkKeyBelongsToPartition(nodeId,
-                                                     key.get(),
-                                                     replicaToPartitionList,
-                                                     initialCluster,
-                                                     storeDef)
-           && filter.accept(key, null) && counter % skipRecords == 0) {
-            VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
-            response.setKey(ProtoUtils.encodeBytes(key));
-
+        if(isRequestedKey(key) && filter.accept(key, null) && counter % skipRecords == 0) {
             fetched++;
             handle.incrementEntriesScanned();
-            Message message = response.build();
 
-            startNs = System.nanoTime();
-            ProtoUtils.writeMessage(outputStream, message);
-            stats.recordNetworkTime(handle, System.nanoTime() - startNs);
+            if(frameBuilder != null) {
+                frameBuilder.add(ProtoUtils.encodeBytes(key));
+                if(frameBuilder.isFull())
+                    writeFrame(outputStream);
+            } else {
+                VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
+                response.setKey(ProtoUtils.encodeBytes(key));
+
+                Message message = response.build();
+
+                startNs = System.nanoTime();
+                ProtoUtils.writeMessage(outputStream, message);
+                stats.recordNetworkTime(handle, System.nanoTime() - startNs);
+            }
         }
 
         // log progress
@@ -84,8 +99,15 @@ public class FetchKeysStreamRequestHandler extends FetchStreamRequestHandler {
         if(keyIterator.hasNext())
             return StreamRequestHandlerState.WRITING;
         else {
+            if(frameBuilder != null)
+                writeFrame(outputStream);
             stats.closeHandle(handle);
             return StreamRequestHandlerState.COMPLETE;
         }
     }
+
+    @Override
+    protected void closeIterator() {
+        keyIterator.close();
+    }
 }
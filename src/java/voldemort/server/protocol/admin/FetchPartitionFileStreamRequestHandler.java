@@ -3,12 +3,8 @@ package voldemort.server.protocol.admin;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
-import java.nio.channels.WritableByteChannel;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -184,7 +180,7 @@ public class FetchPartitionFileStreamRequestHandler implements StreamRequestHand
             this.indexFile = new File(this.storeDir, fileName + ".index");
 
             // Create a new writer for data file
-            this.chunkedFileWriter = new ChunkedFileWriter(dataFile, outputStream);
+            this.chunkedFileWriter = newChunkedFileWriter(dataFile, outputStream);
             logger.info("Streaming " + dataFile.getAbsolutePath());
             this.chunkedFileWriter.writeHeader();
 
@@ -195,7 +191,7 @@ public class FetchPartitionFileStreamRequestHandler implements StreamRequestHand
             // We are done with the data file, move to index file
             logger.info("Completed streaming " + dataFile.getAbsolutePath());
             this.chunkedFileWriter.close();
-            this.chunkedFileWriter = new ChunkedFileWriter(indexFile, outputStream);
+            this.chunkedFileWriter = newChunkedFileWriter(indexFile, outputStream);
             logger.info("Streaming " + indexFile.getAbsolutePath());
             this.chunkedFileWriter.writeHeader();
             fetchStatus = FetchStatus.SEND_INDEX_FILE;
@@ -208,6 +204,11 @@ public class FetchPartitionFileStreamRequestHandler implements StreamRequestHand
         }
     }
 
+    private ChunkedFileWriter newChunkedFileWriter(File file, DataOutputStream outputStream)
+            throws FileNotFoundException {
+        return new ChunkedFileWriter(file, outputStream, throttler, blockSize, nioEnabled);
+    }
+
     private StreamRequestHandlerState handleNextPartition() {
 
         StreamRequestHandlerState handlerState = StreamRequestHandlerState.WRITING;
@@ -244,56 +245,4 @@ public class FetchPartitionFileStreamRequestHandler implements StreamRequestHand
 
         return handlerState;
     }
-
-    private class ChunkedFileWriter {
-
-        private final File fileToWrite;
-        private final DataOutputStream outStream;
-        private final FileChannel dataChannel;
-        private final WritableByteChannel outChannel;
-        private long currentPos;
-
-        public ChunkedFileWriter(File fileToWrite, DataOutputStream stream)
-                                                                           throws FileNotFoundException {
-            this.fileToWrite = fileToWrite;
-            this.outStream = stream;
-            this.dataChannel = new FileInputStream(fileToWrite).getChannel();
-            this.outChannel = Channels.newChannel(outStream);
-            this.currentPos = 0;
-        }
-
-        public void close() throws IOException {
-            dataChannel.close();
-            if(nioEnabled) {
-                outChannel.close();
-            }
-        }
-
-        public void writeHeader() throws IOException {
-            VAdminProto.FileEntry response = VAdminProto.FileEntry.newBuilder()
-                                                                  .setFileName(fileToWrite.getName())
-                                                                  .setFileSizeBytes(dataChannel.size())
-                                                                  .build();
-
-            ProtoUtils.writeMessage(outStream, response);
-            throttler.maybeThrottle(response.getSerializedSize());
-        }
-
-        /**
-         * This function returns the number of bytes left. Zero means everything
-         * is done
-         */
-        public long streamFile() throws IOException {
-            long bytesRemaining = dataChannel.size() - currentPos;
-            if(0 < bytesRemaining) {
-                long bytesToWrite = Math.min(bytesRemaining, blockSize);
-                long bytesWritten = dataChannel.transferTo(currentPos, bytesToWrite, outChannel);
-                currentPos += bytesWritten;
-                logger.debug(bytesWritten + " bytes written");
-                throttler.maybeThrottle((int) bytesWritten);
-            }
-            bytesRemaining = dataChannel.size() - currentPos;
-            return bytesRemaining;
-        }
-    }
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.admin;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.VAdminProto;
+import voldemort.cluster.Cluster;
+import voldemort.routing.RoutingStrategy;
+import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.StoreRepository;
+import voldemort.server.VoldemortConfig;
+import voldemort.server.protocol.StreamRequestHandler;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreDefinition;
+import voldemort.store.StoreUtils;
+import voldemort.store.bdb.BdbPartitionSnapshot;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.store.stats.StreamStats;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.Pair;
+import voldemort.utils.RebalanceUtils;
+import voldemort.utils.Utils;
+import voldemort.versioning.Versioned;
+import voldemort.xml.ClusterMapper;
+
+/**
+ * Answers a partition file fetch for a BDB store. The entries of the requested
+ * partitions are first written, in btree order, to a
+ * {@link BdbPartitionSnapshot} file in the snapshot directory, which is then
+ * streamed like a read-only chunk file. The stealer can then load the entries
+ * sequentially instead of receiving and writing them one at a time.
+ * <p>
+ * The file is deleted as soon as it has been streamed, or when the request
+ * fails or is abandoned.
+ */
+public class FetchPartitionSnapshotStreamRequestHandler implements StreamRequestHandler {
+
+    private final static Logger logger = Logger.getLogger(FetchPartitionSnapshotStreamRequestHandler.class);
+
+    /**
+     * Number of entries scanned into the snapshot per call, so that building
+     * the snapshot does not hold on to the selector thread
+     */
+    private final static int SCAN_BATCH_SIZE = 10000;
+
+    private final VAdminProto.FetchPartitionFilesRequest request;
+
+    private final StorageEngine<ByteArray, byte[], byte[]> storageEngine;
+
+    private final HashMap<Integer, List<Integer>> replicaToPartitionList;
+
+    private final RoutingStrategy routingStrategy;
+
+    private final List<Integer> nodePartitions;
+
+    private final EventThrottler throttler;
+
+    private final long blockSize;
+
+    private final boolean nioEnabled;
+
+    private final StreamStats stats;
+
+    private final StreamStats.Handle handle;
+
+    private final ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entriesIterator;
+
+    private final File snapshotFile;
+
+    private BdbPartitionSnapshot.Writer snapshotWriter;
+
+    private ChunkedFileWriter chunkedFileWriter;
+
+    private ByteArray lastKey;
+
+    private boolean lastKeyRequested;
+
+    private long scanned;
+
+    private final long startTime;
+
+    protected FetchPartitionSnapshotStreamRequestHandler(VAdminProto.FetchPartitionFilesRequest request,
+                                                         MetadataStore metadataStore,
+                                                         VoldemortConfig voldemortConfig,
+                                                         StoreRepository storeRepository,
+                                                         StreamStats stats,
+                                                         EventThrottler throttler) {
+        this.request = request;
+        this.storageEngine = AdminServiceRequestHandler.getStorageEngine(storeRepository,
+                                                                         request.getStore());
+        this.replicaToPartitionList = ProtoUtils.decodePartitionTuple(request.getReplicaToPartitionList());
+
+        StoreDefinition storeDef = metadataStore.getStoreDef(request.getStore());
+        Cluster initialCluster;
+        if(request.hasInitialCluster()) {
+            initialCluster = new ClusterMapper().readCluster(new StringReader(request.getInitialCluster()));
+        } else {
+            initialCluster = metadataStore.getCluster();
+        }
+        this.routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                 initialCluster);
+        this.nodePartitions = initialCluster.getNodeById(metadataStore.getNodeId())
+                                            .getPartitionIds();
+
+        this.throttler = throttler;
+        this.blockSize = voldemortConfig.getAllProps()
+                                        .getLong("partition.buffer.size.bytes",
+                                                 voldemortConfig.getAdminSocketBufferSize());
+        this.nioEnabled = voldemortConfig.getUseNioConnector();
+        this.stats = stats;
+        this.handle = stats.makeHandle(StreamStats.Operation.FETCH_FILE, replicaToPartitionList);
+
+        File snapshotDir = new File(voldemortConfig.getBdbSnapshotDirectory());
+        try {
+            Utils.mkdirs(snapshotDir);
+            this.snapshotFile = File.createTempFile(request.getStore() + "-",
+                                                    BdbPartitionSnapshot.FILE_EXTENSION,
+                                                    snapshotDir);
+        } catch(IOException e) {
+            throw new VoldemortException("Could not create snapshot file for store "
+                                         + request.getStore(), e);
+        }
+
+        boolean success = false;
+        try {
+            this.snapshotWriter = new BdbPartitionSnapshot.Writer(snapshotFile);
+            if(storageEngine.isPartitionScanSupported()) {
+                Set<Integer> partitions = new TreeSet<Integer>();
+                for(List<Integer> partitionList: replicaToPartitionList.values())
+                    partitions.addAll(partitionList);
+                this.entriesIterator = StoreUtils.entries(storageEngine, partitions);
+            } else {
+                this.entriesIterator = storageEngine.entries();
+            }
+            success = true;
+        } catch(IOException e) {
+            throw new VoldemortException("Could not create snapshot file for store "
+                                         + request.getStore(), e);
+        } finally {
+            if(!success) {
+                try {
+                    if(snapshotWriter != null)
+                        snapshotWriter.close();
+                } catch(IOException e) {
+                    logger.warn("Error closing snapshot " + snapshotFile, e);
+                }
+                deleteSnapshot();
+            }
+        }
+        this.scanned = 0;
+        this.startTime = System.currentTimeMillis();
+        logger.info("Building snapshot " + snapshotFile + " of store '" + request.getStore()
+                    + "' with replica to partition mapping " + replicaToPartitionList);
+    }
+
+    public StreamRequestDirection getDirection() {
+        return StreamRequestDirection.WRITING;
+    }
+
+    public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
+                                                   DataOutputStream outputStream)
+            throws IOException {
+        if(snapshotWriter != null) {
+            scanIntoSnapshot(outputStream);
+            return StreamRequestHandlerState.WRITING;
+        }
+
+        if(0 == chunkedFileWriter.streamFile()) {
+            logger.info("Completed streaming " + snapshotFile.getAbsolutePath());
+            chunkedFileWriter.close();
+            chunkedFileWriter = null;
+            deleteSnapshot();
+            handle.incrementEntriesScanned();
+            stats.closeHandle(handle);
+            return StreamRequestHandlerState.COMPLETE;
+        }
+        return StreamRequestHandlerState.WRITING;
+    }
+
+    /**
+     * Adds the next batch of requested entries to the snapshot. Once the scan
+     * is done the snapshot is closed and its header is sent
+     */
+    private void scanIntoSnapshot(DataOutputStream outputStream) throws IOException {
+        for(int i = 0; i < SCAN_BATCH_SIZE && entriesIterator.hasNext(); i++) {
+            Pair<ByteArray, Versioned<byte[]>> entry = entriesIterator.next();
+            ByteArray key = entry.getFirst();
+
+            // versions of a key are adjacent, so each key is only checked once
+            if(!key.equals(lastKey)) {
+                lastKey = key;
+                lastKeyRequested = RebalanceUtils.checkKeyBelongsToPartition(routingStrategy.getPartitionList(key.get()),
+                                                                             nodePartitions,
+                                                                             replicaToPartitionList);
+                scanned++;
+            }
+            if(lastKeyRequested) {
+                snapshotWriter.write(key, entry.getSecond());
+            }
+        }
+
+        if(!entriesIterator.hasNext()) {
+            entriesIterator.close();
+            snapshotWriter.close();
+            logger.info("Scanned " + scanned + " keys of store '" + request.getStore()
+                        + "' into snapshot " + snapshotFile + " of "
+                        + snapshotWriter.getNumEntries() + " entries in "
+                        + ((System.currentTimeMillis() - startTime) / 1000) + " s");
+            snapshotWriter = null;
+
+            chunkedFileWriter = new ChunkedFileWriter(snapshotFile,
+                                                      outputStream,
+                                                      throttler,
+                                                      blockSize,
+                                                      nioEnabled);
+            logger.info("Streaming " + snapshotFile.getAbsolutePath());
+            chunkedFileWriter.writeHeader();
+        }
+    }
+
+    public void close(DataOutputStream outputStream) throws IOException {
+        try {
+            // the scan is still open if the request did not get to streaming
+            if(snapshotWriter != null) {
+                entriesIterator.close();
+                snapshotWriter.close();
+            }
+            if(chunkedFileWriter != null)
+                chunkedFileWriter.close();
+        } finally {
+            deleteSnapshot();
+        }
+        ProtoUtils.writeEndOfStream(outputStream);
+    }
+
+    private void deleteSnapshot() {
+        if(snapshotFile.exists() && !snapshotFile.delete())
+            logger.warn("Could not delete snapshot " + snapshotFile);
+    }
+
+    public void handleError(DataOutputStream outputStream, VoldemortException e)
+            throws IOException {
+        logger.error("handleFetchPartitionSnapshot failed for request(" + request.toString() + ")",
+                     e);
+    }
+}
@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
@@ -12,8 +14,11 @@ import voldemort.VoldemortException;
 import voldemort.client.protocol.VoldemortFilter;
 import voldemort.client.protocol.admin.filter.DefaultVoldemortFilter;
 import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.StreamFrameBuilder;
 import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.cluster.Cluster;
+import voldemort.routing.RoutingStrategy;
+import voldemort.routing.RoutingStrategyFactory;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
 import voldemort.server.protocol.StreamRequestHandler;
@@ -24,9 +29,9 @@ import voldemort.store.metadata.MetadataStore;
 import voldemort.store.stats.StreamStats;
 import voldemort.store.stats.StreamStats.Handle;
 import voldemort.utils.ByteArray;
-import voldemort.utils.ClosableIterator;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.NetworkClassLoader;
+import voldemort.utils.RebalanceUtils;
 import voldemort.xml.ClusterMapper;
 
 public abstract class FetchStreamRequestHandler implements StreamRequestHandler {
@@ -45,8 +50,6 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
 
     protected final StorageEngine<ByteArray, byte[], byte[]> storageEngine;
 
-    protected final ClosableIterator<ByteArray> keyIterator;
-
     protected long counter;
 
     protected long skipRecords;
@@ -65,6 +68,22 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
 
     protected StoreDefinition storeDef;
 
+    protected final RoutingStrategy routingStrategy;
+
+    protected final List<Integer> nodePartitions;
+
+    /**
+     * The master partitions to scan if the engine supports partition scans,
+     * null if the whole store has to be scanned
+     */
+    protected final Set<Integer> scanPartitions;
+
+    /**
+     * Packs entries into frames when the client asked for it, null when every
+     * entry goes out as its own message
+     */
+    protected final StreamFrameBuilder frameBuilder;
+
     protected FetchStreamRequestHandler(VAdminProto.FetchPartitionEntriesRequest request,
                                         MetadataStore metadataStore,
                                         ErrorCodeMapper errorCodeMapper,
@@ -72,6 +91,7 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
                                         StoreRepository storeRepository,
                                         NetworkClassLoader networkClassLoader,
                                         StreamStats stats,
+                                        EventThrottler throttler,
                                         StreamStats.Operation operation) {
         this.nodeId = metadataStore.getNodeId();
         this.request = request;
@@ -87,7 +107,7 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
         } else {
             this.initialCluster = metadataStore.getCluster();
         }
-        this.throttler = new EventThrottler(voldemortConfig.getStreamMaxReadBytesPerSec());
+        this.throttler = throttler;
         if(request.hasFilter()) {
             this.filter = AdminServiceRequestHandler.getFilterFromRequest(request.getFilter(),
                                                                           voldemortConfig,
@@ -95,7 +115,21 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
         } else {
             this.filter = new DefaultVoldemortFilter();
         }
-        this.keyIterator = storageEngine.keys();
+        this.routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                 initialCluster);
+        this.nodePartitions = initialCluster.getNodeById(nodeId).getPartitionIds();
+        if(storageEngine.isPartitionScanSupported()) {
+            // A key is only fetched if its master partition is in the list, so
+            // only those partitions need to be scanned
+            Set<Integer> partitions = new TreeSet<Integer>();
+            for(List<Integer> partitionList: replicaToPartitionList.values())
+                partitions.addAll(partitionList);
+            logger.info("Scanning partitions " + partitions + " of store '"
+                        + storageEngine.getName() + "'");
+            this.scanPartitions = partitions;
+        } else {
+            this.scanPartitions = null;
+        }
         this.startTime = System.currentTimeMillis();
         this.counter = 0;
 
@@ -103,6 +137,46 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
         if(request.hasSkipRecords() && request.getSkipRecords() >= 0) {
             this.skipRecords = request.getSkipRecords() + 1;
         }
+
+        if(request.hasFrameMaxEntries() && request.getFrameMaxEntries() > 0) {
+            int maxBytes = request.hasFrameMaxBytes() && request.getFrameMaxBytes() > 0 ? request.getFrameMaxBytes()
+                                                                                       : StreamFrameBuilder.DEFAULT_MAX_BYTES;
+            this.frameBuilder = new StreamFrameBuilder(request.getFrameMaxEntries(),
+                                                       maxBytes,
+                                                       request.getFrameCompression());
+        } else {
+            this.frameBuilder = null;
+        }
+    }
+
+    /**
+     * Checks whether the key belongs to one of the requested partitions. The
+     * routing strategy is built once per request, so this only hashes the key.
+     */
+    protected boolean isRequestedKey(ByteArray key) {
+        return RebalanceUtils.checkKeyBelongsToPartition(routingStrategy.getPartitionList(key.get()),
+                                                         nodePartitions,
+                                                         replicaToPartitionList);
+    }
+
+    /**
+     * Closes the storage engine iterator the subclass scans with
+     */
+    protected abstract void closeIterator();
+
+    /**
+     * Sends the entries collected in the current frame, if there are any
+     */
+    protected void writeFrame(DataOutputStream outputStream) throws IOException {
+        if(frameBuilder.isEmpty())
+            return;
+
+        long startNs = System.nanoTime();
+        VAdminProto.FetchPartitionEntriesResponse response = VAdminProto.FetchPartitionEntriesResponse.newBuilder()
+                                                                                                      .setFrame(frameBuilder.build())
+                                                                                                      .build();
+        ProtoUtils.writeMessage(outputStream, response);
+        stats.recordNetworkTime(handle, System.nanoTime() - startNs);
     }
 
     public final StreamRequestDirection getDirection() {
@@ -114,8 +188,7 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
                     + " tuples for store '" + storageEngine.getName() + "' in "
                     + ((System.currentTimeMillis() - startTime) / 1000) + " s");
 
-        if(null != keyIterator)
-            keyIterator.close();
+        closeIterator();
 
         ProtoUtils.writeEndOfStream(outputStream);
     }
@@ -14,6 +14,7 @@ import voldemort.VoldemortException;
 import voldemort.client.protocol.VoldemortFilter;
 import voldemort.client.protocol.admin.filter.DefaultVoldemortFilter;
 import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.StreamFrameBuilder;
 import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.client.protocol.pb.VAdminProto.UpdatePartitionEntriesRequest;
 import voldemort.server.StoreRepository;
@@ -21,6 +22,8 @@ import voldemort.server.VoldemortConfig;
 import voldemort.server.protocol.StreamRequestHandler;
 import voldemort.store.ErrorCodeMapper;
 import voldemort.store.StorageEngine;
+import voldemort.store.bdb.BdbStorageEngine;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.store.stats.StreamStats;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
@@ -29,9 +32,16 @@ import voldemort.utils.NetworkClassLoader;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.Versioned;
 
+import com.google.protobuf.ByteString;
+
 /**
  * UpdatePartitionEntriesStreamRequestHandler implements the streaming logic for
  * updating partition entries.
+ * <p>
+ * If the request asks for a bulk load and the store is a
+ * {@link BdbStorageEngine} the entries are written into a deferred-write
+ * database which replaces the store's database at the end of the stream,
+ * otherwise they are put one by one.
  */
 
 public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequestHandler {
@@ -56,6 +66,10 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
 
     private final StreamStats.Handle handle;
 
+    private final String frameCompression;
+
+    private BdbStorageEngine.BulkLoad bulkLoad;
+
     private final Logger logger = Logger.getLogger(getClass());
 
     public UpdatePartitionEntriesStreamRequestHandler(UpdatePartitionEntriesRequest request,
@@ -74,6 +88,18 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
                                                                                          voldemortConfig,
                                                                                          networkClassLoader)
                                       : new DefaultVoldemortFilter();
+        frameCompression = request.hasFrameCompression() ? request.getFrameCompression() : null;
+        if(request.hasBulkLoad() && request.getBulkLoad()) {
+            StorageEngine<ByteArray, byte[], byte[]> innerEngine = storageEngine;
+            if(innerEngine instanceof CachingStorageEngine)
+                innerEngine = ((CachingStorageEngine) innerEngine).getInnerEngine();
+            if(innerEngine instanceof BdbStorageEngine) {
+                bulkLoad = ((BdbStorageEngine) innerEngine).beginBulkLoad();
+            } else {
+                logger.info("Store '" + storageEngine.getName()
+                            + "' does not support bulk loads, updating entries one by one.");
+            }
+        }
         startTime = System.currentTimeMillis();
         this.stats = stats;
         this.handle = stats.makeHandle(StreamStats.Operation.UPDATE,
@@ -97,6 +123,22 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
             }
 
             if(size == -1) {
+                if(bulkLoad != null) {
+                    // publish aborts the load itself if it fails
+                    BdbStorageEngine.BulkLoad load = bulkLoad;
+                    bulkLoad = null;
+
+                    long publishStartNs = System.nanoTime();
+                    try {
+                        load.publish();
+                    } finally {
+                        // the loaded entries bypassed the read cache
+                        if(storageEngine instanceof CachingStorageEngine)
+                            ((CachingStorageEngine) storageEngine).clear();
+                        stats.recordDiskTime(handle, System.nanoTime() - publishStartNs);
+                    }
+                }
+
                 long totalTime = (System.currentTimeMillis() - startTime) / 1000;
                 logger.info("Update entries successfully updated " + counter
                             + " entries for store '" + storageEngine.getName() + "' in "
@@ -130,14 +172,28 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
             request = builder.build();
         }
 
-        VAdminProto.PartitionEntry partitionEntry = request.getPartitionEntry();
+        if(request.hasFrame()) {
+            for(ByteString entry: StreamFrameBuilder.parse(request.getFrame(), frameCompression))
+                updateEntry(VAdminProto.PartitionEntry.parseFrom(entry));
+        } else {
+            updateEntry(request.getPartitionEntry());
+        }
+
+        request = null;
+        return StreamRequestHandlerState.READING;
+    }
+
+    private void updateEntry(VAdminProto.PartitionEntry partitionEntry) {
         ByteArray key = ProtoUtils.decodeBytes(partitionEntry.getKey());
         Versioned<byte[]> value = ProtoUtils.decodeVersioned(partitionEntry.getVersioned());
 
         if(filter.accept(key, value)) {
-            startNs = System.nanoTime();
+            long startNs = System.nanoTime();
             try {
-                storageEngine.put(key, value, null);
+                if(bulkLoad != null)
+                    bulkLoad.add(key, value);
+                else
+                    storageEngine.put(key, value, null);
 
                 if(logger.isTraceEnabled())
                     logger.trace("updateEntries (Streaming put) successful");
@@ -162,9 +218,6 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
             logger.info("Update entries updated " + counter + " entries for store '"
                         + storageEngine.getName() + "' in " + totalTime + " s");
         }
-
-        request = null;
-        return StreamRequestHandlerState.READING;
     }
 
     public StreamRequestDirection getDirection() {
@@ -172,6 +225,12 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
     }
 
     public void close(DataOutputStream outputStream) throws IOException {
+        // the stream ended before the load could be published
+        if(bulkLoad != null) {
+            bulkLoad.abort();
+            bulkLoad = null;
+        }
+
         ProtoUtils.writeMessage(outputStream, responseBuilder.build());
     }
 
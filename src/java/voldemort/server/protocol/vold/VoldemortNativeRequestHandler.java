@@ -1,5 +1,7 @@
 package voldemort.server.protocol.vold;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -12,6 +14,7 @@ import java.util.Map;
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
+import voldemort.client.protocol.vold.VoldemortNativeClientRequestFormat;
 import voldemort.serialization.VoldemortOpCode;
 import voldemort.server.RequestRoutingType;
 import voldemort.server.StoreRepository;
@@ -29,7 +32,11 @@ import voldemort.versioning.Versioned;
 
 /**
  * Server-side request handler for voldemort native client protocol
- * 
+ * <p/>
+ * From protocol version 4 on each request is framed with a request id and the
+ * size of the request, and the response is framed with the same request id and
+ * its own size. This lets a client keep many requests in flight on the same
+ * connection and match responses that come back out of order.
  * 
  */
 public class VoldemortNativeRequestHandler extends AbstractRequestHandler implements RequestHandler {
@@ -42,13 +49,50 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
                                          StoreRepository repository,
                                          int protocolVersion) {
         super(errorMapper, repository);
-        if(protocolVersion < 0 || protocolVersion > 3)
+        if(protocolVersion < 0 || protocolVersion > 4)
             throw new IllegalArgumentException("Unknown protocol version: " + protocolVersion);
         this.protocolVersion = protocolVersion;
     }
 
     public StreamRequestHandler handleRequest(DataInputStream inputStream,
                                               DataOutputStream outputStream) throws IOException {
+        if(protocolVersion > 3) {
+            handleFramedRequest(inputStream, outputStream);
+            return null;
+        }
+
+        handleRequestBody(inputStream, outputStream);
+        return null;
+    }
+
+    /**
+     * Reads a request framed with its request id and size, and writes the
+     * response back with the same request id.
+     */
+
+    private void handleFramedRequest(DataInputStream inputStream, DataOutputStream outputStream)
+            throws IOException {
+        int requestId = inputStream.readInt();
+        int requestSize = inputStream.readInt();
+
+        if(requestSize < 0)
+            throw new IOException("Invalid size " + requestSize + " for request " + requestId);
+
+        byte[] request = new byte[requestSize];
+        inputStream.readFully(request);
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        handleRequestBody(new DataInputStream(new ByteArrayInputStream(request)),
+                          new DataOutputStream(response));
+
+        outputStream.writeInt(requestId);
+        outputStream.writeInt(response.size());
+        response.writeTo(outputStream);
+        outputStream.flush();
+    }
+
+    private void handleRequestBody(DataInputStream inputStream, DataOutputStream outputStream)
+            throws IOException {
         byte opCode = inputStream.readByte();
         String storeName = inputStream.readUTF();
         RequestRoutingType routingType = getRoutingType(inputStream);
@@ -79,7 +123,6 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
             }
         }
         outputStream.flush();
-        return null;
     }
 
     private RequestRoutingType getRoutingType(DataInputStream inputStream) throws IOException {
@@ -125,6 +168,17 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
      */
 
     public boolean isCompleteRequest(final ByteBuffer buffer) {
+        if(protocolVersion > 3) {
+            // Framed requests carry their own size, so no parsing is needed.
+            int headerSize = VoldemortNativeClientRequestFormat.FRAME_HEADER_SIZE;
+
+            if(buffer.remaining() < headerSize)
+                return false;
+
+            int requestSize = buffer.getInt(buffer.position() + ByteUtils.SIZE_OF_INT);
+            return requestSize >= 0 && buffer.remaining() == headerSize + requestSize;
+        }
+
         DataInputStream inputStream = new DataInputStream(new ByteBufferBackedInputStream(buffer));
 
         try {
@@ -427,6 +427,7 @@ public class Rebalancer implements Runnable {
         // the state as the stores finish rebalance
         asyncService.submitOperation(requestId,
                                      new StealerBasedRebalanceAsyncOperation(this,
+                                                                             storeRepository,
                                                                              voldemortConfig,
                                                                              metadataStore,
                                                                              requestId,
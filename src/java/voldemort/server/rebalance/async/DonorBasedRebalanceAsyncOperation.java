@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.SynchronousQueue;
@@ -39,6 +40,7 @@ import voldemort.server.rebalance.Rebalancer;
 import voldemort.server.rebalance.VoldemortRebalancingException;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
+import voldemort.store.StoreUtils;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
 import voldemort.utils.ByteArray;
@@ -299,7 +301,20 @@ public class DonorBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
         int[] fetched = new int[targetCluster.getNumberOfNodes()];
         long startTime = System.currentTimeMillis();
 
-        ClosableIterator<ByteArray> keys = storageEngine.keys();
+        ClosableIterator<ByteArray> keys;
+        if(storageEngine.isPartitionScanSupported()) {
+            // A key is only pushed if its master partition is being moved, so
+            // only those partitions need to be scanned
+            Set<Integer> partitions = new TreeSet<Integer>();
+            for(Pair<Integer, HashMap<Integer, List<Integer>>> tuple: optimizedStealerNodeToMappingTuples) {
+                for(List<Integer> partitionList: tuple.getSecond().values())
+                    partitions.addAll(partitionList);
+            }
+            logger.info("Scanning partitions " + partitions + " of store '" + storeName + "'");
+            keys = StoreUtils.keys(storageEngine, partitions);
+        } else {
+            keys = storageEngine.keys();
+        }
 
         try {
             while(running.get() && keys.hasNext()) {
@@ -17,14 +17,21 @@
 package voldemort.server.rebalance.async;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import voldemort.VoldemortException;
 import voldemort.client.protocol.admin.AdminClient;
 import voldemort.client.rebalance.RebalancePartitionsInfo;
+import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
+import voldemort.server.protocol.admin.AsyncOperationStatus;
 import voldemort.server.rebalance.Rebalancer;
 import voldemort.server.rebalance.VoldemortRebalancingException;
 import voldemort.store.metadata.MetadataStore;
@@ -33,6 +40,7 @@ import voldemort.utils.RebalanceUtils;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * Individual rebalancing operation run on the server side as an async
@@ -40,11 +48,17 @@ import com.google.common.collect.Lists;
  */
 public class StealerBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
 
+    private static final long STREAM_STATUS_INITIAL_DELAY_MS = 250;
+    private static final long STREAM_STATUS_MAX_DELAY_MS = 10 * 1000;
+
     private List<Integer> rebalanceStatusList;
 
     private final RebalancePartitionsInfo stealInfo;
 
+    private final StoreRepository storeRepository;
+
     public StealerBasedRebalanceAsyncOperation(Rebalancer rebalancer,
+                                               StoreRepository storeRepository,
                                                VoldemortConfig voldemortConfig,
                                                MetadataStore metadataStore,
                                                int requestId,
@@ -52,8 +66,9 @@ public class StealerBasedRebalanceAsyncOperation extends RebalanceAsyncOperation
         super(rebalancer, voldemortConfig, metadataStore, requestId, "Stealer based rebalance : "
                                                                      + stealInfo);
         this.rebalancer = rebalancer;
+        this.storeRepository = storeRepository;
         this.stealInfo = stealInfo;
-        this.rebalanceStatusList = new ArrayList<Integer>();
+        this.rebalanceStatusList = new CopyOnWriteArrayList<Integer>();
     }
 
     @Override
@@ -172,29 +187,51 @@ public class StealerBasedRebalanceAsyncOperation extends RebalanceAsyncOperation
         if(stealInfo.getReplicaToAddPartitionList(storeName) != null
            && stealInfo.getReplicaToAddPartitionList(storeName).size() > 0) {
 
-            logger.info(getHeader(stealInfo) + "Starting partitions migration for store "
-                        + storeName + " from donor node " + stealInfo.getDonorId());
+            // Read-only stores ship whole partition files, and a donor that
+            // cannot scan by partition would scan the whole store once per
+            // stream, so only stores with partition scans are split into
+            // parallel partition streams. The nodes of a cluster share their
+            // storage configuration, so the local engine stands in for the
+            // donor's.
+            boolean splitStreams = !isReadOnlyStore
+                                   && storeRepository.getStorageEngine(storeName)
+                                                     .isPartitionScanSupported();
+            List<HashMap<Integer, List<Integer>>> streams = RebalanceUtils.splitReplicaToPartitionList(stealInfo.getReplicaToAddPartitionList(storeName),
+                                                                                                       splitStreams ? voldemortConfig.getMaxParallelPartitionStreamsRebalancing()
+                                                                                                                   : 1);
 
-            int asyncId = adminClient.migratePartitions(stealInfo.getDonorId(),
-                                                        metadataStore.getNodeId(),
-                                                        storeName,
-                                                        stealInfo.getReplicaToAddPartitionList(storeName),
-                                                        null,
-                                                        stealInfo.getInitialCluster(),
-                                                        true);
-            rebalanceStatusList.add(asyncId);
+            logger.info(getHeader(stealInfo) + "Starting partitions migration for store "
+                        + storeName + " from donor node " + stealInfo.getDonorId() + " in "
+                        + streams.size() + " stream(s)");
+
+            Map<Integer, HashMap<Integer, List<Integer>>> asyncIdToStream = Maps.newLinkedHashMap();
+            for(HashMap<Integer, List<Integer>> stream: streams) {
+                int asyncId = adminClient.migratePartitions(stealInfo.getDonorId(),
+                                                            metadataStore.getNodeId(),
+                                                            storeName,
+                                                            stream,
+                                                            null,
+                                                            stealInfo.getInitialCluster(),
+                                                            true);
+                rebalanceStatusList.add(asyncId);
+                asyncIdToStream.put(asyncId, stream);
+            }
 
             if(logger.isDebugEnabled()) {
                 logger.debug(getHeader(stealInfo) + "Waiting for completion for " + storeName
-                             + " with async id " + asyncId);
+                             + " with async ids " + asyncIdToStream.keySet());
+            }
+            if(asyncIdToStream.size() == 1) {
+                int asyncId = asyncIdToStream.keySet().iterator().next();
+                adminClient.waitForCompletion(metadataStore.getNodeId(),
+                                              asyncId,
+                                              voldemortConfig.getRebalancingTimeoutSec(),
+                                              TimeUnit.SECONDS,
+                                              getStatus());
+                rebalanceStatusList.remove((Object) asyncId);
+            } else {
+                waitForStreams(storeName, adminClient, stealInfo, asyncIdToStream);
             }
-            adminClient.waitForCompletion(metadataStore.getNodeId(),
-                                          asyncId,
-                                          voldemortConfig.getRebalancingTimeoutSec(),
-                                          TimeUnit.SECONDS,
-                                          getStatus());
-
-            rebalanceStatusList.remove((Object) asyncId);
 
             logger.info(getHeader(stealInfo) + "Completed partition migration for store "
                         + storeName + " from donor node " + stealInfo.getDonorId());
@@ -219,4 +256,99 @@ public class StealerBasedRebalanceAsyncOperation extends RebalanceAsyncOperation
 
         logger.info(getHeader(stealInfo) + "Finished all migration for store " + storeName);
     }
+
+    /**
+     * Blocking function which polls all the partition streams of one store
+     * until they complete, publishing the progress of every stream in the
+     * status of this operation. If a stream fails or the streams time out,
+     * the streams still running are stopped before the failure is thrown.
+     * 
+     * @param storeName The name of the store
+     * @param adminClient Admin client used to poll the streams
+     * @param stealInfo The steal information
+     * @param asyncIdToStream Map of async id to the partitions it is fetching
+     */
+    private void waitForStreams(String storeName,
+                                AdminClient adminClient,
+                                RebalancePartitionsInfo stealInfo,
+                                Map<Integer, HashMap<Integer, List<Integer>>> asyncIdToStream) {
+        Map<Integer, HashMap<Integer, List<Integer>>> pending = Maps.newLinkedHashMap(asyncIdToStream);
+        try {
+            pollStreams(storeName, adminClient, stealInfo, asyncIdToStream, pending);
+        } catch(RuntimeException e) {
+            for(int asyncId: pending.keySet()) {
+                try {
+                    adminClient.stopAsyncRequest(metadataStore.getNodeId(), asyncId);
+                } catch(Exception stopException) {
+                    logger.warn(getHeader(stealInfo) + "Could not stop stream "
+                                + pending.get(asyncId) + " for store " + storeName,
+                                stopException);
+                }
+                rebalanceStatusList.remove((Object) asyncId);
+            }
+            throw e;
+        }
+    }
+
+    private void pollStreams(String storeName,
+                             AdminClient adminClient,
+                             RebalancePartitionsInfo stealInfo,
+                             Map<Integer, HashMap<Integer, List<Integer>>> asyncIdToStream,
+                             Map<Integer, HashMap<Integer, List<Integer>>> pending) {
+        Map<Integer, String> streamStatus = Maps.newLinkedHashMap();
+        long waitUntil = System.currentTimeMillis()
+                         + TimeUnit.SECONDS.toMillis(voldemortConfig.getRebalancingTimeoutSec());
+        long delay = STREAM_STATUS_INITIAL_DELAY_MS;
+
+        while(!pending.isEmpty()) {
+            if(System.currentTimeMillis() > waitUntil) {
+                throw new VoldemortException(getHeader(stealInfo) + "Failed to finish streams "
+                                             + pending.values() + " for store " + storeName
+                                             + " in " + voldemortConfig.getRebalancingTimeoutSec()
+                                             + " seconds");
+            }
+
+            for(Iterator<Map.Entry<Integer, HashMap<Integer, List<Integer>>>> it = pending.entrySet()
+                                                                                         .iterator(); it.hasNext();) {
+                Map.Entry<Integer, HashMap<Integer, List<Integer>>> entry = it.next();
+                int asyncId = entry.getKey();
+                AsyncOperationStatus status = adminClient.getAsyncRequestStatus(metadataStore.getNodeId(),
+                                                                                asyncId);
+                if(status.hasException()) {
+                    rebalanceStatusList.remove((Object) asyncId);
+                    it.remove();
+                    throw new VoldemortException(getHeader(stealInfo) + "Stream "
+                                                 + entry.getValue() + " for store " + storeName
+                                                 + " failed", status.getException());
+                }
+                if(status.isComplete()) {
+                    streamStatus.put(asyncId, entry.getValue() + " - completed");
+                    rebalanceStatusList.remove((Object) asyncId);
+                    it.remove();
+                } else {
+                    streamStatus.put(asyncId, entry.getValue() + " - " + status.getStatus());
+                }
+            }
+
+            StringBuilder builder = new StringBuilder();
+            builder.append(getHeader(stealInfo) + "Store " + storeName + ", "
+                           + (asyncIdToStream.size() - pending.size()) + " out of "
+                           + asyncIdToStream.size() + " streams completed");
+            for(String stream: streamStatus.values()) {
+                builder.append("; " + stream);
+            }
+            updateStatus(builder.toString());
+
+            if(!pending.isEmpty()) {
+                try {
+                    Thread.sleep(delay);
+                } catch(InterruptedException e) {
+                    throw new VoldemortException(getHeader(stealInfo)
+                                                 + "Interrupted while waiting for streams of store "
+                                                 + storeName, e);
+                }
+                delay = Math.min(delay * 2, STREAM_STATUS_MAX_DELAY_MS);
+            }
+        }
+    }
 }
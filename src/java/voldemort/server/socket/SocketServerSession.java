@@ -91,6 +91,10 @@ public class SocketServerSession implements Runnable {
                                 logger.trace("Finished invocation of streaming request handler, result is "
                                              + srhs);
 
+                            // blocking reads only come up short at the end of
+                            // the stream, so the client is gone
+                            if(srhs == StreamRequestHandlerState.INCOMPLETE_READ)
+                                throw new EOFException("Client disconnected while streaming");
                         } while(srhs != StreamRequestHandlerState.COMPLETE);
                     } catch(VoldemortException e) {
                         srh.handleError(outputStream, e);
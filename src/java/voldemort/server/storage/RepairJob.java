@@ -2,8 +2,10 @@ package voldemort.server.storage;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Semaphore;
 
 import javax.management.MBeanOperationInfo;
@@ -11,12 +13,13 @@ import javax.management.MBeanOperationInfo;
 import org.apache.log4j.Logger;
 
 import voldemort.annotations.jmx.JmxOperation;
-import voldemort.cluster.Node;
+import voldemort.cluster.Cluster;
 import voldemort.routing.RoutingStrategy;
 import voldemort.routing.RoutingStrategyFactory;
 import voldemort.server.StoreRepository;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
+import voldemort.store.StoreUtils;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ClosableIterator;
@@ -24,6 +27,7 @@ import voldemort.utils.Pair;
 import voldemort.utils.Utils;
 import voldemort.versioning.Versioned;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public class RepairJob implements Runnable {
@@ -80,25 +84,38 @@ public class RepairJob implements Runnable {
         try {
             // Get routing factory
             RoutingStrategyFactory routingStrategyFactory = new RoutingStrategyFactory();
+            Set<Integer> localPartitions = new HashSet<Integer>(metadataStore.getCluster()
+                                                                             .getNodeById(metadataStore.getNodeId())
+                                                                             .getPartitionIds());
 
             for(StoreDefinition storeDef: metadataStore.getStoreDefList()) {
                 if(isWritableStore(storeDef)) {
                     logger.info("Repairing store " + storeDef.getName());
                     StorageEngine<ByteArray, byte[], byte[]> engine = storeRepo.getStorageEngine(storeDef.getName());
-                    iterator = engine.entries();
 
                     // Lets generate routing strategy for this storage engine
                     RoutingStrategy routingStrategy = routingStrategyFactory.updateRoutingStrategy(storeDef,
                                                                                                    metadataStore.getCluster());
+                    if(engine.isPartitionScanSupported()) {
+                        // only partitions with no replica here can hold keys
+                        // to delete
+                        List<Integer> partitions = getNonLocalPartitions(routingStrategy);
+                        logger.info("Scanning partitions " + partitions + " of store "
+                                    + storeDef.getName());
+                        iterator = StoreUtils.entries(engine, partitions);
+                    } else {
+                        iterator = engine.entries();
+                    }
                     long repairSlops = 0L;
                     long numDeletedKeys = 0;
                     long numScannedKeys = 0;
                     while(iterator.hasNext()) {
                         Pair<ByteArray, Versioned<byte[]>> keyAndVal;
                         keyAndVal = iterator.next();
-                        List<Node> nodes = routingStrategy.routeRequest(keyAndVal.getFirst().get());
+                        List<Integer> partitions = routingStrategy.getPartitionList(keyAndVal.getFirst()
+                                                                                             .get());
 
-                        if(!hasDestination(nodes)) {
+                        if(!hasLocalPartition(partitions, localPartitions)) {
                             engine.delete(keyAndVal.getFirst(), keyAndVal.getSecond().getVersion());
                             numDeletedKeys++;
                         }
@@ -131,9 +148,35 @@ public class RepairJob implements Runnable {
         }
     }
 
-    private boolean hasDestination(List<Node> nodes) {
-        for(Node node: nodes) {
-            if(node.getId() == metadataStore.getNodeId()) {
+    /**
+     * @return The master partitions none of whose replicas are on this node
+     */
+    private List<Integer> getNonLocalPartitions(RoutingStrategy routingStrategy) {
+        Cluster cluster = metadataStore.getCluster();
+        List<Integer> localPartitions = cluster.getNodeById(metadataStore.getNodeId())
+                                               .getPartitionIds();
+        List<Integer> partitions = Lists.newArrayList();
+        for(int partition = 0; partition < cluster.getNumberOfPartitions(); partition++) {
+            boolean isLocal = false;
+            for(int replica: routingStrategy.getReplicatingPartitionList(partition)) {
+                if(localPartitions.contains(replica)) {
+                    isLocal = true;
+                    break;
+                }
+            }
+            if(!isLocal)
+                partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    /**
+     * Checks the preference list of a key against the partitions of this node,
+     * which is cheaper than resolving the list to nodes for every key scanned
+     */
+    private boolean hasLocalPartition(List<Integer> partitions, Set<Integer> localPartitions) {
+        for(int partition: partitions) {
+            if(localPartitions.contains(partition)) {
                 return true;
             }
         }
@@ -21,15 +21,19 @@ import static voldemort.cluster.failuredetector.FailureDetectorUtils.create;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
@@ -40,6 +44,7 @@ import javax.management.ObjectName;
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
 import voldemort.annotations.jmx.JmxManaged;
 import voldemort.annotations.jmx.JmxOperation;
 import voldemort.client.ClientThreadPool;
@@ -63,6 +68,8 @@ import voldemort.store.StorageConfiguration;
 import voldemort.store.StorageEngine;
 import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
+import voldemort.store.bdb.BdbStorageConfiguration;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.store.invalidmetadata.InvalidMetadataCheckingStore;
 import voldemort.store.logging.LoggingStore;
 import voldemort.store.metadata.MetadataStore;
@@ -87,6 +94,7 @@ import voldemort.store.views.ViewStorageEngine;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ClosableIterator;
 import voldemort.utils.ConfigurationException;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.JmxUtils;
 import voldemort.utils.Pair;
@@ -120,6 +128,7 @@ public class StorageService extends AbstractService {
     private final FailureDetector failureDetector;
     private final StoreStats storeStats;
     private final RoutedStoreFactory routedStoreFactory;
+    private final Set<String> storesOpening;
 
     public StorageService(StoreRepository storeRepository,
                           MetadataStore metadata,
@@ -132,6 +141,7 @@ public class StorageService extends AbstractService {
         this.metadata = metadata;
         this.scanPermits = new Semaphore(voldemortConfig.getNumScanPermits());
         this.storageConfigs = new ConcurrentHashMap<String, StorageConfiguration>();
+        this.storesOpening = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         this.clientThreadPool = new ClientThreadPool(config.getClientMaxThreads(),
                                                      config.getClientThreadIdleMs(),
                                                      config.getClientMaxQueuedRequests());
@@ -241,16 +251,22 @@ public class StorageService extends AbstractService {
         List<StoreDefinition> storeDefs = new ArrayList<StoreDefinition>(this.metadata.getStoreDefList());
         logger.info("Initializing stores:");
 
+        List<StoreDefinition> nonViewDefs = new ArrayList<StoreDefinition>();
+        List<StoreDefinition> viewDefs = new ArrayList<StoreDefinition>();
+        for(StoreDefinition def: storeDefs) {
+            if(def.isView())
+                viewDefs.add(def);
+            else
+                nonViewDefs.add(def);
+            storesOpening.add(def.getName());
+        }
+
         // first initialize non-view stores
-        for(StoreDefinition def: storeDefs)
-            if(!def.isView())
-                openStore(def);
+        openStores(nonViewDefs);
 
         // now that we have all our stores, we can initialize views pointing at
         // those stores
-        for(StoreDefinition def: storeDefs)
-            if(def.isView())
-                openStore(def);
+        openStores(viewDefs);
 
         // enable aggregate jmx statistics
         if(voldemortConfig.isStatTrackingEnabled())
@@ -267,8 +283,80 @@ public class StorageService extends AbstractService {
         logger.info("All stores initialized.");
     }
 
+    /**
+     * Opens the given stores, in parallel if more than one store open thread
+     * is configured. Each store is available as soon as it is opened, so a
+     * slow store does not hold back the others.
+     * 
+     * @param storeDefs The definitions of the stores to open
+     */
+    private void openStores(List<StoreDefinition> storeDefs) {
+        int numThreads = Math.min(voldemortConfig.getStorageOpenThreads(), storeDefs.size());
+        if(numThreads <= 1) {
+            for(StoreDefinition def: storeDefs)
+                openStore(def);
+            return;
+        }
+
+        logger.info("Opening " + storeDefs.size() + " stores using " + numThreads + " threads.");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                                                                new DaemonThreadFactory("voldemort-store-open-"));
+        try {
+            List<Future<?>> results = new ArrayList<Future<?>>(storeDefs.size());
+            for(final StoreDefinition def: storeDefs) {
+                results.add(executor.submit(new Runnable() {
+
+                    public void run() {
+                        openStore(def);
+                    }
+                }));
+            }
+
+            // wait for all of them, failing with the first error
+            VoldemortException error = null;
+            for(Future<?> result: results) {
+                try {
+                    result.get();
+                } catch(ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    logger.error("Error opening store", cause);
+                    if(error == null && cause instanceof VoldemortException)
+                        error = (VoldemortException) cause;
+                    else if(error == null)
+                        error = new VoldemortException(cause);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new VoldemortException("Interrupted while opening stores", e);
+                }
+            }
+            if(error != null)
+                throw error;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @JmxGetter(name = "storesOpening", description = "Returns the names of the stores that are still being opened")
+    public List<String> getStoresOpening() {
+        return new ArrayList<String>(storesOpening);
+    }
+
+    @JmxOperation(description = "Returns true once the given store is open and serving", impact = MBeanOperationInfo.INFO)
+    public boolean isStoreReady(String storeName) {
+        return !storesOpening.contains(storeName)
+               && storeRepository.getLocalStore(storeName) != null;
+    }
+
     public void openStore(StoreDefinition storeDef) {
+        try {
+            openStoreInner(storeDef);
+        } finally {
+            storesOpening.remove(storeDef.getName());
+        }
+    }
 
+    private void openStoreInner(StoreDefinition storeDef) {
+        long start = System.currentTimeMillis();
         logger.info("Opening store '" + storeDef.getName() + "' (" + storeDef.getType() + ").");
 
         StorageConfiguration config = storageConfigs.get(storeDef.getType());
@@ -278,23 +366,42 @@ public class StorageService extends AbstractService {
                                              + " storage engine has not been enabled.");
 
         boolean isReadOnly = storeDef.getType().compareTo(ReadOnlyStorageConfiguration.TYPE_NAME) == 0;
+        StorageEngine<ByteArray, byte[], byte[]> engine;
         if(isReadOnly) {
             final RoutingStrategy routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
                                                                                                        metadata.getCluster());
-            ((ReadOnlyStorageConfiguration) config).setRoutingStrategy(routingStrategy);
+            engine = ((ReadOnlyStorageConfiguration) config).getStore(storeDef.getName(),
+                                                                      routingStrategy);
+        } else if(config instanceof BdbStorageConfiguration) {
+            // the routing strategy lets the store prefix keys with their
+            // partition, if configured to
+            RoutingStrategy routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                                 metadata.getCluster());
+            engine = ((BdbStorageConfiguration) config).getStore(storeDef.getName(),
+                                                                 routingStrategy);
+        } else {
+            engine = config.getStore(storeDef.getName());
         }
-
-        final StorageEngine<ByteArray, byte[], byte[]> engine = config.getStore(storeDef.getName());
         // Update the routing strategy + add listener to metadata
         if(storeDef.getType().compareTo(ReadOnlyStorageConfiguration.TYPE_NAME) == 0) {
+            final ReadOnlyStorageEngine readOnlyEngine = (ReadOnlyStorageEngine) engine;
             metadata.addMetadataStoreListener(storeDef.getName(), new MetadataStoreListener() {
 
                 public void updateRoutingStrategy(RoutingStrategy updatedRoutingStrategy) {
-                    ((ReadOnlyStorageEngine) engine).setRoutingStrategy(updatedRoutingStrategy);
+                    readOnlyEngine.setRoutingStrategy(updatedRoutingStrategy);
                 }
             });
         }
 
+        // the cache replaces the engine in the repository so that every
+        // write, including streaming and rebalancing, invalidates it
+        long readCacheSize = voldemortConfig.getReadCacheSize(storeDef.getName());
+        if(readCacheSize > 0 && !isReadOnly && !storeDef.isView()) {
+            logger.info("Caching up to " + readCacheSize + " bytes of reads for store '"
+                        + storeDef.getName() + "'.");
+            engine = new CachingStorageEngine(engine, readCacheSize);
+        }
+
         // openStore() should have atomic semantics
         try {
             registerEngine(engine, isReadOnly, storeDef.getType());
@@ -308,6 +415,8 @@ public class StorageService extends AbstractService {
             unregisterEngine(engine, isReadOnly, storeDef.getType());
             throw new VoldemortException(e);
         }
+        logger.info("Opened store '" + storeDef.getName() + "' in "
+                    + (System.currentTimeMillis() - start) + " ms.");
     }
 
     /**
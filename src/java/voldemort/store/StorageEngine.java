@@ -65,6 +65,32 @@ public interface StorageEngine<K, V, T> extends Store<K, V, T> {
      */
     public ClosableIterator<K> keys();
 
+    /**
+     * Get an iterator over pairs of entries in a single partition. The
+     * partition of a key is its master partition. Only supported if
+     * {@link #isPartitionScanSupported()} returns true.
+     * 
+     * Note that the iterator need not be threadsafe, and that it must be
+     * manually closed after use.
+     * 
+     * @param partition The partition id
+     * @return An iterator over the entries in the partition
+     */
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition);
+
+    /**
+     * Get an iterator over the keys in a single partition. The partition of a
+     * key is its master partition. Only supported if
+     * {@link #isPartitionScanSupported()} returns true.
+     * 
+     * Note that the iterator need not be threadsafe, and that it must be
+     * manually closed after use.
+     * 
+     * @param partition The partition id
+     * @return An iterator over the keys in the partition
+     */
+    public ClosableIterator<K> keys(int partition);
+
     /**
      * Truncate all entries in the store
      */
@@ -78,4 +104,12 @@ public interface StorageEngine<K, V, T> extends Store<K, V, T> {
      */
     public boolean isPartitionAware();
 
+    /**
+     * Can the entries of a single partition be read without scanning the
+     * whole store, using {@link #entries(int)} and {@link #keys(int)}?
+     * 
+     * @return Boolean indicating if partition scans are supported
+     */
+    public boolean isPartitionScanSupported();
+
 }
@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.log4j.Logger;
 
@@ -175,6 +177,81 @@ public class StoreUtils {
         };
     }
 
+    /**
+     * Iterates over the keys of the given partitions, scanning one partition
+     * at a time with {@link StorageEngine#keys(int)}
+     * 
+     * @param storageEngine A storage engine that supports partition scans
+     * @param partitions The partitions to iterate over
+     * @return An iterator over the keys of all the partitions
+     */
+    public static <K, V, T> ClosableIterator<K> keys(final StorageEngine<K, V, T> storageEngine,
+                                                     Collection<Integer> partitions) {
+        return new PartitionScanIterator<K>(partitions) {
+
+            @Override
+            protected ClosableIterator<K> scan(int partition) {
+                return storageEngine.keys(partition);
+            }
+        };
+    }
+
+    /**
+     * Iterates over the entries of the given partitions, scanning one
+     * partition at a time with {@link StorageEngine#entries(int)}
+     * 
+     * @param storageEngine A storage engine that supports partition scans
+     * @param partitions The partitions to iterate over
+     * @return An iterator over the entries of all the partitions
+     */
+    public static <K, V, T> ClosableIterator<Pair<K, Versioned<V>>> entries(final StorageEngine<K, V, T> storageEngine,
+                                                                            Collection<Integer> partitions) {
+        return new PartitionScanIterator<Pair<K, Versioned<V>>>(partitions) {
+
+            @Override
+            protected ClosableIterator<Pair<K, Versioned<V>>> scan(int partition) {
+                return storageEngine.entries(partition);
+            }
+        };
+    }
+
+    private static abstract class PartitionScanIterator<E> implements ClosableIterator<E> {
+
+        private final Iterator<Integer> remaining;
+        private ClosableIterator<E> current = null;
+
+        public PartitionScanIterator(Collection<Integer> partitions) {
+            this.remaining = partitions.iterator();
+        }
+
+        protected abstract ClosableIterator<E> scan(int partition);
+
+        public void close() {
+            if(current != null)
+                current.close();
+        }
+
+        public boolean hasNext() {
+            while(current == null || !current.hasNext()) {
+                if(!remaining.hasNext())
+                    return false;
+                close();
+                current = scan(remaining.next());
+            }
+            return true;
+        }
+
+        public E next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("No removal");
+        }
+    }
+
     /**
      * This is a temporary measure until we have a type-safe solution for
      * retrieving serializers from a SerializerFactory. It avoids warnings all
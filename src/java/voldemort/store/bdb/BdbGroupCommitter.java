@@ -0,0 +1,263 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.store.PersistenceFailureException;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.Transaction;
+
+/**
+ * Commits concurrent writes against a single BDB environment together.
+ * 
+ * Writers queue their operation. A writer that finds no commit in progress
+ * becomes the leader: it drains the queue, applies every queued write inside
+ * one transaction and commits it, so a burst of writes pays for a single
+ * commit (and log sync) instead of one each. The other writers wait on their
+ * own signal, which the leader raises once their write is committed. When its
+ * own write is done the leader hands the lead to the oldest write still
+ * queued, so no writer keeps committing for others indefinitely.
+ * 
+ * A write that fails with an {@link ObsoleteVersionException} has not modified
+ * anything, so it is reported to its caller alone while the rest of the batch
+ * commits. Any other failure aborts the batch and every write in it is retried
+ * in its own transaction, so each caller sees exactly the outcome it would
+ * have seen without batching.
+ */
+public class BdbGroupCommitter {
+
+    private static final Logger logger = Logger.getLogger(BdbGroupCommitter.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+    private final Environment environment;
+    private final int maxBatchSize;
+    private final Queue<PendingWrite<?>> pending = new LinkedList<PendingWrite<?>>();
+    private boolean committing = false;
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong writes = new AtomicLong(0);
+    private final AtomicLong failedBatches = new AtomicLong(0);
+
+    public BdbGroupCommitter(Environment environment) {
+        this(environment, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public BdbGroupCommitter(Environment environment, int maxBatchSize) {
+        if(maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be at least 1.");
+        this.environment = Utils.notNull(environment);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * A write applied as part of a group commit. Implementations must not
+     * commit or abort the given transaction.
+     */
+    public interface Write<T> {
+
+        public T apply(Transaction transaction) throws DatabaseException;
+    }
+
+    /**
+     * Apply the write and wait for the transaction containing it to commit.
+     * 
+     * @param write The write to apply
+     * @return The result of the write
+     */
+    public <T> T submit(Write<T> write) {
+        PendingWrite<T> pendingWrite = new PendingWrite<T>(write);
+        boolean leader;
+        synchronized(pending) {
+            pending.add(pendingWrite);
+            leader = !committing;
+            committing = true;
+        }
+        // a follower is woken either with its write done or to take the lead
+        if(!leader)
+            pendingWrite.awaitSignal();
+        if(!pendingWrite.done)
+            lead(pendingWrite);
+        return pendingWrite.getResult();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    public double getAverageBatchSize() {
+        long numBatches = batches.get();
+        return numBatches == 0 ? 0.0 : writes.get() / (double) numBatches;
+    }
+
+    /**
+     * Commit batches until the leader's own write is done, then pass the lead
+     * to the oldest queued write, or give it up if the queue is empty.
+     */
+    private void lead(PendingWrite<?> own) {
+        try {
+            while(!own.done)
+                commitBatch();
+        } finally {
+            PendingWrite<?> next;
+            synchronized(pending) {
+                next = pending.peek();
+                if(next == null)
+                    committing = false;
+            }
+            if(next != null)
+                next.signal();
+        }
+    }
+
+    private void commitBatch() {
+        List<PendingWrite<?>> batch = new LinkedList<PendingWrite<?>>();
+        synchronized(pending) {
+            while(batch.size() < maxBatchSize && !pending.isEmpty())
+                batch.add(pending.poll());
+        }
+        if(batch.isEmpty())
+            return;
+
+        batches.incrementAndGet();
+        writes.addAndGet(batch.size());
+        Transaction transaction = null;
+        try {
+            transaction = environment.beginTransaction(null, null);
+            for(PendingWrite<?> write: batch) {
+                try {
+                    write.apply(transaction);
+                } catch(ObsoleteVersionException e) {
+                    write.exception = e;
+                }
+            }
+            transaction.commit();
+            for(PendingWrite<?> write: batch)
+                write.done = true;
+        } catch(Exception e) {
+            failedBatches.incrementAndGet();
+            logger.warn("Group commit of " + batch.size()
+                        + " writes failed, retrying them individually.", e);
+            attemptAbort(transaction);
+            for(PendingWrite<?> write: batch)
+                commitAlone(write);
+        }
+        for(PendingWrite<?> write: batch)
+            write.signal();
+    }
+
+    private void commitAlone(PendingWrite<?> write) {
+        write.exception = null;
+        boolean succeeded = false;
+        Transaction transaction = null;
+        try {
+            transaction = environment.beginTransaction(null, null);
+            write.apply(transaction);
+            succeeded = true;
+        } catch(DatabaseException e) {
+            logger.error(e);
+            write.exception = new PersistenceFailureException(e);
+        } catch(RuntimeException e) {
+            write.exception = e;
+        } finally {
+            if(succeeded) {
+                try {
+                    transaction.commit();
+                } catch(DatabaseException e) {
+                    logger.error("Transaction commit failed!", e);
+                    attemptAbort(transaction);
+                    write.exception = new PersistenceFailureException(e);
+                }
+            } else {
+                attemptAbort(transaction);
+            }
+            write.done = true;
+        }
+    }
+
+    private static void attemptAbort(Transaction transaction) {
+        try {
+            if(transaction != null)
+                transaction.abort();
+        } catch(Exception e) {
+            logger.error("Abort failed!", e);
+        }
+    }
+
+    private static class PendingWrite<T> {
+
+        private final Write<T> write;
+        private T result;
+        private RuntimeException exception;
+        private boolean done;
+        private final CountDownLatch signal = new CountDownLatch(1);
+
+        public PendingWrite(Write<T> write) {
+            this.write = write;
+        }
+
+        public void signal() {
+            signal.countDown();
+        }
+
+        /**
+         * Wait for the signal. The wait cannot be abandoned, since the lead
+         * may be handed to this write, so an interrupt is only remembered.
+         */
+        public void awaitSignal() {
+            boolean interrupted = false;
+            while(true) {
+                try {
+                    signal.await();
+                    break;
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        public void apply(Transaction transaction) throws DatabaseException {
+            result = write.apply(transaction);
+        }
+
+        public T getResult() {
+            if(exception != null)
+                throw exception;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import voldemort.VoldemortException;
+import voldemort.serialization.IdentitySerializer;
+import voldemort.serialization.VersionedSerializer;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.versioning.Versioned;
+
+/**
+ * A flat file of the entries of some partitions of a BDB store, written in the
+ * order they were scanned from the btree so that they can be shipped to
+ * another node and loaded back in key order.
+ * <p>
+ * Every entry is written as the key length, the key, the length of the
+ * serialized versioned value and the serialized versioned value. The file ends
+ * with a key length of -1.
+ */
+public class BdbPartitionSnapshot {
+
+    public static final String FILE_EXTENSION = ".snapshot";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final VersionedSerializer<byte[]> versionedSerializer = new VersionedSerializer<byte[]>(new IdentitySerializer());
+
+    private BdbPartitionSnapshot() {}
+
+    /**
+     * Appends entries to a new snapshot file
+     */
+    public static class Writer {
+
+        private final File file;
+        private final DataOutputStream output;
+        private long numEntries;
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+                                                                        BUFFER_SIZE));
+            this.numEntries = 0;
+        }
+
+        public void write(ByteArray key, Versioned<byte[]> value) throws IOException {
+            byte[] valueBytes = versionedSerializer.toBytes(value);
+            output.writeInt(key.length());
+            output.write(key.get());
+            output.writeInt(valueBytes.length);
+            output.write(valueBytes);
+            numEntries++;
+        }
+
+        public long getNumEntries() {
+            return numEntries;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Writes the end marker and closes the file
+         */
+        public void close() throws IOException {
+            try {
+                output.writeInt(-1);
+                output.flush();
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Iterates over the entries of a snapshot file in the order they were
+     * written
+     */
+    public static class Reader implements ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+        private final File file;
+        private final DataInputStream input;
+        private Pair<ByteArray, Versioned<byte[]>> next;
+        private boolean done;
+
+        public Reader(File file) throws IOException {
+            this.file = file;
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                                                                     BUFFER_SIZE));
+            this.next = null;
+            this.done = false;
+        }
+
+        public boolean hasNext() {
+            if(next == null && !done) {
+                next = readEntry();
+            }
+            return next != null;
+        }
+
+        public Pair<ByteArray, Versioned<byte[]>> next() {
+            if(!hasNext())
+                throw new NoSuchElementException("No more entries in snapshot " + file);
+            Pair<ByteArray, Versioned<byte[]>> entry = next;
+            next = null;
+            return entry;
+        }
+
+        private Pair<ByteArray, Versioned<byte[]>> readEntry() {
+            try {
+                int keySize = input.readInt();
+                if(keySize < 0) {
+                    done = true;
+                    return null;
+                }
+                byte[] key = new byte[keySize];
+                input.readFully(key);
+                byte[] value = new byte[input.readInt()];
+                input.readFully(value);
+                return Pair.create(new ByteArray(key), versionedSerializer.toObject(value));
+            } catch(IOException e) {
+                throw new VoldemortException("Error reading snapshot " + file, e);
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Cannot remove from a snapshot");
+        }
+
+        public void close() {
+            try {
+                input.close();
+            } catch(IOException e) {
+                throw new VoldemortException("Error closing snapshot " + file, e);
+            }
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package voldemort.store.bdb;
 
+import java.util.concurrent.ExecutorService;
+
 import com.sleepycat.je.LockMode;
 import voldemort.server.VoldemortConfig;
 import voldemort.utils.Time;
 
 /**
  * Runtime (i.e., post Environment creation) configuration for BdbStorageEngine
- *
+ * 
  */
 public class BdbRuntimeConfig {
 
     public static final long DEFAULT_STATS_CACHE_TTL_MS = 5 * Time.MS_PER_SECOND;
     public static final LockMode DEFAULT_LOCK_MODE = LockMode.READ_UNCOMMITTED;
+    public static final int DEFAULT_PARALLEL_READ_MIN_KEYS = 1000;
 
     private long statsCacheTtlMs = DEFAULT_STATS_CACHE_TTL_MS;
     private LockMode lockMode = DEFAULT_LOCK_MODE;
+    private ExecutorService parallelReadExecutor = null;
+    private int parallelReadThreads = 0;
+    private int parallelReadMinKeys = DEFAULT_PARALLEL_READ_MIN_KEYS;
 
     public BdbRuntimeConfig() {
 
@@ -25,6 +31,7 @@ public class BdbRuntimeConfig {
                                                            : LockMode.DEFAULT;
         setLockMode(lockMode);
         setStatsCacheTtlMs(config.getBdbStatsCacheTtlMs());
+        setParallelReadMinKeys(config.getBdbParallelGetAllMinKeys());
     }
 
     public long getStatsCacheTtlMs() {
@@ -44,4 +51,34 @@ public class BdbRuntimeConfig {
         this.lockMode = lockMode;
         return this;
     }
+
+    public ExecutorService getParallelReadExecutor() {
+        return parallelReadExecutor;
+    }
+
+    public int getParallelReadThreads() {
+        return parallelReadThreads;
+    }
+
+    /**
+     * Lets getAll calls for large batches read key ranges in parallel on the
+     * given executor, or always read serially if it is null.
+     * 
+     * @param executor The executor to read on
+     * @param threads The number of threads of the executor
+     */
+    public BdbRuntimeConfig setParallelReadExecutor(ExecutorService executor, int threads) {
+        this.parallelReadExecutor = executor;
+        this.parallelReadThreads = threads;
+        return this;
+    }
+
+    public int getParallelReadMinKeys() {
+        return parallelReadMinKeys;
+    }
+
+    public BdbRuntimeConfig setParallelReadMinKeys(int parallelReadMinKeys) {
+        this.parallelReadMinKeys = parallelReadMinKeys;
+        return this;
+    }
 }
@@ -17,26 +17,36 @@
 package voldemort.store.bdb;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.annotations.jmx.JmxOperation;
+import voldemort.routing.RoutingStrategy;
 import voldemort.server.VoldemortConfig;
 import voldemort.store.StorageConfiguration;
 import voldemort.store.StorageEngine;
 import voldemort.store.StorageInitializationException;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.Time;
 
+import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.EnvironmentStats;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
 import com.sleepycat.je.PreloadConfig;
 import com.sleepycat.je.StatsConfig;
 
@@ -54,18 +64,34 @@ public class BdbStorageConfiguration implements StorageConfiguration {
     public static final String TYPE_NAME = "bdb";
     private static final String SHARED_ENV_KEY = "shared";
 
+    /*
+     * Every environment records, per store, the layout its keys are written
+     * in, since opening a store with the other layout would silently miss
+     * every key already in it
+     */
+    private static final String KEY_LAYOUT_DATABASE = "voldemort-bdb-key-layouts";
+    private static final String PLAIN_KEY_LAYOUT = "plain";
+    private static final String PARTITION_PREFIXED_KEY_LAYOUT = "partition-prefixed";
+
     private static Logger logger = Logger.getLogger(BdbStorageConfiguration.class);
 
     private final Object lock = new Object();
     private final Map<String, Environment> environments = Maps.newHashMap();
+    private final Map<String, BdbGroupCommitter> groupCommitters = Maps.newHashMap();
     private final EnvironmentConfig environmentConfig;
     private final DatabaseConfig databaseConfig;
     private final String bdbMasterDir;
     private final boolean useOneEnvPerStore;
     private final VoldemortConfig voldemortConfig;
+    private final ExecutorService parallelReadExecutor;
 
     public BdbStorageConfiguration(VoldemortConfig config) {
         this.voldemortConfig = config;
+        if(config.getBdbParallelGetAllThreads() > 0)
+            this.parallelReadExecutor = Executors.newFixedThreadPool(config.getBdbParallelGetAllThreads(),
+                                                                     new DaemonThreadFactory("voldemort-bdb-getall-"));
+        else
+            this.parallelReadExecutor = null;
         environmentConfig = new EnvironmentConfig();
         environmentConfig.setTransactional(true);
         environmentConfig.setCacheSize(config.getBdbCacheSize());
@@ -116,18 +142,77 @@ public class BdbStorageConfiguration implements StorageConfiguration {
         useOneEnvPerStore = config.isBdbOneEnvPerStore();
         if(useOneEnvPerStore)
             environmentConfig.setSharedCache(true);
+
+        // partition snapshots left behind by a previous run are never
+        // streamed. Only snapshot files are deleted, the directory may be
+        // shared with other data.
+        File[] snapshots = new File(config.getBdbSnapshotDirectory()).listFiles(new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.isFile()
+                       && file.getName().endsWith(BdbPartitionSnapshot.FILE_EXTENSION);
+            }
+        });
+        if(snapshots != null && snapshots.length > 0) {
+            logger.info("Deleting " + snapshots.length + " stale partition snapshots from "
+                        + config.getBdbSnapshotDirectory());
+            for(File snapshot: snapshots) {
+                if(!snapshot.delete())
+                    logger.warn("Could not delete stale partition snapshot " + snapshot);
+            }
+        }
     }
 
     public StorageEngine<ByteArray, byte[], byte[]> getStore(String storeName) {
+        return getStore(storeName, null);
+    }
+
+    /**
+     * Opens the store. If keys are to be prefixed with their partition and a
+     * routing strategy is given, the store is opened with the partition
+     * prefixed layout. A store that already holds keys written in the other
+     * layout is refused.
+     * 
+     * @param storeName The name of the store
+     * @param routingStrategy The routing strategy of the store, may be null
+     * @return The store
+     * @throws StorageInitializationException if the store holds keys in a
+     *         different layout
+     */
+    public StorageEngine<ByteArray, byte[], byte[]> getStore(String storeName,
+                                                             RoutingStrategy routingStrategy) {
         synchronized(lock) {
             try {
                 Environment environment = getEnvironment(storeName);
                 Database db = environment.openDatabase(null, storeName, databaseConfig);
+                boolean prefixKeys = voldemortConfig.isBdbPrefixKeysWithPartitionId()
+                                     && routingStrategy != null;
+                boolean success = false;
+                try {
+                    checkKeyLayout(environment, storeName, db, prefixKeys);
+                    success = true;
+                } finally {
+                    if(!success)
+                        db.close();
+                }
                 BdbRuntimeConfig runtimeConfig = new BdbRuntimeConfig(voldemortConfig);
-                BdbStorageEngine engine = new BdbStorageEngine(storeName,
-                                                               environment,
-                                                               db,
-                                                               runtimeConfig);
+                runtimeConfig.setParallelReadExecutor(parallelReadExecutor,
+                                                      voldemortConfig.getBdbParallelGetAllThreads());
+                BdbGroupCommitter groupCommitter = getGroupCommitter(storeName, environment);
+                BdbStorageEngine engine;
+                if(prefixKeys)
+                    engine = new PartitionPrefixedBdbStorageEngine(storeName,
+                                                                   environment,
+                                                                   db,
+                                                                   runtimeConfig,
+                                                                   groupCommitter,
+                                                                   routingStrategy);
+                else
+                    engine = new BdbStorageEngine(storeName,
+                                                  environment,
+                                                  db,
+                                                  runtimeConfig,
+                                                  groupCommitter);
                 return engine;
             } catch(DatabaseException d) {
                 throw new StorageInitializationException(d);
@@ -135,6 +220,55 @@ public class BdbStorageConfiguration implements StorageConfiguration {
         }
     }
 
+    /**
+     * Checks the layout recorded for the store against the one it is being
+     * opened with, and records the new layout if the store is still empty.
+     * Stores without a recorded layout predate partition prefixing and so
+     * hold plain keys.
+     */
+    private void checkKeyLayout(Environment environment,
+                                String storeName,
+                                Database db,
+                                boolean prefixKeys) throws DatabaseException {
+        String layout = prefixKeys ? PARTITION_PREFIXED_KEY_LAYOUT : PLAIN_KEY_LAYOUT;
+        DatabaseConfig layoutConfig = new DatabaseConfig();
+        layoutConfig.setAllowCreate(true);
+        layoutConfig.setTransactional(true);
+        Database layouts = environment.openDatabase(null, KEY_LAYOUT_DATABASE, layoutConfig);
+        try {
+            DatabaseEntry key = new DatabaseEntry(ByteUtils.getBytes(storeName, "UTF-8"));
+            DatabaseEntry value = new DatabaseEntry();
+            String recordedLayout = null;
+            if(layouts.get(null, key, value, LockMode.READ_COMMITTED) == OperationStatus.SUCCESS)
+                recordedLayout = ByteUtils.getString(value.getData(), "UTF-8");
+            if(layout.equals(recordedLayout))
+                return;
+
+            String existingLayout = recordedLayout == null ? PLAIN_KEY_LAYOUT : recordedLayout;
+            if(!layout.equals(existingLayout) && !isEmpty(db))
+                throw new StorageInitializationException("BDB store '" + storeName
+                                                         + "' holds keys in the " + existingLayout
+                                                         + " layout and cannot be opened with the "
+                                                         + layout
+                                                         + " layout, check bdb.prefix.keys.with.partitionid.");
+            layouts.put(null, key, new DatabaseEntry(ByteUtils.getBytes(layout, "UTF-8")));
+        } finally {
+            layouts.close();
+        }
+    }
+
+    private boolean isEmpty(Database db) throws DatabaseException {
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            value.setPartial(0, 0, true);
+            return cursor.getFirst(key, value, LockMode.READ_UNCOMMITTED) != OperationStatus.SUCCESS;
+        } finally {
+            cursor.close();
+        }
+    }
+
     private Environment getEnvironment(String storeName) throws DatabaseException {
         synchronized(lock) {
             if(useOneEnvPerStore) {
@@ -169,6 +303,25 @@ public class BdbStorageConfiguration implements StorageConfiguration {
         }
     }
 
+    /**
+     * Writes can only be committed together if they share an environment, so
+     * there is one group committer per environment.
+     */
+    private BdbGroupCommitter getGroupCommitter(String storeName, Environment environment) {
+        if(!voldemortConfig.isBdbGroupCommit())
+            return null;
+        synchronized(lock) {
+            String key = useOneEnvPerStore ? storeName : SHARED_ENV_KEY;
+            BdbGroupCommitter groupCommitter = groupCommitters.get(key);
+            if(groupCommitter == null) {
+                groupCommitter = new BdbGroupCommitter(environment,
+                                                       voldemortConfig.getBdbGroupCommitMaxBatchSize());
+                groupCommitters.put(key, groupCommitter);
+            }
+            return groupCommitter;
+        }
+    }
+
     private void createBdbDirIfNecessary(File bdbDir) {
         if(!bdbDir.exists()) {
             logger.info("Creating BDB data directory '" + bdbDir.getAbsolutePath() + ".");
@@ -232,6 +385,8 @@ public class BdbStorageConfiguration implements StorageConfiguration {
     }
 
     public void close() {
+        if(parallelReadExecutor != null)
+            parallelReadExecutor.shutdown();
         synchronized(lock) {
             try {
                 for(Environment environment: environments.values()) {
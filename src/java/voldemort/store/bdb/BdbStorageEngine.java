@@ -16,14 +16,26 @@
 
 package voldemort.store.bdb;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
 import voldemort.annotations.jmx.JmxOperation;
 import voldemort.serialization.IdentitySerializer;
 import voldemort.serialization.Serializer;
@@ -47,9 +59,13 @@ import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
 
+import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.sleepycat.je.Cursor;
+import com.sleepycat.je.CursorConfig;
 import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.DatabaseStats;
@@ -69,6 +85,13 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
 
     private static final Logger logger = Logger.getLogger(BdbStorageEngine.class);
     private static final Hex hexCodec = new Hex();
+    private static final String BULK_LOAD_SUFFIX = ".bulk";
+    private static final Comparator<Pair<byte[], ByteArray>> STORAGE_KEY_COMPARATOR = new Comparator<Pair<byte[], ByteArray>>() {
+
+        public int compare(Pair<byte[], ByteArray> first, Pair<byte[], ByteArray> second) {
+            return ByteUtils.compare(first.getFirst(), second.getFirst());
+        }
+    };
 
     private final String name;
     private Database bdbDatabase;
@@ -79,11 +102,30 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
     private final Serializer<Version> versionSerializer;
     private final BdbEnvironmentStats bdbEnvironmentStats;
     private final AtomicBoolean isTruncating = new AtomicBoolean(false);
+    private final AtomicBoolean isBulkLoading = new AtomicBoolean(false);
+    private final ReadWriteLock bulkLoadLock = new ReentrantReadWriteLock();
+    private volatile BulkLoad reconcilingLoad;
+    private final BdbGroupCommitter groupCommitter;
+    private final ExecutorService parallelReadExecutor;
+    private final int parallelReadThreads;
+    private final int parallelReadMinKeys;
 
     public BdbStorageEngine(String name,
                             Environment environment,
                             Database database,
                             BdbRuntimeConfig config) {
+        this(name, environment, database, config, null);
+    }
+
+    /**
+     * Create a store whose writes are committed through the given group
+     * committer, or in a transaction of their own if it is null.
+     */
+    public BdbStorageEngine(String name,
+                            Environment environment,
+                            Database database,
+                            BdbRuntimeConfig config,
+                            BdbGroupCommitter groupCommitter) {
         this.name = Utils.notNull(name);
         this.bdbDatabase = Utils.notNull(database);
         this.environment = Utils.notNull(environment);
@@ -102,6 +144,10 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         this.readLockMode = config.getLockMode();
         this.bdbEnvironmentStats = new BdbEnvironmentStats(environment,
                                                            config.getStatsCacheTtlMs());
+        this.groupCommitter = groupCommitter;
+        this.parallelReadExecutor = config.getParallelReadExecutor();
+        this.parallelReadThreads = config.getParallelReadThreads();
+        this.parallelReadMinKeys = config.getParallelReadMinKeys();
     }
 
     public String getName() {
@@ -109,25 +155,94 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
     }
 
     public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return entriesWithPrefix(null);
+    }
+
+    public ClosableIterator<ByteArray> keys() {
+        return keysWithPrefix(null);
+    }
+
+    /**
+     * Iterates over the entries whose keys the filter accepts. The filter is
+     * asked once per key, in btree order, and only sees the key: the cursor
+     * reads the versions of a key only if it is accepted and skips them
+     * otherwise.
+     * 
+     * @param keyFilter Decides which keys to read the versions of
+     * @return An iterator over the entries of the accepted keys
+     */
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(Predicate<ByteArray> keyFilter) {
         try {
             Cursor cursor = getBdbDatabase().openCursor(null, null);
-            return new BdbEntriesIterator(cursor);
+            return new BdbFilteredEntriesIterator(cursor, keyFilter);
         } catch(DatabaseException e) {
             logger.error(e);
             throw new PersistenceFailureException(e);
         }
     }
 
-    public ClosableIterator<ByteArray> keys() {
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store "
+                                                + getName());
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store "
+                                                + getName());
+    }
+
+    /**
+     * Iterates over the entries whose stored keys start with the given prefix
+     * 
+     * @param prefix The prefix of the stored keys, or null for all entries
+     * @return An iterator over the entries
+     */
+    protected ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entriesWithPrefix(byte[] prefix) {
+        try {
+            Cursor cursor = getBdbDatabase().openCursor(null, null);
+            return new BdbEntriesIterator(cursor, prefix);
+        } catch(DatabaseException e) {
+            logger.error(e);
+            throw new PersistenceFailureException(e);
+        }
+    }
+
+    /**
+     * Iterates over the keys whose stored form starts with the given prefix
+     * 
+     * @param prefix The prefix of the stored keys, or null for all keys
+     * @return An iterator over the keys
+     */
+    protected ClosableIterator<ByteArray> keysWithPrefix(byte[] prefix) {
         try {
             Cursor cursor = getBdbDatabase().openCursor(null, null);
-            return new BdbKeysIterator(cursor);
+            return new BdbKeysIterator(cursor, prefix);
         } catch(DatabaseException e) {
             logger.error(e);
             throw new PersistenceFailureException(e);
         }
     }
 
+    /**
+     * Converts a key to the form it is stored in
+     * 
+     * @param key The key
+     * @return The stored form of the key
+     */
+    protected byte[] toStorageKey(ByteArray key) {
+        return key.get();
+    }
+
+    /**
+     * Converts a stored key back to the key
+     * 
+     * @param storageKey The stored form of the key
+     * @return The key
+     */
+    protected ByteArray fromStorageKey(byte[] storageKey) {
+        return new ByteArray(storageKey);
+    }
+
     public void truncate() {
 
         if(isTruncating.compareAndSet(false, true)) {
@@ -211,7 +326,7 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         Cursor cursor = null;
         try {
             cursor = getBdbDatabase().openCursor(null, null);
-            return get(cursor, key, lockMode, serializer);
+            return get(cursor, toStorageKey(key), lockMode, serializer);
         } catch(DatabaseException e) {
             logger.error(e);
             throw new PersistenceFailureException(e);
@@ -243,13 +358,111 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
             throws VoldemortException {
         StoreUtils.assertValidKeys(keys);
         Map<ByteArray, List<Versioned<byte[]>>> result = StoreUtils.newEmptyHashMap(keys);
+
+        // visit the keys in btree order so that neighbouring keys are found
+        // by stepping the cursor rather than searching from the root
+        List<Pair<byte[], ByteArray>> sortedKeys = Lists.newArrayList();
+        for(ByteArray key: keys)
+            sortedKeys.add(Pair.create(toStorageKey(key), key));
+        Collections.sort(sortedKeys, STORAGE_KEY_COMPARATOR);
+
+        if(parallelReadExecutor != null && sortedKeys.size() >= parallelReadMinKeys)
+            getAllInParallel(sortedKeys, result);
+        else
+            getAll(sortedKeys, result);
+        return result;
+    }
+
+    /**
+     * Split the sorted keys into contiguous ranges and read each range with
+     * its own cursor, using the calling thread for the first range.
+     */
+    private void getAllInParallel(List<Pair<byte[], ByteArray>> sortedKeys,
+                                  Map<ByteArray, List<Versioned<byte[]>>> result) {
+        int numRanges = Math.min(parallelReadThreads + 1, sortedKeys.size());
+        int rangeSize = (sortedKeys.size() + numRanges - 1) / numRanges;
+        List<Future<Map<ByteArray, List<Versioned<byte[]>>>>> futures = Lists.newArrayList();
+        for(int start = rangeSize; start < sortedKeys.size(); start += rangeSize) {
+            final List<Pair<byte[], ByteArray>> range = sortedKeys.subList(start,
+                                                                           Math.min(start
+                                                                                            + rangeSize,
+                                                                                    sortedKeys.size()));
+            futures.add(parallelReadExecutor.submit(new Callable<Map<ByteArray, List<Versioned<byte[]>>>>() {
+
+                public Map<ByteArray, List<Versioned<byte[]>>> call() {
+                    Map<ByteArray, List<Versioned<byte[]>>> rangeResult = Maps.newHashMap();
+                    getAll(range, rangeResult);
+                    return rangeResult;
+                }
+            }));
+        }
+        getAll(sortedKeys.subList(0, Math.min(rangeSize, sortedKeys.size())), result);
+        for(Future<Map<ByteArray, List<Versioned<byte[]>>>> future: futures) {
+            try {
+                result.putAll(future.get());
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PersistenceFailureException("Interrupted while reading keys.", e);
+            } catch(ExecutionException e) {
+                if(e.getCause() instanceof VoldemortException)
+                    throw (VoldemortException) e.getCause();
+                throw new PersistenceFailureException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Read the given keys, which must be sorted in btree order, with a single
+     * cursor. The cursor first tries the next key in the database, and only
+     * searches the btree when the requested key lies further ahead. Requested
+     * keys that sort before the cursor position are known to be missing.
+     */
+    private void getAll(List<Pair<byte[], ByteArray>> sortedKeys,
+                        Map<ByteArray, List<Versioned<byte[]>>> result) {
         Cursor cursor = null;
         try {
             cursor = getBdbDatabase().openCursor(null, null);
-            for(ByteArray key: keys) {
-                List<Versioned<byte[]>> values = get(cursor, key, readLockMode, versionedSerializer);
+            DatabaseEntry keyEntry = new DatabaseEntry();
+            DatabaseEntry valueEntry = new DatabaseEntry();
+            // the key under the cursor and whether its values have been read
+            byte[] position = null;
+            boolean positionRead = false;
+            for(Pair<byte[], ByteArray> key: sortedKeys) {
+                byte[] storageKey = key.getFirst();
+                int comparison = position == null ? -1 : ByteUtils.compare(position, storageKey);
+                if(comparison > 0 || (comparison == 0 && positionRead))
+                    continue;
+
+                OperationStatus status;
+                if(comparison == 0) {
+                    status = cursor.getCurrent(keyEntry, valueEntry, readLockMode);
+                } else {
+                    status = OperationStatus.NOTFOUND;
+                    if(position != null) {
+                        status = cursor.getNextNoDup(keyEntry, valueEntry, readLockMode);
+                        if(status != OperationStatus.SUCCESS)
+                            break;
+                    }
+                    if(position == null || ByteUtils.compare(keyEntry.getData(), storageKey) < 0) {
+                        keyEntry.setData(storageKey);
+                        status = cursor.getSearchKeyRange(keyEntry, valueEntry, readLockMode);
+                        if(status != OperationStatus.SUCCESS)
+                            break;
+                    }
+                    position = keyEntry.getData();
+                    positionRead = false;
+                    if(ByteUtils.compare(position, storageKey) != 0)
+                        continue;
+                }
+
+                positionRead = true;
+                List<Versioned<byte[]>> values = Lists.newArrayList();
+                for(; status == OperationStatus.SUCCESS; status = cursor.getNextDup(keyEntry,
+                                                                                      valueEntry,
+                                                                                      readLockMode))
+                    values.add(versionedSerializer.toObject(valueEntry.getData()));
                 if(!values.isEmpty())
-                    result.put(key, values);
+                    result.put(key.getSecond(), values);
             }
         } catch(DatabaseException e) {
             logger.error(e);
@@ -257,16 +470,13 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         } finally {
             attemptClose(cursor);
         }
-        return result;
     }
 
     private static <T> List<T> get(Cursor cursor,
-                                   ByteArray key,
+                                   byte[] storageKey,
                                    LockMode lockMode,
                                    Serializer<T> serializer) throws DatabaseException {
-        StoreUtils.assertValidKey(key);
-
-        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
+        DatabaseEntry keyEntry = new DatabaseEntry(storageKey);
         DatabaseEntry valueEntry = new DatabaseEntry();
         List<T> results = Lists.newArrayList();
 
@@ -282,18 +492,68 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
             throws PersistenceFailureException {
         StoreUtils.assertValidKey(key);
 
-        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
+        bulkLoadLock.readLock().lock();
+        try {
+            commitPut(key, value);
+            if(reconcilingLoad != null)
+                reconcilingLoad.logWrite(new LoggedWrite(key, value, null));
+        } finally {
+            bulkLoadLock.readLock().unlock();
+        }
+    }
+
+    private void commitPut(final ByteArray key, final Versioned<byte[]> value)
+            throws PersistenceFailureException {
+        if(groupCommitter != null) {
+            groupCommitter.submit(new BdbGroupCommitter.Write<Void>() {
+
+                public Void apply(Transaction transaction) throws DatabaseException {
+                    put(transaction, key, value);
+                    return null;
+                }
+            });
+            return;
+        }
+
         boolean succeeded = false;
         Transaction transaction = null;
-        Cursor cursor = null;
         try {
             transaction = this.environment.beginTransaction(null, null);
+            put(transaction, key, value);
+            succeeded = true;
+        } catch(DatabaseException e) {
+            logger.error(e);
+            throw new PersistenceFailureException(e);
+        } finally {
+            if(succeeded)
+                attemptCommit(transaction);
+            else
+                attemptAbort(transaction);
+        }
+    }
 
+    /**
+     * Write the value within the given transaction. Nothing is modified if the
+     * value turns out to be obsolete, which lets a group commit report an
+     * {@link ObsoleteVersionException} for this write alone.
+     */
+    private void put(Transaction transaction, ByteArray key, Versioned<byte[]> value)
+            throws DatabaseException {
+        put(getBdbDatabase(), transaction, key, value);
+    }
+
+    private void put(Database database,
+                     Transaction transaction,
+                     ByteArray key,
+                     Versioned<byte[]> value) throws DatabaseException {
+        DatabaseEntry keyEntry = new DatabaseEntry(toStorageKey(key));
+        Cursor cursor = database.openCursor(transaction, null);
+        try {
             // Check existing values
-            // if there is a version obsoleted by this value delete it
             // if there is a version later than this one, throw an exception
+            // before touching anything
             DatabaseEntry valueEntry = new DatabaseEntry();
-            cursor = getBdbDatabase().openCursor(transaction, null);
+            boolean hasObsolete = false;
             for(OperationStatus status = cursor.getSearchKey(keyEntry, valueEntry, LockMode.RMW); status == OperationStatus.SUCCESS; status = cursor.getNextDup(keyEntry,
                                                                                                                                                                 valueEntry,
                                                                                                                                                                 LockMode.RMW)) {
@@ -307,8 +567,19 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
                                                        + " is obsolete, it is no greater than the current version of "
                                                        + clock + ".");
                 else if(occurred == Occurred.AFTER)
-                    // best effort delete of obsolete previous value!
-                    cursor.delete();
+                    hasObsolete = true;
+            }
+
+            // if there are versions obsoleted by this value delete them
+            if(hasObsolete) {
+                for(OperationStatus status = cursor.getSearchKey(keyEntry, valueEntry, LockMode.RMW); status == OperationStatus.SUCCESS; status = cursor.getNextDup(keyEntry,
+                                                                                                                                                                    valueEntry,
+                                                                                                                                                                    LockMode.RMW)) {
+                    VectorClock clock = new VectorClock(valueEntry.getData());
+                    if(value.getVersion().compare(clock) == Occurred.AFTER)
+                        // best effort delete of obsolete previous value!
+                        cursor.delete();
+                }
             }
 
             // Okay so we cleaned up all the prior stuff, so now we are good to
@@ -317,30 +588,151 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
             OperationStatus status = cursor.put(keyEntry, valueEntry);
             if(status != OperationStatus.SUCCESS)
                 throw new PersistenceFailureException("Put operation failed with status: " + status);
-            succeeded = true;
+        } finally {
+            attemptClose(cursor);
+        }
+    }
 
+    /**
+     * Write a stream of entries, ideally sorted by key, committing a
+     * transaction every batchSize entries rather than one per entry. Values
+     * which are obsolete relative to what is already stored are skipped, as
+     * they would be by {@link #put(ByteArray, Versioned, byte[])}.
+     * 
+     * @param entries The entries to write
+     * @param batchSize The number of entries written per transaction
+     * @return The number of entries which were not obsolete
+     */
+    public long putAll(Iterator<Pair<ByteArray, Versioned<byte[]>>> entries, int batchSize)
+            throws PersistenceFailureException {
+        long numWritten = 0;
+        while(entries.hasNext()) {
+            bulkLoadLock.readLock().lock();
+            try {
+                boolean succeeded = false;
+                Transaction transaction = null;
+                List<LoggedWrite> written = Lists.newArrayList();
+                try {
+                    transaction = this.environment.beginTransaction(null, null);
+                    for(int i = 0; i < batchSize && entries.hasNext(); i++) {
+                        Pair<ByteArray, Versioned<byte[]>> entry = entries.next();
+                        StoreUtils.assertValidKey(entry.getFirst());
+                        try {
+                            put(transaction, entry.getFirst(), entry.getSecond());
+                            written.add(new LoggedWrite(entry.getFirst(), entry.getSecond(), null));
+                            numWritten++;
+                        } catch(ObsoleteVersionException e) {
+                            // nothing was modified, keep the newer value
+                        }
+                    }
+                    succeeded = true;
+                } catch(DatabaseException e) {
+                    logger.error(e);
+                    throw new PersistenceFailureException(e);
+                } finally {
+                    if(succeeded)
+                        attemptCommit(transaction);
+                    else
+                        attemptAbort(transaction);
+                }
+                if(reconcilingLoad != null) {
+                    for(LoggedWrite write: written)
+                        reconcilingLoad.logWrite(write);
+                }
+            } finally {
+                bulkLoadLock.readLock().unlock();
+            }
+        }
+        return numWritten;
+    }
+
+    /**
+     * Start loading entries into a separate, non-transactional deferred-write
+     * database. When the load is published the entries already in this store
+     * are reconciled into it by version and it replaces this store's database
+     * in a single transaction.
+     * <p>
+     * This is meant for filling stores which take little other traffic, such
+     * as those of a new node. Requests are served while the stored entries are
+     * reconciled, writes made meanwhile are kept in memory and replayed into
+     * the loaded database before it is swapped in. Writes wait and reads fail
+     * only for the swap itself. Only one load can be in progress at a time.
+     * 
+     * @return The load to add entries to
+     */
+    public BulkLoad beginBulkLoad() throws PersistenceFailureException {
+        if(!isBulkLoading.compareAndSet(false, true))
+            throw new VoldemortException("Store " + getName()
+                                         + " is already bulk loading, cannot start another load.");
+
+        boolean succeeded = false;
+        try {
+            BulkLoad load = new BulkLoad();
+            succeeded = true;
+            return load;
         } catch(DatabaseException e) {
             logger.error(e);
-            throw new PersistenceFailureException(e);
+            throw new PersistenceFailureException("Failed to start bulk load of store "
+                                                  + getName(), e);
         } finally {
-            attemptClose(cursor);
-            if(succeeded)
-                attemptCommit(transaction);
-            else
-                attemptAbort(transaction);
+            if(!succeeded)
+                isBulkLoading.set(false);
         }
     }
 
     public boolean delete(ByteArray key, Version version) throws PersistenceFailureException {
         StoreUtils.assertValidKey(key);
-        boolean deletedSomething = false;
-        Cursor cursor = null;
+
+        bulkLoadLock.readLock().lock();
+        try {
+            boolean deleted = commitDelete(key, version);
+            // logged even if nothing was deleted, the loaded database may
+            // still hold versions which this deletes
+            if(reconcilingLoad != null)
+                reconcilingLoad.logWrite(new LoggedWrite(key, null, version));
+            return deleted;
+        } finally {
+            bulkLoadLock.readLock().unlock();
+        }
+    }
+
+    private boolean commitDelete(final ByteArray key, final Version version)
+            throws PersistenceFailureException {
+        if(groupCommitter != null) {
+            return groupCommitter.submit(new BdbGroupCommitter.Write<Boolean>() {
+
+                public Boolean apply(Transaction transaction) throws DatabaseException {
+                    return delete(transaction, key, version);
+                }
+            });
+        }
+
         Transaction transaction = null;
         try {
             transaction = this.environment.beginTransaction(null, null);
-            DatabaseEntry keyEntry = new DatabaseEntry(key.get());
-            DatabaseEntry valueEntry = new DatabaseEntry();
-            cursor = getBdbDatabase().openCursor(transaction, null);
+            return delete(transaction, key, version);
+        } catch(DatabaseException e) {
+            logger.error(e);
+            throw new PersistenceFailureException(e);
+        } finally {
+            attemptCommit(transaction);
+        }
+    }
+
+    private boolean delete(Transaction transaction, ByteArray key, Version version)
+            throws DatabaseException {
+        return delete(getBdbDatabase(), transaction, key, version);
+    }
+
+    private boolean delete(Database database,
+                           Transaction transaction,
+                           ByteArray key,
+                           Version version) throws DatabaseException {
+        boolean deletedSomething = false;
+        DatabaseEntry keyEntry = new DatabaseEntry(toStorageKey(key));
+        DatabaseEntry valueEntry = new DatabaseEntry();
+        Cursor cursor = database.openCursor(transaction, null);
+        try {
             OperationStatus status = cursor.getSearchKey(keyEntry,
                                                          valueEntry,
                                                          LockMode.READ_UNCOMMITTED);
@@ -353,15 +745,8 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
                 status = cursor.getNextDup(keyEntry, valueEntry, LockMode.READ_UNCOMMITTED);
             }
             return deletedSomething;
-        } catch(DatabaseException e) {
-            logger.error(e);
-            throw new PersistenceFailureException(e);
         } finally {
-            try {
-                attemptClose(cursor);
-            } finally {
-                attemptCommit(transaction);
-            }
+            attemptClose(cursor);
         }
     }
 
@@ -444,64 +829,136 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         return dbStats;
     }
 
+    @JmxGetter(name = "isBulkLoading", description = "Whether a bulk load into this store is in progress.")
+    public boolean isBulkLoading() {
+        return isBulkLoading.get();
+    }
+
+    @JmxGetter(name = "groupCommitAverageBatchSize", description = "The average number of writes committed together by the group committer of this store's environment.")
+    public double getGroupCommitAverageBatchSize() {
+        return groupCommitter == null ? 0.0 : groupCommitter.getAverageBatchSize();
+    }
+
     public BdbEnvironmentStats getBdbEnvironmentStats() {
         return bdbEnvironmentStats;
     }
 
-    private static abstract class BdbIterator<T> implements ClosableIterator<T> {
+    private abstract class BdbIterator<T> implements ClosableIterator<T> {
 
         private final boolean noValues;
+        private final byte[] prefix;
         final Cursor cursor;
 
         private T current;
+        private boolean isPositioned;
         private volatile boolean isOpen;
 
-        public BdbIterator(Cursor cursor, boolean noValues) {
+        public BdbIterator(Cursor cursor, boolean noValues, byte[] prefix) {
             this.cursor = cursor;
             isOpen = true;
             this.noValues = noValues;
+            this.prefix = prefix;
+            this.isPositioned = false;
+        }
+
+        /*
+         * Moves the cursor to the first entry. Done on first use rather than in
+         * the constructor, so that get can rely on the state of subclasses.
+         */
+        private void position() {
+            isPositioned = true;
             DatabaseEntry keyEntry = new DatabaseEntry();
-            DatabaseEntry valueEntry = new DatabaseEntry();
-            if(noValues)
-                valueEntry.setPartial(true);
+            DatabaseEntry valueEntry = newValueEntry();
             try {
-                cursor.getFirst(keyEntry, valueEntry, LockMode.READ_UNCOMMITTED);
+                if(prefix == null) {
+                    cursor.getFirst(keyEntry, valueEntry, LockMode.READ_UNCOMMITTED);
+                } else {
+                    keyEntry.setData(prefix);
+                    OperationStatus status = cursor.getSearchKeyRange(keyEntry,
+                                                                      valueEntry,
+                                                                      LockMode.READ_UNCOMMITTED);
+                    if(status != OperationStatus.SUCCESS)
+                        keyEntry.setData(null);
+                }
+                fill(keyEntry, valueEntry);
             } catch(DatabaseException e) {
                 logger.error(e);
                 throw new PersistenceFailureException(e);
             }
-            if(keyEntry.getData() != null)
+        }
+
+        private DatabaseEntry newValueEntry() {
+            DatabaseEntry valueEntry = new DatabaseEntry();
+            if(noValues)
+                valueEntry.setPartial(true);
+            return valueEntry;
+        }
+
+        /*
+         * Sets current to the first entry from the cursor position on which get
+         * does not skip, or to null at the end of the prefix
+         */
+        private void fill(DatabaseEntry keyEntry, DatabaseEntry valueEntry)
+                throws DatabaseException {
+            current = null;
+            while(hasPrefix(keyEntry)) {
                 current = get(keyEntry, valueEntry);
+                if(current != null)
+                    return;
+                keyEntry = new DatabaseEntry();
+                valueEntry = newValueEntry();
+                moveCursor(keyEntry, valueEntry);
+            }
         }
 
-        protected abstract T get(DatabaseEntry key, DatabaseEntry value);
+        private boolean hasPrefix(DatabaseEntry keyEntry) {
+            byte[] key = keyEntry.getData();
+            if(key == null)
+                return false;
+            if(prefix == null)
+                return true;
+            if(key.length < prefix.length)
+                return false;
+            for(int i = 0; i < prefix.length; i++) {
+                if(key[i] != prefix[i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Makes an element of the entry the cursor is at
+         * 
+         * @return The element, or null to skip the entry
+         */
+        protected abstract T get(DatabaseEntry key, DatabaseEntry value)
+                throws DatabaseException;
 
         protected abstract void moveCursor(DatabaseEntry key, DatabaseEntry value)
                 throws DatabaseException;
 
         public final boolean hasNext() {
+            if(!isPositioned && isOpen)
+                position();
             return current != null;
         }
 
         public final T next() {
             if(!isOpen)
                 throw new PersistenceFailureException("Call to next() on a closed iterator.");
+            if(!isPositioned)
+                position();
 
+            T previous = current;
             DatabaseEntry keyEntry = new DatabaseEntry();
-            DatabaseEntry valueEntry = new DatabaseEntry();
-            if(noValues)
-                valueEntry.setPartial(true);
+            DatabaseEntry valueEntry = newValueEntry();
             try {
                 moveCursor(keyEntry, valueEntry);
+                fill(keyEntry, valueEntry);
             } catch(DatabaseException e) {
                 logger.error(e);
                 throw new PersistenceFailureException(e);
             }
-            T previous = current;
-            if(keyEntry.getData() == null)
-                current = null;
-            else
-                current = get(keyEntry, valueEntry);
 
             return previous;
         }
@@ -529,15 +986,15 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         }
     }
 
-    private static class BdbKeysIterator extends BdbIterator<ByteArray> {
+    private class BdbKeysIterator extends BdbIterator<ByteArray> {
 
-        public BdbKeysIterator(Cursor cursor) {
-            super(cursor, true);
+        public BdbKeysIterator(Cursor cursor, byte[] prefix) {
+            super(cursor, true, prefix);
         }
 
         @Override
         protected ByteArray get(DatabaseEntry key, DatabaseEntry value) {
-            return new ByteArray(key.getData());
+            return fromStorageKey(key.getData());
         }
 
         @Override
@@ -547,10 +1004,10 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
 
     }
 
-    private static class BdbEntriesIterator extends BdbIterator<Pair<ByteArray, Versioned<byte[]>>> {
+    private class BdbEntriesIterator extends BdbIterator<Pair<ByteArray, Versioned<byte[]>>> {
 
-        public BdbEntriesIterator(Cursor cursor) {
-            super(cursor, false);
+        public BdbEntriesIterator(Cursor cursor, byte[] prefix) {
+            super(cursor, false, prefix);
         }
 
         @Override
@@ -559,7 +1016,7 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
             byte[] bytes = ByteUtils.copy(value.getData(),
                                           clock.sizeInBytes(),
                                           value.getData().length);
-            return Pair.create(new ByteArray(key.getData()), new Versioned<byte[]>(bytes, clock));
+            return Pair.create(fromStorageKey(key.getData()), new Versioned<byte[]>(bytes, clock));
         }
 
         @Override
@@ -568,7 +1025,302 @@ public class BdbStorageEngine implements StorageEngine<ByteArray, byte[], byte[]
         }
     }
 
+    private class BdbFilteredEntriesIterator extends
+            BdbIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+        private final Predicate<ByteArray> keyFilter;
+        private byte[] lastKey;
+        private boolean lastKeyAccepted;
+
+        public BdbFilteredEntriesIterator(Cursor cursor, Predicate<ByteArray> keyFilter) {
+            super(cursor, true, null);
+            this.keyFilter = keyFilter;
+        }
+
+        @Override
+        protected Pair<ByteArray, Versioned<byte[]>> get(DatabaseEntry key, DatabaseEntry value)
+                throws DatabaseException {
+            if(!Arrays.equals(key.getData(), lastKey)) {
+                lastKey = key.getData();
+                lastKeyAccepted = keyFilter.apply(fromStorageKey(lastKey));
+            }
+            if(!lastKeyAccepted)
+                return null;
+
+            // the value was read partially, now read it in full
+            DatabaseEntry fullValue = new DatabaseEntry();
+            OperationStatus status = cursor.getCurrent(new DatabaseEntry(),
+                                                       fullValue,
+                                                       LockMode.READ_UNCOMMITTED);
+            if(status != OperationStatus.SUCCESS)
+                return null;
+            VectorClock clock = new VectorClock(fullValue.getData());
+            byte[] bytes = ByteUtils.copy(fullValue.getData(),
+                                          clock.sizeInBytes(),
+                                          fullValue.getData().length);
+            return Pair.create(fromStorageKey(lastKey), new Versioned<byte[]>(bytes, clock));
+        }
+
+        @Override
+        protected void moveCursor(DatabaseEntry key, DatabaseEntry value) throws DatabaseException {
+            // the versions of a rejected key are skipped without reading them
+            if(lastKeyAccepted)
+                cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
+            else
+                cursor.getNextNoDup(key, value, LockMode.READ_UNCOMMITTED);
+        }
+    }
+
+    /**
+     * A load of entries into a deferred-write database which is swapped in for
+     * the store's database once complete, see {@link #beginBulkLoad()}.
+     */
+    public class BulkLoad {
+
+        private final String databaseName;
+        private final List<LoggedWrite> writeLog;
+        private Database database;
+        private byte[] lastKey;
+        private long numEntries;
+        private boolean isDone;
+
+        private BulkLoad() throws DatabaseException {
+            this.databaseName = getName() + BULK_LOAD_SUFFIX;
+
+            // a load which never got published is of no use, start afresh
+            if(environment.getDatabaseNames().contains(databaseName))
+                environment.removeDatabase(null, databaseName);
+
+            DatabaseConfig storeConfig = getBdbDatabase().getConfig();
+            DatabaseConfig config = new DatabaseConfig();
+            config.setAllowCreate(true);
+            config.setSortedDuplicates(storeConfig.getSortedDuplicates());
+            config.setNodeMaxEntries(storeConfig.getNodeMaxEntries());
+            config.setTransactional(false);
+            config.setDeferredWrite(true);
+            this.database = environment.openDatabase(null, databaseName, config);
+            this.writeLog = Collections.synchronizedList(new ArrayList<LoggedWrite>());
+            this.numEntries = 0;
+            this.isDone = false;
+        }
+
+        /**
+         * Add an entry to the load. Entries are expected in key order: a key
+         * greater than every key added so far is written without a version
+         * check, any other key is reconciled with the versions already loaded.
+         */
+        public void add(ByteArray key, Versioned<byte[]> value) throws PersistenceFailureException {
+            StoreUtils.assertValidKey(key);
+            byte[] storageKey = toStorageKey(key);
+            try {
+                if(lastKey != null && ByteUtils.compare(storageKey, lastKey) <= 0) {
+                    try {
+                        put(database, null, key, value);
+                    } catch(ObsoleteVersionException e) {
+                        // keep the newer version already loaded
+                        return;
+                    }
+                } else {
+                    OperationStatus status = database.put(null,
+                                                          new DatabaseEntry(storageKey),
+                                                          new DatabaseEntry(versionedSerializer.toBytes(value)));
+                    if(status != OperationStatus.SUCCESS)
+                        throw new PersistenceFailureException("Put operation failed with status: "
+                                                              + status);
+                    lastKey = storageKey;
+                }
+                numEntries++;
+            } catch(DatabaseException e) {
+                logger.error(e);
+                throw new PersistenceFailureException(e);
+            }
+        }
+
+        /**
+         * @return The number of entries added which were not obsolete
+         */
+        public long getNumEntries() {
+            return numEntries;
+        }
+
+        /**
+         * Reconcile the entries already in the store with the loaded ones and
+         * make the loaded database the store's database. The load is aborted
+         * if this fails.
+         */
+        public void publish() throws PersistenceFailureException {
+            bulkLoadLock.writeLock().lock();
+            try {
+                reconcilingLoad = this;
+            } finally {
+                bulkLoadLock.writeLock().unlock();
+            }
+
+            Transaction transaction = null;
+            boolean locked = false;
+            boolean truncating = false;
+            boolean closed = false;
+            boolean succeeded = false;
+            try {
+                // the store keeps serving requests while its entries are
+                // copied over, the writes it takes meanwhile are logged
+                reconcile();
+
+                // hold off writes until the loaded database is swapped in
+                bulkLoadLock.writeLock().lock();
+                locked = true;
+                reconcilingLoad = null;
+                replayWriteLog();
+                database.sync();
+                database.close();
+                database = null;
+
+                if(!isTruncating.compareAndSet(false, true))
+                    throw new VoldemortException("Store " + getName()
+                                                 + " is truncating, cannot publish bulk load.");
+                truncating = true;
+
+                // close current bdbDatabase first
+                bdbDatabase.close();
+                closed = true;
+
+                transaction = environment.beginTransaction(null, null);
+                environment.removeDatabase(transaction, getName());
+                environment.renameDatabase(transaction, databaseName, getName());
+                succeeded = true;
+            } catch(DatabaseException e) {
+                logger.error(e);
+                throw new PersistenceFailureException("Failed to publish bulk load of store "
+                                                      + getName(), e);
+            } finally {
+                try {
+                    commitOrAbort(succeeded, transaction);
+                    if(succeeded)
+                        finish();
+                    else
+                        abort();
+
+                    // reopen the bdb database for future queries.
+                    if(truncating) {
+                        if(!closed || reopenBdbDatabase()) {
+                            isTruncating.compareAndSet(true, false);
+                        } else {
+                            throw new VoldemortException("Failed to reopen Bdb Database after bulk load, All request will fail on store "
+                                                         + getName());
+                        }
+                    }
+                } finally {
+                    if(locked)
+                        bulkLoadLock.writeLock().unlock();
+                    else
+                        reconcilingLoad = null;
+                }
+            }
+        }
+
+        /**
+         * Drop the loaded entries, leaving the store as it was.
+         */
+        public void abort() {
+            if(isDone)
+                return;
+
+            try {
+                if(database != null) {
+                    database.close();
+                    database = null;
+                }
+                environment.removeDatabase(null, databaseName);
+            } catch(DatabaseException e) {
+                logger.error("Failed to drop bulk load of store " + getName(), e);
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            isDone = true;
+            writeLog.clear();
+            isBulkLoading.set(false);
+        }
+
+        private void logWrite(LoggedWrite write) {
+            writeLog.add(write);
+        }
+
+        /**
+         * Apply the writes the store took while it was reconciled to the
+         * loaded database, in the order they were logged.
+         */
+        private void replayWriteLog() throws DatabaseException {
+            synchronized(writeLog) {
+                for(LoggedWrite write: writeLog) {
+                    if(write.value != null) {
+                        try {
+                            put(database, null, write.key, write.value);
+                        } catch(ObsoleteVersionException e) {
+                            // the reconciled version is newer
+                        }
+                    } else {
+                        delete(database, null, write.key, write.version);
+                    }
+                }
+                writeLog.clear();
+            }
+        }
+
+        /**
+         * Put every version already stored into the loaded database, dropping
+         * whichever of the stored and loaded versions of a key are obsolete.
+         */
+        private void reconcile() throws DatabaseException {
+            // writes are going on, so skip whatever they have not committed
+            Cursor cursor = bdbDatabase.openCursor(null, CursorConfig.READ_COMMITTED);
+            try {
+                DatabaseEntry keyEntry = new DatabaseEntry();
+                DatabaseEntry valueEntry = new DatabaseEntry();
+                while(cursor.getNext(keyEntry, valueEntry, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                    VectorClock clock = new VectorClock(valueEntry.getData());
+                    byte[] bytes = ByteUtils.copy(valueEntry.getData(),
+                                                  clock.sizeInBytes(),
+                                                  valueEntry.getData().length);
+                    try {
+                        put(database,
+                            null,
+                            fromStorageKey(keyEntry.getData()),
+                            new Versioned<byte[]>(bytes, clock));
+                    } catch(ObsoleteVersionException e) {
+                        // the loaded version is newer
+                    }
+                }
+            } finally {
+                attemptClose(cursor);
+            }
+        }
+    }
+
+    /**
+     * A put, or a delete if the value is null, made while a bulk load was
+     * reconciled.
+     */
+    private static class LoggedWrite {
+
+        private final ByteArray key;
+        private final Versioned<byte[]> value;
+        private final Version version;
+
+        private LoggedWrite(ByteArray key, Versioned<byte[]> value, Version version) {
+            this.key = key;
+            this.value = value;
+            this.version = version;
+        }
+    }
+
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import voldemort.routing.RoutingStrategy;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.Versioned;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.Environment;
+
+/**
+ * A BDB store that prefixes every key with the id of its master partition, so
+ * that the records of a partition are stored together and can be read with a
+ * range scan instead of a scan over the whole database.
+ * 
+ * The layout is not compatible with {@link BdbStorageEngine}, so a database
+ * must always be opened with the same engine. The master partition of a key
+ * does not depend on which nodes hold the partitions, so the layout stays
+ * valid across rebalancing as long as the number of partitions is unchanged.
+ * 
+ */
+public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
+
+    private static final int PREFIX_SIZE = ByteUtils.SIZE_OF_SHORT;
+    private static final int MAX_PARTITION_ID = 0xffff;
+
+    private final RoutingStrategy routingStrategy;
+
+    public PartitionPrefixedBdbStorageEngine(String name,
+                                             Environment environment,
+                                             Database database,
+                                             BdbRuntimeConfig config,
+                                             RoutingStrategy routingStrategy) {
+        this(name, environment, database, config, null, routingStrategy);
+    }
+
+    public PartitionPrefixedBdbStorageEngine(String name,
+                                             Environment environment,
+                                             Database database,
+                                             BdbRuntimeConfig config,
+                                             BdbGroupCommitter groupCommitter,
+                                             RoutingStrategy routingStrategy) {
+        super(name, environment, database, config, groupCommitter);
+        this.routingStrategy = Utils.notNull(routingStrategy);
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return entriesWithPrefix(toPrefix(partition));
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys(int partition) {
+        return keysWithPrefix(toPrefix(partition));
+    }
+
+    @Override
+    public boolean isPartitionScanSupported() {
+        return true;
+    }
+
+    @Override
+    protected byte[] toStorageKey(ByteArray key) {
+        int partition = routingStrategy.getPartitionList(key.get()).get(0);
+        byte[] storageKey = new byte[PREFIX_SIZE + key.length()];
+        ByteUtils.writeShort(storageKey, (short) toPartitionId(partition), 0);
+        System.arraycopy(key.get(), 0, storageKey, PREFIX_SIZE, key.length());
+        return storageKey;
+    }
+
+    @Override
+    protected ByteArray fromStorageKey(byte[] storageKey) {
+        return new ByteArray(ByteUtils.copy(storageKey, PREFIX_SIZE, storageKey.length));
+    }
+
+    private byte[] toPrefix(int partition) {
+        byte[] prefix = new byte[PREFIX_SIZE];
+        ByteUtils.writeShort(prefix, (short) toPartitionId(partition), 0);
+        return prefix;
+    }
+
+    private int toPartitionId(int partition) {
+        if(partition < 0 || partition > MAX_PARTITION_ID)
+            throw new IllegalArgumentException("Partition id " + partition
+                                               + " cannot be used as a key prefix.");
+        return partition;
+    }
+}
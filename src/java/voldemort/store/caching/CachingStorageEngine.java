@@ -0,0 +1,384 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.caching;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxOperation;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreCapabilityType;
+import voldemort.store.StoreUtils;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A storage engine that keeps the values most recently read from another
+ * engine, up to a fixed number of bytes, so that hot keys are served without
+ * going to the engine.
+ * 
+ * The cache is split into lock striped segments, each evicting least recently
+ * used keys once it holds more than its share of bytes. Keys are invalidated
+ * whenever they are written or deleted through this engine, and everything is
+ * dropped on truncate. This engine takes the place of the engine it wraps in
+ * the store repository, so writes from streaming, rebalancing and repair
+ * invalidate the cache just like client writes do.
+ * 
+ * A read that misses only fills the cache if no write reached its segment
+ * while it was reading, so a value read just before a concurrent write can
+ * never be cached after that write has invalidated the key. Reads with
+ * transforms bypass the cache.
+ */
+public class CachingStorageEngine implements StorageEngine<ByteArray, byte[], byte[]> {
+
+    public static final int DEFAULT_NUM_SEGMENTS = 16;
+
+    /* A rough count of the heap used by a cache entry beyond its bytes */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final StorageEngine<ByteArray, byte[], byte[]> innerEngine;
+    private final long capacityInBytes;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    public CachingStorageEngine(StorageEngine<ByteArray, byte[], byte[]> innerEngine,
+                                long capacityInBytes) {
+        this(innerEngine, capacityInBytes, DEFAULT_NUM_SEGMENTS);
+    }
+
+    public CachingStorageEngine(StorageEngine<ByteArray, byte[], byte[]> innerEngine,
+                                long capacityInBytes,
+                                int numSegments) {
+        if(numSegments < 1)
+            throw new IllegalArgumentException("The number of segments must be at least 1.");
+        if(capacityInBytes < numSegments)
+            throw new IllegalArgumentException("The capacity must be at least one byte per segment.");
+        this.innerEngine = Utils.notNull(innerEngine);
+        this.capacityInBytes = capacityInBytes;
+        this.segments = new Segment[numSegments];
+        for(int i = 0; i < numSegments; i++)
+            segments[i] = new Segment(capacityInBytes / numSegments);
+    }
+
+    public StorageEngine<ByteArray, byte[], byte[]> getInnerEngine() {
+        return innerEngine;
+    }
+
+    public String getName() {
+        return innerEngine.getName();
+    }
+
+    public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        if(transforms != null)
+            return innerEngine.get(key, transforms);
+
+        Segment segment = segmentFor(key);
+        long generation;
+        synchronized(segment) {
+            CacheEntry entry = segment.entries.get(key);
+            if(entry != null) {
+                hits.incrementAndGet();
+                return copy(entry.values);
+            }
+            generation = segment.generation;
+        }
+        misses.incrementAndGet();
+        List<Versioned<byte[]>> values = innerEngine.get(key, null);
+        segment.fill(key, values, generation);
+        return values;
+    }
+
+    public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
+                                                          Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(keys);
+        if(transforms != null)
+            return innerEngine.getAll(keys, transforms);
+
+        Map<ByteArray, List<Versioned<byte[]>>> result = StoreUtils.newEmptyHashMap(keys);
+        List<ByteArray> missing = Lists.newArrayList();
+        long[] generations = new long[segments.length];
+        for(int i = 0; i < segments.length; i++) {
+            synchronized(segments[i]) {
+                generations[i] = segments[i].generation;
+            }
+        }
+        for(ByteArray key: keys) {
+            Segment segment = segmentFor(key);
+            synchronized(segment) {
+                CacheEntry entry = segment.entries.get(key);
+                if(entry == null) {
+                    missing.add(key);
+                } else {
+                    hits.incrementAndGet();
+                    if(!entry.values.isEmpty())
+                        result.put(key, copy(entry.values));
+                }
+            }
+        }
+        if(missing.isEmpty())
+            return result;
+
+        misses.addAndGet(missing.size());
+        Map<ByteArray, List<Versioned<byte[]>>> found = innerEngine.getAll(missing, null);
+        for(ByteArray key: missing) {
+            List<Versioned<byte[]>> values = found.get(key);
+            if(values == null)
+                values = new ArrayList<Versioned<byte[]>>(0);
+            else
+                result.put(key, values);
+            int index = segmentIndex(key);
+            segments[index].fill(key, values, generations[index]);
+        }
+        return result;
+    }
+
+    public List<Version> getVersions(ByteArray key) {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            CacheEntry entry = segment.entries.get(key);
+            if(entry != null) {
+                hits.incrementAndGet();
+                return StoreUtils.getVersions(copy(entry.values));
+            }
+        }
+        misses.incrementAndGet();
+        return innerEngine.getVersions(key);
+    }
+
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        try {
+            innerEngine.put(key, value, transforms);
+        } finally {
+            segmentFor(key).invalidate(key);
+        }
+    }
+
+    public boolean delete(ByteArray key, Version version) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        try {
+            return innerEngine.delete(key, version);
+        } finally {
+            segmentFor(key).invalidate(key);
+        }
+    }
+
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return innerEngine.entries();
+    }
+
+    public ClosableIterator<ByteArray> keys() {
+        return innerEngine.keys();
+    }
+
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return innerEngine.entries(partition);
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        return innerEngine.keys(partition);
+    }
+
+    public void truncate() {
+        try {
+            innerEngine.truncate();
+        } finally {
+            clear();
+        }
+    }
+
+    public void close() throws VoldemortException {
+        clear();
+        innerEngine.close();
+    }
+
+    public Object getCapability(StoreCapabilityType capability) {
+        return innerEngine.getCapability(capability);
+    }
+
+    public boolean isPartitionAware() {
+        return innerEngine.isPartitionAware();
+    }
+
+    public boolean isPartitionScanSupported() {
+        return innerEngine.isPartitionScanSupported();
+    }
+
+    @JmxOperation(description = "Drop everything from the cache.")
+    public void clear() {
+        for(Segment segment: segments)
+            segment.clear();
+    }
+
+    @JmxGetter(name = "hits", description = "The number of reads served from the cache.")
+    public long getHits() {
+        return hits.get();
+    }
+
+    @JmxGetter(name = "misses", description = "The number of reads that went to the storage engine.")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @JmxGetter(name = "hitRatio", description = "The fraction of reads served from the cache.")
+    public double getHitRatio() {
+        long numHits = hits.get();
+        long total = numHits + misses.get();
+        return total == 0 ? 0.0 : numHits / (double) total;
+    }
+
+    @JmxGetter(name = "numEntries", description = "The number of keys in the cache.")
+    public long getNumEntries() {
+        long numEntries = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                numEntries += segment.entries.size();
+            }
+        }
+        return numEntries;
+    }
+
+    @JmxGetter(name = "sizeInBytes", description = "The approximate number of bytes held by the cache.")
+    public long getSizeInBytes() {
+        long size = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                size += segment.sizeInBytes;
+            }
+        }
+        return size;
+    }
+
+    @JmxGetter(name = "capacityInBytes", description = "The most bytes the cache will hold.")
+    public long getCapacityInBytes() {
+        return capacityInBytes;
+    }
+
+    private int segmentIndex(ByteArray key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return (hash & Integer.MAX_VALUE) % segments.length;
+    }
+
+    private Segment segmentFor(ByteArray key) {
+        return segments[segmentIndex(key)];
+    }
+
+    /*
+     * Callers are free to change the clocks they are given, so they never see
+     * the cached instances
+     */
+    private static List<Versioned<byte[]>> copy(List<Versioned<byte[]>> values) {
+        List<Versioned<byte[]>> copy = new ArrayList<Versioned<byte[]>>(values.size());
+        for(Versioned<byte[]> versioned: values)
+            copy.add(versioned.cloneVersioned());
+        return copy;
+    }
+
+    private static long sizeOf(ByteArray key, List<Versioned<byte[]>> values) {
+        long size = ENTRY_OVERHEAD + key.length();
+        for(Versioned<byte[]> versioned: values) {
+            size += ENTRY_OVERHEAD;
+            if(versioned.getValue() != null)
+                size += versioned.getValue().length;
+            if(versioned.getVersion() instanceof VectorClock)
+                size += ((VectorClock) versioned.getVersion()).sizeInBytes();
+        }
+        return size;
+    }
+
+    private static final class CacheEntry {
+
+        private final List<Versioned<byte[]>> values;
+        private final long sizeInBytes;
+
+        public CacheEntry(List<Versioned<byte[]>> values, long sizeInBytes) {
+            this.values = values;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    /**
+     * A share of the cache guarded by its own monitor. The generation counts
+     * the invalidations of keys in the segment.
+     */
+    private static final class Segment {
+
+        private final long maxSizeInBytes;
+        private final LinkedHashMap<ByteArray, CacheEntry> entries = new LinkedHashMap<ByteArray, CacheEntry>(16,
+                                                                                                              0.75f,
+                                                                                                              true);
+        private long sizeInBytes = 0;
+        private long generation = 0;
+
+        public Segment(long maxSizeInBytes) {
+            this.maxSizeInBytes = maxSizeInBytes;
+        }
+
+        public synchronized void fill(ByteArray key,
+                                      List<Versioned<byte[]>> values,
+                                      long readGeneration) {
+            if(generation != readGeneration)
+                return;
+            long size = sizeOf(key, values);
+            if(size > maxSizeInBytes)
+                return;
+            CacheEntry previous = entries.remove(key);
+            if(previous != null)
+                sizeInBytes -= previous.sizeInBytes;
+            while(sizeInBytes + size > maxSizeInBytes) {
+                Map.Entry<ByteArray, CacheEntry> eldest = entries.entrySet().iterator().next();
+                sizeInBytes -= eldest.getValue().sizeInBytes;
+                entries.remove(eldest.getKey());
+            }
+            entries.put(key, new CacheEntry(copy(values), size));
+            sizeInBytes += size;
+        }
+
+        public synchronized void invalidate(ByteArray key) {
+            generation++;
+            CacheEntry entry = entries.remove(key);
+            if(entry != null)
+                sizeInBytes -= entry.sizeInBytes;
+        }
+
+        public synchronized void clear() {
+            generation++;
+            entries.clear();
+            sizeInBytes = 0;
+        }
+    }
+}
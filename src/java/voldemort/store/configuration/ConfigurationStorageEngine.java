@@ -236,6 +236,14 @@ public class ConfigurationStorageEngine implements StorageEngine<String, String,
         throw new VoldemortException("keys iteration not supported.");
     }
 
+    public ClosableIterator<Pair<String, Versioned<String>>> entries(int partition) {
+        throw new VoldemortException("Partition iteration not supported in ConfigurationStorageEngine");
+    }
+
+    public ClosableIterator<String> keys(int partition) {
+        throw new VoldemortException("Partition iteration not supported in ConfigurationStorageEngine");
+    }
+
     public void truncate() {
         throw new VoldemortException("Truncate not supported in ConfigurationStorageEngine");
     }
@@ -243,4 +251,8 @@ public class ConfigurationStorageEngine implements StorageEngine<String, String,
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
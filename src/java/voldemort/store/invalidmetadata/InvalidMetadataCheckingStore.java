@@ -20,12 +20,10 @@ import java.util.List;
 import java.util.Map;
 
 import voldemort.VoldemortException;
-import voldemort.cluster.Node;
-import voldemort.routing.RoutingStrategy;
 import voldemort.store.DelegatingStore;
-import voldemort.store.InvalidMetadataException;
 import voldemort.store.Store;
 import voldemort.store.StoreUtils;
+import voldemort.store.metadata.MetadataSnapshot;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.utils.ByteArray;
 import voldemort.versioning.Version;
@@ -64,9 +62,7 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
     @Override
     public boolean delete(ByteArray key, Version version) throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        assertValidMetadata(key, metadata.getSnapshot());
 
         return getInnerStore().delete(key, version);
     }
@@ -76,10 +72,9 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
                                                           Map<ByteArray, byte[]> transforms)
             throws VoldemortException {
         StoreUtils.assertValidKeys(keys);
-        RoutingStrategy routingStrategy = metadata.getRoutingStrategy(getName());
-        Node node = metadata.getCluster().getNodeById(nodeId);
+        MetadataSnapshot snapshot = metadata.getSnapshot();
         for(ByteArray key: keys)
-            StoreUtils.assertValidMetadata(key, routingStrategy, node);
+            assertValidMetadata(key, snapshot);
 
         return getInnerStore().getAll(keys, transforms);
     }
@@ -88,9 +83,7 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
     public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
             throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        assertValidMetadata(key, metadata.getSnapshot());
 
         getInnerStore().put(key, value, transforms);
     }
@@ -98,10 +91,14 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
     @Override
     public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms) throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        assertValidMetadata(key, metadata.getSnapshot());
 
         return getInnerStore().get(key, transforms);
     }
+
+    private void assertValidMetadata(ByteArray key, MetadataSnapshot snapshot) {
+        StoreUtils.assertValidMetadata(key,
+                                       snapshot.getRoutingStrategy(getName()),
+                                       snapshot.getCluster().getNodeById(nodeId));
+    }
 }
@@ -16,39 +16,48 @@
 
 package voldemort.store.memory;
 
-import java.util.List;
-import java.util.concurrent.ConcurrentMap;
-
 import voldemort.server.VoldemortConfig;
 import voldemort.store.StorageConfiguration;
 import voldemort.store.StorageEngine;
 import voldemort.utils.ByteArray;
-import voldemort.versioning.Versioned;
-
-import com.google.common.collect.MapMaker;
 
 /**
- * Identical to the InMemoryStorageConfiguration except that it creates google
- * collections ReferenceMap with Soft references on both keys and values. This
- * behaves like a cache, discarding values when under memory pressure.
+ * Creates stores that cache a bounded number of bytes of values off the Java
+ * heap, evicting the least frequently read keys once full. See
+ * {@link OffHeapCacheStorageEngine}.
  * 
  * 
  */
 public class CacheStorageConfiguration implements StorageConfiguration {
 
     public static final String TYPE_NAME = "cache";
+    public static final long DEFAULT_CACHE_SIZE = 64 * 1024 * 1024;
 
-    public CacheStorageConfiguration() {}
+    private final long cacheSize;
+    private final int numSegments;
+
+    public CacheStorageConfiguration() {
+        this(DEFAULT_CACHE_SIZE, OffHeapCacheStorageEngine.DEFAULT_NUM_SEGMENTS);
+    }
 
-    @SuppressWarnings("unused")
-    public CacheStorageConfiguration(VoldemortConfig config) {}
+    public CacheStorageConfiguration(VoldemortConfig config) {
+        this(config == null ? DEFAULT_CACHE_SIZE : config.getCacheStorageSize(),
+             config == null ? OffHeapCacheStorageEngine.DEFAULT_NUM_SEGMENTS
+                           : config.getCacheStorageSegments());
+    }
+
+    public CacheStorageConfiguration(long cacheSize, int numSegments) {
+        this.cacheSize = cacheSize;
+        this.numSegments = numSegments;
+    }
 
     public void close() {}
 
     public StorageEngine<ByteArray, byte[], byte[]> getStore(String name) {
-        ConcurrentMap<ByteArray, List<Versioned<byte[]>>> backingMap = new MapMaker().softValues()
-                                                                                     .makeMap();
-        return new InMemoryStorageEngine<ByteArray, byte[], byte[]>(name, backingMap);
+        return new OffHeapCacheStorageEngine(name,
+                                             cacheSize,
+                                             numSegments,
+                                             OffHeapCacheStorageEngine.DEFAULT_BLOCK_SIZE);
     }
 
     public String getType() {
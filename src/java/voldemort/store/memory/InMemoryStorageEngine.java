@@ -172,6 +172,14 @@ public class InMemoryStorageEngine<K, V, T> implements StorageEngine<K, V, T> {
         return StoreUtils.keys(entries());
     }
 
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public ClosableIterator<K> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
     public void truncate() {
         map.clear();
     }
@@ -266,4 +274,8 @@ public class InMemoryStorageEngine<K, V, T> implements StorageEngine<K, V, T> {
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
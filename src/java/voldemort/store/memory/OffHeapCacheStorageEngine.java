@@ -0,0 +1,499 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.serialization.IdentitySerializer;
+import voldemort.serialization.VersionedSerializer;
+import voldemort.store.NoSuchCapabilityException;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreCapabilityType;
+import voldemort.store.StoreUtils;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Occurred;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A cache that holds at most a fixed number of bytes of values, stored off the
+ * Java heap.
+ * 
+ * The keys are split across lock striped segments, each of which owns an equal
+ * share of the capacity. A segment carves its memory into fixed size blocks
+ * taken from direct buffers, and the versions of a key are serialized into a
+ * chain of those blocks. Only the index of keys to block numbers lives on the
+ * heap, so the size of the cache has no bearing on garbage collection.
+ * 
+ * When a segment is full it evicts keys in insertion order, except that a key
+ * that has been read since it was last passed over is given another chance
+ * (up to three), so frequently read keys survive a scan of one-off keys.
+ * Values that do not fit in a segment at all are not cached.
+ */
+public class OffHeapCacheStorageEngine implements StorageEngine<ByteArray, byte[], byte[]> {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+    public static final int DEFAULT_NUM_SEGMENTS = 16;
+
+    private static final int MAX_FREQUENCY = 3;
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private final String name;
+    private final long capacityInBytes;
+    private final int blockSize;
+    private final Segment[] segments;
+    private final VersionedSerializer<byte[]> versionedSerializer;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    public OffHeapCacheStorageEngine(String name, long capacityInBytes) {
+        this(name, capacityInBytes, DEFAULT_NUM_SEGMENTS, DEFAULT_BLOCK_SIZE);
+    }
+
+    public OffHeapCacheStorageEngine(String name,
+                                     long capacityInBytes,
+                                     int numSegments,
+                                     int blockSize) {
+        if(numSegments < 1)
+            throw new IllegalArgumentException("The number of segments must be at least 1.");
+        if(blockSize < 1)
+            throw new IllegalArgumentException("The block size must be at least 1.");
+        long blocksPerSegment = capacityInBytes / numSegments / blockSize;
+        if(blocksPerSegment < 1 || blocksPerSegment > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A capacity of " + capacityInBytes
+                                               + " bytes cannot be split into " + numSegments
+                                               + " segments of " + blockSize + " byte blocks.");
+        this.name = Utils.notNull(name);
+        this.capacityInBytes = capacityInBytes;
+        this.blockSize = blockSize;
+        this.segments = new Segment[numSegments];
+        for(int i = 0; i < numSegments; i++)
+            segments[i] = new Segment((int) blocksPerSegment);
+        this.versionedSerializer = new VersionedSerializer<byte[]>(new IdentitySerializer());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        List<Versioned<byte[]>> values = read(key, true);
+        if(values == null)
+            return new ArrayList<Versioned<byte[]>>(0);
+        return values;
+    }
+
+    public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
+                                                          Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(keys);
+        return StoreUtils.getAll(this, keys, transforms);
+    }
+
+    public List<Version> getVersions(ByteArray key) {
+        return StoreUtils.getVersions(get(key, null));
+    }
+
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            List<Versioned<byte[]>> items = new ArrayList<Versioned<byte[]>>();
+            CacheEntry entry = segment.index.get(key);
+            if(entry != null) {
+                for(Versioned<byte[]> versioned: toVersions(segment.read(entry))) {
+                    Occurred occurred = value.getVersion().compare(versioned.getVersion());
+                    if(occurred == Occurred.BEFORE)
+                        throw new ObsoleteVersionException("Obsolete version for key '" + key
+                                                           + "': " + value.getVersion());
+                    else if(occurred != Occurred.AFTER)
+                        items.add(versioned);
+                }
+            }
+            items.add(value);
+            segment.write(key, toBytes(items));
+        }
+    }
+
+    public boolean delete(ByteArray key, Version version) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            CacheEntry entry = segment.index.get(key);
+            if(entry == null)
+                return false;
+            if(version == null) {
+                segment.remove(key);
+                return true;
+            }
+
+            List<Versioned<byte[]>> items = toVersions(segment.read(entry));
+            boolean deletedSomething = false;
+            Iterator<Versioned<byte[]>> iterator = items.iterator();
+            while(iterator.hasNext()) {
+                if(iterator.next().getVersion().compare(version) == Occurred.BEFORE) {
+                    iterator.remove();
+                    deletedSomething = true;
+                }
+            }
+            if(items.isEmpty())
+                segment.remove(key);
+            else if(deletedSomething)
+                segment.write(key, toBytes(items));
+            return deletedSomething;
+        }
+    }
+
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return new CacheIterator();
+    }
+
+    public ClosableIterator<ByteArray> keys() {
+        return StoreUtils.keys(entries());
+    }
+
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public void truncate() {
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public void close() throws VoldemortException {
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                segment.clear();
+                segment.slabs.clear();
+            }
+        }
+    }
+
+    public Object getCapability(StoreCapabilityType capability) {
+        throw new NoSuchCapabilityException(capability, getName());
+    }
+
+    public boolean isPartitionAware() {
+        return false;
+    }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
+
+    @JmxGetter(name = "hits", description = "The number of gets that found the key in the cache.")
+    public long getHits() {
+        return hits.get();
+    }
+
+    @JmxGetter(name = "misses", description = "The number of gets that did not find the key in the cache.")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @JmxGetter(name = "hitRatio", description = "The fraction of gets that found the key in the cache.")
+    public double getHitRatio() {
+        long numHits = hits.get();
+        long total = numHits + misses.get();
+        return total == 0 ? 0.0 : numHits / (double) total;
+    }
+
+    @JmxGetter(name = "evictions", description = "The number of keys evicted to make room for others.")
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @JmxGetter(name = "numEntries", description = "The number of keys in the cache.")
+    public long getNumEntries() {
+        long numEntries = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                numEntries += segment.index.size();
+            }
+        }
+        return numEntries;
+    }
+
+    @JmxGetter(name = "sizeInBytes", description = "The number of bytes of off-heap memory holding values.")
+    public long getSizeInBytes() {
+        long usedBlocks = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                usedBlocks += segment.usedBlocks;
+            }
+        }
+        return usedBlocks * blockSize;
+    }
+
+    @JmxGetter(name = "capacityInBytes", description = "The most bytes of values the cache will hold.")
+    public long getCapacityInBytes() {
+        return capacityInBytes;
+    }
+
+    private Segment segmentFor(ByteArray key) {
+        int hash = key.hashCode();
+        // spread the bits as the hash code of a byte array is weak in the low
+        // bits for short keys
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private List<Versioned<byte[]>> read(ByteArray key, boolean recordStats) {
+        Segment segment = segmentFor(key);
+        byte[] bytes = null;
+        synchronized(segment) {
+            CacheEntry entry = segment.index.get(key);
+            if(entry != null) {
+                if(recordStats && entry.frequency < MAX_FREQUENCY)
+                    entry.frequency++;
+                bytes = segment.read(entry);
+            }
+        }
+        if(recordStats)
+            (bytes == null ? misses : hits).incrementAndGet();
+        return bytes == null ? null : toVersions(bytes);
+    }
+
+    private byte[] toBytes(List<Versioned<byte[]>> items) {
+        List<byte[]> serialized = Lists.newArrayListWithCapacity(items.size());
+        int size = 4;
+        for(Versioned<byte[]> item: items) {
+            byte[] bytes = versionedSerializer.toBytes(item);
+            serialized.add(bytes);
+            size += 4 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(serialized.size());
+        for(byte[] bytes: serialized) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        return buffer.array();
+    }
+
+    private List<Versioned<byte[]>> toVersions(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count = buffer.getInt();
+        List<Versioned<byte[]>> items = new ArrayList<Versioned<byte[]>>(count);
+        for(int i = 0; i < count; i++) {
+            byte[] item = new byte[buffer.getInt()];
+            buffer.get(item);
+            items.add(versionedSerializer.toObject(item));
+        }
+        return items;
+    }
+
+    private static final class CacheEntry {
+
+        private final int[] blocks;
+        private final int length;
+        private int frequency;
+
+        public CacheEntry(int[] blocks, int length, int frequency) {
+            this.blocks = blocks;
+            this.length = length;
+            this.frequency = frequency;
+        }
+    }
+
+    /**
+     * A share of the cache guarded by its own monitor. The index keeps keys
+     * in eviction order.
+     */
+    private final class Segment {
+
+        private final int maxBlocks;
+        private final int blocksPerSlab;
+        private final LinkedHashMap<ByteArray, CacheEntry> index = new LinkedHashMap<ByteArray, CacheEntry>();
+        private final List<ByteBuffer> slabs = Lists.newArrayList();
+        private int[] freeBlocks = new int[16];
+        private int numFreeBlocks = 0;
+        private int carvedBlocks = 0;
+        private int usedBlocks = 0;
+
+        public Segment(int maxBlocks) {
+            this.maxBlocks = maxBlocks;
+            this.blocksPerSlab = Math.max(1, SLAB_SIZE / blockSize);
+        }
+
+        public byte[] read(CacheEntry entry) {
+            byte[] bytes = new byte[entry.length];
+            int offset = 0;
+            for(int block: entry.blocks) {
+                int length = Math.min(blockSize, bytes.length - offset);
+                ByteBuffer slab = slabs.get(block / blocksPerSlab);
+                slab.position((block % blocksPerSlab) * blockSize);
+                slab.get(bytes, offset, length);
+                offset += length;
+            }
+            return bytes;
+        }
+
+        public void write(ByteArray key, byte[] bytes) {
+            CacheEntry previous = index.remove(key);
+            if(previous != null)
+                free(previous);
+
+            int numBlocks = (bytes.length + blockSize - 1) / blockSize;
+            if(numBlocks > maxBlocks)
+                return;
+            while(maxBlocks - usedBlocks < numBlocks)
+                evict();
+
+            int[] blocks = new int[numBlocks];
+            int offset = 0;
+            for(int i = 0; i < numBlocks; i++) {
+                blocks[i] = allocate();
+                int length = Math.min(blockSize, bytes.length - offset);
+                ByteBuffer slab = slabs.get(blocks[i] / blocksPerSlab);
+                slab.position((blocks[i] % blocksPerSlab) * blockSize);
+                slab.put(bytes, offset, length);
+                offset += length;
+            }
+            index.put(key, new CacheEntry(blocks,
+                                          bytes.length,
+                                          previous == null ? 0 : previous.frequency));
+        }
+
+        public void remove(ByteArray key) {
+            CacheEntry entry = index.remove(key);
+            if(entry != null)
+                free(entry);
+        }
+
+        public void clear() {
+            index.clear();
+            numFreeBlocks = 0;
+            carvedBlocks = 0;
+            usedBlocks = 0;
+        }
+
+        /**
+         * Evict the oldest key that has not been read since it was last passed
+         * over, moving the keys passed over to the back of the queue.
+         */
+        private void evict() {
+            while(true) {
+                Map.Entry<ByteArray, CacheEntry> oldest = index.entrySet().iterator().next();
+                ByteArray key = oldest.getKey();
+                CacheEntry entry = index.remove(key);
+                if(entry.frequency > 0) {
+                    entry.frequency--;
+                    index.put(key, entry);
+                } else {
+                    free(entry);
+                    evictions.incrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        private int allocate() {
+            usedBlocks++;
+            if(numFreeBlocks > 0)
+                return freeBlocks[--numFreeBlocks];
+            int block = carvedBlocks++;
+            if(block / blocksPerSlab == slabs.size()) {
+                int slabBlocks = Math.min(blocksPerSlab, maxBlocks - block);
+                slabs.add(ByteBuffer.allocateDirect(slabBlocks * blockSize));
+            }
+            return block;
+        }
+
+        private void free(CacheEntry entry) {
+            if(numFreeBlocks + entry.blocks.length > freeBlocks.length) {
+                int[] grown = new int[Math.max(freeBlocks.length * 2, numFreeBlocks
+                                                                      + entry.blocks.length)];
+                System.arraycopy(freeBlocks, 0, grown, 0, numFreeBlocks);
+                freeBlocks = grown;
+            }
+            for(int block: entry.blocks)
+                freeBlocks[numFreeBlocks++] = block;
+            usedBlocks -= entry.blocks.length;
+        }
+    }
+
+    /**
+     * Iterates over the keys present when the iterator was created, skipping
+     * any that are gone by the time they are reached.
+     */
+    private class CacheIterator implements ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+        private final Iterator<ByteArray> keys;
+        private ByteArray currentKey;
+        private Iterator<Versioned<byte[]>> currentValues;
+
+        public CacheIterator() {
+            List<ByteArray> snapshot = Lists.newArrayList();
+            for(Segment segment: segments) {
+                synchronized(segment) {
+                    snapshot.addAll(segment.index.keySet());
+                }
+            }
+            this.keys = snapshot.iterator();
+        }
+
+        public boolean hasNext() {
+            while((currentValues == null || !currentValues.hasNext()) && keys.hasNext()) {
+                currentKey = keys.next();
+                List<Versioned<byte[]>> values = read(currentKey, false);
+                currentValues = values == null ? null : values.iterator();
+            }
+            return currentValues != null && currentValues.hasNext();
+        }
+
+        public Pair<ByteArray, Versioned<byte[]>> next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            return Pair.create(currentKey, currentValues.next());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("No removal y'all.");
+        }
+
+        public void close() {}
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.metadata;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import voldemort.VoldemortException;
+import voldemort.client.rebalance.RebalancePartitionsInfo;
+import voldemort.cluster.Cluster;
+import voldemort.cluster.Node;
+import voldemort.routing.RoutingStrategy;
+import voldemort.server.rebalance.RebalancerState;
+import voldemort.store.StoreDefinition;
+import voldemort.store.metadata.MetadataStore.VoldemortState;
+
+/**
+ * An immutable view of the metadata a server needs on every request, built
+ * once whenever the metadata changes so that requests never parse, scan or
+ * recompute it. {@link MetadataStore} swaps in a new snapshot atomically, so a
+ * request that reads everything from one snapshot sees consistent values.
+ * 
+ */
+public class MetadataSnapshot {
+
+    private final int nodeId;
+    private final Cluster cluster;
+    private final VoldemortState serverState;
+    private final Map<String, StoreDefinition> storeDefs;
+    private final Map<String, RoutingStrategy> routingStrategies;
+    private final Map<Integer, Set<Integer>> nodeToPartitions;
+    private final Map<String, Map<Integer, Map<Integer, RebalancePartitionsInfo>>> stealInfoIndex;
+
+    public MetadataSnapshot(int nodeId,
+                            Cluster cluster,
+                            List<StoreDefinition> storeDefs,
+                            Map<String, RoutingStrategy> routingStrategies,
+                            VoldemortState serverState,
+                            RebalancerState rebalancerState) {
+        this.nodeId = nodeId;
+        this.cluster = cluster;
+        this.serverState = serverState;
+
+        Map<String, StoreDefinition> storeDefMap = new HashMap<String, StoreDefinition>();
+        for(StoreDefinition storeDef: storeDefs)
+            storeDefMap.put(storeDef.getName(), storeDef);
+        this.storeDefs = Collections.unmodifiableMap(storeDefMap);
+        this.routingStrategies = Collections.unmodifiableMap(new HashMap<String, RoutingStrategy>(routingStrategies));
+
+        Map<Integer, Set<Integer>> partitions = new HashMap<Integer, Set<Integer>>();
+        for(Node node: cluster.getNodes())
+            partitions.put(node.getId(),
+                           Collections.unmodifiableSet(new HashSet<Integer>(node.getPartitionIds())));
+        this.nodeToPartitions = Collections.unmodifiableMap(partitions);
+
+        // store -> replica type -> master partition -> steal info
+        Map<String, Map<Integer, Map<Integer, RebalancePartitionsInfo>>> index = new HashMap<String, Map<Integer, Map<Integer, RebalancePartitionsInfo>>>();
+        for(RebalancePartitionsInfo info: rebalancerState.getAll()) {
+            for(String storeName: info.getUnbalancedStoreList()) {
+                Map<Integer, List<Integer>> replicaToPartitions = info.getReplicaToAddPartitionList(storeName);
+                if(replicaToPartitions == null)
+                    continue;
+                Map<Integer, Map<Integer, RebalancePartitionsInfo>> storeIndex = index.get(storeName);
+                if(storeIndex == null) {
+                    storeIndex = new HashMap<Integer, Map<Integer, RebalancePartitionsInfo>>();
+                    index.put(storeName, storeIndex);
+                }
+                for(Map.Entry<Integer, List<Integer>> entry: replicaToPartitions.entrySet()) {
+                    Map<Integer, RebalancePartitionsInfo> partitionIndex = storeIndex.get(entry.getKey());
+                    if(partitionIndex == null) {
+                        partitionIndex = new HashMap<Integer, RebalancePartitionsInfo>();
+                        storeIndex.put(entry.getKey(), partitionIndex);
+                    }
+                    for(int partition: entry.getValue()) {
+                        if(!partitionIndex.containsKey(partition))
+                            partitionIndex.put(partition, info);
+                    }
+                }
+            }
+        }
+        this.stealInfoIndex = index;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public VoldemortState getServerState() {
+        return serverState;
+    }
+
+    public StoreDefinition getStoreDef(String storeName) {
+        StoreDefinition storeDef = storeDefs.get(storeName);
+        if(storeDef == null)
+            throw new VoldemortException("Store " + storeName + " not found in MetadataStore");
+        return storeDef;
+    }
+
+    public boolean hasStoreDef(String storeName) {
+        return storeDefs.containsKey(storeName);
+    }
+
+    public RoutingStrategy getRoutingStrategy(String storeName) {
+        return routingStrategies.get(storeName);
+    }
+
+    /**
+     * @param nodeId The id of the node
+     * @return The partitions of the node, or an empty set if there is no such
+     *         node
+     */
+    public Set<Integer> getPartitionIds(int nodeId) {
+        Set<Integer> partitions = nodeToPartitions.get(nodeId);
+        return partitions == null ? Collections.<Integer> emptySet() : partitions;
+    }
+
+    /**
+     * Find the steal information covering a key that this node is taking
+     * over. Equivalent to
+     * {@link RebalancerState#find(String, List, List)} with this node's
+     * partitions, without walking every steal info.
+     * 
+     * @param storeName The name of the store
+     * @param keyPartitions The preference list of the key
+     * @return The steal information for the key, or null if it is not being
+     *         moved here
+     */
+    public RebalancePartitionsInfo findStealInfo(String storeName, List<Integer> keyPartitions) {
+        Map<Integer, Map<Integer, RebalancePartitionsInfo>> storeIndex = stealInfoIndex.get(storeName);
+        if(storeIndex == null || keyPartitions.isEmpty())
+            return null;
+        Set<Integer> localPartitions = getPartitionIds(nodeId);
+        Integer masterPartition = keyPartitions.get(0);
+        for(int replicaNum = 0; replicaNum < keyPartitions.size(); replicaNum++) {
+            if(localPartitions.contains(keyPartitions.get(replicaNum))) {
+                Map<Integer, RebalancePartitionsInfo> partitionIndex = storeIndex.get(replicaNum);
+                if(partitionIndex != null) {
+                    RebalancePartitionsInfo info = partitionIndex.get(masterPartition);
+                    if(info != null)
+                        return info;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -93,6 +93,13 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
     // helper keys for metadataCacheOnly
     private static final String ROUTING_STRATEGY_KEY = "routing.strategy";
 
+    private static final Set<String> SNAPSHOT_KEYS = ImmutableSet.of(CLUSTER_KEY,
+                                                                     STORES_KEY,
+                                                                     NODE_ID_KEY,
+                                                                     SERVER_STATE_KEY,
+                                                                     REBALANCING_STEAL_INFO,
+                                                                     ROUTING_STRATEGY_KEY);
+
     public static enum VoldemortState {
         NORMAL_SERVER,
         REBALANCING_MASTER_SERVER
@@ -100,6 +107,7 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
 
     private final Store<String, String, String> innerStore;
     private final Map<String, Versioned<Object>> metadataCache;
+    private volatile MetadataSnapshot snapshot;
 
     private static final ClusterMapper clusterMapper = new ClusterMapper();
     private static final StoreDefinitionsMapper storeMapper = new StoreDefinitionsMapper();
@@ -175,6 +183,7 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
             } else if(STORES_KEY.equals(key)) {
                 updateRoutingStrategies(getCluster(), (List<StoreDefinition>) value.getValue());
             }
+            updateSnapshot();
 
         } else {
             throw new VoldemortException("Unhandled Key:" + key + " for MetadataStore put()");
@@ -302,28 +311,52 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
     }
 
     public StoreDefinition getStoreDef(String storeName) {
-        List<StoreDefinition> storeDefs = getStoreDefList();
-        for(StoreDefinition storeDef: storeDefs) {
-            if(storeDef.getName().equals(storeName))
-                return storeDef;
-        }
-
-        throw new VoldemortException("Store " + storeName + " not found in MetadataStore");
+        return snapshot.getStoreDef(storeName);
     }
 
     public VoldemortState getServerState() {
-        return VoldemortState.valueOf(metadataCache.get(SERVER_STATE_KEY).getValue().toString());
+        return snapshot.getServerState();
+    }
+
+    /**
+     * The metadata needed on the request path, which is replaced as a whole
+     * whenever the metadata changes. Read everything a request needs from one
+     * snapshot to see a consistent view.
+     * 
+     * @return The current snapshot
+     */
+    public MetadataSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public RebalancerState getRebalancerState() {
         return (RebalancerState) metadataCache.get(REBALANCING_STEAL_INFO).getValue();
     }
 
-    @SuppressWarnings("unchecked")
     public RoutingStrategy getRoutingStrategy(String storeName) {
-        Map<String, RoutingStrategy> routingStrategyMap = (Map<String, RoutingStrategy>) metadataCache.get(ROUTING_STRATEGY_KEY)
-                                                                                                      .getValue();
-        return routingStrategyMap.get(storeName);
+        return snapshot.getRoutingStrategy(storeName);
+    }
+
+    /**
+     * Rebuild the snapshot from the cached metadata, once all of it has been
+     * loaded
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized void updateSnapshot() {
+        for(String key: SNAPSHOT_KEYS) {
+            if(!metadataCache.containsKey(key))
+                return;
+        }
+        VoldemortState serverState = VoldemortState.valueOf(metadataCache.get(SERVER_STATE_KEY)
+                                                                         .getValue()
+                                                                         .toString());
+        snapshot = new MetadataSnapshot(getNodeId(),
+                                        getCluster(),
+                                        getStoreDefList(),
+                                        (Map<String, RoutingStrategy>) metadataCache.get(ROUTING_STRATEGY_KEY)
+                                                                                    .getValue(),
+                                        serverState,
+                                        getRebalancerState());
     }
 
     /**
@@ -346,6 +379,8 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
                                new Versioned<Object>(routingStrategyMap,
                                                      clock.incremented(getNodeId(),
                                                                        System.currentTimeMillis())));
+        // listeners must see the new strategies through the snapshot too
+        updateSnapshot();
 
         for(String storeName: storeNameTolisteners.keySet()) {
             RoutingStrategy updatedRoutingStrategy = routingStrategyMap.get(storeName);
@@ -427,6 +462,14 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
         throw new VoldemortException("You cannot iterate over all keys in Metadata");
     }
 
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new VoldemortException("You cannot iterate over a partition in Metadata");
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new VoldemortException("You cannot iterate over a partition in Metadata");
+    }
+
     public void truncate() {
         throw new VoldemortException("You cannot truncate entries in Metadata");
     }
@@ -467,10 +510,12 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
 
         // set transient values
         updateRoutingStrategies(getCluster(), getStoreDefList());
+        updateSnapshot();
     }
 
     private synchronized void initCache(String key) {
         metadataCache.put(key, convertStringToObject(key, getInnerValue(key)));
+        updateSnapshot();
     }
 
     private void initCache(String key, Object defaultValue) {
@@ -582,4 +627,8 @@ public class MetadataStore implements StorageEngine<ByteArray, byte[], byte[]> {
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -116,6 +116,14 @@ public class MysqlStorageEngine implements StorageEngine<ByteArray, byte[], byte
         return StoreUtils.keys(entries());
     }
 
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
     public void truncate() {
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -396,4 +404,8 @@ public class MysqlStorageEngine implements StorageEngine<ByteArray, byte[], byte
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -13,8 +13,12 @@ import voldemort.utils.ByteUtils;
 public class BinarySearchStrategy implements SearchStrategy {
 
     public int indexOf(ByteBuffer index, byte[] key, int indexFileSize) {
+        return (int) indexOf(index, key, indexFileSize, ReadOnlyUtils.POSITION_SIZE);
+    }
+
+    public long indexOf(ByteBuffer index, byte[] key, int indexFileSize, int positionSize) {
         byte[] keyBuffer = new byte[key.length];
-        int indexSize = ReadOnlyUtils.POSITION_SIZE + key.length;
+        int indexSize = positionSize + key.length;
         int low = 0;
         int high = indexFileSize / indexSize - 1;
         while(low <= high) {
@@ -23,8 +27,9 @@ public class BinarySearchStrategy implements SearchStrategy {
             int cmp = ByteUtils.compare(keyBuffer, key);
             if(cmp == 0) {
                 // they are equal, return the location stored here
-                index.position(mid * indexSize + key.length);
-                return index.getInt();
+                return ReadOnlyUtils.readPosition(index,
+                                                  mid * indexSize + key.length,
+                                                  positionSize);
             } else if(cmp > 0) {
                 // midVal is bigger
                 high = mid - 1;
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A binary search meant to be handed only a small range of the index. When a
+ * store uses this strategy its chunks are opened with an in-heap
+ * {@link voldemort.store.readonly.chunk.IndexFanOut} table, and each lookup
+ * only searches the range of entries that share the key's leading bits, so it
+ * touches one or two index pages instead of log2(n) scattered ones. Keys are
+ * compared in place rather than copied out of the index.
+ * 
+ */
+public class FanOutSearchStrategy implements SearchStrategy {
+
+    public static final int DEFAULT_ENTRIES_PER_BUCKET = 64;
+
+    private final int entriesPerBucket;
+
+    public FanOutSearchStrategy() {
+        this(DEFAULT_ENTRIES_PER_BUCKET);
+    }
+
+    /**
+     * @param entriesPerBucket The average number of index entries in a range
+     *        of the fan-out table
+     */
+    public FanOutSearchStrategy(int entriesPerBucket) {
+        if(entriesPerBucket <= 0)
+            throw new IllegalArgumentException("Entries per bucket must be positive");
+        this.entriesPerBucket = entriesPerBucket;
+    }
+
+    public int getEntriesPerBucket() {
+        return entriesPerBucket;
+    }
+
+    public int indexOf(ByteBuffer index, byte[] key, int indexFileSize) {
+        return (int) indexOf(index, key, indexFileSize, ReadOnlyUtils.POSITION_SIZE);
+    }
+
+    public long indexOf(ByteBuffer index, byte[] key, int indexFileSize, int positionSize) {
+        int indexSize = positionSize + key.length;
+        int low = 0;
+        int high = indexFileSize / indexSize - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(index, mid * indexSize, key);
+            if(cmp == 0)
+                return ReadOnlyUtils.readPosition(index, mid * indexSize + key.length, positionSize);
+            else if(cmp > 0)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        return -1;
+    }
+
+    /* Unsigned comparison of the key stored at offset with the given key */
+    private int compare(ByteBuffer index, int offset, byte[] key) {
+        for(int i = 0; i < key.length; i++) {
+            int a = index.get(offset + i) & 0xff;
+            int b = key[i] & 0xff;
+            if(a != b)
+                return a - b;
+        }
+        return 0;
+    }
+}
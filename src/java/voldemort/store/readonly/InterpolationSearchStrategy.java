@@ -15,9 +15,13 @@ import voldemort.utils.ByteUtils;
 public class InterpolationSearchStrategy implements SearchStrategy {
 
     public int indexOf(ByteBuffer index, byte[] key, int indexFileSize) {
+        return (int) indexOf(index, key, indexFileSize, ReadOnlyUtils.POSITION_SIZE);
+    }
+
+    public long indexOf(ByteBuffer index, byte[] key, int indexFileSize, int positionSize) {
         int guess;
         int lowIdx = 0;
-        int indexSize = ReadOnlyUtils.POSITION_SIZE + key.length;
+        int indexSize = positionSize + key.length;
         int highIdx = indexFileSize / indexSize - 1;
         long lastIdx = highIdx;
         long lowValue = 0;
@@ -42,7 +46,9 @@ public class InterpolationSearchStrategy implements SearchStrategy {
 
             // did we find it?
             if(compare == 0)
-                return index.getInt();
+                return ReadOnlyUtils.readPosition(index,
+                                                  guess * indexSize + key.length,
+                                                  positionSize);
 
             // okay we didn't find it this time, update the min and max
             long foundInt = ByteUtils.readUnsignedInt(found, 0);
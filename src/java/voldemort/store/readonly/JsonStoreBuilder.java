@@ -16,17 +16,20 @@
 
 package voldemort.store.readonly;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -55,6 +58,7 @@ import voldemort.serialization.json.JsonReader;
 import voldemort.store.StoreDefinition;
 import voldemort.store.compress.CompressionStrategy;
 import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.chunk.BloomFilter;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.CmdUtils;
 import voldemort.utils.Pair;
@@ -87,6 +91,7 @@ public class JsonStoreBuilder {
     private final int numChunks;
     private final int ioBufferSize;
     private final boolean gzipIntermediate;
+    private final int bloomFilterBitsPerKey;
 
     public JsonStoreBuilder(JsonReader reader,
                             Cluster cluster,
@@ -99,6 +104,36 @@ public class JsonStoreBuilder {
                             int numChunks,
                             int ioBufferSize,
                             boolean gzipIntermediate) {
+        this(reader,
+             cluster,
+             storeDefinition,
+             routingStrategy,
+             outputDir,
+             tempDir,
+             internalSortSize,
+             numThreads,
+             numChunks,
+             ioBufferSize,
+             gzipIntermediate,
+             0);
+    }
+
+    /**
+     * @param bloomFilterBitsPerKey If positive, a bloom filter using this many
+     *        bits per key is written for every chunk
+     */
+    public JsonStoreBuilder(JsonReader reader,
+                            Cluster cluster,
+                            StoreDefinition storeDefinition,
+                            RoutingStrategy routingStrategy,
+                            File outputDir,
+                            File tempDir,
+                            int internalSortSize,
+                            int numThreads,
+                            int numChunks,
+                            int ioBufferSize,
+                            boolean gzipIntermediate,
+                            int bloomFilterBitsPerKey) {
         if(cluster.getNumberOfNodes() < storeDefinition.getReplicationFactor())
             throw new IllegalStateException("Number of nodes is " + cluster.getNumberOfNodes()
                                             + " but the replication factor is "
@@ -117,6 +152,7 @@ public class JsonStoreBuilder {
         this.numChunks = numChunks;
         this.ioBufferSize = ioBufferSize;
         this.gzipIntermediate = gzipIntermediate;
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
     }
 
     /**
@@ -156,10 +192,16 @@ public class JsonStoreBuilder {
               .withRequiredArg()
               .describedAs("temp dir");
         parser.accepts("gzip", "compress intermediate chunk files");
+        parser.accepts("bloom-filter",
+                       "write a bloom filter per chunk, using the given bits per key (default "
+                               + BloomFilter.DEFAULT_BITS_PER_KEY + ")")
+              .withOptionalArg()
+              .ofType(Integer.class);
         parser.accepts("format",
                        "read-only store format [" + ReadOnlyStorageFormat.READONLY_V0.getCode()
                                + "," + ReadOnlyStorageFormat.READONLY_V1.getCode() + ","
-                               + ReadOnlyStorageFormat.READONLY_V2.getCode() + "]")
+                               + ReadOnlyStorageFormat.READONLY_V2.getCode() + ","
+                               + ReadOnlyStorageFormat.READONLY_V3.getCode() + "]")
               .withRequiredArg()
               .ofType(String.class);
         OptionSet options = parser.parse(args);
@@ -195,6 +237,11 @@ public class JsonStoreBuilder {
                                                                                               "format",
                                                                                               ReadOnlyStorageFormat.READONLY_V2.getCode()));
         boolean gzipIntermediate = options.has("gzip");
+        int bloomFilterBitsPerKey = 0;
+        if(options.hasArgument("bloom-filter"))
+            bloomFilterBitsPerKey = (Integer) options.valueOf("bloom-filter");
+        else if(options.has("bloom-filter"))
+            bloomFilterBitsPerKey = BloomFilter.DEFAULT_BITS_PER_KEY;
         File tempDir = new File(CmdUtils.valueOf(options,
                                                  "temp-dir",
                                                  System.getProperty("java.io.tmpdir")));
@@ -229,7 +276,8 @@ public class JsonStoreBuilder {
                                  numThreads,
                                  chunks,
                                  ioBufferSize,
-                                 gzipIntermediate).build(storageFormat);
+                                 gzipIntermediate,
+                                 bloomFilterBitsPerKey).build(storageFormat);
         } catch(FileNotFoundException e) {
             Utils.croak(e.getMessage());
         }
@@ -249,6 +297,10 @@ public class JsonStoreBuilder {
                 buildVersion2();
                 break;
 
+            case READONLY_V3:
+                buildVersion3();
+                break;
+
             default:
                 throw new VoldemortException("Invalid storage format " + type);
         }
@@ -274,6 +326,8 @@ public class JsonStoreBuilder {
             ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
             metadata.add(ReadOnlyStorageMetadata.FORMAT,
                          ReadOnlyStorageFormat.READONLY_V0.getCode());
+            if(bloomFilterBitsPerKey > 0)
+                metadata.add(ReadOnlyStorageMetadata.BLOOM_FILTER, Boolean.toString(true));
             writer.write(metadata.toJsonString());
             writer.close();
 
@@ -325,6 +379,9 @@ public class JsonStoreBuilder {
                 datas[node][chunk].close();
             }
         }
+        for(Node node: cluster.getNodes())
+            writeBloomFilters(new File(outputDir, "node-" + Integer.toString(node.getId())),
+                              ReadOnlyStorageFormat.READONLY_V0);
     }
 
     public void buildVersion1() throws IOException {
@@ -355,6 +412,8 @@ public class JsonStoreBuilder {
             ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
             metadata.add(ReadOnlyStorageMetadata.FORMAT,
                          ReadOnlyStorageFormat.READONLY_V1.getCode());
+            if(bloomFilterBitsPerKey > 0)
+                metadata.add(ReadOnlyStorageMetadata.BLOOM_FILTER, Boolean.toString(true));
             writer.write(metadata.toJsonString());
             writer.close();
 
@@ -414,20 +473,33 @@ public class JsonStoreBuilder {
                 indexes[node.getId()][chunk].close();
                 datas[node.getId()][chunk].close();
             }
+            writeBloomFilters(new File(outputDir, "node-" + Integer.toString(node.getId())),
+                              ReadOnlyStorageFormat.READONLY_V1);
         }
     }
 
     public void buildVersion2() throws IOException {
+        buildReplicaChunks(ReadOnlyStorageFormat.READONLY_V2);
+    }
+
+    /**
+     * Same layout as {@link #buildVersion2()} but with 64-bit positions in the
+     * index files, so that chunks can exceed 2 GB
+     */
+    public void buildVersion3() throws IOException {
+        buildReplicaChunks(ReadOnlyStorageFormat.READONLY_V3);
+    }
+
+    private void buildReplicaChunks(ReadOnlyStorageFormat format) throws IOException {
         logger.info("Building store " + storeDefinition.getName() + " for "
                     + cluster.getNumberOfPartitions() + " partitions, "
                     + storeDefinition.getReplicationFactor() + " replica types, " + numChunks
-                    + " chunks per partitions per replica type and type "
-                    + ReadOnlyStorageFormat.READONLY_V2);
+                    + " chunks per partitions per replica type and type " + format);
 
         // Initialize files
         DataOutputStream[][] indexes = new DataOutputStream[cluster.getNumberOfPartitions()][];
         DataOutputStream[][] datas = new DataOutputStream[cluster.getNumberOfPartitions()][];
-        int[][] positions = new int[cluster.getNumberOfPartitions()][];
+        long[][] positions = new long[cluster.getNumberOfPartitions()][];
 
         File tempDirectory = new File(Utils.notNull(System.getProperty("java.io.tmpdir")),
                                       "tempDir-" + Integer.toString(new Random().nextInt()));
@@ -438,7 +510,7 @@ public class JsonStoreBuilder {
                                                         * numChunks];
             datas[partitionId] = new DataOutputStream[storeDefinition.getReplicationFactor()
                                                       * numChunks];
-            positions[partitionId] = new int[storeDefinition.getReplicationFactor() * numChunks];
+            positions[partitionId] = new long[storeDefinition.getReplicationFactor() * numChunks];
 
             int globalChunkId = 0;
             for(int repType = 0; repType < storeDefinition.getReplicationFactor(); repType++) {
@@ -523,7 +595,10 @@ public class JsonStoreBuilder {
                         // ...else, flush the previous element to disk
 
                         indexes[masterPartition][globalChunkId].write(previousElement.getFirst());
-                        indexes[masterPartition][globalChunkId].writeInt(positions[masterPartition][globalChunkId]);
+                        writePosition(indexes[masterPartition][globalChunkId],
+                                      globalChunkId,
+                                      positions[masterPartition][globalChunkId],
+                                      format);
                         datas[masterPartition][globalChunkId].write(previousElement.getSecond());
                         positions[masterPartition][globalChunkId] += previousElement.getSecond().length;
 
@@ -550,7 +625,10 @@ public class JsonStoreBuilder {
             byte[] value = entry.getValue().getSecond();
 
             indexes[partitionId][globalChunkId].write(keyMd5);
-            indexes[partitionId][globalChunkId].writeInt(positions[partitionId][globalChunkId]);
+            writePosition(indexes[partitionId][globalChunkId],
+                          globalChunkId,
+                          positions[partitionId][globalChunkId],
+                          format);
             datas[partitionId][globalChunkId].write(value);
         }
 
@@ -569,8 +647,9 @@ public class JsonStoreBuilder {
             // Create metadata file
             BufferedWriter writer = new BufferedWriter(new FileWriter(new File(nodeDir, ".metadata")));
             ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
-            metadata.add(ReadOnlyStorageMetadata.FORMAT,
-                         ReadOnlyStorageFormat.READONLY_V2.getCode());
+            metadata.add(ReadOnlyStorageMetadata.FORMAT, format.getCode());
+            if(bloomFilterBitsPerKey > 0)
+                metadata.add(ReadOnlyStorageMetadata.BLOOM_FILTER, Boolean.toString(true));
             writer.write(metadata.toJsonString());
             writer.close();
 
@@ -584,6 +663,7 @@ public class JsonStoreBuilder {
                 datas[partitionId][chunk].close();
             }
         }
+        writeBloomFilters(tempDirectory, format);
 
         // Start moving files over to their correct node
         RoutingStrategy strategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDefinition,
@@ -591,7 +671,7 @@ public class JsonStoreBuilder {
         Map<Integer, Integer> replicaMapping = RebalanceUtils.getCurrentPartitionMapping(cluster);
         for(File file: tempDirectory.listFiles()) {
             String fileName = file.getName();
-            if(fileName.matches("^[\\d]+_[\\d]+_[\\d]+\\.(data|index)")) {
+            if(fileName.matches("^[\\d]+_[\\d]+_[\\d]+\\.(data|index|bloom)")) {
                 String[] props = fileName.split("_");
                 int partitionId = Integer.parseInt(props[0]);
                 int replicaType = Integer.parseInt(props[1]);
@@ -618,9 +698,54 @@ public class JsonStoreBuilder {
         return stream.toByteArray();
     }
 
+    /* Write a bloom filter next to every index file in the directory */
+    private void writeBloomFilters(File directory, ReadOnlyStorageFormat format)
+            throws IOException {
+        if(bloomFilterBitsPerKey <= 0)
+            return;
+        for(File indexFile: directory.listFiles()) {
+            String fileName = indexFile.getName();
+            if(!fileName.endsWith(".index"))
+                continue;
+            InputStream input = new BufferedInputStream(new FileInputStream(indexFile),
+                                                        ioBufferSize);
+            BloomFilter bloomFilter;
+            try {
+                bloomFilter = BloomFilter.fromIndex(input,
+                                                    indexFile.length(),
+                                                    ReadOnlyUtils.getKeyHashSize(format),
+                                                    ReadOnlyUtils.getPositionSize(format),
+                                                    bloomFilterBitsPerKey);
+            } finally {
+                input.close();
+            }
+            String chunkName = fileName.substring(0, fileName.length() - ".index".length());
+            FileOutputStream output = new FileOutputStream(new File(directory, chunkName
+                                                                               + ".bloom"));
+            try {
+                output.write(bloomFilter.toByteArray());
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /* Write a position to the index, 8 bytes wide for READONLY_V3 */
+    private void writePosition(DataOutputStream index,
+                               int chunk,
+                               long position,
+                               ReadOnlyStorageFormat format) throws IOException {
+        if(ReadOnlyUtils.getPositionSize(format) == ReadOnlyUtils.LARGE_POSITION_SIZE) {
+            index.writeLong(position);
+        } else {
+            checkOverFlow(chunk, position);
+            index.writeInt((int) position);
+        }
+    }
+
     /* Check if the position has exceeded Integer.MAX_VALUE */
-    private void checkOverFlow(int chunk, int position) {
-        if(position < 0)
+    private void checkOverFlow(int chunk, long position) {
+        if(position < 0 || position > Integer.MAX_VALUE)
             throw new VoldemortException("Chunk overflow: chunk " + chunk + " has exceeded "
                                          + Integer.MAX_VALUE + " bytes.");
     }
@@ -44,15 +44,22 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
     private final int nodeId;
     private RoutingStrategy routingStrategy = null;
     private final int deleteBackupMs;
+    private final boolean mmapDataFiles;
+    private final boolean nonBlockingSwap;
+    private final boolean warmOnSwap;
+    private final VoldemortConfig config;
 
     public ReadOnlyStorageConfiguration(VoldemortConfig config) {
+        this.config = config;
         this.storageDir = new File(config.getReadOnlyDataStorageDirectory());
         this.numBackups = config.getReadOnlyBackups();
         this.registeredBeans = Collections.synchronizedSet(new HashSet<ObjectName>());
-        this.searcher = (SearchStrategy) ReflectUtils.callConstructor(ReflectUtils.loadClass(config.getReadOnlySearchStrategy()
-                                                                                                   .trim()));
+        this.searcher = createSearchStrategy(config.getReadOnlySearchStrategy());
         this.nodeId = config.getNodeId();
         this.deleteBackupMs = config.getReadOnlyDeleteBackupMs();
+        this.mmapDataFiles = config.isReadOnlyMmapDataFiles();
+        this.nonBlockingSwap = config.isReadOnlyNonBlockingSwap();
+        this.warmOnSwap = config.isReadOnlySwapWarmup();
     }
 
     public void close() {
@@ -65,14 +72,39 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
         this.routingStrategy = routingStrategy;
     }
 
+    private SearchStrategy createSearchStrategy(String className) {
+        return (SearchStrategy) ReflectUtils.callConstructor(ReflectUtils.loadClass(className.trim()));
+    }
+
     public StorageEngine<ByteArray, byte[], byte[]> getStore(String name) {
+        return getStore(name, this.routingStrategy);
+    }
+
+    /**
+     * Opens the store with the given routing strategy rather than the one
+     * last set, so that stores can be opened concurrently
+     * 
+     * @param name The name of the store
+     * @param routingStrategy The routing strategy of the store
+     * @return The store
+     */
+    public StorageEngine<ByteArray, byte[], byte[]> getStore(String name,
+                                                             RoutingStrategy routingStrategy) {
+        // stores share the default searcher unless they override it
+        SearchStrategy storeSearcher = this.searcher;
+        String storeSearchStrategy = config.getReadOnlySearchStrategy(name);
+        if(!storeSearchStrategy.trim().equals(config.getReadOnlySearchStrategy().trim()))
+            storeSearcher = createSearchStrategy(storeSearchStrategy);
         ReadOnlyStorageEngine store = new ReadOnlyStorageEngine(name,
-                                                                this.searcher,
-                                                                this.routingStrategy,
+                                                                storeSearcher,
+                                                                routingStrategy,
                                                                 this.nodeId,
                                                                 new File(storageDir, name),
                                                                 numBackups,
-                                                                deleteBackupMs);
+                                                                deleteBackupMs,
+                                                                mmapDataFiles,
+                                                                nonBlockingSwap,
+                                                                warmOnSwap);
         ObjectName objName = JmxUtils.createObjectName(JmxUtils.getPackageName(store.getClass()),
                                                        name + nodeId);
         JmxUtils.registerMbean(ManagementFactory.getPlatformMBeanServer(),
@@ -66,7 +66,9 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
     private RoutingStrategy routingStrategy;
     private volatile ChunkedFileSet fileSet;
     private volatile boolean isOpen;
-    private int deleteBackupMs = 0;
+    private final int deleteBackupMs;
+    private final boolean mmapDataFiles;
+    private final boolean nonBlockingSwap, warmOnSwap;
     private long lastSwapped;
 
     /**
@@ -88,8 +90,14 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
                                  File storeDir,
                                  int numBackups,
                                  int deleteBackupMs) {
-        this(name, searchStrategy, routingStrategy, nodeId, storeDir, numBackups);
-        this.deleteBackupMs = deleteBackupMs;
+        this(name,
+             searchStrategy,
+             routingStrategy,
+             nodeId,
+             storeDir,
+             numBackups,
+             deleteBackupMs,
+             false);
     }
 
     /**
@@ -101,15 +109,65 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
      * @param nodeId Node id
      * @param storeDir The directory in which the .data and .index files reside
      * @param numBackups The number of backups of these files to retain
+     * @param deleteBackupMs The time in ms for which we'll wait before we
+     *        delete a backup
+     * @param mmapDataFiles Whether to memory-map the data files as well as the
+     *        index files
      */
     public ReadOnlyStorageEngine(String name,
                                  SearchStrategy searchStrategy,
                                  RoutingStrategy routingStrategy,
                                  int nodeId,
                                  File storeDir,
-                                 int numBackups) {
+                                 int numBackups,
+                                 int deleteBackupMs,
+                                 boolean mmapDataFiles) {
+        this(name,
+             searchStrategy,
+             routingStrategy,
+             nodeId,
+             storeDir,
+             numBackups,
+             deleteBackupMs,
+             mmapDataFiles,
+             false,
+             false);
+    }
+
+    /**
+     * Create an instance of the store
+     * 
+     * @param name The name of the store
+     * @param searchStrategy The algorithm to use for searching for keys
+     * @param routingStrategy The routing strategy used to route keys
+     * @param nodeId Node id
+     * @param storeDir The directory in which the .data and .index files reside
+     * @param numBackups The number of backups of these files to retain
+     * @param deleteBackupMs The time in ms for which we'll wait before we
+     *        delete a backup
+     * @param mmapDataFiles Whether to memory-map the data files as well as the
+     *        index files
+     * @param nonBlockingSwap Whether to open the new version outside the lock
+     *        during a swap, so that reads keep being served from the old one
+     * @param warmOnSwap Whether to load the mapped files of the new version
+     *        into memory before swapping it in, rather than only opening them
+     */
+    public ReadOnlyStorageEngine(String name,
+                                 SearchStrategy searchStrategy,
+                                 RoutingStrategy routingStrategy,
+                                 int nodeId,
+                                 File storeDir,
+                                 int numBackups,
+                                 int deleteBackupMs,
+                                 boolean mmapDataFiles,
+                                 boolean nonBlockingSwap,
+                                 boolean warmOnSwap) {
         this.storeDir = storeDir;
         this.numBackups = numBackups;
+        this.deleteBackupMs = deleteBackupMs;
+        this.mmapDataFiles = mmapDataFiles;
+        this.nonBlockingSwap = nonBlockingSwap;
+        this.warmOnSwap = warmOnSwap;
         this.name = Utils.notNull(name);
         this.searchStrategy = searchStrategy;
         this.routingStrategy = Utils.notNull(routingStrategy);
@@ -117,14 +175,34 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
         this.fileSet = null;
         this.currentVersionId = 0L;
         /*
-         * A lock that blocks reads during swap(), open(), and close()
-         * operations
+         * A lock that serializes swap(), open(), and close() operations and
+         * blocks iterators during them. Reads reference count the file set
+         * instead, and only wait on this lock if they race with a close.
          */
         this.fileModificationLock = new ReentrantReadWriteLock();
         this.isOpen = false;
         open(null);
     }
 
+    /**
+     * Create an instance of the store
+     * 
+     * @param name The name of the store
+     * @param searchStrategy The algorithm to use for searching for keys
+     * @param routingStrategy The routing strategy used to route keys
+     * @param nodeId Node id
+     * @param storeDir The directory in which the .data and .index files reside
+     * @param numBackups The number of backups of these files to retain
+     */
+    public ReadOnlyStorageEngine(String name,
+                                 SearchStrategy searchStrategy,
+                                 RoutingStrategy routingStrategy,
+                                 int nodeId,
+                                 File storeDir,
+                                 int numBackups) {
+        this(name, searchStrategy, routingStrategy, nodeId, storeDir, numBackups, 0);
+    }
+
     /**
      * Returns the internal chunked file set
      * 
@@ -185,7 +263,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
                         + versionDir.getAbsolutePath());
             Utils.symlink(versionDir.getAbsolutePath(), storeDir.getAbsolutePath() + File.separator
                                                         + "latest");
-            this.fileSet = new ChunkedFileSet(versionDir, routingStrategy, nodeId);
+            this.fileSet = openFileSet(versionDir);
             this.lastSwapped = System.currentTimeMillis();
             this.isOpen = true;
         } finally {
@@ -262,7 +340,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
         try {
             if(isOpen) {
                 this.isOpen = false;
-                fileSet.close();
+                fileSet.release();
             } else {
                 logger.debug("Attempt to close already closed store " + getName());
             }
@@ -312,6 +390,12 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
             return;
         }
 
+        if(nonBlockingSwap) {
+            swapNonBlocking(newVersionDir, newVersionId);
+            deleteBackups();
+            return;
+        }
+
         logger.info("Acquiring write lock on '" + getName() + "':");
         fileModificationLock.writeLock().lock();
         boolean success = false;
@@ -320,8 +404,10 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
             logger.info("Opening primary files for store '" + getName() + "' at "
                         + newStoreDirectory);
 
-            // open the latest store
+            // open the latest store, along with every chunk so that a corrupt
+            // version is rolled back here rather than failing lookups later
             open(newVersionDir);
+            openChunks(fileSet);
             success = true;
         } finally {
             try {
@@ -344,6 +430,85 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
         deleteBackups();
     }
 
+    /*
+     * The fan-out search only narrows the range it is handed, so the file set
+     * builds the tables that provide those ranges when it is in use
+     */
+    private ChunkedFileSet openFileSet(File versionDir) {
+        int fanOutEntriesPerBucket = 0;
+        if(searchStrategy instanceof FanOutSearchStrategy)
+            fanOutEntriesPerBucket = ((FanOutSearchStrategy) searchStrategy).getEntriesPerBucket();
+        return new ChunkedFileSet(versionDir,
+                                  routingStrategy,
+                                  nodeId,
+                                  mmapDataFiles,
+                                  fanOutEntriesPerBucket);
+    }
+
+    /**
+     * Opens (and optionally warms) the new version while reads continue to be
+     * served from the current one, then publishes it under the write lock.
+     * Readers still using the old file set keep their reference to it, and it
+     * is closed once the last of them is done.
+     * 
+     * @param newVersionDir The new version directory
+     * @param newVersionId The id of the new version
+     */
+    private void swapNonBlocking(File newVersionDir, long newVersionId) {
+        logger.info("Opening files for store '" + getName() + "' at "
+                    + newVersionDir.getAbsolutePath() + " without blocking reads");
+        ChunkedFileSet newFileSet = openFileSet(newVersionDir);
+        boolean success = false;
+        try {
+            openChunks(newFileSet);
+            success = true;
+        } finally {
+            if(!success) {
+                logger.error("Swap operation failed, keeping the current version.");
+                newFileSet.release();
+            }
+        }
+
+        fileModificationLock.writeLock().lock();
+        success = false;
+        try {
+            Utils.symlink(newVersionDir.getAbsolutePath(), storeDir.getAbsolutePath()
+                                                           + File.separator + "latest");
+            ChunkedFileSet oldFileSet = this.fileSet;
+            this.currentVersionId = newVersionId;
+            this.fileSet = newFileSet;
+            this.lastSwapped = System.currentTimeMillis();
+            if(isOpen)
+                oldFileSet.release();
+            this.isOpen = true;
+            success = true;
+        } finally {
+            fileModificationLock.writeLock().unlock();
+            if(success) {
+                logger.info("Swap operation completed successfully on store " + getName());
+            } else {
+                logger.error("Swap operation failed.");
+                newFileSet.release();
+            }
+        }
+    }
+
+    /*
+     * Opens every chunk of a version being swapped in, loading the files as
+     * well if the store warms on swap, so that the first lookups after the
+     * swap neither hit a bad chunk nor build its fan-out table
+     */
+    private void openChunks(ChunkedFileSet newFileSet) {
+        if(warmOnSwap) {
+            long start = System.currentTimeMillis();
+            newFileSet.warm();
+            logger.info("Warmed files for store '" + getName() + "' in "
+                        + (System.currentTimeMillis() - start) + " ms");
+        } else {
+            newFileSet.openChunks();
+        }
+    }
+
     /**
      * Delete all backups asynchronously
      */
@@ -449,7 +614,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
     }
 
     public ClosableIterator<ByteArray> keys() {
-        if(!(fileSet.getReadOnlyStorageFormat().compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0))
+        if(!isIterationSupported(fileSet.getReadOnlyStorageFormat()))
             throw new UnsupportedOperationException("Iteration is not supported for "
                                                     + getClass().getName()
                                                     + " with storage format "
@@ -458,7 +623,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
     }
 
     public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
-        if(!(fileSet.getReadOnlyStorageFormat().compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0))
+        if(!isIterationSupported(fileSet.getReadOnlyStorageFormat()))
             throw new UnsupportedOperationException("Iteration is not supported for "
                                                     + getClass().getName()
                                                     + " with storage format "
@@ -466,6 +631,19 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
         return new ChunkedFileSet.ROEntriesIterator(fileSet, fileModificationLock);
     }
 
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        throw new UnsupportedOperationException("Partition scans are not supported by store " + getName());
+    }
+
+    private boolean isIterationSupported(ReadOnlyStorageFormat format) {
+        return format == ReadOnlyStorageFormat.READONLY_V2
+               || format == ReadOnlyStorageFormat.READONLY_V3;
+    }
+
     public void truncate() {
         if(isOpen)
             close();
@@ -475,16 +653,17 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
 
     public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms) throws VoldemortException {
         StoreUtils.assertValidKey(key);
+        ChunkedFileSet fileSet = acquireFileSet();
         try {
-            fileModificationLock.readLock().lock();
             int chunk = fileSet.getChunkForKey(key.get());
             if(chunk < 0) {
                 logger.warn("Invalid chunk id returned. Either routing strategy is inconsistent or storage format not understood");
                 return Collections.emptyList();
             }
-            int location = searchStrategy.indexOf(fileSet.indexFileFor(chunk),
-                                                  fileSet.keyToStorageFormat(key.get()),
-                                                  fileSet.getIndexFileSize(chunk));
+            byte[] storageKey = fileSet.keyToStorageFormat(key.get());
+            if(!fileSet.mightContain(chunk, storageKey))
+                return Collections.emptyList();
+            long location = fileSet.indexOf(searchStrategy, chunk, storageKey);
             if(location >= 0) {
                 byte[] value = fileSet.readValue(key.get(), chunk, location);
                 if(value.length == 0) {
@@ -496,7 +675,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
                 return Collections.emptyList();
             }
         } finally {
-            fileModificationLock.readLock().unlock();
+            fileSet.release();
         }
     }
 
@@ -505,14 +684,15 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
             throws VoldemortException {
         StoreUtils.assertValidKeys(keys);
         Map<ByteArray, List<Versioned<byte[]>>> results = StoreUtils.newEmptyHashMap(keys);
+        ChunkedFileSet fileSet = acquireFileSet();
         try {
-            fileModificationLock.readLock().lock();
             List<KeyValueLocation> keysAndValueLocations = Lists.newArrayList();
             for(ByteArray key: keys) {
                 int chunk = fileSet.getChunkForKey(key.get());
-                int valueLocation = searchStrategy.indexOf(fileSet.indexFileFor(chunk),
-                                                           fileSet.keyToStorageFormat(key.get()),
-                                                           fileSet.getIndexFileSize(chunk));
+                byte[] storageKey = fileSet.keyToStorageFormat(key.get());
+                if(!fileSet.mightContain(chunk, storageKey))
+                    continue;
+                long valueLocation = fileSet.indexOf(searchStrategy, chunk, storageKey);
                 if(valueLocation >= 0)
                     keysAndValueLocations.add(new KeyValueLocation(chunk, key, valueLocation));
             }
@@ -526,6 +706,29 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
                     results.put(keyVal.getKey(), Collections.singletonList(Versioned.value(value)));
             }
             return results;
+        } finally {
+            fileSet.release();
+        }
+    }
+
+    /**
+     * Takes a reference on the current file set for the duration of a read. If
+     * the set is being closed, waits for the pending swap or close to finish
+     * and retries against whatever is current then.
+     * 
+     * @return The acquired file set, to be released by the caller
+     */
+    private ChunkedFileSet acquireFileSet() {
+        ChunkedFileSet current = this.fileSet;
+        if(isOpen && current != null && current.acquire())
+            return current;
+
+        fileModificationLock.readLock().lock();
+        try {
+            current = this.fileSet;
+            if(!isOpen || current == null || !current.acquire())
+                throw new VoldemortException("Read-only store '" + getName() + "' is closed.");
+            return current;
         } finally {
             fileModificationLock.readLock().unlock();
         }
@@ -559,9 +762,9 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
 
         private final int chunk;
         private final ByteArray key;
-        private final int valueLocation;
+        private final long valueLocation;
 
-        private KeyValueLocation(int chunk, ByteArray key, int valueLocation) {
+        private KeyValueLocation(int chunk, ByteArray key, long valueLocation) {
             super();
             this.chunk = chunk;
             this.key = key;
@@ -576,7 +779,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
             return key;
         }
 
-        public int getValueLocation() {
+        public long getValueLocation() {
             return valueLocation;
         }
 
@@ -585,7 +788,7 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
                 if(valueLocation == kvl.getValueLocation())
                     return ByteUtils.compare(getKey().get(), kvl.getKey().get());
                 else
-                    return Integer.signum(valueLocation - kvl.getValueLocation());
+                    return Long.signum(valueLocation - kvl.getValueLocation());
             } else {
                 return getChunk() - kvl.getChunk();
             }
@@ -599,4 +802,8 @@ public class ReadOnlyStorageEngine implements StorageEngine<ByteArray, byte[], b
     public boolean isPartitionAware() {
         return true;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -17,11 +17,17 @@ package voldemort.store.readonly;
 
 /**
  * An enumeration of read-only stores formats
+ * 
+ * <p/>
+ * 
+ * READONLY_V3 uses the same file layout as READONLY_V2 but stores 64-bit
+ * positions in the index files, so a data file is no longer limited to 2 GB.
  */
 public enum ReadOnlyStorageFormat {
     READONLY_V0("ro0", "node-chunks-v0"),
     READONLY_V1("ro1", "partition-chunks-v1"),
-    READONLY_V2("ro2", "replica-chunks-with-keys-v2");
+    READONLY_V2("ro2", "replica-chunks-with-keys-v2"),
+    READONLY_V3("ro3", "replica-chunks-with-keys-large-offsets-v3");
 
     private final String code;
     private final String displayName;
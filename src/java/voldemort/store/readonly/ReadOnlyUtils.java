@@ -21,6 +21,8 @@ public class ReadOnlyUtils {
 
     public static final int POSITION_SIZE = 4;
 
+    public static final int LARGE_POSITION_SIZE = 8;
+
     private static Logger logger = Logger.getLogger(ReadOnlyUtils.class);
 
     public static int chunk(byte[] key, int numChunks) {
@@ -34,6 +36,42 @@ public class ReadOnlyUtils {
         return foundKey;
     }
 
+    /**
+     * Reads the position stored in the index at the given offset
+     * 
+     * @param index The index buffer
+     * @param indexByteOffset The offset of the position
+     * @param positionSize Either {@link #POSITION_SIZE} or
+     *        {@link #LARGE_POSITION_SIZE}
+     * @return The position in the data file
+     */
+    public static long readPosition(ByteBuffer index, int indexByteOffset, int positionSize) {
+        if(positionSize == LARGE_POSITION_SIZE)
+            return index.getLong(indexByteOffset);
+        else
+            return index.getInt(indexByteOffset);
+    }
+
+    /**
+     * Returns the number of bytes used to store a position in the index files
+     * of the given format
+     * 
+     * @param format The RO format
+     * @return The size of a position in bytes
+     */
+    public static int getPositionSize(ReadOnlyStorageFormat format) {
+        switch(format) {
+            case READONLY_V0:
+            case READONLY_V1:
+            case READONLY_V2:
+                return POSITION_SIZE;
+            case READONLY_V3:
+                return LARGE_POSITION_SIZE;
+            default:
+                throw new VoldemortException("Format type not supported");
+        }
+    }
+
     /**
      * Given a file name and read-only storage format, tells whether the file
      * name format is correct
@@ -53,6 +91,7 @@ public class ReadOnlyUtils {
                 }
 
             case READONLY_V2:
+            case READONLY_V3:
                 if(fileName.matches("^[\\d]+_[\\d]+_[\\d]+\\.(data|index)")) {
                     return true;
                 } else {
@@ -64,6 +103,26 @@ public class ReadOnlyUtils {
         }
     }
 
+    /**
+     * Returns the number of bytes used to store a key in the index files of
+     * the given format
+     * 
+     * @param format The RO format
+     * @return The size of a key in bytes
+     */
+    public static int getKeyHashSize(ReadOnlyStorageFormat format) {
+        switch(format) {
+            case READONLY_V0:
+            case READONLY_V1:
+                return 16;
+            case READONLY_V2:
+            case READONLY_V3:
+                return 2 * ByteUtils.SIZE_OF_INT;
+            default:
+                throw new VoldemortException("Format type not supported");
+        }
+    }
+
     /**
      * Given a file name first checks whether it belongs to storage format v2
      * and then retieves the tuple of <partition, replica type> out of it.
@@ -3,8 +3,8 @@ package voldemort.store.readonly;
 import java.nio.ByteBuffer;
 
 /**
- * A way to search for a key in a file of sorted 16 byte keys and 4 byte
- * position offsets
+ * A way to search for a key in a file of sorted keys and position offsets (4
+ * bytes, or 8 bytes for READONLY_V3)
  * 
  * 
  */
@@ -21,4 +21,16 @@ public interface SearchStrategy {
      */
     public int indexOf(ByteBuffer index, byte[] key, int indexSize);
 
+    /**
+     * Search for the key in an index whose positions are positionSize bytes
+     * long
+     * 
+     * @param index The index buffer
+     * @param key The key to search for
+     * @param indexSize The size of the index
+     * @param positionSize The number of bytes of each position
+     * @return The position stored with the key, if the key is found, else -1
+     */
+    public long indexOf(ByteBuffer index, byte[] key, int indexSize, int positionSize);
+
 }
@@ -0,0 +1,193 @@
+package voldemort.store.readonly.chunk;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import voldemort.VoldemortException;
+import voldemort.utils.ByteUtils;
+
+/**
+ * A Bloom filter over the keys of a single chunk, stored next to the chunk's
+ * index file so that lookups for absent keys can skip the index search.
+ * 
+ * The keys added are the keys as stored in the index. Although these are MD5
+ * derived, in the V2 and V3 formats the leading bytes of the key also pick the
+ * chunk, so every key of a chunk shares them modulo the number of chunks. The
+ * two hashes for double hashing are therefore mixed from all the key bytes with
+ * different seeds rather than read from the key directly.
+ * 
+ * The serialized form is an int holding the hash scheme in its high half and
+ * the number of hash functions in its low half, followed by the bit array.
+ * 
+ */
+public class BloomFilter {
+
+    public static final int DEFAULT_BITS_PER_KEY = 10;
+
+    private static final int HEADER_SIZE = ByteUtils.SIZE_OF_INT;
+    private static final int MAX_NUM_HASHES = 30;
+
+    private static final int MIXED_HASH_SCHEME = 1;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SEED1 = 0xcbf29ce484222325L;
+    private static final long SEED2 = 0x9e3779b97f4a7c15L;
+
+    private final ByteBuffer buffer;
+    private final int numHashes;
+    private final long numBits;
+
+    /**
+     * Creates an empty filter
+     * 
+     * @param numKeys The number of keys that will be added
+     * @param bitsPerKey The number of bits to use per key
+     */
+    public BloomFilter(long numKeys, int bitsPerKey) {
+        if(bitsPerKey <= 0)
+            throw new IllegalArgumentException("Bits per key must be positive");
+        long numBytes = Math.max(1, (numKeys * bitsPerKey + 7) / 8);
+        if(numBytes > Integer.MAX_VALUE - HEADER_SIZE)
+            numBytes = Integer.MAX_VALUE - HEADER_SIZE;
+        this.numHashes = Math.max(1, Math.min(MAX_NUM_HASHES,
+                                              (int) Math.round(bitsPerKey * Math.log(2))));
+        this.numBits = numBytes * 8;
+        this.buffer = ByteBuffer.allocate(HEADER_SIZE + (int) numBytes);
+        this.buffer.putInt(0, (MIXED_HASH_SCHEME << 16) | numHashes);
+    }
+
+    /**
+     * Wraps a serialized filter, for example a mapped bloom file
+     * 
+     * @param buffer The serialized filter
+     */
+    public BloomFilter(ByteBuffer buffer) {
+        if(buffer.limit() <= HEADER_SIZE)
+            throw new VoldemortException("Invalid bloom filter of " + buffer.limit() + " bytes.");
+        this.buffer = buffer;
+        int header = buffer.getInt(0);
+        this.numHashes = header & 0xffff;
+        this.numBits = (buffer.limit() - HEADER_SIZE) * 8L;
+        if(numHashes <= 0 || numHashes > MAX_NUM_HASHES)
+            throw new VoldemortException("Invalid number of hash functions " + numHashes
+                                         + " in bloom filter.");
+        if(!isSupported(buffer))
+            throw new VoldemortException("Unknown hash scheme " + (header >>> 16)
+                                         + " in bloom filter.");
+    }
+
+    /**
+     * @param buffer A serialized filter
+     * @return true if the filter was written with the hash scheme of this
+     *         version
+     */
+    public static boolean isSupported(ByteBuffer buffer) {
+        return buffer.limit() > HEADER_SIZE && buffer.getInt(0) >>> 16 == MIXED_HASH_SCHEME;
+    }
+
+    /**
+     * Builds a filter from the keys in an index file
+     * 
+     * @param index Stream over the index file
+     * @param indexSize The size of the index file in bytes
+     * @param keySize The size of the keys in the index
+     * @param positionSize The size of the positions in the index
+     * @param bitsPerKey The number of bits to use per key
+     * @return The filter
+     * @throws IOException
+     */
+    public static BloomFilter fromIndex(InputStream index,
+                                        long indexSize,
+                                        int keySize,
+                                        int positionSize,
+                                        int bitsPerKey) throws IOException {
+        long numKeys = indexSize / (keySize + positionSize);
+        BloomFilter filter = new BloomFilter(numKeys, bitsPerKey);
+        DataInputStream input = new DataInputStream(index);
+        byte[] key = new byte[keySize];
+        byte[] position = new byte[positionSize];
+        for(long entry = 0; entry < numKeys; entry++) {
+            input.readFully(key);
+            input.readFully(position);
+            filter.add(key);
+        }
+        return filter;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public void add(byte[] key) {
+        long hash1 = hash1(key), hash2 = hash2(key);
+        for(int i = 0; i < numHashes; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            int offset = HEADER_SIZE + (int) (bit >>> 3);
+            buffer.put(offset, (byte) (buffer.get(offset) | (1 << (bit & 7))));
+        }
+    }
+
+    /**
+     * @param key The key as stored in the index
+     * @return false if the key was definitely not added to the filter
+     */
+    public boolean mightContain(byte[] key) {
+        long hash1 = hash1(key), hash2 = hash2(key);
+        for(int i = 0; i < numHashes; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % numBits;
+            if((buffer.get(HEADER_SIZE + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The serialized form of the filter
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.limit()];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(0);
+        duplicate.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Loads a mapped filter into physical memory
+     */
+    public void load() {
+        if(buffer instanceof MappedByteBuffer)
+            ((MappedByteBuffer) buffer).load();
+    }
+
+    private long hash1(byte[] key) {
+        return mix(key, SEED1);
+    }
+
+    private long hash2(byte[] key) {
+        // odd, so the probes of a key never collapse onto one bit
+        return mix(key, SEED2) | 1;
+    }
+
+    /* FNV-1a over all the key bytes followed by the murmur3 finalizer */
+    private static long mix(byte[] key, long seed) {
+        long hash = seed;
+        for(byte b: key) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -11,6 +11,7 @@ import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -22,6 +23,7 @@ import voldemort.routing.RoutingStrategy;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.ReadOnlyStorageMetadata;
 import voldemort.store.readonly.ReadOnlyUtils;
+import voldemort.store.readonly.SearchStrategy;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.Pair;
@@ -33,6 +35,39 @@ import com.google.common.collect.Lists;
 /**
  * A set of chunked data and index files for a read-only store
  * 
+ * <p/>
+ * 
+ * The index files are always memory-mapped. The data files are read with
+ * positional reads unless the set is opened with mmapDataFiles, in which case
+ * they are mapped as well and values are located and sliced straight out of
+ * the mapped pages. READONLY_V3 data files may exceed 2 GB and are mapped in
+ * segments.
+ * 
+ * <p/>
+ * 
+ * Opening the set only lists and validates the files. Each chunk's files are
+ * opened and mapped the first time the chunk is accessed, or by
+ * {@link #openChunks()} or {@link #warm()}.
+ * 
+ * <p/>
+ * 
+ * The set is reference counted: it starts with one reference held by its
+ * owner, readers {@link #acquire()} and {@link #release()} it around each
+ * lookup, and the files are closed once the last reference is released.
+ * 
+ * <p/>
+ * 
+ * If the metadata declares bloom filters, each chunk's .bloom file is mapped
+ * and can be consulted with {@link #mightContain(int, byte[])} before the
+ * index is searched.
+ * 
+ * <p/>
+ * 
+ * If the set is opened with a positive fanOutEntriesPerBucket, an in-heap
+ * {@link IndexFanOut} table is built for each index, and
+ * {@link #indexOf(SearchStrategy, int, byte[])} only searches the range of the
+ * index the key's leading bits fall into.
+ * 
  * 
  */
 public class ChunkedFileSet {
@@ -43,16 +78,42 @@ public class ChunkedFileSet {
     private final int nodeId;
     private final File baseDir;
     private final List<Integer> indexFileSizes;
-    private final List<Integer> dataFileSizes;
-    private final List<MappedByteBuffer> indexFiles;
-    private final List<FileChannel> dataFiles;
+    private final List<Long> dataFileSizes;
+    private final List<Chunk> chunks;
+    private final boolean mmapDataFiles;
+    private final boolean hasBloomFilters;
+    private final int fanOutEntriesPerBucket;
     private final HashMap<Object, Integer> chunkIdToChunkStart;
     private final HashMap<Object, Integer> chunkIdToNumChunks;
     private ArrayList<Integer> nodePartitionIds;
     private RoutingStrategy routingStrategy;
     private ReadOnlyStorageFormat storageFormat;
+    private final AtomicInteger references = new AtomicInteger(1);
 
     public ChunkedFileSet(File directory, RoutingStrategy routingStrategy, int nodeId) {
+        this(directory, routingStrategy, nodeId, false);
+    }
+
+    /**
+     * @param mmapDataFiles If true the data files are memory-mapped too
+     */
+    public ChunkedFileSet(File directory,
+                          RoutingStrategy routingStrategy,
+                          int nodeId,
+                          boolean mmapDataFiles) {
+        this(directory, routingStrategy, nodeId, mmapDataFiles, 0);
+    }
+
+    /**
+     * @param mmapDataFiles If true the data files are memory-mapped too
+     * @param fanOutEntriesPerBucket If positive a fan-out table with about
+     *        this many index entries per bucket is built for every chunk
+     */
+    public ChunkedFileSet(File directory,
+                          RoutingStrategy routingStrategy,
+                          int nodeId,
+                          boolean mmapDataFiles,
+                          int fanOutEntriesPerBucket) {
         this.baseDir = directory;
         if(!Utils.isReadableDir(directory))
             throw new VoldemortException(directory.getAbsolutePath()
@@ -74,9 +135,12 @@ public class ChunkedFileSet {
         this.storageFormat = ReadOnlyStorageFormat.fromCode((String) metadata.get(ReadOnlyStorageMetadata.FORMAT,
                                                                                   ReadOnlyStorageFormat.READONLY_V0.getCode()));
         this.indexFileSizes = new ArrayList<Integer>();
-        this.dataFileSizes = new ArrayList<Integer>();
-        this.indexFiles = new ArrayList<MappedByteBuffer>();
-        this.dataFiles = new ArrayList<FileChannel>();
+        this.dataFileSizes = new ArrayList<Long>();
+        this.chunks = new ArrayList<Chunk>();
+        this.mmapDataFiles = mmapDataFiles;
+        this.hasBloomFilters = Boolean.parseBoolean((String) metadata.get(ReadOnlyStorageMetadata.BLOOM_FILTER,
+                                                                          "false"));
+        this.fanOutEntriesPerBucket = fanOutEntriesPerBucket;
         this.chunkIdToChunkStart = new HashMap<Object, Integer>();
         this.chunkIdToNumChunks = new HashMap<Object, Integer>();
         this.nodeId = nodeId;
@@ -90,6 +154,7 @@ public class ChunkedFileSet {
                 initVersion1();
                 break;
             case READONLY_V2:
+            case READONLY_V3:
                 initVersion2();
                 break;
             default:
@@ -105,8 +170,8 @@ public class ChunkedFileSet {
 
         // Convert the index file into chunk set
         List<DataFileChunk> dataFileChunks = Lists.newArrayList();
-        for(FileChannel dataFile: dataFiles) {
-            dataFileChunks.add(new LocalDataFileChunk(dataFile));
+        for(int chunk = 0; chunk < numChunks; chunk++) {
+            dataFileChunks.add(new LocalDataFileChunk(dataFileFor(chunk)));
         }
 
         return new DataFileChunkSet(dataFileChunks, this.dataFileSizes);
@@ -144,11 +209,10 @@ public class ChunkedFileSet {
             long dataLength = data.length();
             validateFileSizes(indexLength, dataLength);
             indexFileSizes.add((int) indexLength);
-            dataFileSizes.add((int) dataLength);
+            dataFileSizes.add(dataLength);
 
-            /* Add the file channel for data */
-            dataFiles.add(openChannel(data));
-            indexFiles.add(mapFile(index));
+            chunks.add(new Chunk(index, data, new File(baseDir, Integer.toString(chunkId)
+                                                                + ".bloom")));
             chunkId++;
         }
         if(chunkId == 0)
@@ -196,11 +260,9 @@ public class ChunkedFileSet {
                     long dataLength = data.length();
                     validateFileSizes(indexLength, dataLength);
                     indexFileSizes.add((int) indexLength);
-                    dataFileSizes.add((int) dataLength);
+                    dataFileSizes.add(dataLength);
 
-                    /* Add the file channel for data */
-                    dataFiles.add(openChannel(data));
-                    indexFiles.add(mapFile(index));
+                    chunks.add(new Chunk(index, data, new File(baseDir, fileName + ".bloom")));
                     chunkId++;
                     globalChunkId++;
                 }
@@ -278,11 +340,11 @@ public class ChunkedFileSet {
                                     long dataLength = data.length();
                                     validateFileSizes(indexLength, dataLength);
                                     indexFileSizes.add((int) indexLength);
-                                    dataFileSizes.add((int) dataLength);
+                                    dataFileSizes.add(dataLength);
 
-                                    /* Add the file channel for data */
-                                    dataFiles.add(openChannel(data));
-                                    indexFiles.add(mapFile(index));
+                                    chunks.add(new Chunk(index,
+                                                         data,
+                                                         new File(baseDir, fileName + ".bloom")));
                                     chunkId++;
                                     globalChunkId++;
                                 }
@@ -327,30 +389,228 @@ public class ChunkedFileSet {
 
     public void validateFileSizes(long indexLength, long dataLength) {
         /* sanity check file sizes */
-        if(indexLength > Integer.MAX_VALUE || dataLength > Integer.MAX_VALUE)
-            throw new VoldemortException("Index or data file exceeds " + Integer.MAX_VALUE
-                                         + " bytes.");
-        if(indexLength % (getKeyHashSize() + ReadOnlyUtils.POSITION_SIZE) != 0L)
+        if(indexLength > Integer.MAX_VALUE)
+            throw new VoldemortException("Index file exceeds " + Integer.MAX_VALUE + " bytes.");
+        if(dataLength > Integer.MAX_VALUE && getPositionSize() == ReadOnlyUtils.POSITION_SIZE)
+            throw new VoldemortException("Data file exceeds " + Integer.MAX_VALUE
+                                         + " bytes, which needs format "
+                                         + ReadOnlyStorageFormat.READONLY_V3);
+        int indexEntrySize = getKeyHashSize() + getPositionSize();
+        if(indexLength % indexEntrySize != 0L)
             throw new VoldemortException("Invalid index file, file length must be a multiple of "
-                                         + (getKeyHashSize() + ReadOnlyUtils.POSITION_SIZE)
-                                         + " but is only " + indexLength + " bytes.");
+                                         + indexEntrySize + " but is only " + indexLength
+                                         + " bytes.");
 
-        if(dataLength < 4 * indexLength / (getKeyHashSize() + ReadOnlyUtils.POSITION_SIZE))
+        if(dataLength < 4 * indexLength / indexEntrySize)
             throw new VoldemortException("Invalid data file, file length must not be less than num_index_entries * 4 bytes, but data file is only "
                                          + dataLength + " bytes.");
     }
 
+    /**
+     * Takes a reference on the file set, so that its files stay open until the
+     * matching {@link #release()}
+     * 
+     * @return false if the file set has already been closed
+     */
+    public boolean acquire() {
+        while(true) {
+            int current = references.get();
+            if(current <= 0)
+                return false;
+            if(references.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Drops a reference, closing the files once the last one is gone
+     */
+    public void release() {
+        if(references.decrementAndGet() == 0)
+            close();
+    }
+
+    /**
+     * Touches the memory-mapped files so that their pages are resident before
+     * the file set starts serving. This covers the index files, which every
+     * lookup searches, the bloom filters and the data files if they are
+     * mapped.
+     */
+    public void warm() {
+        for(Chunk chunk: chunks)
+            chunk.open().load();
+    }
+
+    /**
+     * Opens and maps the files of every chunk without loading them, so that a
+     * corrupt chunk is found before the file set starts serving rather than by
+     * the first lookup that reaches it.
+     */
+    public void openChunks() {
+        for(Chunk chunk: chunks)
+            chunk.open();
+    }
+
     public void close() {
-        for(int chunk = 0; chunk < this.numChunks; chunk++) {
-            FileChannel channel = dataFileFor(chunk);
+        for(Chunk chunk: chunks)
+            chunk.close();
+    }
+
+    /**
+     * The files of a single chunk. They are only opened and mapped the first
+     * time the chunk is accessed, so opening a file set just lists and checks
+     * its files, and chunks that are never read cost nothing.
+     */
+    private final class Chunk {
+
+        private final File indexFile;
+        private final File dataFile;
+        private final File bloomFile;
+        private volatile boolean opened = false;
+        private boolean closed = false;
+        private MappedByteBuffer index;
+        private FileChannel data;
+        private MappedDataFile mappedData;
+        private BloomFilter bloomFilter;
+        private IndexFanOut fanOut;
+
+        private Chunk(File indexFile, File dataFile, File bloomFile) {
+            this.indexFile = indexFile;
+            this.dataFile = dataFile;
+            this.bloomFile = bloomFile;
+        }
+
+        private Chunk open() {
+            if(!opened) {
+                synchronized(this) {
+                    if(!opened)
+                        openFiles();
+                }
+            }
+            return this;
+        }
+
+        private void openFiles() {
+            if(closed)
+                throw new VoldemortException("Chunked file set " + baseDir + " has been closed.");
+            index = mapFile(indexFile);
+            data = openChannel(dataFile);
+            boolean success = false;
             try {
-                channel.close();
+                if(mmapDataFiles)
+                    mappedData = new MappedDataFile(data, dataFile.length());
+                // Chunks without a bloom file, such as the empty ones created
+                // on open, get no filter and are always searched
+                if(hasBloomFilters) {
+                    if(bloomFile.exists()) {
+                        MappedByteBuffer bloom = mapFile(bloomFile);
+                        if(BloomFilter.isSupported(bloom))
+                            bloomFilter = new BloomFilter(bloom);
+                        else
+                            logger.warn("Bloom filter at " + bloomFile
+                                        + " has an unsupported hash scheme, chunk will always be searched");
+                    } else {
+                        logger.debug("No bloom filter found at " + bloomFile
+                                     + ", chunk will always be searched");
+                    }
+                }
+                if(fanOutEntriesPerBucket > 0)
+                    fanOut = IndexFanOut.build(index,
+                                               (int) indexFile.length(),
+                                               getKeyHashSize(),
+                                               getPositionSize(),
+                                               fanOutEntriesPerBucket);
+                success = true;
             } catch(IOException e) {
-                logger.error("Error while closing file.", e);
+                throw new VoldemortException(e);
+            } finally {
+                if(!success) {
+                    closeChannel(data);
+                    mappedData = null;
+                    bloomFilter = null;
+                    fanOut = null;
+                }
             }
+            opened = true;
+        }
+
+        private void load() {
+            index.load();
+            if(bloomFilter != null)
+                bloomFilter.load();
+            if(mappedData != null)
+                mappedData.load();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            if(opened)
+                closeChannel(data);
         }
     }
 
+    private void closeChannel(FileChannel channel) {
+        try {
+            channel.close();
+        } catch(IOException e) {
+            logger.error("Error while closing file.", e);
+        }
+    }
+
+    /**
+     * Checks the chunk's bloom filter, if there is one
+     * 
+     * @param chunk The chunk id
+     * @param key The key in the format stored in the index, see
+     *        {@link #keyToStorageFormat(byte[])}
+     * @return false if the key is definitely not in the chunk
+     */
+    public boolean mightContain(int chunk, byte[] key) {
+        if(!hasBloomFilters)
+            return true;
+        BloomFilter bloomFilter = chunks.get(chunk).open().bloomFilter;
+        return bloomFilter == null || bloomFilter.mightContain(key);
+    }
+
+    public boolean hasBloomFilters() {
+        return hasBloomFilters;
+    }
+
+    /**
+     * Searches the chunk's index for the key. If the set has fan-out tables
+     * only the range of the index the key falls into is handed to the search
+     * strategy.
+     * 
+     * @param searchStrategy The strategy to search the index with
+     * @param chunk The chunk id
+     * @param key The key in the format stored in the index, see
+     *        {@link #keyToStorageFormat(byte[])}
+     * @return The position of the value in the data file, or -1 if the key is
+     *         not found
+     */
+    public long indexOf(SearchStrategy searchStrategy, int chunk, byte[] key) {
+        IndexFanOut fanOut = chunks.get(chunk).open().fanOut;
+        if(fanOut == null)
+            return searchStrategy.indexOf(indexFileFor(chunk),
+                                          key,
+                                          getIndexFileSize(chunk),
+                                          getPositionSize());
+
+        int startEntry = fanOut.startEntry(key);
+        int endEntry = fanOut.endEntry(key);
+        if(startEntry == endEntry)
+            return -1;
+
+        int entrySize = key.length + getPositionSize();
+        ByteBuffer range = indexFileFor(chunk);
+        range.limit(endEntry * entrySize);
+        range.position(startEntry * entrySize);
+        return searchStrategy.indexOf(range.slice(),
+                                      key,
+                                      (endEntry - startEntry) * entrySize,
+                                      getPositionSize());
+    }
+
     private FileChannel openChannel(File file) {
         try {
             return new FileInputStream(file).getChannel();
@@ -387,6 +647,7 @@ public class ChunkedFileSet {
             case READONLY_V1:
                 return ByteUtils.md5(key);
             case READONLY_V2:
+            case READONLY_V3:
                 return ByteUtils.copy(ByteUtils.md5(key), 0, 2 * ByteUtils.SIZE_OF_INT);
             default:
                 throw new VoldemortException("Unknown read-only storage format");
@@ -400,15 +661,17 @@ public class ChunkedFileSet {
      * @return Size of key in bytes
      */
     private int getKeyHashSize() {
-        switch(getReadOnlyStorageFormat()) {
-            case READONLY_V0:
-            case READONLY_V1:
-                return 16;
-            case READONLY_V2:
-                return 2 * ByteUtils.SIZE_OF_INT;
-            default:
-                throw new VoldemortException("Unknown read-only storage format");
-        }
+        return ReadOnlyUtils.getKeyHashSize(getReadOnlyStorageFormat());
+    }
+
+    /**
+     * Depending on the storage format gives the size of the positions stored
+     * in the index file
+     * 
+     * @return Size of position in bytes
+     */
+    public int getPositionSize() {
+        return ReadOnlyUtils.getPositionSize(getReadOnlyStorageFormat());
     }
 
     /**
@@ -425,17 +688,28 @@ public class ChunkedFileSet {
             }
             case READONLY_V1: {
                 List<Integer> routingPartitionList = routingStrategy.getPartitionList(key);
-                routingPartitionList.retainAll(nodePartitionIds);
 
-                if(routingPartitionList.size() != 1) {
+                // The partition list is shared, so find the one partition we
+                // hold without modifying it
+                Integer partitionId = null;
+                for(Integer routingPartition: routingPartitionList) {
+                    if(nodePartitionIds.contains(routingPartition)) {
+                        if(partitionId != null)
+                            return -1;
+                        partitionId = routingPartition;
+                    }
+                }
+
+                if(partitionId == null) {
                     return -1;
                 }
 
-                return chunkIdToChunkStart.get(routingPartitionList.get(0))
+                return chunkIdToChunkStart.get(partitionId)
                        + ReadOnlyUtils.chunk(ByteUtils.md5(key),
-                                             chunkIdToNumChunks.get(routingPartitionList.get(0)));
+                                             chunkIdToNumChunks.get(partitionId));
             }
-            case READONLY_V2: {
+            case READONLY_V2:
+            case READONLY_V3: {
                 List<Integer> routingPartitionList = routingStrategy.getPartitionList(key);
 
                 Pair<Integer, Integer> bucket = null;
@@ -463,7 +737,71 @@ public class ChunkedFileSet {
 
     }
 
-    public byte[] readValue(byte[] key, int chunk, int valueLocation) {
+    /**
+     * Returns true if the data files are memory-mapped.
+     */
+    public boolean isDataFileMapped() {
+        return mmapDataFiles;
+    }
+
+    /**
+     * Locates the value of the key in a memory-mapped data file. The returned
+     * buffer is a slice of the mapped file, so no bytes are copied until the
+     * caller reads it.
+     * 
+     * @param key The key
+     * @param chunk The chunk the key belongs to
+     * @param valueLocation The position of the value found in the index
+     * @return A slice holding the value, or an empty buffer if the key
+     *         collided with others and isn't among them
+     */
+    public ByteBuffer readValueSlice(byte[] key, int chunk, long valueLocation) {
+        if(!mmapDataFiles)
+            throw new IllegalStateException("Data files of " + baseDir + " are not mapped");
+
+        MappedDataFile dataFile = chunks.get(chunk).open().mappedData;
+
+        switch(storageFormat) {
+            case READONLY_V0:
+            case READONLY_V1: {
+                int valueSize = dataFile.getInt(valueLocation);
+                return dataFile.slice(valueLocation + ByteUtils.SIZE_OF_INT, valueSize);
+            }
+            case READONLY_V2:
+            case READONLY_V3: {
+                // Read 'numKeyValues', 'keySize' and 'valueSize'
+                short numKeyValues = dataFile.getShort(valueLocation);
+                valueLocation += ByteUtils.SIZE_OF_SHORT;
+
+                do {
+                    int keySize = dataFile.getInt(valueLocation);
+                    int valueSize = dataFile.getInt(valueLocation + ByteUtils.SIZE_OF_INT);
+                    valueLocation += (2 * ByteUtils.SIZE_OF_INT);
+
+                    // Compare key in place
+                    if(keySize == key.length && dataFile.matches(valueLocation, key))
+                        return dataFile.slice(valueLocation + keySize, valueSize);
+
+                    valueLocation += (keySize + valueSize);
+                } while(--numKeyValues > 0);
+
+                // Could not find key, return value of no size
+                return ByteBuffer.allocate(0);
+            }
+            default: {
+                throw new VoldemortException("Storage format not supported ");
+            }
+        }
+    }
+
+    public byte[] readValue(byte[] key, int chunk, long valueLocation) {
+        if(mmapDataFiles) {
+            ByteBuffer value = readValueSlice(key, chunk, valueLocation);
+            byte[] bytes = new byte[value.remaining()];
+            value.get(bytes);
+            return bytes;
+        }
+
         FileChannel dataFile = dataFileFor(chunk);
         try {
             switch(storageFormat) {
@@ -479,7 +817,8 @@ public class ChunkedFileSet {
                     dataFile.read(valueBuffer, valueLocation + ByteUtils.SIZE_OF_INT);
                     return valueBuffer.array();
                 }
-                case READONLY_V2: {
+                case READONLY_V2:
+                case READONLY_V3: {
 
                     // Buffer for 'numKeyValues', 'keySize' and 'valueSize'
                     int headerSize = ByteUtils.SIZE_OF_SHORT + (2 * ByteUtils.SIZE_OF_INT);
@@ -537,6 +876,7 @@ public class ChunkedFileSet {
 
     /**
      * Iterator for RO keys - Works only for ReadOnlyStorageFormat.READONLY_V2
+     * and READONLY_V3
      */
     public static class ROKeyIterator extends DataFileChunkSetIterator<ByteArray> {
 
@@ -577,7 +917,7 @@ public class ChunkedFileSet {
 
     /**
      * Iterator for RO entries - Works only for
-     * ReadOnlyStorageFormat.READONLY_V2
+     * ReadOnlyStorageFormat.READONLY_V2 and READONLY_V3
      */
     public static class ROEntriesIterator extends
             DataFileChunkSetIterator<Pair<ByteArray, Versioned<byte[]>>> {
@@ -624,7 +964,7 @@ public class ChunkedFileSet {
      * Iterator over top 8 bytes of md5(key) and all collided entries (
      * including the number of entries )
      * 
-     * Works only for ReadOnlyStorageFormat.READONLY_V2
+     * Works only for ReadOnlyStorageFormat.READONLY_V2 and READONLY_V3
      */
     public static class ROCollidedEntriesIterator extends
             DataFileChunkSetIterator<Pair<ByteBuffer, ByteBuffer>> {
@@ -692,18 +1032,18 @@ public class ChunkedFileSet {
     }
 
     public ByteBuffer indexFileFor(int chunk) {
-        return indexFiles.get(chunk).duplicate();
+        return chunks.get(chunk).open().index.duplicate();
     }
 
     public FileChannel dataFileFor(int chunk) {
-        return dataFiles.get(chunk);
+        return chunks.get(chunk).open().data;
     }
 
     public int getIndexFileSize(int chunk) {
         return this.indexFileSizes.get(chunk);
     }
 
-    public int getDataFileSize(int chunk) {
+    public long getDataFileSize(int chunk) {
         return this.dataFileSizes.get(chunk);
     }
 
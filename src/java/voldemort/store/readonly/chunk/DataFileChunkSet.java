@@ -21,14 +21,14 @@ import java.util.List;
 public class DataFileChunkSet {
 
     private final List<DataFileChunk> dataFiles;
-    private final List<Integer> dataFileSizes;
+    private final List<Long> dataFileSizes;
 
-    public DataFileChunkSet(List<DataFileChunk> dataFiles, List<Integer> dataFileSizes) {
+    public DataFileChunkSet(List<DataFileChunk> dataFiles, List<Long> dataFileSizes) {
         this.dataFiles = dataFiles;
         this.dataFileSizes = dataFileSizes;
     }
 
-    public int getDataFileSize(int chunk) {
+    public long getDataFileSize(int chunk) {
         return this.dataFileSizes.get(chunk);
     }
 
@@ -0,0 +1,86 @@
+package voldemort.store.readonly.chunk;
+
+import java.nio.ByteBuffer;
+
+import voldemort.utils.ByteUtils;
+
+/**
+ * An in-heap fan-out table over a sorted index, mapping the leading bits of a
+ * key to the range of index entries whose keys start with the same bits. The
+ * keys are MD5 based and so spread evenly, which keeps every range close to
+ * the same size.
+ * 
+ */
+public class IndexFanOut {
+
+    private static final int MAX_BITS = 20;
+
+    private final int bits;
+    private final int[] bucketStarts;
+
+    private IndexFanOut(int bits, int[] bucketStarts) {
+        this.bits = bits;
+        this.bucketStarts = bucketStarts;
+    }
+
+    /**
+     * Builds the table with one sequential pass over the index
+     * 
+     * @param index The index buffer
+     * @param indexFileSize The size of the index in bytes
+     * @param keySize The size of the keys in the index, at least 4 bytes
+     * @param positionSize The size of the positions in the index
+     * @param entriesPerBucket The average number of entries a bucket should
+     *        hold, which determines the number of leading bits used
+     * @return The table
+     */
+    public static IndexFanOut build(ByteBuffer index,
+                                    int indexFileSize,
+                                    int keySize,
+                                    int positionSize,
+                                    int entriesPerBucket) {
+        if(entriesPerBucket <= 0)
+            throw new IllegalArgumentException("Entries per bucket must be positive");
+        int entrySize = keySize + positionSize;
+        int numEntries = indexFileSize / entrySize;
+
+        int bits = 0;
+        while(bits < MAX_BITS && ((long) numEntries >> bits) > entriesPerBucket)
+            bits++;
+
+        int[] bucketStarts = new int[(1 << bits) + 1];
+        int bucket = 0;
+        for(int entry = 0; entry < numEntries; entry++) {
+            int entryBucket = bucketOf(index.getInt(entry * entrySize), bits);
+            while(bucket <= entryBucket)
+                bucketStarts[bucket++] = entry;
+        }
+        while(bucket < bucketStarts.length)
+            bucketStarts[bucket++] = numEntries;
+        return new IndexFanOut(bits, bucketStarts);
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * @param key The key as stored in the index
+     * @return The first index entry that may hold the key
+     */
+    public int startEntry(byte[] key) {
+        return bucketStarts[bucketOf(ByteUtils.readInt(key, 0), bits)];
+    }
+
+    /**
+     * @param key The key as stored in the index
+     * @return One past the last index entry that may hold the key
+     */
+    public int endEntry(byte[] key) {
+        return bucketStarts[bucketOf(ByteUtils.readInt(key, 0), bits) + 1];
+    }
+
+    private static int bucketOf(int leadingBytes, int bits) {
+        return bits == 0 ? 0 : leadingBytes >>> (32 - bits);
+    }
+}
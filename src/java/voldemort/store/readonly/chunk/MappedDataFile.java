@@ -0,0 +1,133 @@
+package voldemort.store.readonly.chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import voldemort.utils.ByteUtils;
+
+/**
+ * A read-only memory mapping of a data file. A single MappedByteBuffer can
+ * only address 2 GB, so larger files are mapped as consecutive segments and
+ * addressed with long positions.
+ * 
+ */
+public class MappedDataFile {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentSize;
+    private final long length;
+
+    public MappedDataFile(FileChannel channel, long length) throws IOException {
+        this(channel, length, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedDataFile(FileChannel channel, long length, int segmentSize) throws IOException {
+        if(segmentSize <= 0)
+            throw new IllegalArgumentException("Segment size must be positive");
+        this.segmentSize = segmentSize;
+        this.length = length;
+
+        int numSegments = (int) ((length + segmentSize - 1) / segmentSize);
+        this.segments = new MappedByteBuffer[numSegments];
+        for(int segment = 0; segment < numSegments; segment++) {
+            long start = (long) segment * segmentSize;
+            segments[segment] = channel.map(MapMode.READ_ONLY,
+                                            start,
+                                            Math.min(segmentSize, length - start));
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Loads the contents of the file into physical memory
+     */
+    public void load() {
+        for(MappedByteBuffer segment: segments)
+            segment.load();
+    }
+
+    public short getShort(long position) {
+        int offset = offsetOf(position);
+        if(offset + ByteUtils.SIZE_OF_SHORT <= segmentSize)
+            return segments[segmentOf(position)].getShort(offset);
+        return ByteUtils.readShort(get(position, new byte[ByteUtils.SIZE_OF_SHORT]), 0);
+    }
+
+    public int getInt(long position) {
+        int offset = offsetOf(position);
+        if(offset + ByteUtils.SIZE_OF_INT <= segmentSize)
+            return segments[segmentOf(position)].getInt(offset);
+        return ByteUtils.readInt(get(position, new byte[ByteUtils.SIZE_OF_INT]), 0);
+    }
+
+    /**
+     * Copies bytes starting at position into the given array
+     * 
+     * @param position The position in the file
+     * @param dest The array to fill
+     * @return The filled array
+     */
+    public byte[] get(long position, byte[] dest) {
+        int copied = 0;
+        while(copied < dest.length) {
+            ByteBuffer segment = segments[segmentOf(position + copied)].duplicate();
+            segment.position(offsetOf(position + copied));
+            int toCopy = Math.min(dest.length - copied, segment.remaining());
+            segment.get(dest, copied, toCopy);
+            copied += toCopy;
+        }
+        return dest;
+    }
+
+    /**
+     * Returns a read-only view of the given range. If the range lies within a
+     * single segment no bytes are copied, otherwise they are copied into a
+     * heap buffer.
+     * 
+     * @param position The position in the file
+     * @param size Number of bytes
+     * @return A buffer positioned at zero and limited to size
+     */
+    public ByteBuffer slice(long position, int size) {
+        int offset = offsetOf(position);
+        if(offset + size > segmentSize)
+            return ByteBuffer.wrap(get(position, new byte[size])).asReadOnlyBuffer();
+
+        ByteBuffer slice = segments[segmentOf(position)].duplicate();
+        slice.limit(offset + size);
+        slice.position(offset);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Compares the bytes stored at position with the given bytes
+     * 
+     * @param position The position in the file
+     * @param bytes The bytes to compare against
+     * @return true if the next bytes.length bytes are equal to bytes
+     */
+    public boolean matches(long position, byte[] bytes) {
+        ByteBuffer stored = slice(position, bytes.length);
+        for(int i = 0; i < bytes.length; i++) {
+            if(stored.get(i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private int segmentOf(long position) {
+        return (int) (position / segmentSize);
+    }
+
+    private int offsetOf(long position) {
+        return (int) (position % segmentSize);
+    }
+}
@@ -35,6 +35,7 @@ import voldemort.store.DelegatingStore;
 import voldemort.store.Store;
 import voldemort.store.StoreUtils;
 import voldemort.store.UnreachableStoreException;
+import voldemort.store.metadata.MetadataSnapshot;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.metadata.MetadataStore.VoldemortState;
 import voldemort.store.socket.SocketStoreFactory;
@@ -108,14 +109,11 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
     }
 
     private RebalancePartitionsInfo redirectingKey(ByteArray key) {
-        if(VoldemortState.REBALANCING_MASTER_SERVER.equals(metadata.getServerState())
+        MetadataSnapshot snapshot = metadata.getSnapshot();
+        if(VoldemortState.REBALANCING_MASTER_SERVER == snapshot.getServerState()
            && isRedirectingStoreEnabled.get()) {
-            return metadata.getRebalancerState().find(getName(),
-                                                      metadata.getRoutingStrategy(getName())
-                                                              .getPartitionList(key.get()),
-                                                      metadata.getCluster()
-                                                              .getNodeById(metadata.getNodeId())
-                                                              .getPartitionIds());
+            return snapshot.findStealInfo(getName(), snapshot.getRoutingStrategy(getName())
+                                                             .getPartitionList(key.get()));
         }
         return null;
     }
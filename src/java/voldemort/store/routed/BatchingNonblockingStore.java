@@ -0,0 +1,406 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.store.routed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.store.UnreachableStoreException;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.store.socket.SocketStore;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Time;
+import voldemort.utils.Utils;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Maps;
+
+/**
+ * BatchingNonblockingStore coalesces the get and getAll requests sent to a
+ * single node. The first request to arrive opens a batch; every request that
+ * arrives within the batching window (or until the batch holds the maximum
+ * number of keys) joins it, and the whole batch is then sent as one getAll.
+ * The results are split back up and each caller's callback receives exactly
+ * what it would have received from its own request.
+ * 
+ * <p/>
+ * 
+ * Requests with transforms and all other operations are passed straight
+ * through to the inner store, as is a batch that only holds one request.
+ */
+public class BatchingNonblockingStore implements NonblockingStore {
+
+    private final NonblockingStore innerStore;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long batchWindowUs;
+
+    private final int maxBatchKeys;
+
+    private final Object lock = new Object();
+
+    private final AtomicLong batchedRequests = new AtomicLong(0);
+
+    private final AtomicLong sentBatches = new AtomicLong(0);
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private Batch currentBatch;
+
+    public BatchingNonblockingStore(NonblockingStore innerStore,
+                                    ScheduledExecutorService scheduler,
+                                    long batchWindowUs,
+                                    int maxBatchKeys) {
+        if(batchWindowUs <= 0)
+            throw new IllegalArgumentException("Batch window must be positive.");
+        if(maxBatchKeys <= 0)
+            throw new IllegalArgumentException("Max batch keys must be positive.");
+
+        this.innerStore = Utils.notNull(innerStore);
+        this.scheduler = Utils.notNull(scheduler);
+        this.batchWindowUs = batchWindowUs;
+        this.maxBatchKeys = maxBatchKeys;
+    }
+
+    public void submitGetRequest(ByteArray key,
+                                 byte[] transforms,
+                                 NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        if(transforms != null) {
+            innerStore.submitGetRequest(key, transforms, callback, timeoutMs);
+            return;
+        }
+
+        add(new BatchedRequest(Collections.singletonList(key), true, callback), timeoutMs);
+    }
+
+    public void submitGetAllRequest(Iterable<ByteArray> keys,
+                                    Map<ByteArray, byte[]> transforms,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        if(transforms != null && !transforms.isEmpty()) {
+            innerStore.submitGetAllRequest(keys, transforms, callback, timeoutMs);
+            return;
+        }
+
+        add(new BatchedRequest(keys, false, callback), timeoutMs);
+    }
+
+    public void submitGetVersionsRequest(ByteArray key,
+                                         NonblockingStoreCallback callback,
+                                         long timeoutMs) {
+        innerStore.submitGetVersionsRequest(key, callback, timeoutMs);
+    }
+
+    public void submitPutRequest(ByteArray key,
+                                 Versioned<byte[]> value,
+                                 byte[] transforms,
+                                 NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        innerStore.submitPutRequest(key, value, transforms, callback, timeoutMs);
+    }
+
+    public void submitDeleteRequest(ByteArray key,
+                                    Version version,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        innerStore.submitDeleteRequest(key, version, callback, timeoutMs);
+    }
+
+    public void close() throws VoldemortException {
+        innerStore.close();
+    }
+
+    /**
+     * Returns the number of get and getAll requests that were sent as part of
+     * a batch with other requests.
+     */
+    public long getBatchedRequestCount() {
+        return batchedRequests.get();
+    }
+
+    /**
+     * Returns the number of coalesced getAll requests sent to the inner store.
+     */
+    public long getBatchCount() {
+        return sentBatches.get();
+    }
+
+    private void add(BatchedRequest request, long timeoutMs) {
+        Batch toSend = null;
+
+        synchronized(lock) {
+            if(currentBatch == null) {
+                final Batch batch = new Batch();
+                currentBatch = batch;
+
+                try {
+                    scheduler.schedule(new Runnable() {
+
+                        public void run() {
+                            synchronized(lock) {
+                                // It filled up and was sent already.
+                                if(currentBatch != batch)
+                                    return;
+
+                                currentBatch = null;
+                            }
+
+                            sendWithoutWaiting(batch);
+                        }
+
+                    }, batchWindowUs, TimeUnit.MICROSECONDS);
+                } catch(RejectedExecutionException e) {
+                    // We're shutting down, don't hold on to the request.
+                    currentBatch = null;
+                    toSend = batch;
+                }
+            }
+
+            Batch batch = toSend != null ? toSend : currentBatch;
+            batch.add(request, timeoutMs);
+
+            if(toSend == null && batch.keys.size() >= maxBatchKeys) {
+                currentBatch = null;
+                toSend = batch;
+            }
+        }
+
+        if(toSend != null)
+            send(toSend);
+    }
+
+    /**
+     * Sends a batch whose window has closed. This runs on the scheduler
+     * thread, which must not wait for a connection while other batches are
+     * due, so if every connection to the node is in use the batch is tried
+     * again after another window until its timeout has passed.
+     */
+    private void sendWithoutWaiting(final Batch batch) {
+        if(send(batch, false))
+            return;
+
+        if(System.nanoTime() - batch.startNs >= TimeUnit.MILLISECONDS.toNanos(batch.timeoutMs)) {
+            batch.complete(new UnreachableStoreException("No connection was free to send "
+                                                         + batch.requests.size()
+                                                         + " batched requests within "
+                                                         + batch.timeoutMs + " ms."));
+            return;
+        }
+
+        if(logger.isDebugEnabled())
+            logger.debug("No connection free for a batch of " + batch.requests.size()
+                         + " requests, trying again after the next window.");
+
+        try {
+            scheduler.schedule(new Runnable() {
+
+                public void run() {
+                    sendWithoutWaiting(batch);
+                }
+
+            }, batchWindowUs, TimeUnit.MICROSECONDS);
+        } catch(RejectedExecutionException e) {
+            // We're shutting down, nothing else is waiting on this thread.
+            send(batch);
+        }
+    }
+
+    private void send(Batch batch) {
+        send(batch, true);
+    }
+
+    /**
+     * @param wait Whether to wait for a connection to the node if all of them
+     *        are in use. Only a {@link SocketStore} can give up without
+     *        waiting, other stores always send.
+     * @return false if the batch was not sent because no connection was free
+     */
+    private boolean send(final Batch batch, boolean wait) {
+        SocketStore socketStore = !wait && innerStore instanceof SocketStore ? (SocketStore) innerStore
+                                                                            : null;
+
+        if(batch.requests.size() == 1) {
+            BatchedRequest request = batch.requests.get(0);
+
+            if(socketStore != null) {
+                if(request.isGet)
+                    return socketStore.trySubmitGetRequest(request.keys.get(0),
+                                                           null,
+                                                           request.callback,
+                                                           batch.timeoutMs);
+                else
+                    return socketStore.trySubmitGetAllRequest(request.keys,
+                                                              null,
+                                                              request.callback,
+                                                              batch.timeoutMs);
+            }
+
+            if(request.isGet)
+                innerStore.submitGetRequest(request.keys.get(0),
+                                            null,
+                                            request.callback,
+                                            batch.timeoutMs);
+            else
+                innerStore.submitGetAllRequest(request.keys,
+                                               null,
+                                               request.callback,
+                                               batch.timeoutMs);
+
+            return true;
+        }
+
+        NonblockingStoreCallback callback = new NonblockingStoreCallback() {
+
+            public void requestComplete(Object result, long requestTime) {
+                batch.complete(result);
+            }
+
+        };
+
+        try {
+            if(socketStore != null) {
+                if(!socketStore.trySubmitGetAllRequest(batch.keys, null, callback, batch.timeoutMs))
+                    return false;
+            } else {
+                innerStore.submitGetAllRequest(batch.keys, null, callback, batch.timeoutMs);
+            }
+        } catch(Exception e) {
+            callback.requestComplete(e, 0);
+        }
+
+        sentBatches.incrementAndGet();
+        batchedRequests.addAndGet(batch.requests.size());
+        return true;
+    }
+
+    private static class Batch {
+
+        private final Set<ByteArray> keys = new LinkedHashSet<ByteArray>();
+
+        private final List<BatchedRequest> requests = new ArrayList<BatchedRequest>();
+
+        private final long startNs = System.nanoTime();
+
+        private long timeoutMs;
+
+        private void add(BatchedRequest request, long timeoutMs) {
+            keys.addAll(request.keys);
+            requests.add(request);
+
+            // Every caller enforces its own timeout, so don't let the batch
+            // give up on the most patient of them.
+            this.timeoutMs = Math.max(this.timeoutMs, timeoutMs);
+        }
+
+        private void complete(Object result) {
+            for(BatchedRequest request: requests)
+                request.complete(result);
+        }
+
+    }
+
+    private class BatchedRequest {
+
+        private final List<ByteArray> keys;
+
+        private final boolean isGet;
+
+        private final NonblockingStoreCallback callback;
+
+        private final long startNs;
+
+        private BatchedRequest(Iterable<ByteArray> keys,
+                               boolean isGet,
+                               NonblockingStoreCallback callback) {
+            this.keys = new ArrayList<ByteArray>();
+
+            for(ByteArray key: keys)
+                this.keys.add(key);
+
+            this.isGet = isGet;
+            this.callback = callback;
+            this.startNs = System.nanoTime();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object result) {
+            if(callback == null)
+                return;
+
+            Object response = result;
+
+            if(!(result instanceof Exception)) {
+                Map<ByteArray, List<Versioned<byte[]>>> values = (Map<ByteArray, List<Versioned<byte[]>>>) result;
+
+                if(isGet) {
+                    response = copy(values.get(keys.get(0)));
+                } else {
+                    Map<ByteArray, List<Versioned<byte[]>>> subset = Maps.newHashMapWithExpectedSize(keys.size());
+
+                    for(ByteArray key: keys) {
+                        List<Versioned<byte[]>> versioneds = values.get(key);
+
+                        if(versioneds != null)
+                            subset.put(key, copy(versioneds));
+                    }
+
+                    response = subset;
+                }
+            }
+
+            try {
+                callback.requestComplete(response, (System.nanoTime() - startNs) / Time.NS_PER_MS);
+            } catch(Exception e) {
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn(e, e);
+            }
+        }
+
+        /**
+         * Several callers may have asked for the same key, so give each its
+         * own copy of the versions in case they are modified downstream.
+         */
+        private List<Versioned<byte[]>> copy(List<Versioned<byte[]>> versioneds) {
+            if(versioneds == null)
+                return new ArrayList<Versioned<byte[]>>(0);
+
+            List<Versioned<byte[]>> copy = new ArrayList<Versioned<byte[]>>(versioneds.size());
+
+            for(Versioned<byte[]> versioned: versioneds)
+                copy.add(versioned.cloneVersioned());
+
+            return copy;
+        }
+
+    }
+
+}
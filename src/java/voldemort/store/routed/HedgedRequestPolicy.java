@@ -0,0 +1,154 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import voldemort.cluster.Node;
+
+/**
+ * HedgedRequestPolicy decides how long a read waits on the replicas it asked
+ * before it sends the same request to the next node in the preference list.
+ * Response times are tracked per node, since one slow or remote replica would
+ * otherwise skew the delay for all the others. The delay is the given
+ * percentile of the most recent response times of the slowest node asked, so
+ * only requests that are slower than (say) 95% of that node's requests get
+ * hedged.
+ * 
+ * <p/>
+ * 
+ * No request is hedged until enough response times have been recorded for
+ * every node asked to make the percentile meaningful. Nor is a request hedged
+ * if it already went to every node in the preference list, so a store whose
+ * preferred reads equal its replication factor never hedges.
+ */
+public class HedgedRequestPolicy {
+
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+    private static final int RECOMPUTE_INTERVAL = 100;
+
+    private final double percentile;
+
+    private final int sampleSize;
+
+    private final ConcurrentMap<Integer, ResponseTimes> nodeResponseTimes = new ConcurrentHashMap<Integer, ResponseTimes>();
+
+    public HedgedRequestPolicy(double percentile) {
+        this(percentile, DEFAULT_SAMPLE_SIZE);
+    }
+
+    public HedgedRequestPolicy(double percentile, int sampleSize) {
+        if(percentile <= 0 || percentile >= 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 (exclusive).");
+        if(sampleSize < RECOMPUTE_INTERVAL)
+            throw new IllegalArgumentException("Sample size must be at least "
+                                               + RECOMPUTE_INTERVAL + ".");
+
+        this.percentile = percentile;
+        this.sampleSize = sampleSize;
+    }
+
+    public void recordResponseTime(int nodeId, long requestTimeMs) {
+        ResponseTimes responseTimes = nodeResponseTimes.get(nodeId);
+
+        if(responseTimes == null) {
+            ResponseTimes newResponseTimes = new ResponseTimes();
+            responseTimes = nodeResponseTimes.putIfAbsent(nodeId, newResponseTimes);
+
+            if(responseTimes == null)
+                responseTimes = newResponseTimes;
+        }
+
+        responseTimes.record(requestTimeMs);
+    }
+
+    /**
+     * Returns the time in ms to wait on a node before hedging a request.
+     * 
+     * @param nodeId The id of the node
+     * @return The delay, or -1 if too few response times have been recorded
+     *         for the node to hedge yet
+     */
+    public long getHedgeDelayMs(int nodeId) {
+        ResponseTimes responseTimes = nodeResponseTimes.get(nodeId);
+        return responseTimes != null ? responseTimes.hedgeDelayMs : -1;
+    }
+
+    /**
+     * Returns the time in ms to wait on the given nodes before hedging a
+     * request, which is the delay of the slowest of them.
+     * 
+     * @param nodes The nodes the request went to
+     * @return The delay, or -1 if any of the nodes has too few response times
+     *         recorded to hedge yet
+     */
+    public long getHedgeDelayMs(List<Node> nodes) {
+        long hedgeDelayMs = -1;
+
+        for(Node node: nodes) {
+            long nodeHedgeDelayMs = getHedgeDelayMs(node.getId());
+
+            if(nodeHedgeDelayMs < 0)
+                return -1;
+
+            hedgeDelayMs = Math.max(hedgeDelayMs, nodeHedgeDelayMs);
+        }
+
+        return hedgeDelayMs;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    private class ResponseTimes {
+
+        private final long[] samples = new long[sampleSize];
+
+        private int nextSample;
+
+        private int sampleCount;
+
+        private int samplesSinceRecompute;
+
+        private volatile long hedgeDelayMs = -1;
+
+        private synchronized void record(long requestTimeMs) {
+            samples[nextSample] = requestTimeMs;
+            nextSample = (nextSample + 1) % samples.length;
+
+            if(sampleCount < samples.length)
+                sampleCount++;
+
+            // Sorting the samples on every response would cost more than the
+            // hedging saves, so only refresh the delay every so often.
+            if(++samplesSinceRecompute >= RECOMPUTE_INTERVAL) {
+                long[] sorted = Arrays.copyOf(samples, sampleCount);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+                hedgeDelayMs = sorted[Math.max(0, Math.min(index, sampleCount - 1))];
+                samplesSinceRecompute = 0;
+            }
+        }
+
+    }
+
+}
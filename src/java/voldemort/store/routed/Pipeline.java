@@ -19,8 +19,11 @@ package voldemort.store.routed;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 
@@ -42,6 +45,16 @@ import voldemort.store.routed.action.Action;
  * A Pipeline instance is created per-request inside {@link RoutedStore}. This
  * is due to the fact that it includes internal state, specific to each
  * operation request (get, getAll, getVersions, put, and delete) invocation.
+ * 
+ * <p/>
+ * 
+ * A Pipeline is either run by the calling thread, which blocks in
+ * {@link #execute()} until the pipeline is finished, or asynchronously via
+ * {@link #executeAsync(Executor, Listener)}. In the latter case no thread
+ * waits for events: whenever an event is added to an idle pipeline, the
+ * pending events are processed on the given executor. Actions that would
+ * otherwise wait for responses instead check {@link #isAsync()} and add their
+ * completion event from the response callbacks.
  */
 
 public class Pipeline {
@@ -75,6 +88,20 @@ public class Pipeline {
 
     }
 
+    /**
+     * Notified once an asynchronously executed pipeline is finished.
+     */
+    public interface Listener {
+
+        /**
+         * @param e The exception thrown while processing the pipeline's
+         *        events, or null if it finished normally (which includes
+         *        finishing with a fatal error in the pipeline data)
+         */
+        public void pipelineFinished(Exception e);
+
+    }
+
     private final Operation operation;
 
     private final long timeout;
@@ -91,6 +118,14 @@ public class Pipeline {
 
     private volatile boolean finished = false;
 
+    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+
+    private final AtomicBoolean isNotified = new AtomicBoolean(false);
+
+    private volatile Executor executor;
+
+    private volatile Listener listener;
+
     /**
      * 
      * @param operation
@@ -148,6 +183,9 @@ public class Pipeline {
             logger.trace("Adding event " + event);
 
         eventQueue.add(event);
+
+        if(executor != null)
+            scheduleProcessing();
     }
 
     public boolean isHintedHandoffEnabled() {
@@ -162,6 +200,10 @@ public class Pipeline {
         return finished;
     }
 
+    public boolean isAsync() {
+        return executor != null;
+    }
+
     /**
      * Process events in the order as they were received.
      * 
@@ -188,34 +230,121 @@ public class Pipeline {
                     throw new VoldemortException(operation.getSimpleName()
                                                  + " returned a null event");
 
-                if(event.equals(Event.ERROR)) {
-                    if(logger.isTraceEnabled())
-                        logger.trace(operation.getSimpleName()
-                                     + " request, events complete due to error");
-
+                if(handleEvent(event))
                     break;
-                } else if(event.equals(Event.COMPLETED)) {
-                    if(logger.isTraceEnabled())
-                        logger.trace(operation.getSimpleName() + " request, events complete");
+            }
+        } finally {
+            finished = true;
+        }
+    }
 
-                    break;
+    /**
+     * Process events in the order as they were received, without blocking the
+     * calling thread. The events are processed on the given executor and the
+     * listener is notified once the pipeline is finished.
+     * 
+     * <p/>
+     * 
+     * Unlike {@link #execute()} there is no overall timeout: the pipeline
+     * relies on its actions' requests timing out individually.
+     * 
+     * @param executor Executor on which events are processed
+     * @param listener Listener notified when the pipeline is finished
+     */
+
+    public void executeAsync(Executor executor, Listener listener) {
+        if(executor == null)
+            throw new IllegalArgumentException("executor must be non-null");
+
+        this.listener = listener;
+        this.executor = executor;
+
+        if(!eventQueue.isEmpty())
+            scheduleProcessing();
+    }
+
+    private void scheduleProcessing() {
+        if(!isProcessing.compareAndSet(false, true))
+            return;
+
+        try {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    processEvents();
                 }
 
-                Action action = eventActions.get(event);
+            });
+        } catch(RejectedExecutionException e) {
+            finished = true;
+            notifyListener(e);
+        }
+    }
+
+    private void processEvents() {
+        try {
+            while(true) {
+                Event event = eventQueue.poll();
+
+                if(event == null) {
+                    isProcessing.set(false);
 
-                if(action == null)
-                    throw new IllegalStateException("action was null for event " + event);
+                    // Another thread may have added an event after we polled
+                    // but before we stopped processing; if so, it's up to us
+                    // unless that thread has already started processing.
+                    if(eventQueue.isEmpty() || !isProcessing.compareAndSet(false, true))
+                        return;
 
-                if(logger.isTraceEnabled())
-                    logger.trace(operation.getSimpleName() + " request, action "
-                                 + action.getClass().getSimpleName() + " to handle " + event
-                                 + " event");
+                    continue;
+                }
 
-                action.execute(this);
+                if(handleEvent(event)) {
+                    finished = true;
+                    notifyListener(null);
+                    return;
+                }
             }
-        } finally {
+        } catch(Exception e) {
             finished = true;
+            notifyListener(e);
         }
     }
 
+    private void notifyListener(Exception e) {
+        if(listener != null && isNotified.compareAndSet(false, true))
+            listener.pipelineFinished(e);
+    }
+
+    /**
+     * Runs the action for the given event.
+     * 
+     * @return True if the event finishes the pipeline
+     */
+
+    private boolean handleEvent(Event event) {
+        if(event.equals(Event.ERROR)) {
+            if(logger.isTraceEnabled())
+                logger.trace(operation.getSimpleName() + " request, events complete due to error");
+
+            return true;
+        } else if(event.equals(Event.COMPLETED)) {
+            if(logger.isTraceEnabled())
+                logger.trace(operation.getSimpleName() + " request, events complete");
+
+            return true;
+        }
+
+        Action action = eventActions.get(event);
+
+        if(action == null)
+            throw new IllegalStateException("action was null for event " + event);
+
+        if(logger.isTraceEnabled())
+            logger.trace(operation.getSimpleName() + " request, action "
+                         + action.getClass().getSimpleName() + " to handle " + event + " event");
+
+        action.execute(this);
+        return false;
+    }
+
 }
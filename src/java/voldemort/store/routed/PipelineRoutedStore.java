@@ -19,9 +19,13 @@ package voldemort.store.routed;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.log4j.Level;
+
 import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Zone;
@@ -32,6 +36,7 @@ import voldemort.store.StoreDefinition;
 import voldemort.store.StoreRequest;
 import voldemort.store.StoreUtils;
 import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.Pipeline.Operation;
 import voldemort.store.routed.action.ConfigureNodes;
@@ -56,20 +61,30 @@ import voldemort.store.slop.strategy.HintedHandoffStrategyFactory;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.SystemTime;
+import voldemort.utils.Time;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
 
 /**
  * A Store which multiplexes requests to different internal Stores
  * 
+ * <p/>
  * 
+ * PipelineRoutedStore is also a {@link NonblockingStore}. Asynchronous requests
+ * run their pipeline without any thread waiting for the responses: the
+ * pipeline is advanced by the callbacks of the requests to the individual
+ * nodes, and its actions run on the routed store's thread pool. Only the
+ * fallbacks that ask the remaining nodes one at a time, when too few of the
+ * preferred nodes answered a read, still wait for each node.
  */
-public class PipelineRoutedStore extends RoutedStore {
+public class PipelineRoutedStore extends RoutedStore implements NonblockingStore {
 
     private final Map<Integer, NonblockingStore> nonblockingStores;
     private final Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores;
     private final Map<Integer, NonblockingStore> nonblockingSlopStores;
     private final HintedHandoffStrategy handoffStrategy;
+    private final HedgedRequestPolicy hedgedRequestPolicy;
+    private final ExecutorService threadPool;
     private Zone clientZone;
     private boolean zoneRoutingEnabled;
 
@@ -98,6 +113,52 @@ public class PipelineRoutedStore extends RoutedStore {
                                int clientZoneId,
                                long timeoutMs,
                                FailureDetector failureDetector) {
+        this(name,
+             innerStores,
+             nonblockingStores,
+             slopStores,
+             nonblockingSlopStores,
+             cluster,
+             storeDef,
+             repairReads,
+             clientZoneId,
+             timeoutMs,
+             failureDetector,
+             null,
+             null);
+    }
+
+    /**
+     * Create a PipelineRoutedStore
+     * 
+     * @param name The name of the store
+     * @param innerStores The mapping of node to client
+     * @param nonblockingStores
+     * @param slopStores The stores for hints
+     * @param cluster Cluster definition
+     * @param storeDef Store definition
+     * @param repairReads Is read repair enabled?
+     * @param clientZoneId Zone the client is in
+     * @param timeoutMs Routing timeout
+     * @param failureDetector Failure detector object
+     * @param hedgedRequestPolicy When to hedge slow reads, or null to never
+     *        hedge them
+     * @param threadPool Thread pool on which asynchronous requests are
+     *        processed, or null if they aren't supported
+     */
+    public PipelineRoutedStore(String name,
+                               Map<Integer, Store<ByteArray, byte[], byte[]>> innerStores,
+                               Map<Integer, NonblockingStore> nonblockingStores,
+                               Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores,
+                               Map<Integer, NonblockingStore> nonblockingSlopStores,
+                               Cluster cluster,
+                               StoreDefinition storeDef,
+                               boolean repairReads,
+                               int clientZoneId,
+                               long timeoutMs,
+                               FailureDetector failureDetector,
+                               HedgedRequestPolicy hedgedRequestPolicy,
+                               ExecutorService threadPool) {
         super(name,
               innerStores,
               cluster,
@@ -107,6 +168,8 @@ public class PipelineRoutedStore extends RoutedStore {
               failureDetector,
               SystemTime.INSTANCE);
         this.nonblockingSlopStores = nonblockingSlopStores;
+        this.hedgedRequestPolicy = hedgedRequestPolicy;
+        this.threadPool = threadPool;
         this.clientZone = cluster.getZoneById(clientZoneId);
         if(storeDef.getRoutingStrategyType().compareTo(RoutingStrategyType.ZONE_STRATEGY) == 0) {
             zoneRoutingEnabled = true;
@@ -129,6 +192,33 @@ public class PipelineRoutedStore extends RoutedStore {
         StoreUtils.assertValidKey(key);
 
         BasicPipelineData<List<Versioned<byte[]>>> pipelineData = new BasicPipelineData<List<Versioned<byte[]>>>();
+        Pipeline pipeline = createGetPipeline(key, transforms, timeoutMs, pipelineData);
+        pipeline.execute();
+
+        return getResults(pipelineData);
+    }
+
+    public void submitGetRequest(ByteArray key,
+                                 byte[] transforms,
+                                 final NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        StoreUtils.assertValidKey(key);
+
+        final BasicPipelineData<List<Versioned<byte[]>>> pipelineData = new BasicPipelineData<List<Versioned<byte[]>>>();
+        Pipeline pipeline = createGetPipeline(key, transforms, timeoutMs, pipelineData);
+        executeAsync(pipeline, callback, new Callable<Object>() {
+
+            public Object call() {
+                return getResults(pipelineData);
+            }
+
+        });
+    }
+
+    private Pipeline createGetPipeline(final ByteArray key,
+                                       final byte[] transforms,
+                                       long timeoutMs,
+                                       BasicPipelineData<List<Versioned<byte[]>>> pipelineData) {
         if(zoneRoutingEnabled)
             pipelineData.setZonesRequired(storeDef.getZoneCountReads());
         else
@@ -165,7 +255,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                                                  timeoutMs,
                                                                                                                                  nonblockingStores,
                                                                                                                                  Event.INSUFFICIENT_SUCCESSES,
-                                                                                                                                 Event.INSUFFICIENT_ZONES));
+                                                                                                                                 Event.INSUFFICIENT_ZONES,
+                                                                                                                                 hedgedRequestPolicy));
         pipeline.addEventAction(Event.INSUFFICIENT_SUCCESSES,
                                 new PerformSerialRequests<List<Versioned<byte[]>>, BasicPipelineData<List<Versioned<byte[]>>>>(pipelineData,
                                                                                                                                allowReadRepair ? Event.RESPONSES_RECEIVED
@@ -204,8 +295,10 @@ public class PipelineRoutedStore extends RoutedStore {
                          + ByteUtils.toHexString(key.get()));
         }
 
-        pipeline.execute();
+        return pipeline;
+    }
 
+    private List<Versioned<byte[]>> getResults(BasicPipelineData<List<Versioned<byte[]>>> pipelineData) {
         if(pipelineData.getFatalError() != null)
             throw pipelineData.getFatalError();
 
@@ -226,9 +319,35 @@ public class PipelineRoutedStore extends RoutedStore {
             throws VoldemortException {
         StoreUtils.assertValidKeys(keys);
 
+        GetAllPipelineData pipelineData = new GetAllPipelineData();
+        Pipeline pipeline = createGetAllPipeline(keys, transforms, pipelineData);
+        pipeline.execute();
+
+        return getAllResults(pipelineData);
+    }
+
+    public void submitGetAllRequest(Iterable<ByteArray> keys,
+                                    Map<ByteArray, byte[]> transforms,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        StoreUtils.assertValidKeys(keys);
+
+        final GetAllPipelineData pipelineData = new GetAllPipelineData();
+        Pipeline pipeline = createGetAllPipeline(keys, transforms, pipelineData);
+        executeAsync(pipeline, callback, new Callable<Object>() {
+
+            public Object call() {
+                return getAllResults(pipelineData);
+            }
+
+        });
+    }
+
+    private Pipeline createGetAllPipeline(Iterable<ByteArray> keys,
+                                          Map<ByteArray, byte[]> transforms,
+                                          GetAllPipelineData pipelineData) {
         boolean allowReadRepair = repairReads && (transforms == null || transforms.size() == 0);
 
-        GetAllPipelineData pipelineData = new GetAllPipelineData();
         if(zoneRoutingEnabled)
             pipelineData.setZonesRequired(storeDef.getZoneCountReads());
         else
@@ -280,8 +399,11 @@ public class PipelineRoutedStore extends RoutedStore {
             logger.debug("Operation " + pipeline.getOperation().getSimpleName() + " Keys "
                          + keyStr.toString());
         }
-        pipeline.execute();
 
+        return pipeline;
+    }
+
+    private Map<ByteArray, List<Versioned<byte[]>>> getAllResults(GetAllPipelineData pipelineData) {
         if(pipelineData.getFatalError() != null)
             throw pipelineData.getFatalError();
 
@@ -292,6 +414,31 @@ public class PipelineRoutedStore extends RoutedStore {
         StoreUtils.assertValidKey(key);
 
         BasicPipelineData<List<Version>> pipelineData = new BasicPipelineData<List<Version>>();
+        Pipeline pipeline = createGetVersionsPipeline(key, timeoutMs, pipelineData);
+        pipeline.execute();
+
+        return getVersionResults(pipelineData);
+    }
+
+    public void submitGetVersionsRequest(ByteArray key,
+                                         NonblockingStoreCallback callback,
+                                         long timeoutMs) {
+        StoreUtils.assertValidKey(key);
+
+        final BasicPipelineData<List<Version>> pipelineData = new BasicPipelineData<List<Version>>();
+        Pipeline pipeline = createGetVersionsPipeline(key, timeoutMs, pipelineData);
+        executeAsync(pipeline, callback, new Callable<Object>() {
+
+            public Object call() {
+                return getVersionResults(pipelineData);
+            }
+
+        });
+    }
+
+    private Pipeline createGetVersionsPipeline(final ByteArray key,
+                                               long timeoutMs,
+                                               BasicPipelineData<List<Version>> pipelineData) {
         if(zoneRoutingEnabled)
             pipelineData.setZonesRequired(storeDef.getZoneCountReads());
         else
@@ -325,7 +472,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                              timeoutMs,
                                                                                                              nonblockingStores,
                                                                                                              Event.INSUFFICIENT_SUCCESSES,
-                                                                                                             Event.INSUFFICIENT_ZONES));
+                                                                                                             Event.INSUFFICIENT_ZONES,
+                                                                                                             hedgedRequestPolicy));
 
         pipeline.addEventAction(Event.INSUFFICIENT_SUCCESSES,
                                 new PerformSerialRequests<List<Version>, BasicPipelineData<List<Version>>>(pipelineData,
@@ -352,8 +500,11 @@ public class PipelineRoutedStore extends RoutedStore {
             logger.debug("Operation  " + pipeline.getOperation().getSimpleName() + "Key "
                          + ByteUtils.toHexString(key.get()));
         }
-        pipeline.execute();
 
+        return pipeline;
+    }
+
+    private List<Version> getVersionResults(BasicPipelineData<List<Version>> pipelineData) {
         if(pipelineData.getFatalError() != null)
             throw pipelineData.getFatalError();
 
@@ -369,6 +520,32 @@ public class PipelineRoutedStore extends RoutedStore {
         StoreUtils.assertValidKey(key);
 
         BasicPipelineData<Boolean> pipelineData = new BasicPipelineData<Boolean>();
+        Pipeline pipeline = createDeletePipeline(key, version, pipelineData);
+        pipeline.execute();
+
+        return getDeleteResult(pipelineData);
+    }
+
+    public void submitDeleteRequest(ByteArray key,
+                                    Version version,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        StoreUtils.assertValidKey(key);
+
+        final BasicPipelineData<Boolean> pipelineData = new BasicPipelineData<Boolean>();
+        Pipeline pipeline = createDeletePipeline(key, version, pipelineData);
+        executeAsync(pipeline, callback, new Callable<Object>() {
+
+            public Object call() {
+                return getDeleteResult(pipelineData);
+            }
+
+        });
+    }
+
+    private Pipeline createDeletePipeline(ByteArray key,
+                                          Version version,
+                                          BasicPipelineData<Boolean> pipelineData) {
         if(zoneRoutingEnabled)
             pipelineData.setZonesRequired(storeDef.getZoneCountWrites());
         else
@@ -428,8 +605,11 @@ public class PipelineRoutedStore extends RoutedStore {
             logger.debug("Operation " + pipeline.getOperation().getSimpleName() + " Key "
                          + ByteUtils.toHexString(key.get()));
         }
-        pipeline.execute();
 
+        return pipeline;
+    }
+
+    private boolean getDeleteResult(BasicPipelineData<Boolean> pipelineData) {
         if(pipelineData.getFatalError() != null)
             throw pipelineData.getFatalError();
 
@@ -449,6 +629,38 @@ public class PipelineRoutedStore extends RoutedStore {
             throws VoldemortException {
         StoreUtils.assertValidKey(key);
         PutPipelineData pipelineData = new PutPipelineData();
+        Pipeline pipeline = createPutPipeline(key, versioned, transforms, pipelineData);
+        pipeline.execute();
+
+        if(pipelineData.getFatalError() != null)
+            throw pipelineData.getFatalError();
+    }
+
+    public void submitPutRequest(ByteArray key,
+                                 Versioned<byte[]> value,
+                                 byte[] transforms,
+                                 NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        StoreUtils.assertValidKey(key);
+
+        final PutPipelineData pipelineData = new PutPipelineData();
+        Pipeline pipeline = createPutPipeline(key, value, transforms, pipelineData);
+        executeAsync(pipeline, callback, new Callable<Object>() {
+
+            public Object call() {
+                if(pipelineData.getFatalError() != null)
+                    throw pipelineData.getFatalError();
+
+                return null;
+            }
+
+        });
+    }
+
+    private Pipeline createPutPipeline(ByteArray key,
+                                       Versioned<byte[]> versioned,
+                                       byte[] transforms,
+                                       PutPipelineData pipelineData) {
         if(zoneRoutingEnabled)
             pipelineData.setZonesRequired(storeDef.getZoneCountWrites());
         else
@@ -485,6 +697,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                              transforms,
                                                              failureDetector,
                                                              innerStores,
+                                                             nonblockingStores,
+                                                             timeoutMs,
                                                              storeDef.getRequiredWrites(),
                                                              versioned,
                                                              time,
@@ -531,10 +745,51 @@ public class PipelineRoutedStore extends RoutedStore {
             logger.debug("Operation " + pipeline.getOperation().getSimpleName() + " Key "
                          + ByteUtils.toHexString(key.get()));
         }
-        pipeline.execute();
+        return pipeline;
+    }
 
-        if(pipelineData.getFatalError() != null)
-            throw pipelineData.getFatalError();
+    private void executeAsync(Pipeline pipeline,
+                              final NonblockingStoreCallback callback,
+                              final Callable<Object> results) {
+        checkThreadPool();
+        final long startNs = System.nanoTime();
+
+        pipeline.executeAsync(threadPool, new Pipeline.Listener() {
+
+            public void pipelineFinished(Exception e) {
+                Object result = e;
+
+                if(result == null) {
+                    try {
+                        result = results.call();
+                    } catch(Exception ex) {
+                        result = ex;
+                    }
+                }
+
+                invokeCallback(callback, result, startNs);
+            }
+
+        });
+    }
+
+    private void checkThreadPool() {
+        if(threadPool == null)
+            throw new UnsupportedOperationException("Store '" + name
+                                                    + "' was created without a thread pool for "
+                                                    + "asynchronous requests");
+    }
+
+    private void invokeCallback(NonblockingStoreCallback callback, Object result, long startNs) {
+        if(callback == null)
+            return;
+
+        try {
+            callback.requestComplete(result, (System.nanoTime() - startNs) / Time.NS_PER_MS);
+        } catch(Exception e) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn(e, e);
+        }
     }
 
     @Override
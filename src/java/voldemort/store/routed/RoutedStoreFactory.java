@@ -2,6 +2,8 @@ package voldemort.store.routed;
 
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -17,6 +19,7 @@ import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
 import voldemort.store.slop.Slop;
 import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.SystemTime;
 
 import com.google.common.collect.Maps;
@@ -29,24 +32,85 @@ public class RoutedStoreFactory {
 
     private final long routingTimeoutMs;
 
+    private final double hedgedRequestPercentile;
+
+    private final long getBatchWindowUs;
+
+    private final int getBatchMaxKeys;
+
+    private final ScheduledExecutorService batchScheduler;
+
     private final Logger logger = Logger.getLogger(getClass());
 
     public RoutedStoreFactory(boolean isPipelineRoutedStoreEnabled,
                               ExecutorService threadPool,
                               long routingTimeoutMs) {
+        this(isPipelineRoutedStoreEnabled, threadPool, routingTimeoutMs, 0);
+    }
+
+    /**
+     * @param hedgedRequestPercentile Percentile of each store's response
+     *        times after which reads are hedged, or 0 to disable hedging
+     */
+    public RoutedStoreFactory(boolean isPipelineRoutedStoreEnabled,
+                              ExecutorService threadPool,
+                              long routingTimeoutMs,
+                              double hedgedRequestPercentile) {
+        this(isPipelineRoutedStoreEnabled, threadPool, routingTimeoutMs, hedgedRequestPercentile, 0, 1);
+    }
+
+    /**
+     * @param hedgedRequestPercentile Percentile of each store's response
+     *        times after which reads are hedged, or 0 to disable hedging
+     * @param getBatchWindowUs Window in microseconds within which gets to the
+     *        same node are coalesced, or 0 to disable batching
+     * @param getBatchMaxKeys Number of keys after which a batch is sent
+     *        without waiting for the end of the window
+     */
+    public RoutedStoreFactory(boolean isPipelineRoutedStoreEnabled,
+                              ExecutorService threadPool,
+                              long routingTimeoutMs,
+                              double hedgedRequestPercentile,
+                              long getBatchWindowUs,
+                              int getBatchMaxKeys) {
         this.isPipelineRoutedStoreEnabled = isPipelineRoutedStoreEnabled;
         this.threadPool = threadPool;
         this.routingTimeoutMs = routingTimeoutMs;
+        this.hedgedRequestPercentile = hedgedRequestPercentile;
+        this.getBatchWindowUs = getBatchWindowUs;
+        this.getBatchMaxKeys = getBatchMaxKeys;
+        this.batchScheduler = getBatchWindowUs > 0 ? Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("voldemort-get-batcher"))
+                                                   : null;
     }
 
     public NonblockingStore toNonblockingStore(Store<ByteArray, byte[], byte[]> store) {
-        if(store instanceof NonblockingStore)
-            return (NonblockingStore) store;
+        NonblockingStore nonblockingStore;
+
+        if(store instanceof NonblockingStore) {
+            nonblockingStore = (NonblockingStore) store;
+        } else {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn("Using pseudo NonblockingStore implementation for " + store.getClass());
 
-        if(logger.isEnabledFor(Level.WARN))
-            logger.warn("Using pseudo NonblockingStore implementation for " + store.getClass());
+            nonblockingStore = new ThreadPoolBasedNonblockingStoreImpl(threadPool, store);
+        }
+
+        if(batchScheduler != null)
+            nonblockingStore = new BatchingNonblockingStore(nonblockingStore,
+                                                            batchScheduler,
+                                                            getBatchWindowUs,
+                                                            getBatchMaxKeys);
+
+        return nonblockingStore;
+    }
 
-        return new ThreadPoolBasedNonblockingStoreImpl(threadPool, store);
+    /**
+     * Stops the thread that sends batched gets, if batching is enabled. Any
+     * batch that is still open is sent straight away.
+     */
+    public void close() {
+        if(batchScheduler != null)
+            batchScheduler.shutdown();
     }
 
     public RoutedStore create(Cluster cluster,
@@ -58,7 +122,48 @@ public class RoutedStoreFactory {
                               boolean repairReads,
                               int clientZoneId,
                               FailureDetector failureDetector) {
+        return create(cluster,
+                      storeDefinition,
+                      nodeStores,
+                      nonblockingStores,
+                      slopStores,
+                      nonblockingSlopStores,
+                      repairReads,
+                      clientZoneId,
+                      failureDetector,
+                      hedgedRequestPercentile);
+    }
+
+    /**
+     * @param hedgedRequestPercentile Percentile of the store's response times
+     *        after which reads are hedged, or 0 to disable hedging for the
+     *        store
+     */
+    public RoutedStore create(Cluster cluster,
+                              StoreDefinition storeDefinition,
+                              Map<Integer, Store<ByteArray, byte[], byte[]>> nodeStores,
+                              Map<Integer, NonblockingStore> nonblockingStores,
+                              Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores,
+                              Map<Integer, NonblockingStore> nonblockingSlopStores,
+                              boolean repairReads,
+                              int clientZoneId,
+                              FailureDetector failureDetector,
+                              double hedgedRequestPercentile) {
         if(isPipelineRoutedStoreEnabled) {
+            HedgedRequestPolicy hedgedRequestPolicy = null;
+
+            if(hedgedRequestPercentile > 0) {
+                // Every replica is asked already, so there is no one left to
+                // hedge with.
+                if(storeDefinition.getPreferredReads() >= storeDefinition.getReplicationFactor()) {
+                    if(logger.isInfoEnabled())
+                        logger.info("Not hedging reads of store '" + storeDefinition.getName()
+                                    + "' as its preferred reads equal its replication factor.");
+                } else {
+                    hedgedRequestPolicy = new HedgedRequestPolicy(hedgedRequestPercentile);
+                }
+            }
+
             return new PipelineRoutedStore(storeDefinition.getName(),
                                            nodeStores,
                                            nonblockingStores,
@@ -69,7 +174,9 @@ public class RoutedStoreFactory {
                                            repairReads,
                                            clientZoneId,
                                            routingTimeoutMs,
-                                           failureDetector);
+                                           failureDetector,
+                                           hedgedRequestPolicy,
+                                           threadPool);
         } else {
             if(storeDefinition.getRoutingStrategyType()
                               .compareTo(RoutingStrategyType.ZONE_STRATEGY) == 0) {
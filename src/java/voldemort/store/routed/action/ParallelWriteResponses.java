@@ -0,0 +1,104 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed.action;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import voldemort.store.routed.BasicPipelineData;
+import voldemort.store.routed.Response;
+import voldemort.utils.ByteArray;
+
+/**
+ * Collects the responses to the parallel write requests of an asynchronous
+ * pipeline, where no thread waits for them. The responses are handed over once
+ * as many have arrived as the blocking actions would wait for: the preferred
+ * ones, or every one if too few of those succeeded or too few zones answered.
+ * Every response that comes in after that is left to the caller.
+ */
+class ParallelWriteResponses {
+
+    private final List<Response<ByteArray, Object>> responses = new ArrayList<Response<ByteArray, Object>>();
+
+    private final Set<Integer> zoneResponses;
+
+    private final Integer zonesRequired;
+
+    private final int attempts;
+
+    private final int blocks;
+
+    private final int required;
+
+    private int successes;
+
+    private boolean isCollected;
+
+    /**
+     * @param pipelineData The pipeline data, holding the successes counted
+     *        before the parallel requests
+     * @param attempts The number of requests made
+     * @param blocks The number of responses to wait for at least
+     * @param required The number of successes required
+     */
+    ParallelWriteResponses(BasicPipelineData<?> pipelineData, int attempts, int blocks, int required) {
+        this.zoneResponses = new HashSet<Integer>(pipelineData.getZoneResponses());
+        this.zonesRequired = pipelineData.getZonesRequired();
+        this.successes = pipelineData.getSuccesses();
+        this.attempts = attempts;
+        this.blocks = blocks;
+        this.required = required;
+    }
+
+    /**
+     * @return False if the responses were already handed over
+     */
+    synchronized boolean add(Response<ByteArray, Object> response) {
+        if(isCollected)
+            return false;
+
+        responses.add(response);
+
+        if(!(response.getValue() instanceof Exception)) {
+            successes++;
+            zoneResponses.add(response.getNode().getZoneId());
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The responses if enough of them arrived and nobody collected
+     *         them yet, null otherwise
+     */
+    synchronized List<Response<ByteArray, Object>> collectIfDone() {
+        if(isCollected)
+            return null;
+
+        boolean isSatisfied = responses.size() >= blocks && successes >= required
+                              && (zonesRequired == null || zoneResponses.size() >= zonesRequired + 1);
+
+        if(!isSatisfied && responses.size() < attempts)
+            return null;
+
+        isCollected = true;
+        return responses;
+    }
+
+}
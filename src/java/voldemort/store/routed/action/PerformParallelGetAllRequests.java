@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang.mutable.MutableInt;
 import org.apache.log4j.Level;
@@ -62,11 +63,11 @@ public class PerformParallelGetAllRequests
         this.nonblockingStores = nonblockingStores;
     }
 
-    @SuppressWarnings("unchecked")
     public void execute(final Pipeline pipeline) {
         int attempts = pipelineData.getNodeToKeysMap().size();
         final Map<Integer, Response<Iterable<ByteArray>, Object>> responses = new ConcurrentHashMap<Integer, Response<Iterable<ByteArray>, Object>>();
         final CountDownLatch latch = new CountDownLatch(attempts);
+        final AtomicBoolean isCollected = new AtomicBoolean(false);
 
         if(logger.isTraceEnabled())
             logger.trace("Attempting " + attempts + " " + pipeline.getOperation().getSimpleName()
@@ -93,6 +94,15 @@ public class PerformParallelGetAllRequests
                     responses.put(node.getId(), response);
                     latch.countDown();
 
+                    // An asynchronous pipeline carries on from the callback of
+                    // the last response.
+                    if(pipeline.isAsync()) {
+                        if(latch.getCount() == 0 && isCollected.compareAndSet(false, true))
+                            handleResponses(pipeline, responses);
+
+                        return;
+                    }
+
                     // Note errors that come in after the pipeline has finished.
                     // These will *not* get a chance to be called in the loop of
                     // responses below.
@@ -117,6 +127,13 @@ public class PerformParallelGetAllRequests
             store.submitGetAllRequest(keys, transforms, callback, timeoutMs);
         }
 
+        if(pipeline.isAsync()) {
+            if(latch.getCount() == 0 && isCollected.compareAndSet(false, true))
+                handleResponses(pipeline, responses);
+
+            return;
+        }
+
         try {
             latch.await(timeoutMs * 3, TimeUnit.MILLISECONDS);
         } catch(InterruptedException e) {
@@ -124,6 +141,12 @@ public class PerformParallelGetAllRequests
                 logger.warn(e, e);
         }
 
+        handleResponses(pipeline, responses);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handleResponses(Pipeline pipeline,
+                                 Map<Integer, Response<Iterable<ByteArray>, Object>> responses) {
         for(Response<Iterable<ByteArray>, Object> response: responses.values()) {
             if(response.getValue() instanceof Exception) {
                 if(handleResponseError(response, pipeline, failureDetector))
@@ -106,6 +106,11 @@ public class PerformParallelPutRequests extends
         final Map<Integer, Response<ByteArray, Object>> responses = new ConcurrentHashMap<Integer, Response<ByteArray, Object>>();
         final CountDownLatch attemptsLatch = new CountDownLatch(attempts);
         final CountDownLatch blocksLatch = new CountDownLatch(blocks);
+        final ParallelWriteResponses asyncResponses = pipeline.isAsync() ? new ParallelWriteResponses(pipelineData,
+                                                                                                      attempts,
+                                                                                                      blocks,
+                                                                                                      required)
+                                                                        : null;
 
         if(logger.isTraceEnabled())
             logger.trace("Attempting " + attempts + " " + pipeline.getOperation().getSimpleName()
@@ -127,6 +132,12 @@ public class PerformParallelPutRequests extends
                                                                                            key,
                                                                                            result,
                                                                                            requestTime);
+
+                    if(asyncResponses != null && asyncResponses.add(response)) {
+                        handleAsyncResponses(pipeline, asyncResponses.collectIfDone());
+                        return;
+                    }
+
                     responses.put(node.getId(), response);
 
                     if(isHintedHandoffEnabled() && pipeline.isFinished()) {
@@ -176,6 +187,13 @@ public class PerformParallelPutRequests extends
             store.submitPutRequest(key, versionedCopy, transforms, callback, timeoutMs);
         }
 
+        // An asynchronous pipeline carries on from the callback that completes
+        // the responses instead of waiting for them here.
+        if(asyncResponses != null) {
+            handleAsyncResponses(pipeline, asyncResponses.collectIfDone());
+            return;
+        }
+
         try {
             long ellapsedNs = System.nanoTime() - pipelineData.getStartTimeNs();
             long remainingNs = (timeoutMs * Time.NS_PER_MS) - ellapsedNs;
@@ -306,4 +324,55 @@ public class PerformParallelPutRequests extends
             }
         }
     }
+
+    private void handleAsyncResponses(Pipeline pipeline,
+                                      List<Response<ByteArray, Object>> responses) {
+        // Not every response is in yet, or someone else already collected
+        // them.
+        if(responses == null)
+            return;
+
+        for(Response<ByteArray, Object> response: responses) {
+            if(response.getValue() instanceof Exception) {
+                // a higher version was written on this node, neither a
+                // success nor a failure
+                if(response.getValue() instanceof ObsoleteVersionException)
+                    continue;
+                if(handleResponseError(response, pipeline, failureDetector))
+                    return;
+            } else {
+                pipelineData.incrementSuccesses();
+                failureDetector.recordSuccess(response.getNode(), response.getRequestTime());
+                pipelineData.getZoneResponses().add(response.getNode().getZoneId());
+            }
+        }
+
+        if(pipelineData.getSuccesses() < required) {
+            pipelineData.setFatalError(new InsufficientOperationalNodesException(required
+                                                                                         + " "
+                                                                                         + pipeline.getOperation()
+                                                                                                   .getSimpleName()
+                                                                                         + "s required, but only "
+                                                                                         + pipelineData.getSuccesses()
+                                                                                         + " succeeded",
+                                                                                 new ArrayList<Node>(pipelineData.getReplicationSet()),
+                                                                                 new ArrayList<Node>(pipelineData.getNodes()),
+                                                                                 new ArrayList<Node>(pipelineData.getFailedNodes()),
+                                                                                 pipelineData.getFailures()));
+            pipeline.abort();
+        } else if(pipelineData.getZonesRequired() != null
+                  && pipelineData.getZoneResponses().size() < pipelineData.getZonesRequired() + 1) {
+            pipelineData.setFatalError(new InsufficientZoneResponsesException((pipelineData.getZonesRequired() + 1)
+                                                                              + " "
+                                                                              + pipeline.getOperation()
+                                                                                        .getSimpleName()
+                                                                              + "s required zone, but only "
+                                                                              + pipelineData.getZoneResponses()
+                                                                                            .size()
+                                                                              + " succeeded"));
+            pipeline.abort();
+        } else {
+            pipeline.addEvent(completeEvent);
+        }
+    }
 }
@@ -17,9 +17,12 @@
 package voldemort.store.routed.action;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -30,14 +33,17 @@ import voldemort.cluster.failuredetector.FailureDetector;
 import voldemort.store.InsufficientOperationalNodesException;
 import voldemort.store.InsufficientZoneResponsesException;
 import voldemort.store.InvalidMetadataException;
+import voldemort.store.UnreachableStoreException;
 import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.nonblockingstore.NonblockingStoreCallback;
 import voldemort.store.routed.BasicPipelineData;
+import voldemort.store.routed.HedgedRequestPolicy;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.Pipeline.Operation;
 import voldemort.store.routed.Response;
 import voldemort.utils.ByteArray;
+import voldemort.utils.Time;
 import voldemort.utils.Utils;
 
 public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
@@ -57,6 +63,8 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
 
     private final Event insufficientZonesEvent;
 
+    private final HedgedRequestPolicy hedgedRequestPolicy;
+
     private byte[] transforms;
 
     public PerformParallelRequests(PD pipelineData,
@@ -70,6 +78,37 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
                                    Map<Integer, NonblockingStore> nonblockingStores,
                                    Event insufficientSuccessesEvent,
                                    Event insufficientZonesEvent) {
+        this(pipelineData,
+             completeEvent,
+             key,
+             transforms,
+             failureDetector,
+             preferred,
+             required,
+             timeoutMs,
+             nonblockingStores,
+             insufficientSuccessesEvent,
+             insufficientZonesEvent,
+             null);
+    }
+
+    /**
+     * @param hedgedRequestPolicy Decides when to send the request to one more
+     *        node than preferred if the first ones are slow to answer, or null
+     *        to never do so
+     */
+    public PerformParallelRequests(PD pipelineData,
+                                   Event completeEvent,
+                                   ByteArray key,
+                                   byte[] transforms,
+                                   FailureDetector failureDetector,
+                                   int preferred,
+                                   int required,
+                                   long timeoutMs,
+                                   Map<Integer, NonblockingStore> nonblockingStores,
+                                   Event insufficientSuccessesEvent,
+                                   Event insufficientZonesEvent,
+                                   HedgedRequestPolicy hedgedRequestPolicy) {
         super(pipelineData, completeEvent, key);
         this.failureDetector = failureDetector;
         this.preferred = preferred;
@@ -79,78 +118,83 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
         this.nonblockingStores = nonblockingStores;
         this.insufficientSuccessesEvent = insufficientSuccessesEvent;
         this.insufficientZonesEvent = insufficientZonesEvent;
+        this.hedgedRequestPolicy = hedgedRequestPolicy;
     }
 
     public void execute(final Pipeline pipeline) {
         List<Node> nodes = pipelineData.getNodes();
         int attempts = Math.min(preferred, nodes.size());
-        final Map<Integer, Response<ByteArray, Object>> responses = new ConcurrentHashMap<Integer, Response<ByteArray, Object>>();
-        final CountDownLatch latch = new CountDownLatch(attempts);
+        ParallelResponses parallelResponses = new ParallelResponses(attempts);
 
         if(logger.isTraceEnabled())
             logger.trace("Attempting " + attempts + " " + pipeline.getOperation().getSimpleName()
                          + " operations in parallel");
 
+        long startNs = System.nanoTime();
+
         for(int i = 0; i < attempts; i++) {
-            final Node node = nodes.get(i);
+            Node node = nodes.get(i);
             pipelineData.incrementNodeIndex();
+            submitRequest(node, pipeline, parallelResponses, timeoutMs);
+        }
 
-            NonblockingStoreCallback callback = new NonblockingStoreCallback() {
-
-                public void requestComplete(Object result, long requestTime) {
-                    if(logger.isTraceEnabled())
-                        logger.trace(pipeline.getOperation().getSimpleName()
-                                     + " response received (" + requestTime + " ms.) from node "
-                                     + node.getId());
-
-                    Response<ByteArray, Object> response = new Response<ByteArray, Object>(node,
-                                                                                           key,
-                                                                                           result,
-                                                                                           requestTime);
-                    responses.put(node.getId(), response);
-                    latch.countDown();
-
-                    // Note errors that come in after the pipeline has finished.
-                    // These will *not* get a chance to be called in the loop of
-                    // responses below.
-                    if(pipeline.isFinished() && response.getValue() instanceof Exception) {
-                        if(response.getValue() instanceof InvalidMetadataException) {
-                            logger.warn("Received invalid metadata problem after a successful "
-                                        + pipeline.getOperation().getSimpleName()
-                                        + " call on node " + node.getId() + ", store '"
-                                        + pipelineData.getStoreName() + "'");
-                        } else {
-                            handleResponseError(response, pipeline, failureDetector);
-                        }
-                    }
-                }
+        // An asynchronous pipeline carries on from the callback that completes
+        // the responses instead of waiting for them here. Hedging needs a
+        // waiting thread, so it only applies to blocking pipelines.
+        if(pipeline.isAsync()) {
+            if(parallelResponses.isDone())
+                handleResponses(pipeline, parallelResponses.collect());
 
-            };
+            return;
+        }
 
-            if(logger.isTraceEnabled())
-                logger.trace("Submitting " + pipeline.getOperation().getSimpleName()
-                             + " request on node " + node.getId());
+        if(attempts > 0) {
+            try {
+                List<Node> askedNodes = nodes.subList(0, attempts);
+                long hedgeDelayMs = hedgedRequestPolicy != null ? hedgedRequestPolicy.getHedgeDelayMs(askedNodes)
+                                                               : -1;
+
+                // If the replicas we asked are slower than usual, ask the next
+                // replica in the preference list as well and take whichever
+                // answers first. There is none once preferred reads reach the
+                // replication factor.
+                if(hedgeDelayMs >= 0 && hedgeDelayMs < timeoutMs && attempts < nodes.size()
+                   && !parallelResponses.latch.await(hedgeDelayMs, TimeUnit.MILLISECONDS)) {
+                    long remainingMs = timeoutMs - (System.nanoTime() - startNs)
+                                       / Time.NS_PER_MS;
+
+                    if(remainingMs > 0 && parallelResponses.addAttempt()) {
+                        Node node = nodes.get(attempts);
+                        pipelineData.incrementNodeIndex();
+
+                        if(logger.isDebugEnabled())
+                            logger.debug("Hedging " + pipeline.getOperation().getSimpleName()
+                                         + " request on node " + node.getId() + " after "
+                                         + hedgeDelayMs + " ms.");
+
+                        submitRequest(node, pipeline, parallelResponses, remainingMs);
+                    }
+                }
 
-            NonblockingStore store = nonblockingStores.get(node.getId());
+                long remainingMs = timeoutMs - (System.nanoTime() - startNs) / Time.NS_PER_MS;
 
-            if(pipeline.getOperation() == Operation.GET)
-                store.submitGetRequest(key, transforms, callback, timeoutMs);
-            else if(pipeline.getOperation() == Operation.GET_VERSIONS)
-                store.submitGetVersionsRequest(key, callback, timeoutMs);
-            else
-                throw new IllegalStateException(getClass().getName()
-                                                + " does not support pipeline operation "
-                                                + pipeline.getOperation());
+                if(remainingMs > 0)
+                    parallelResponses.latch.await(remainingMs, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn(e, e);
+            }
         }
 
-        try {
-            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
-        } catch(InterruptedException e) {
-            if(logger.isEnabledFor(Level.WARN))
-                logger.warn(e, e);
-        }
+        handleResponses(pipeline, parallelResponses.collect());
+    }
+
+    private void handleResponses(Pipeline pipeline, Collection<Response<ByteArray, Object>> responses) {
+        // Someone else already collected them.
+        if(responses == null)
+            return;
 
-        for(Response<ByteArray, Object> response: responses.values()) {
+        for(Response<ByteArray, Object> response: responses) {
             if(response.getValue() instanceof Exception) {
                 if(handleResponseError(response, pipeline, failureDetector))
                     return;
@@ -216,4 +260,160 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
         }
     }
 
+    private void submitRequest(final Node node,
+                               final Pipeline pipeline,
+                               final ParallelResponses parallelResponses,
+                               long requestTimeoutMs) {
+        NonblockingStoreCallback callback = new NonblockingStoreCallback() {
+
+            public void requestComplete(Object result, long requestTime) {
+                if(logger.isTraceEnabled())
+                    logger.trace(pipeline.getOperation().getSimpleName()
+                                 + " response received (" + requestTime + " ms.) from node "
+                                 + node.getId());
+
+                Response<ByteArray, Object> response = new Response<ByteArray, Object>(node,
+                                                                                       key,
+                                                                                       result,
+                                                                                       requestTime);
+
+                if(hedgedRequestPolicy != null && !(result instanceof Exception))
+                    hedgedRequestPolicy.recordResponseTime(node.getId(), requestTime);
+
+                if(!parallelResponses.add(response))
+                    handleLateResponse(response, pipeline);
+                else if(pipeline.isAsync() && parallelResponses.isDone())
+                    handleResponses(pipeline, parallelResponses.collect());
+            }
+
+        };
+
+        if(logger.isTraceEnabled())
+            logger.trace("Submitting " + pipeline.getOperation().getSimpleName()
+                         + " request on node " + node.getId());
+
+        NonblockingStore store = nonblockingStores.get(node.getId());
+
+        if(pipeline.getOperation() == Operation.GET)
+            store.submitGetRequest(key, transforms, callback, requestTimeoutMs);
+        else if(pipeline.getOperation() == Operation.GET_VERSIONS)
+            store.submitGetVersionsRequest(key, callback, requestTimeoutMs);
+        else
+            throw new IllegalStateException(getClass().getName()
+                                            + " does not support pipeline operation "
+                                            + pipeline.getOperation());
+    }
+
+    /**
+     * Handles a response that arrived after we stopped waiting for responses,
+     * either because enough of them succeeded or because we timed out. It's
+     * not added to the pipeline data, but the failure detector still hears
+     * about it.
+     */
+
+    private void handleLateResponse(Response<ByteArray, Object> response, Pipeline pipeline) {
+        Node node = response.getNode();
+
+        if(response.getValue() instanceof Exception) {
+            if(response.getValue() instanceof InvalidMetadataException) {
+                logger.warn("Received invalid metadata problem after a successful "
+                            + pipeline.getOperation().getSimpleName() + " call on node "
+                            + node.getId() + ", store '" + pipelineData.getStoreName() + "'");
+            } else if(pipeline.isFinished()) {
+                handleResponseError(response, pipeline, failureDetector);
+            } else {
+                // The pipeline is still running on another thread, so leave
+                // its data alone.
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn("Error in " + pipeline.getOperation().getSimpleName()
+                                + " on node " + node.getId() + "(" + node.getHost() + ")",
+                                (Exception) response.getValue());
+
+                if(response.getValue() instanceof UnreachableStoreException)
+                    failureDetector.recordException(node,
+                                                    response.getRequestTime(),
+                                                    (UnreachableStoreException) response.getValue());
+            }
+        } else {
+            failureDetector.recordSuccess(node, response.getRequestTime());
+        }
+    }
+
+    /**
+     * Collects the responses to the requests of a single execution until we
+     * stop waiting for them. Every response that comes in after that is
+     * handled on its own.
+     */
+    private class ParallelResponses {
+
+        private final Map<Integer, Response<ByteArray, Object>> responses = new HashMap<Integer, Response<ByteArray, Object>>();
+
+        private final Set<Integer> zoneResponses = new HashSet<Integer>();
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private int attempts;
+
+        private int successes;
+
+        private boolean isCollected;
+
+        private ParallelResponses(int attempts) {
+            this.attempts = attempts;
+
+            if(attempts == 0)
+                latch.countDown();
+        }
+
+        private synchronized boolean addAttempt() {
+            if(isCollected || latch.getCount() == 0)
+                return false;
+
+            attempts++;
+            return true;
+        }
+
+        private synchronized boolean add(Response<ByteArray, Object> response) {
+            if(isCollected)
+                return false;
+
+            responses.put(response.getNode().getId(), response);
+
+            if(!(response.getValue() instanceof Exception)) {
+                successes++;
+                zoneResponses.add(response.getNode().getZoneId());
+            }
+
+            // Stop waiting once every request has answered or once enough have
+            // succeeded: the stragglers would only add their latency.
+            Integer zonesRequired = pipelineData.getZonesRequired();
+            boolean isQuorum = successes >= required
+                               && (zonesRequired == null || zoneResponses.size() >= zonesRequired + 1);
+
+            if(isQuorum || responses.size() >= attempts)
+                latch.countDown();
+
+            return true;
+        }
+
+        private boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        /**
+         * Stops accepting responses.
+         * 
+         * @return The responses received so far, or null if they were already
+         *         collected
+         */
+        private synchronized Collection<Response<ByteArray, Object>> collect() {
+            if(isCollected)
+                return null;
+
+            isCollected = true;
+            return responses.values();
+        }
+
+    }
+
 }
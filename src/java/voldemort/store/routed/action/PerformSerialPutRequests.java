@@ -25,6 +25,8 @@ import voldemort.cluster.failuredetector.FailureDetector;
 import voldemort.store.InsufficientOperationalNodesException;
 import voldemort.store.InsufficientZoneResponsesException;
 import voldemort.store.Store;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.PutPipelineData;
@@ -50,12 +52,47 @@ public class PerformSerialPutRequests extends
 
     private byte[] transforms;
 
+    private final Map<Integer, NonblockingStore> nonblockingStores;
+
+    private final long timeoutMs;
+
+    public PerformSerialPutRequests(PutPipelineData pipelineData,
+                                    Event completeEvent,
+                                    ByteArray key,
+                                    byte[] transforms,
+                                    FailureDetector failureDetector,
+                                    Map<Integer, Store<ByteArray, byte[], byte[]>> stores,
+                                    int required,
+                                    Versioned<byte[]> versioned,
+                                    Time time,
+                                    Event masterDeterminedEvent) {
+        this(pipelineData,
+             completeEvent,
+             key,
+             transforms,
+             failureDetector,
+             stores,
+             null,
+             0,
+             required,
+             versioned,
+             time,
+             masterDeterminedEvent);
+    }
+
+    /**
+     * @param nonblockingStores Stores used to find the master when the
+     *        pipeline is executed asynchronously, or null if it never is
+     * @param timeoutMs Timeout of each asynchronous request
+     */
     public PerformSerialPutRequests(PutPipelineData pipelineData,
                                     Event completeEvent,
                                     ByteArray key,
                                     byte[] transforms,
                                     FailureDetector failureDetector,
                                     Map<Integer, Store<ByteArray, byte[], byte[]>> stores,
+                                    Map<Integer, NonblockingStore> nonblockingStores,
+                                    long timeoutMs,
                                     int required,
                                     Versioned<byte[]> versioned,
                                     Time time,
@@ -63,6 +100,8 @@ public class PerformSerialPutRequests extends
         super(pipelineData, completeEvent, key);
         this.failureDetector = failureDetector;
         this.stores = stores;
+        this.nonblockingStores = nonblockingStores;
+        this.timeoutMs = timeoutMs;
         this.required = required;
         this.versioned = versioned;
         this.time = time;
@@ -77,14 +116,18 @@ public class PerformSerialPutRequests extends
         if(logger.isDebugEnabled())
             logger.debug("Performing serial put requests to determine master");
 
+        // An asynchronous pipeline tries the next node from the callback of
+        // the failed request instead of waiting for each one here.
+        if(pipeline.isAsync()) {
+            submitMasterRequest(pipeline, currentNode);
+            return;
+        }
+
         for(; currentNode < nodes.size(); currentNode++) {
             Node node = nodes.get(currentNode);
             pipelineData.incrementNodeIndex();
 
-            VectorClock versionedClock = (VectorClock) versioned.getVersion();
-            final Versioned<byte[]> versionedCopy = new Versioned<byte[]>(versioned.getValue(),
-                                                                          versionedClock.incremented(node.getId(),
-                                                                                                     time.getMilliseconds()));
+            final Versioned<byte[]> versionedCopy = incrementedCopy(node);
 
             if(logger.isTraceEnabled())
                 logger.trace("Attempt #" + (currentNode + 1) + " to perform put (node "
@@ -95,15 +138,7 @@ public class PerformSerialPutRequests extends
             try {
                 stores.get(node.getId()).put(key, versionedCopy, transforms);
                 long requestTime = (System.nanoTime() - start) / Time.NS_PER_MS;
-                pipelineData.incrementSuccesses();
-                failureDetector.recordSuccess(node, requestTime);
-
-                if(logger.isTraceEnabled())
-                    logger.trace("Put on node " + node.getId() + " succeeded, using as master");
-
-                pipelineData.setMaster(node);
-                pipelineData.setVersionedCopy(versionedCopy);
-                pipelineData.getZoneResponses().add(node.getZoneId());
+                setMaster(node, versionedCopy, requestTime);
                 break;
             } catch(Exception e) {
                 long requestTime = (System.nanoTime() - start) / Time.NS_PER_MS;
@@ -114,15 +149,89 @@ public class PerformSerialPutRequests extends
         }
 
         if(pipelineData.getSuccesses() < 1) {
-            List<Exception> failures = pipelineData.getFailures();
-            pipelineData.setFatalError(new InsufficientOperationalNodesException("No master node succeeded!",
-                                                                                 failures.size() > 0 ? failures.get(0)
-                                                                                                    : null));
-            pipeline.abort();
+            handleNoMaster(pipeline);
             return;
         }
 
-        currentNode++;
+        handleMaster(pipeline, currentNode);
+    }
+
+    private void submitMasterRequest(final Pipeline pipeline, final int currentNode) {
+        List<Node> nodes = pipelineData.getNodes();
+
+        if(currentNode == nodes.size()) {
+            handleNoMaster(pipeline);
+            return;
+        }
+
+        final Node node = nodes.get(currentNode);
+        pipelineData.incrementNodeIndex();
+
+        final Versioned<byte[]> versionedCopy = incrementedCopy(node);
+
+        if(logger.isTraceEnabled())
+            logger.trace("Attempt #" + (currentNode + 1) + " to perform put (node " + node.getId()
+                         + ")");
+
+        NonblockingStoreCallback callback = new NonblockingStoreCallback() {
+
+            public void requestComplete(Object result, long requestTime) {
+                if(result instanceof Exception) {
+                    if(!handleResponseError((Exception) result,
+                                            node,
+                                            requestTime,
+                                            pipeline,
+                                            failureDetector))
+                        submitMasterRequest(pipeline, currentNode + 1);
+                } else {
+                    setMaster(node, versionedCopy, requestTime);
+                    handleMaster(pipeline, currentNode);
+                }
+            }
+
+        };
+
+        nonblockingStores.get(node.getId()).submitPutRequest(key,
+                                                             versionedCopy,
+                                                             transforms,
+                                                             callback,
+                                                             timeoutMs);
+    }
+
+    private Versioned<byte[]> incrementedCopy(Node node) {
+        VectorClock versionedClock = (VectorClock) versioned.getVersion();
+        return new Versioned<byte[]>(versioned.getValue(),
+                                     versionedClock.incremented(node.getId(),
+                                                                time.getMilliseconds()));
+    }
+
+    private void setMaster(Node node, Versioned<byte[]> versionedCopy, long requestTime) {
+        pipelineData.incrementSuccesses();
+        failureDetector.recordSuccess(node, requestTime);
+
+        if(logger.isTraceEnabled())
+            logger.trace("Put on node " + node.getId() + " succeeded, using as master");
+
+        pipelineData.setMaster(node);
+        pipelineData.setVersionedCopy(versionedCopy);
+        pipelineData.getZoneResponses().add(node.getZoneId());
+    }
+
+    private void handleNoMaster(Pipeline pipeline) {
+        List<Exception> failures = pipelineData.getFailures();
+        pipelineData.setFatalError(new InsufficientOperationalNodesException("No master node succeeded!",
+                                                                             failures.size() > 0 ? failures.get(0)
+                                                                                                : null));
+        pipeline.abort();
+    }
+
+    /**
+     * Moves on once the node at the given index of the preference list has
+     * accepted the put as master.
+     */
+    private void handleMaster(Pipeline pipeline, int masterIndex) {
+        List<Node> nodes = pipelineData.getNodes();
+        int currentNode = masterIndex + 1;
 
         // There aren't any more requests to make...
         if(currentNode == nodes.size()) {
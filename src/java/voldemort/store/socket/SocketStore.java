@@ -29,6 +29,7 @@ import org.apache.log4j.Logger;
 import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormat;
 import voldemort.client.protocol.RequestFormatFactory;
+import voldemort.client.protocol.RequestFormatType;
 import voldemort.server.RequestRoutingType;
 import voldemort.store.NoSuchCapabilityException;
 import voldemort.store.Store;
@@ -45,6 +46,7 @@ import voldemort.store.socket.clientrequest.DeleteClientRequest;
 import voldemort.store.socket.clientrequest.GetAllClientRequest;
 import voldemort.store.socket.clientrequest.GetClientRequest;
 import voldemort.store.socket.clientrequest.GetVersionsClientRequest;
+import voldemort.store.socket.clientrequest.MultiplexedClientRequestExecutor;
 import voldemort.store.socket.clientrequest.PutClientRequest;
 import voldemort.utils.ByteArray;
 import voldemort.utils.Time;
@@ -63,6 +65,12 @@ import voldemort.versioning.Versioned;
  * {@link ClientRequestExecutor} instance from the
  * {@link ClientRequestExecutorPool pool} and adds an appropriate
  * {@link ClientRequest request} to be processed by the NIO thread.
+ * 
+ * <p/>
+ * 
+ * If the destination uses a {@link RequestFormatType#isMultiplexed()
+ * multiplexed} protocol, both styles of request share the destination's
+ * {@link MultiplexedClientRequestExecutor} instead of checking one out.
  */
 public class SocketStore implements Store<ByteArray, byte[], byte[]>, NonblockingStore {
 
@@ -74,6 +82,7 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
     private final SocketDestination destination;
     private final RequestFormat requestFormat;
     private final RequestRoutingType requestRoutingType;
+    private final boolean isMultiplexed;
     private final Logger logger = Logger.getLogger(SocketStore.class);
 
     public SocketStore(String storeName,
@@ -87,6 +96,7 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
         this.destination = dest;
         this.requestFormat = requestFormatFactory.getRequestFormat(dest.getRequestFormatType());
         this.requestRoutingType = requestRoutingType;
+        this.isMultiplexed = dest.getRequestFormatType().isMultiplexed();
     }
 
     public void submitDeleteRequest(ByteArray key,
@@ -106,26 +116,69 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
                                  byte[] transforms,
                                  NonblockingStoreCallback callback,
                                  long timeoutMs) {
+        trySubmitGetRequest(key, transforms, callback, timeoutMs, true);
+    }
+
+    /**
+     * Submit a get as {@link #submitGetRequest} does, but only if a connection
+     * to the node can be had without waiting for one to be checked in.
+     * 
+     * @return false if every connection was in use and nothing was sent
+     */
+    public boolean trySubmitGetRequest(ByteArray key,
+                                       byte[] transforms,
+                                       NonblockingStoreCallback callback,
+                                       long timeoutMs) {
+        return trySubmitGetRequest(key, transforms, callback, timeoutMs, false);
+    }
+
+    private boolean trySubmitGetRequest(ByteArray key,
+                                        byte[] transforms,
+                                        NonblockingStoreCallback callback,
+                                        long timeoutMs,
+                                        boolean wait) {
         StoreUtils.assertValidKey(key);
         GetClientRequest clientRequest = new GetClientRequest(storeName,
                                                               requestFormat,
                                                               requestRoutingType,
                                                               key,
                                                               transforms);
-        requestAsync(clientRequest, callback, timeoutMs, "get");
+        return requestAsync(clientRequest, callback, timeoutMs, "get", wait);
     }
 
     public void submitGetAllRequest(Iterable<ByteArray> keys,
                                     Map<ByteArray, byte[]> transforms,
                                     NonblockingStoreCallback callback,
                                     long timeoutMs) {
+        trySubmitGetAllRequest(keys, transforms, callback, timeoutMs, true);
+    }
+
+    /**
+     * Submit a getAll as {@link #submitGetAllRequest} does, but only if a
+     * connection to the node can be had without waiting for one to be checked
+     * in.
+     * 
+     * @return false if every connection was in use and nothing was sent
+     */
+    public boolean trySubmitGetAllRequest(Iterable<ByteArray> keys,
+                                          Map<ByteArray, byte[]> transforms,
+                                          NonblockingStoreCallback callback,
+                                          long timeoutMs) {
+        return trySubmitGetAllRequest(keys, transforms, callback, timeoutMs, false);
+    }
+
+    private boolean trySubmitGetAllRequest(Iterable<ByteArray> keys,
+                                           Map<ByteArray, byte[]> transforms,
+                                           NonblockingStoreCallback callback,
+                                           long timeoutMs,
+                                           boolean wait) {
         StoreUtils.assertValidKeys(keys);
         GetAllClientRequest clientRequest = new GetAllClientRequest(storeName,
                                                                     requestFormat,
                                                                     requestRoutingType,
                                                                     keys,
                                                                     transforms);
-        requestAsync(clientRequest, callback, timeoutMs, "get all");
+        return requestAsync(clientRequest, callback, timeoutMs, "get all", wait);
     }
 
     public void submitGetVersionsRequest(ByteArray key,
@@ -238,6 +291,9 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
      */
 
     private <T> T request(ClientRequest<T> delegate, String operationName) {
+        if(isMultiplexed)
+            return requestMultiplexed(delegate, operationName);
+
         ClientRequestExecutor clientRequestExecutor = pool.checkout(destination);
 
         try {
@@ -258,6 +314,25 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
         }
     }
 
+    private <T> T requestMultiplexed(ClientRequest<T> delegate, String operationName) {
+        MultiplexedClientRequestExecutor clientRequestExecutor = pool.getMultiplexedExecutor(destination);
+
+        try {
+            BlockingClientRequest<T> blockingClientRequest = new BlockingClientRequest<T>(delegate,
+                                                                                          timeoutMs);
+            clientRequestExecutor.addClientRequest(blockingClientRequest, timeoutMs);
+            blockingClientRequest.await();
+            return blockingClientRequest.getResult();
+        } catch(InterruptedException e) {
+            throw new UnreachableStoreException("Failure in " + operationName + " on "
+                                                + destination + ": " + e.getMessage(), e);
+        } catch(IOException e) {
+            clientRequestExecutor.close();
+            throw new UnreachableStoreException("Failure in " + operationName + " on "
+                                                + destination + ": " + e.getMessage(), e);
+        }
+    }
+
     /**
      * This method handles submitting and then waiting for the request from the
      * server. It uses the ClientRequest API to actually write the request and
@@ -277,10 +352,29 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
                                   NonblockingStoreCallback callback,
                                   long timeoutMs,
                                   String operationName) {
+        requestAsync(delegate, callback, timeoutMs, operationName, true);
+    }
+
+    /**
+     * @param wait Whether to wait for a connection to be checked in if all of
+     *        them are in use, rather than give up without sending anything
+     * @return false if no connection could be had without waiting
+     */
+    private <T> boolean requestAsync(ClientRequest<T> delegate,
+                                     NonblockingStoreCallback callback,
+                                     long timeoutMs,
+                                     String operationName,
+                                     boolean wait) {
         ClientRequestExecutor clientRequestExecutor = null;
+        MultiplexedClientRequestExecutor multiplexedExecutor = null;
 
         try {
-            clientRequestExecutor = pool.checkout(destination);
+            if(isMultiplexed)
+                multiplexedExecutor = pool.getMultiplexedExecutor(destination);
+            else if(wait)
+                clientRequestExecutor = pool.checkout(destination);
+            else if((clientRequestExecutor = pool.tryCheckout(destination)) == null)
+                return false;
         } catch(Exception e) {
             // If we can't check out a socket from the pool, we'll usually get
             // either an IOException (subclass) or an UnreachableStoreException
@@ -298,13 +392,19 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
                     logger.warn(ex, ex);
             }
 
-            return;
+            return true;
         }
 
         NonblockingStoreCallbackClientRequest<T> clientRequest = new NonblockingStoreCallbackClientRequest<T>(delegate,
                                                                                                               clientRequestExecutor,
                                                                                                               callback);
-        clientRequestExecutor.addClientRequest(clientRequest, timeoutMs);
+
+        if(isMultiplexed)
+            multiplexedExecutor.addClientRequest(clientRequest, timeoutMs);
+        else
+            clientRequestExecutor.addClientRequest(clientRequest, timeoutMs);
+
+        return true;
     }
 
     private class NonblockingStoreCallbackClientRequest<T> implements ClientRequest<T> {
@@ -348,7 +448,7 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
             } catch(Exception e) {
                 invokeCallback(e, (System.nanoTime() - startNs) / Time.NS_PER_MS);
             } finally {
-                pool.checkin(destination, clientRequestExecutor);
+                checkin();
                 isComplete = true;
             }
         }
@@ -377,7 +477,13 @@ public class SocketStore implements Store<ByteArray, byte[], byte[]>, Nonblockin
             clientRequest.timeOut();
             invokeCallback(new UnreachableStoreException("ClientRequestExecutor timed out. Cannot complete request."),
                            (System.nanoTime() - startNs) / Time.NS_PER_MS);
-            pool.checkin(destination, clientRequestExecutor);
+            checkin();
+        }
+
+        private void checkin() {
+            // Multiplexed requests don't check out a connection.
+            if(clientRequestExecutor != null)
+                pool.checkin(destination, clientRequestExecutor);
         }
 
         public boolean isTimedOut() {
@@ -108,7 +108,63 @@ public class ClientRequestExecutorFactory implements
 
     public ClientRequestExecutor create(SocketDestination dest) throws Exception {
         int numCreated = created.incrementAndGet();
+        SocketChannel socketChannel = connect(dest, numCreated);
+        ClientRequestSelectorManager selectorManager = selectorManagers[counter.getAndIncrement()
+                                                                        % selectorManagers.length];
+
+        Selector selector = selectorManager.getSelector();
+        ClientRequestExecutor clientRequestExecutor = new ClientRequestExecutor(selector,
+                                                                                socketChannel,
+                                                                                socketBufferSize);
+        negotiateProtocol(dest, selectorManager, clientRequestExecutor);
+
+        return clientRequestExecutor;
+    }
+
+    /**
+     * Create a MultiplexedClientRequestExecutor for the given
+     * {@link SocketDestination}, whose request format must be multiplexed.
+     * 
+     * <p/>
+     * 
+     * The protocol is negotiated by a regular {@link ClientRequestExecutor}
+     * which then hands the connection over to the multiplexed executor.
+     * 
+     * @param dest {@link SocketDestination}
+     */
+
+    public MultiplexedClientRequestExecutor createMultiplexed(SocketDestination dest)
+            throws Exception {
+        if(!dest.getRequestFormatType().isMultiplexed())
+            throw new IllegalArgumentException(dest.getRequestFormatType().getDisplayName()
+                                               + " does not support multiplexing");
+
+        int numCreated = created.incrementAndGet();
+        SocketChannel socketChannel = connect(dest, numCreated);
+        ClientRequestSelectorManager selectorManager = selectorManagers[counter.getAndIncrement()
+                                                                        % selectorManagers.length];
 
+        Selector selector = selectorManager.getSelector();
+        ClientRequestExecutor negotiator = new ClientRequestExecutor(selector,
+                                                                     socketChannel,
+                                                                     socketBufferSize);
+        negotiateProtocol(dest, selectorManager, negotiator);
+
+        MultiplexedClientRequestExecutor clientRequestExecutor = new MultiplexedClientRequestExecutor(selector,
+                                                                                                      socketChannel,
+                                                                                                      socketBufferSize);
+
+        // The negotiator has no interest in any events anymore once it's done,
+        // so simply swap the attachment and start listening for responses.
+        SelectionKey selectionKey = socketChannel.keyFor(selector);
+        selectionKey.attach(clientRequestExecutor);
+        selectionKey.interestOps(SelectionKey.OP_READ);
+        selector.wakeup();
+
+        return clientRequestExecutor;
+    }
+
+    private SocketChannel connect(SocketDestination dest, int numCreated) throws Exception {
         if(logger.isDebugEnabled())
             logger.debug("Creating socket " + numCreated + " for " + dest.getHost() + ":"
                          + dest.getPort() + " using protocol "
@@ -181,13 +237,13 @@ public class ClientRequestExecutorFactory implements
                          + " bytes but actual size is "
                          + socketChannel.socket().getSendBufferSize() + " bytes.");
 
-        ClientRequestSelectorManager selectorManager = selectorManagers[counter.getAndIncrement()
-                                                                        % selectorManagers.length];
+        return socketChannel;
+    }
 
+    private void negotiateProtocol(SocketDestination dest,
+                                   ClientRequestSelectorManager selectorManager,
+                                   ClientRequestExecutor clientRequestExecutor) throws Exception {
         Selector selector = selectorManager.getSelector();
-        ClientRequestExecutor clientRequestExecutor = new ClientRequestExecutor(selector,
-                                                                                socketChannel,
-                                                                                socketBufferSize);
         BlockingClientRequest<String> clientRequest = new BlockingClientRequest<String>(new ProtocolNegotiatorClientRequest(dest.getRequestFormatType()),
                                                                                         this.getTimeout());
         clientRequestExecutor.addClientRequest(clientRequest);
@@ -207,7 +263,7 @@ public class ClientRequestExecutorFactory implements
             // Don't forget to close the socket before we throw our exception or
             // they'll leak :(
             try {
-                socketChannel.close();
+                clientRequestExecutor.getSocketChannel().close();
             } catch(Exception ex) {
                 if(logger.isEnabledFor(Level.WARN))
                     logger.warn(ex, ex);
@@ -215,8 +271,6 @@ public class ClientRequestExecutorFactory implements
 
             throw e;
         }
-
-        return clientRequestExecutor;
     }
 
     public boolean validate(SocketDestination dest, ClientRequestExecutor clientRequestExecutor) {
@@ -371,14 +425,17 @@ public class ClientRequestExecutorFactory implements
 
                 while(i.hasNext()) {
                     SelectionKey selectionKey = i.next();
-                    ClientRequestExecutor clientRequestExecutor = (ClientRequestExecutor) selectionKey.attachment();
+                    Object attachment = selectionKey.attachment();
 
                     // A race condition can occur wherein our SelectionKey is
                     // still registered but the attachment has be nulled out on
                     // its way to being canceled.
-                    if(clientRequestExecutor != null) {
+                    if(attachment != null) {
                         try {
-                            clientRequestExecutor.checkTimeout(selectionKey);
+                            if(attachment instanceof MultiplexedClientRequestExecutor)
+                                ((MultiplexedClientRequestExecutor) attachment).checkTimeouts();
+                            else
+                                ((ClientRequestExecutor) attachment).checkTimeout(selectionKey);
                         } catch(Exception e) {
                             if(logger.isEnabledFor(Level.ERROR))
                                 logger.error(e.getMessage(), e);
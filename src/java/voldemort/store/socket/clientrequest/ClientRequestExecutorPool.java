@@ -16,7 +16,10 @@
 
 package voldemort.store.socket.clientrequest;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -42,6 +45,13 @@ import voldemort.utils.pool.ResourcePoolConfig;
  * 
  * <p/>
  * 
+ * Destinations using a {@link RequestFormatType#isMultiplexed() multiplexed}
+ * protocol don't check out connections from the pool: all requests to such a
+ * destination share a single {@link MultiplexedClientRequestExecutor}, which
+ * is created on first use and re-created if it's found to be closed.
+ * 
+ * <p/>
+ * 
  * Upon successful construction of this object, a new Thread is started. It is
  * terminated upon calling {@link #close()}.
  */
@@ -54,6 +64,8 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
     private final AtomicLong waitNs;
     private final AtomicLong avgWaitNs;
     private final KeyedResourcePool<SocketDestination, ClientRequestExecutor> pool;
+    private final ConcurrentMap<SocketDestination, MultiplexedClientRequestExecutor> multiplexedExecutors;
+    private final ConcurrentMap<SocketDestination, Object> multiplexedLocks;
     private final ClientRequestExecutorFactory factory;
 
     public ClientRequestExecutorPool(int selectors,
@@ -73,6 +85,8 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
                                                         socketBufferSize,
                                                         socketKeepAlive);
         this.pool = new KeyedResourcePool<SocketDestination, ClientRequestExecutor>(factory, config);
+        this.multiplexedExecutors = new ConcurrentHashMap<SocketDestination, MultiplexedClientRequestExecutor>();
+        this.multiplexedLocks = new ConcurrentHashMap<SocketDestination, Object>();
         this.checkouts = new AtomicInteger(0);
         this.waitNs = new AtomicLong(0);
         this.avgWaitNs = new AtomicLong(0);
@@ -126,6 +140,30 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         }
     }
 
+    /**
+     * Checkout a socket from the pool without waiting for one to be checked
+     * in. A new socket is still created if the pool has room for it.
+     * 
+     * @param destination The socket destination you want to connect to
+     * @return The socket, or null if all sockets to the destination are in use
+     */
+    public ClientRequestExecutor tryCheckout(SocketDestination destination) {
+        try {
+            long start = System.nanoTime();
+            ClientRequestExecutor clientRequestExecutor = pool.checkout(destination,
+                                                                        0,
+                                                                        TimeUnit.NANOSECONDS);
+            updateStats(System.nanoTime() - start);
+
+            return clientRequestExecutor;
+        } catch(TimeoutException e) {
+            return null;
+        } catch(Exception e) {
+            throw new UnreachableStoreException("Failure while checking out socket for "
+                                                + destination + ": ", e);
+        }
+    }
+
     private void updateStats(long checkoutTimeNs) {
         long wait = waitNs.getAndAdd(checkoutTimeNs);
         int count = checkouts.getAndIncrement();
@@ -155,15 +193,72 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         }
     }
 
+    /**
+     * Get the connection shared by all requests to a destination that uses a
+     * multiplexed protocol, creating it if there is none or the existing one
+     * is no longer valid. The connection is not checked out, so there is
+     * nothing to check back in.
+     * 
+     * @param destination The socket destination you want to connect to
+     * @return The multiplexed connection
+     */
+
+    public MultiplexedClientRequestExecutor getMultiplexedExecutor(SocketDestination destination) {
+        MultiplexedClientRequestExecutor clientRequestExecutor = multiplexedExecutors.get(destination);
+
+        if(clientRequestExecutor != null && clientRequestExecutor.isValid())
+            return clientRequestExecutor;
+
+        // Only let one thread (re)connect to a given destination; the others
+        // pick up the new connection once it's there.
+        Object lock = new Object();
+        Object existingLock = multiplexedLocks.putIfAbsent(destination, lock);
+
+        if(existingLock != null)
+            lock = existingLock;
+
+        synchronized(lock) {
+            clientRequestExecutor = multiplexedExecutors.get(destination);
+
+            if(clientRequestExecutor != null && clientRequestExecutor.isValid())
+                return clientRequestExecutor;
+
+            if(clientRequestExecutor != null)
+                clientRequestExecutor.close();
+
+            try {
+                long start = System.nanoTime();
+                clientRequestExecutor = factory.createMultiplexed(destination);
+                updateStats(System.nanoTime() - start);
+            } catch(Exception e) {
+                multiplexedExecutors.remove(destination);
+                throw new UnreachableStoreException("Failure while connecting to " + destination
+                                                    + ": ", e);
+            }
+
+            multiplexedExecutors.put(destination, clientRequestExecutor);
+            return clientRequestExecutor;
+        }
+    }
+
     public void close(SocketDestination destination) {
         factory.setLastClosedTimestamp(destination);
         pool.close(destination);
+
+        MultiplexedClientRequestExecutor clientRequestExecutor = multiplexedExecutors.remove(destination);
+
+        if(clientRequestExecutor != null)
+            clientRequestExecutor.close();
     }
 
     /**
      * Close the socket pool
      */
     public void close() {
+        for(MultiplexedClientRequestExecutor clientRequestExecutor: multiplexedExecutors.values())
+            clientRequestExecutor.close();
+
+        multiplexedExecutors.clear();
         factory.close();
         pool.close();
     }
@@ -188,6 +283,11 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         return this.pool.getCheckedInResourceCount();
     }
 
+    @JmxGetter(name = "numberOfMultiplexedConnections", description = "The number of connections shared by multiplexed requests.")
+    public int getNumberOfMultiplexedConnections() {
+        return this.multiplexedExecutors.size();
+    }
+
     @JmxGetter(name = "avgWaitTimeMs", description = "The avg. ms of wait time to acquire a connection.")
     public double getAvgWaitTimeMs() {
         return this.avgWaitNs.doubleValue() / Time.NS_PER_MS;
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket.clientrequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Level;
+
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.client.protocol.vold.VoldemortNativeClientRequestFormat;
+import voldemort.utils.ByteBufferBackedInputStream;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.SelectorManagerWorker;
+import voldemort.utils.Time;
+
+/**
+ * MultiplexedClientRequestExecutor is a persistent link between a client and
+ * server over which many {@link ClientRequest requests} can be in flight at
+ * the same time. It is used for {@link RequestFormatType#isMultiplexed()
+ * multiplexed} protocols, where every request is framed with a request id
+ * that the server echoes in the response.
+ * 
+ * <p/>
+ * 
+ * Unlike {@link ClientRequestExecutor}, instances are not checked out of a
+ * pool: {@link ClientRequestExecutorPool} keeps one per destination and any
+ * number of threads may {@link #addClientRequest(ClientRequest, long) add
+ * requests} to it concurrently. Responses are matched to their requests by
+ * id, so they may complete in any order. A request that times out is
+ * completed with {@link ClientRequest#timeOut()} without affecting the other
+ * requests on the connection; its response is discarded if it arrives later.
+ * 
+ * @see ClientRequestExecutor
+ */
+
+public class MultiplexedClientRequestExecutor extends SelectorManagerWorker {
+
+    private final Map<Integer, PendingClientRequest> pendingRequests;
+
+    private final Queue<ByteBuffer> requestQueue;
+
+    private final AtomicInteger nextRequestId;
+
+    private final Object interestOpsLock;
+
+    private ByteBuffer currentRequest;
+
+    public MultiplexedClientRequestExecutor(Selector selector,
+                                            SocketChannel socketChannel,
+                                            int socketBufferSize) {
+        super(selector, socketChannel, socketBufferSize);
+        this.pendingRequests = new ConcurrentHashMap<Integer, PendingClientRequest>();
+        this.requestQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+        this.nextRequestId = new AtomicInteger(0);
+        this.interestOpsLock = new Object();
+    }
+
+    public SocketChannel getSocketChannel() {
+        return socketChannel;
+    }
+
+    public boolean isValid() {
+        if(isClosed())
+            return false;
+
+        Socket s = socketChannel.socket();
+        return !s.isClosed() && s.isBound() && s.isConnected();
+    }
+
+    /**
+     * Returns the number of requests that have been sent (or are waiting to
+     * be sent) but haven't completed yet.
+     * 
+     * @return Number of outstanding requests
+     */
+
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    public void addClientRequest(ClientRequest<?> clientRequest, long timeoutMs) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        if(!clientRequest.formatRequest(new DataOutputStream(body))) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn("Client associated with " + socketChannel.socket()
+                            + " did not successfully buffer output for request");
+
+            clientRequest.complete();
+            return;
+        }
+
+        long expiration = -1;
+
+        if(timeoutMs != -1) {
+            expiration = System.nanoTime() + (Time.NS_PER_MS * timeoutMs);
+
+            if(expiration < System.nanoTime())
+                throw new IllegalArgumentException("timeout " + timeoutMs + " not valid");
+        }
+
+        int requestId = nextRequestId.getAndIncrement();
+        ByteBuffer frame = ByteBuffer.allocate(VoldemortNativeClientRequestFormat.FRAME_HEADER_SIZE
+                                               + body.size());
+        frame.putInt(requestId);
+        frame.putInt(body.size());
+        frame.put(body.toByteArray());
+        frame.flip();
+
+        pendingRequests.put(requestId, new PendingClientRequest(clientRequest, expiration));
+
+        // If we were closed in the meantime nobody else is going to complete
+        // the request.
+        if(isClosed()) {
+            completeClientRequest(requestId, false);
+            return;
+        }
+
+        synchronized(interestOpsLock) {
+            requestQueue.add(frame);
+
+            SelectionKey selectionKey = socketChannel.keyFor(selector);
+
+            if(selectionKey != null && selectionKey.isValid()) {
+                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+                // This wakeup is required because it's invoked by the calling
+                // code in a different thread than the SelectorManager.
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Times out all the requests whose timeout has been exceeded. This is
+     * invoked periodically by the SelectorManager.
+     */
+
+    public void checkTimeouts() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Integer, PendingClientRequest>> i = pendingRequests.entrySet()
+                                                                              .iterator();
+
+        while(i.hasNext()) {
+            Map.Entry<Integer, PendingClientRequest> entry = i.next();
+            long expiration = entry.getValue().expiration;
+
+            if(expiration > 0 && now > expiration) {
+                if(logger.isEnabledFor(Level.WARN))
+                    logger.warn("Client request " + entry.getKey() + " associated with "
+                                + socketChannel.socket() + " timed out");
+
+                completeClientRequest(entry.getKey(), true);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if(!isClosed.compareAndSet(false, true))
+            return;
+
+        closeInternal();
+
+        for(Integer requestId: pendingRequests.keySet())
+            completeClientRequest(requestId, false);
+    }
+
+    @Override
+    protected void read(SelectionKey selectionKey) throws IOException {
+        int count = 0;
+
+        if((count = socketChannel.read(inputStream.getBuffer())) == -1)
+            throw new EOFException("EOF for " + socketChannel.socket());
+
+        if(logger.isTraceEnabled())
+            traceInputBufferState("Read " + count + " bytes");
+
+        if(count == 0)
+            return;
+
+        ByteBuffer buffer = inputStream.getBuffer();
+        buffer.flip();
+
+        int headerSize = VoldemortNativeClientRequestFormat.FRAME_HEADER_SIZE;
+
+        while(buffer.remaining() >= headerSize) {
+            int position = buffer.position();
+            int requestId = buffer.getInt(position);
+            int responseSize = buffer.getInt(position + ByteUtils.SIZE_OF_INT);
+
+            if(responseSize < 0)
+                throw new IOException("Invalid response size " + responseSize + " from "
+                                      + socketChannel.socket());
+
+            if(buffer.remaining() < headerSize + responseSize)
+                break;
+
+            int end = position + headerSize + responseSize;
+            PendingClientRequest pending = pendingRequests.remove(requestId);
+
+            if(pending != null) {
+                ByteBuffer response = buffer.duplicate();
+                response.position(position + headerSize);
+                response.limit(end);
+                pending.clientRequest.parseResponse(new DataInputStream(new ByteBufferBackedInputStream(response)));
+                pending.clientRequest.complete();
+            } else if(logger.isDebugEnabled()) {
+                logger.debug("Discarding response to request " + requestId
+                             + " which already completed for " + socketChannel.socket());
+            }
+
+            buffer.position(end);
+        }
+
+        // Move the partial response (if any) to the start of the buffer and get
+        // ready for the next read.
+        int remaining = buffer.remaining();
+
+        if(remaining == 0 && buffer.capacity() >= resizeThreshold) {
+            inputStream.setBuffer(ByteBuffer.allocate(socketBufferSize));
+        } else {
+            buffer.compact();
+            handleIncompleteRequest(remaining);
+        }
+
+        // We only get here if the socket was readable, so don't let a steady
+        // stream of responses hold back the requests waiting to be written.
+        if(selectionKey.isValid() && selectionKey.isWritable())
+            write(selectionKey);
+    }
+
+    @Override
+    protected void write(SelectionKey selectionKey) throws IOException {
+        while(true) {
+            if(currentRequest == null) {
+                currentRequest = requestQueue.poll();
+
+                if(currentRequest == null)
+                    break;
+            }
+
+            socketChannel.write(currentRequest);
+
+            // The socket's send buffer is full, wait to be selected again.
+            if(currentRequest.hasRemaining())
+                return;
+
+            currentRequest = null;
+        }
+
+        synchronized(interestOpsLock) {
+            if(requestQueue.isEmpty())
+                selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void completeClientRequest(int requestId, boolean isExpired) {
+        PendingClientRequest pending = pendingRequests.remove(requestId);
+
+        // Someone else got to it first.
+        if(pending == null)
+            return;
+
+        if(isExpired)
+            pending.clientRequest.timeOut();
+        else
+            pending.clientRequest.complete();
+    }
+
+    private static class PendingClientRequest {
+
+        private final ClientRequest<?> clientRequest;
+
+        private final long expiration;
+
+        public PendingClientRequest(ClientRequest<?> clientRequest, long expiration) {
+            this.clientRequest = clientRequest;
+            this.expiration = expiration;
+        }
+
+    }
+
+}
@@ -1,5 +1,7 @@
 package voldemort.store.stats;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 
 import voldemort.utils.SystemTime;
@@ -9,11 +11,40 @@ import voldemort.utils.Time;
  * A thread-safe request counter that calculates throughput for a specified
  * duration of time.
  * 
+ * <p/>
+ * 
+ * Recording a request is lock-free and doesn't allocate: the sums are striped
+ * across threads so that concurrent requests rarely update the same counter,
+ * and latencies are recorded in a histogram with a fixed number of
+ * logarithmic buckets, from which the latency percentiles are estimated to
+ * within about 12%. A request that is recorded while the window rolls over
+ * may be counted in the old window, but is never lost from the total count.
+ * 
  * 
  */
 public class RequestCounter {
 
-    private final AtomicReference<Accumulator> values;
+    private static final int NUM_STRIPES = numStripes();
+
+    // Offsets of the sums in each stripe. Stripes are a cache line apart so
+    // that threads using neighbouring stripes don't contend.
+    private static final int COUNT = 0;
+    private static final int TOTAL_TIME_NS = 1;
+    private static final int NUM_EMPTY_RESPONSES = 2;
+    private static final int TOTAL_BYTES = 3;
+    private static final int GET_ALL_AGGREGATED_COUNT = 4;
+    private static final int STRIPE_SIZE = 8;
+
+    // Values below 2^SUB_BUCKET_BITS us get a bucket each, larger values are
+    // split into 2^SUB_BUCKET_BITS buckets per power of two.
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final int NUM_BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1)
+                                           * SUB_BUCKETS;
+
+    private final AtomicReference<Window> values;
+    private final AtomicLongArray totals;
     private final int durationMS;
     private final Time time;
 
@@ -30,35 +61,39 @@ public class RequestCounter {
      */
     RequestCounter(int durationMS, Time time) {
         this.time = time;
-        this.values = new AtomicReference<Accumulator>(new Accumulator());
+        this.values = new AtomicReference<Window>(new Window(time.getMilliseconds()));
+        this.totals = new AtomicLongArray(NUM_STRIPES * STRIPE_SIZE);
         this.durationMS = durationMS;
     }
 
     public long getCount() {
-        return getValidAccumulator().count;
+        return getValidWindow().sum(COUNT);
     }
 
     public long getTotalCount() {
-        return getValidAccumulator().total;
+        long total = 0;
+        for(int i = 0; i < NUM_STRIPES; i++)
+            total += totals.get(i * STRIPE_SIZE);
+        return total;
     }
 
     public float getThroughput() {
-        Accumulator oldv = getValidAccumulator();
-        double elapsed = (time.getMilliseconds() - oldv.startTimeMS)
+        Window window = getValidWindow();
+        double elapsed = (time.getMilliseconds() - window.startTimeMS)
                          / (double) Time.MS_PER_SECOND;
         if(elapsed > 0f) {
-            return (float) (oldv.count / elapsed);
+            return (float) (window.sum(COUNT) / elapsed);
         } else {
             return 0f;
         }
     }
 
     public float getThroughputInBytes() {
-        Accumulator oldv = getValidAccumulator();
-        double elapsed = (time.getMilliseconds() - oldv.startTimeMS)
+        Window window = getValidWindow();
+        double elapsed = (time.getMilliseconds() - window.startTimeMS)
                          / (double) Time.MS_PER_SECOND;
         if(elapsed > 0f) {
-            return (float) (oldv.totalBytes / elapsed);
+            return (float) (window.sum(TOTAL_BYTES) / elapsed);
         } else {
             return 0f;
         }
@@ -69,7 +104,9 @@ public class RequestCounter {
     }
 
     public double getAverageTimeInMs() {
-        return getValidAccumulator().getAverageTimeNS() / Time.NS_PER_MS;
+        Window window = getValidWindow();
+        long count = window.sum(COUNT);
+        return count > 0 ? 1f * window.sum(TOTAL_TIME_NS) / count / Time.NS_PER_MS : 0f;
     }
 
     public String getDisplayAverageTimeInMs() {
@@ -81,19 +118,58 @@ public class RequestCounter {
     }
 
     public long getMaxLatencyInMs() {
-        return getValidAccumulator().maxLatencyNS / Time.NS_PER_MS;
+        return getValidWindow().maxLatencyNS.get() / Time.NS_PER_MS;
     }
 
-    private Accumulator getValidAccumulator() {
+    /**
+     * Estimates the given percentile of the latencies recorded in the current
+     * window. The estimate is the upper bound of the histogram bucket the
+     * percentile falls in, so it errs on the high side.
+     * 
+     * @param percentile The percentile, e.g. 99.9
+     * @return The latency in ms, or 0 if no requests have been recorded
+     */
+    public double getLatencyPercentileInMs(double percentile) {
+        if(percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100.");
+
+        Window window = getValidWindow();
+        long[] buckets = new long[NUM_BUCKETS];
+        long count = 0;
+
+        for(int i = 0; i < NUM_BUCKETS; i++) {
+            buckets[i] = window.histogram.get(i);
+            count += buckets[i];
+        }
+
+        if(count == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
 
-        Accumulator accum = values.get();
+        for(int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets[i];
+
+            if(seen >= rank) {
+                long maxLatencyUs = window.maxLatencyNS.get() / Time.NS_PER_US;
+                return Math.min(getBucketUpperBoundUs(i), maxLatencyUs) / (double) Time.US_PER_MS;
+            }
+        }
+
+        return window.maxLatencyNS.get() / (double) Time.NS_PER_MS;
+    }
+
+    private Window getValidWindow() {
+
+        Window window = values.get();
         long now = time.getMilliseconds();
 
         /*
          * if still in the window, just return it
          */
-        if(now - accum.startTimeMS <= durationMS) {
-            return accum;
+        if(now - window.startTimeMS <= durationMS) {
+            return window;
         }
 
         /*
@@ -101,20 +177,17 @@ public class RequestCounter {
          * new one
          */
 
-        Accumulator newWithTotal = accum.newWithTotal();
+        Window newWindow = new Window(now);
 
-        if(values.compareAndSet(accum, newWithTotal)) {
-            return newWithTotal;
+        if(values.compareAndSet(window, newWindow)) {
+            return newWindow;
         }
 
         return values.get();
     }
 
     /*
-     * Updates the stats accumulator with another operation. We need to make
-     * sure that the request is only added to a non-expired pair. If so, start a
-     * new counter pair with recent time. We'll only try to do this 3 times - if
-     * other threads keep modifying while we're doing our own work, just bail.
+     * Updates the stats accumulator with another operation.
      * 
      * @param timeNS time of operation, in nanoseconds
      */
@@ -125,94 +198,113 @@ public class RequestCounter {
     /**
      * @see #addRequest(long)
      * Detailed request to track additionald data about PUT, GET and GET_ALL
-     *
+     * 
      * @param numEmptyResponses For GET and GET_ALL, how many keys were no values found
      * @param bytes Total number of bytes across all versions of values' bytes
      * @param getAllAggregatedCount Total number of keys returned for getAll calls
      */
     public void addRequest(long timeNS, long numEmptyResponses, long bytes, long getAllAggregatedCount) {
-        for(int i = 0; i < 3; i++) {
-            Accumulator oldv = getValidAccumulator();
-            Accumulator newv = new Accumulator(oldv.startTimeMS,
-                                               oldv.count + 1,
-                                               oldv.totalTimeNS + timeNS,
-                                               oldv.total + 1,
-                                               oldv.numEmptyResponses + numEmptyResponses,
-                                               Math.max(timeNS, oldv.maxLatencyNS),
-                                               oldv.totalBytes + bytes,
-                                               Math.max(oldv.maxBytes, bytes),
-                                               oldv.getAllAggregatedCount + getAllAggregatedCount);
-            if(values.compareAndSet(oldv, newv))
-                return;
-        }
+        Window window = getValidWindow();
+        int stripe = (int) (Thread.currentThread().getId() & (NUM_STRIPES - 1)) * STRIPE_SIZE;
+
+        totals.incrementAndGet(stripe);
+        window.stripes.incrementAndGet(stripe + COUNT);
+        window.stripes.addAndGet(stripe + TOTAL_TIME_NS, timeNS);
+
+        if(numEmptyResponses != 0)
+            window.stripes.addAndGet(stripe + NUM_EMPTY_RESPONSES, numEmptyResponses);
+        if(bytes != 0)
+            window.stripes.addAndGet(stripe + TOTAL_BYTES, bytes);
+        if(getAllAggregatedCount != 0)
+            window.stripes.addAndGet(stripe + GET_ALL_AGGREGATED_COUNT, getAllAggregatedCount);
+
+        updateMax(window.maxLatencyNS, timeNS);
+        updateMax(window.maxBytes, bytes);
+        window.histogram.incrementAndGet(getBucket(timeNS / Time.NS_PER_US));
     }
 
     /**
      * Return the number of requests that have returned returned no value for the requested key.  Tracked only for GET.
      */
     public long getNumEmptyResponses() {
-        return getValidAccumulator().numEmptyResponses;
+        return getValidWindow().sum(NUM_EMPTY_RESPONSES);
     }
 
     /**
      * Return the size of the largest response or request in bytes returned.  Tracked only for GET, GET_ALL and PUT.
      */
     public long getMaxSizeInBytes() {
-        return getValidAccumulator().maxBytes;
+        return getValidWindow().maxBytes.get();
     }
 
     /**
      * Return the average size of all the versioned values returned. Tracked only for GET, GET_ALL and PUT.
      */
     public double getAverageSizeInBytes() {
-        return getValidAccumulator().getAverageBytes();
+        Window window = getValidWindow();
+        long count = window.sum(COUNT);
+        return count > 0 ? 1f * window.sum(TOTAL_BYTES) / count : -0f;
     }
 
     /**
      * Return the aggregated number of keys returned across all getAll calls, taking into account multiple values returned per call.
      */
     public long getGetAllAggregatedCount() {
-        return getValidAccumulator().getAllAggregatedCount;
+        return getValidWindow().sum(GET_ALL_AGGREGATED_COUNT);
     }
 
-    private class Accumulator {
-
-        final long startTimeMS;
-        final long count;
-        final long totalTimeNS;
-        final long total;
-        final long numEmptyResponses; // GET and GET_ALL: number of empty responses that have been returned
-        final long getAllAggregatedCount; // GET_ALL: a single call to GET_ALL can return multiple k-v pairs. Track total returned.
-        final long maxLatencyNS;
-        final long maxBytes;     // Maximum single value
-        final long totalBytes;   // Sum of all the values
-
-        public Accumulator() {
-            this(RequestCounter.this.time.getMilliseconds(), 0, 0, 0, 0, 0, 0, 0, 0);
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while(value > current) {
+            if(max.compareAndSet(current, value))
+                return;
+            current = max.get();
         }
+    }
 
-        public Accumulator newWithTotal() {
-            return new Accumulator(RequestCounter.this.time.getMilliseconds(), 0, 0, total, 0, 0, 0, 0, 0);
-        }
+    static int getBucket(long valueUs) {
+        if(valueUs < SUB_BUCKETS)
+            return (int) Math.max(valueUs, 0);
 
-        public Accumulator(long startTimeMS, long count, long totalTimeNS, long total, long numEmptyResponses, long maxLatencyNS, long totalBytes,  long maxBytes, long getAllAggregatedCount) {
-            this.startTimeMS = startTimeMS;
-            this.count = count;
-            this.totalTimeNS = totalTimeNS;
-            this.total = total;
-            this.numEmptyResponses = numEmptyResponses;
-            this.maxLatencyNS = maxLatencyNS;
-            this.totalBytes = totalBytes;
-            this.maxBytes = maxBytes;
-            this.getAllAggregatedCount = getAllAggregatedCount;
-        }
+        int exponent = 63 - Long.numberOfLeadingZeros(valueUs);
+        if(exponent > MAX_EXPONENT)
+            return NUM_BUCKETS - 1;
+
+        int subBucket = (int) (valueUs >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
 
-        public double getAverageTimeNS() {
-            return count > 0 ? 1f * totalTimeNS / count : 0f;
+    static long getBucketUpperBoundUs(int bucket) {
+        if(bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static int numStripes() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 32);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
+    private static class Window {
+
+        final long startTimeMS;
+        final AtomicLongArray stripes = new AtomicLongArray(NUM_STRIPES * STRIPE_SIZE);
+        final AtomicLongArray histogram = new AtomicLongArray(NUM_BUCKETS);
+        final AtomicLong maxLatencyNS = new AtomicLong(0);
+        final AtomicLong maxBytes = new AtomicLong(0);   // Maximum single value
+
+        public Window(long startTimeMS) {
+            this.startTimeMS = startTimeMS;
         }
 
-        public double getAverageBytes() {
-            return count > 0 ? 1f * totalBytes / count : -0f;
+        long sum(int field) {
+            long sum = 0;
+            for(int i = 0; i < NUM_STRIPES; i++)
+                sum += stripes.get(i * STRIPE_SIZE + field);
+            return sum;
         }
     }
 }
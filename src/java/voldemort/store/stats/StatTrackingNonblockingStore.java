@@ -0,0 +1,175 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import java.util.List;
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+/**
+ * A {@link NonblockingStore} wrapper that records the same statistics as
+ * {@link StatTrackingStore} when each request completes
+ */
+public class StatTrackingNonblockingStore implements NonblockingStore {
+
+    private final NonblockingStore innerStore;
+
+    private final StoreStats stats;
+
+    /**
+     * @param innerStore The store to send requests to
+     * @param stats The statistics to record into, usually those of the
+     *        {@link StatTrackingStore} in front of the same store
+     */
+    public StatTrackingNonblockingStore(NonblockingStore innerStore, StoreStats stats) {
+        this.innerStore = Utils.notNull(innerStore);
+        this.stats = Utils.notNull(stats);
+    }
+
+    public void submitGetRequest(ByteArray key,
+                                 byte[] transforms,
+                                 NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        innerStore.submitGetRequest(key, transforms, new TrackingCallback(callback) {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void record(Object result, long duration) {
+                long totalBytes = 0;
+                boolean returningEmpty = true;
+                if(result != null) {
+                    List<Versioned<byte[]>> values = (List<Versioned<byte[]>>) result;
+                    returningEmpty = values.size() == 0;
+                    for(Versioned<byte[]> bytes: values)
+                        totalBytes += bytes.getValue().length;
+                }
+                stats.recordGetTime(duration, returningEmpty, totalBytes);
+            }
+
+        }, timeoutMs);
+    }
+
+    public void submitGetAllRequest(final Iterable<ByteArray> keys,
+                                    Map<ByteArray, byte[]> transforms,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        innerStore.submitGetAllRequest(keys, transforms, new TrackingCallback(callback) {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void record(Object result, long duration) {
+                long totalBytes = 0;
+                int requestedValues = 0;
+                int returnedValues = 0;
+
+                for(ByteArray k: keys)
+                    requestedValues++;
+
+                if(result != null) {
+                    Map<ByteArray, List<Versioned<byte[]>>> values = (Map<ByteArray, List<Versioned<byte[]>>>) result;
+                    returnedValues = values.size();
+                    for(List<Versioned<byte[]>> value: values.values())
+                        for(Versioned<byte[]> bytes: value)
+                            totalBytes += bytes.getValue().length;
+                }
+
+                stats.recordGetAllTime(duration, requestedValues, returnedValues, totalBytes);
+            }
+
+        }, timeoutMs);
+    }
+
+    public void submitGetVersionsRequest(ByteArray key,
+                                         NonblockingStoreCallback callback,
+                                         long timeoutMs) {
+        innerStore.submitGetVersionsRequest(key, callback, timeoutMs);
+    }
+
+    public void submitPutRequest(ByteArray key,
+                                 final Versioned<byte[]> value,
+                                 byte[] transforms,
+                                 NonblockingStoreCallback callback,
+                                 long timeoutMs) {
+        innerStore.submitPutRequest(key, value, transforms, new TrackingCallback(callback) {
+
+            @Override
+            protected void record(Object result, long duration) {
+                stats.recordPutTimeAndSize(duration, value.getValue().length);
+            }
+
+        }, timeoutMs);
+    }
+
+    public void submitDeleteRequest(ByteArray key,
+                                    Version version,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        innerStore.submitDeleteRequest(key, version, new TrackingCallback(callback) {
+
+            @Override
+            protected void record(Object result, long duration) {
+                stats.recordTime(Tracked.DELETE, duration);
+            }
+
+        }, timeoutMs);
+    }
+
+    public void close() throws VoldemortException {
+        innerStore.close();
+    }
+
+    private abstract class TrackingCallback implements NonblockingStoreCallback {
+
+        private final NonblockingStoreCallback callback;
+
+        private final long start = System.nanoTime();
+
+        private TrackingCallback(NonblockingStoreCallback callback) {
+            this.callback = callback;
+        }
+
+        public void requestComplete(Object result, long requestTime) {
+            long duration = System.nanoTime() - start;
+
+            // failed requests are counted as well, as StatTrackingStore does
+            if(result instanceof ObsoleteVersionException)
+                stats.recordTime(Tracked.OBSOLETE, duration);
+            else if(result instanceof Exception)
+                stats.recordTime(Tracked.EXCEPTION, duration);
+
+            record(result instanceof Exception ? null : result, duration);
+
+            if(callback != null)
+                callback.requestComplete(result, requestTime);
+        }
+
+        /**
+         * @param result The result of the request, or null if it failed
+         */
+        protected abstract void record(Object result, long duration);
+
+    }
+
+}
@@ -100,6 +100,13 @@ public class StoreStats {
         return counters.get(op).getMaxLatencyInMs();
     }
 
+    /**
+     * @see RequestCounter#getLatencyPercentileInMs(double)
+     */
+    public double getLatencyPercentileInMs(Tracked op, double percentile) {
+        return counters.get(op).getLatencyPercentileInMs(percentile);
+    }
+
     public Map<Tracked, RequestCounter> getCounters() {
         return Collections.unmodifiableMap(counters);
     }
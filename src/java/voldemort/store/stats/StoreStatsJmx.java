@@ -172,6 +172,86 @@ public class StoreStatsJmx {
         return stats.getMaxLatencyInMs(Tracked.DELETE);
     }
 
+    @JmxGetter(name = "p50GetLatencyInMs", description = "50th percentile latency in ms of GET")
+    public double getP50GetLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET, 50);
+    }
+
+    @JmxGetter(name = "p95GetLatencyInMs", description = "95th percentile latency in ms of GET")
+    public double getP95GetLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET, 95);
+    }
+
+    @JmxGetter(name = "p99GetLatencyInMs", description = "99th percentile latency in ms of GET")
+    public double getP99GetLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET, 99);
+    }
+
+    @JmxGetter(name = "p999GetLatencyInMs", description = "99.9th percentile latency in ms of GET")
+    public double getP999GetLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET, 99.9);
+    }
+
+    @JmxGetter(name = "p50GetAllLatencyInMs", description = "50th percentile latency in ms of GET_ALL")
+    public double getP50GetAllLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET_ALL, 50);
+    }
+
+    @JmxGetter(name = "p95GetAllLatencyInMs", description = "95th percentile latency in ms of GET_ALL")
+    public double getP95GetAllLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET_ALL, 95);
+    }
+
+    @JmxGetter(name = "p99GetAllLatencyInMs", description = "99th percentile latency in ms of GET_ALL")
+    public double getP99GetAllLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET_ALL, 99);
+    }
+
+    @JmxGetter(name = "p999GetAllLatencyInMs", description = "99.9th percentile latency in ms of GET_ALL")
+    public double getP999GetAllLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.GET_ALL, 99.9);
+    }
+
+    @JmxGetter(name = "p50PutLatencyInMs", description = "50th percentile latency in ms of PUT")
+    public double getP50PutLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.PUT, 50);
+    }
+
+    @JmxGetter(name = "p95PutLatencyInMs", description = "95th percentile latency in ms of PUT")
+    public double getP95PutLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.PUT, 95);
+    }
+
+    @JmxGetter(name = "p99PutLatencyInMs", description = "99th percentile latency in ms of PUT")
+    public double getP99PutLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.PUT, 99);
+    }
+
+    @JmxGetter(name = "p999PutLatencyInMs", description = "99.9th percentile latency in ms of PUT")
+    public double getP999PutLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.PUT, 99.9);
+    }
+
+    @JmxGetter(name = "p50DeleteLatencyInMs", description = "50th percentile latency in ms of DELETE")
+    public double getP50DeleteLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.DELETE, 50);
+    }
+
+    @JmxGetter(name = "p95DeleteLatencyInMs", description = "95th percentile latency in ms of DELETE")
+    public double getP95DeleteLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.DELETE, 95);
+    }
+
+    @JmxGetter(name = "p99DeleteLatencyInMs", description = "99th percentile latency in ms of DELETE")
+    public double getP99DeleteLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.DELETE, 99);
+    }
+
+    @JmxGetter(name = "p999DeleteLatencyInMs", description = "99.9th percentile latency in ms of DELETE")
+    public double getP999DeleteLatency() {
+        return stats.getLatencyPercentileInMs(Tracked.DELETE, 99.9);
+    }
+
     @JmxGetter(name = "maxPutSizeInBytes", description = "Maximum size of value returned in bytes by PUT.")
     public long getMaxPutSizeInBytes() {
         return stats.getMaxSizeInBytes(Tracked.PUT);
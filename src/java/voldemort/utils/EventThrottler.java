@@ -3,7 +3,7 @@ package voldemort.utils;
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
-import voldemort.annotations.concurrency.NotThreadsafe;
+import voldemort.annotations.concurrency.Threadsafe;
 
 /**
  * A class to throttle Events to a certain rate
@@ -18,7 +18,7 @@ import voldemort.annotations.concurrency.NotThreadsafe;
  * 
  * 
  */
-@NotThreadsafe
+@Threadsafe
 public class EventThrottler {
 
     private final static Logger logger = Logger.getLogger(EventThrottler.class);
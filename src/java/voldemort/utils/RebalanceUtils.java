@@ -1189,13 +1189,16 @@ public class RebalanceUtils {
                 for(Entry<String, String> storeToStorageFormat: adminClient.getROStorageFormat(node.getId(),
                                                                                                storeNames)
                                                                            .entrySet()) {
-                    if(storeToStorageFormat.getValue()
-                                           .compareTo(ReadOnlyStorageFormat.READONLY_V2.getCode()) != 0) {
+                    ReadOnlyStorageFormat format = ReadOnlyStorageFormat.fromCode(storeToStorageFormat.getValue());
+                    if(format != ReadOnlyStorageFormat.READONLY_V2
+                       && format != ReadOnlyStorageFormat.READONLY_V3) {
                         throw new VoldemortRebalancingException("Cannot rebalance since node "
                                                                 + node.getId() + " has store "
                                                                 + storeToStorageFormat.getKey()
                                                                 + " not using format "
-                                                                + ReadOnlyStorageFormat.READONLY_V2);
+                                                                + ReadOnlyStorageFormat.READONLY_V2
+                                                                + " or "
+                                                                + ReadOnlyStorageFormat.READONLY_V3);
                     }
                 }
             }
@@ -1281,6 +1284,51 @@ public class RebalanceUtils {
         return partitionTuples;
     }
 
+    /**
+     * Splits a map of replica_type to partition mapping into at most
+     * numSplits maps, each covering a contiguous range of partition ids, so
+     * that every range can be streamed independently
+     * 
+     * @param replicaToPartitionList Map of replica_type to set of partitions
+     * @param numSplits Maximum number of ranges to split into
+     * @return List of maps of replica_type to set of partitions, one per range
+     */
+    public static List<HashMap<Integer, List<Integer>>> splitReplicaToPartitionList(HashMap<Integer, List<Integer>> replicaToPartitionList,
+                                                                                    int numSplits) {
+        Set<Integer> allPartitions = Sets.newTreeSet();
+        for(List<Integer> partitions: replicaToPartitionList.values()) {
+            allPartitions.addAll(partitions);
+        }
+
+        List<HashMap<Integer, List<Integer>>> splits = Lists.newArrayList();
+        if(numSplits <= 1 || allPartitions.size() <= 1) {
+            splits.add(replicaToPartitionList);
+            return splits;
+        }
+
+        List<Integer> sortedPartitions = Lists.newArrayList(allPartitions);
+        int numRanges = Math.min(numSplits, sortedPartitions.size());
+        int rangeSize = (sortedPartitions.size() + numRanges - 1) / numRanges;
+        for(int start = 0; start < sortedPartitions.size(); start += rangeSize) {
+            int end = Math.min(start + rangeSize, sortedPartitions.size());
+            Set<Integer> range = Sets.newHashSet(sortedPartitions.subList(start, end));
+            HashMap<Integer, List<Integer>> split = Maps.newHashMap();
+            for(Entry<Integer, List<Integer>> entry: replicaToPartitionList.entrySet()) {
+                List<Integer> partitions = Lists.newArrayList();
+                for(int partition: entry.getValue()) {
+                    if(range.contains(partition)) {
+                        partitions.add(partition);
+                    }
+                }
+                if(partitions.size() > 0) {
+                    split.put(entry.getKey(), partitions);
+                }
+            }
+            splits.add(split);
+        }
+        return splits;
+    }
+
     /**
      * Given a list of node plans flattens it into a list of partitions info
      * 
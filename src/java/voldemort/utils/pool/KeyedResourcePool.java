@@ -86,8 +86,24 @@ public class KeyedResourcePool<K, V> {
      * @return The resource
      */
     public V checkout(K key) throws Exception {
+        return checkout(key, this.timeoutNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checkout a resource as {@link #checkout(Object)} does, but block for at
+     * most the given time rather than the pool timeout. With a timeout of 0 a
+     * TimeoutException is thrown straight away if every resource is in use.
+     * 
+     * @param key The key to checkout the resource for
+     * @param timeout The maximum time to wait for a resource
+     * @param unit The unit of the timeout
+     * @return The resource
+     */
+    public V checkout(K key, long timeout, TimeUnit unit) throws Exception {
         checkNotClosed();
 
+        long timeoutNs = unit.toNanos(timeout);
+
         long startNs = System.nanoTime();
         Pool<V> resources = getResourcePoolForKey(key);
 
@@ -99,10 +115,11 @@ public class KeyedResourcePool<K, V> {
             for(; attempts < this.maxCreateAttempts; attempts++) {
                 resource = null;
                 checkNotClosed();
-                long timeRemainingNs = this.timeoutNs - (System.nanoTime() - startNs);
-                if(timeRemainingNs < 0)
+                long timeRemainingNs = timeoutNs - (System.nanoTime() - startNs);
+                // always look at the pool at least once, even without waiting
+                if(timeRemainingNs < 0 && attempts > 0)
                     throw new TimeoutException("Could not acquire resource in "
-                                               + (this.timeoutNs / Time.NS_PER_MS) + " ms.");
+                                               + (timeoutNs / Time.NS_PER_MS) + " ms.");
                 resource = checkoutOrCreateResource(key, resources, timeRemainingNs);
                 if(objectFactory.validate(key, resource))
                     return resource;
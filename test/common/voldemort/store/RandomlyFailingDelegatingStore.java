@@ -17,51 +17,45 @@ public class RandomlyFailingDelegatingStore<K, V, T> extends DelegatingStore<K,
     }
 
     public ClosableIterator<Pair<K, Versioned<V>>> entries() {
-        return new ClosableIterator<Pair<K, Versioned<V>>>() {
-
-            ClosableIterator<Pair<K, Versioned<V>>> iterator = innerStorageEngine.entries();
-
-            public void close() {
-                iterator.close();
-            }
-
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+        return new RandomlyFailingIterator<Pair<K, Versioned<V>>>(innerStorageEngine.entries());
+    }
 
-            public Pair<K, Versioned<V>> next() {
-                if(Math.random() > FAIL_PROBABILITY)
-                    return iterator.next();
+    public ClosableIterator<K> keys() {
+        return new RandomlyFailingIterator<K>(innerStorageEngine.keys());
+    }
 
-                throw new VoldemortException("Failing now !!");
-            }
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition) {
+        return new RandomlyFailingIterator<Pair<K, Versioned<V>>>(innerStorageEngine.entries(partition));
+    }
 
-            public void remove() {}
-        };
+    public ClosableIterator<K> keys(int partition) {
+        return new RandomlyFailingIterator<K>(innerStorageEngine.keys(partition));
     }
 
-    public ClosableIterator<K> keys() {
-        return new ClosableIterator<K>() {
+    private static class RandomlyFailingIterator<E> implements ClosableIterator<E> {
 
-            ClosableIterator<K> iterator = innerStorageEngine.keys();
+        private final ClosableIterator<E> iterator;
 
-            public void close() {
-                iterator.close();
-            }
+        public RandomlyFailingIterator(ClosableIterator<E> iterator) {
+            this.iterator = iterator;
+        }
 
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+        public void close() {
+            iterator.close();
+        }
 
-            public K next() {
-                if(Math.random() > FAIL_PROBABILITY)
-                    return iterator.next();
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
 
-                throw new VoldemortException("Failing now !!");
-            }
+        public E next() {
+            if(Math.random() > FAIL_PROBABILITY)
+                return iterator.next();
 
-            public void remove() {}
-        };
+            throw new VoldemortException("Failing now !!");
+        }
+
+        public void remove() {}
     }
 
     public void truncate() {
@@ -75,4 +69,8 @@ public class RandomlyFailingDelegatingStore<K, V, T> extends DelegatingStore<K,
     public boolean isPartitionAware() {
         return innerStorageEngine.isPartitionAware();
     }
+
+    public boolean isPartitionScanSupported() {
+        return innerStorageEngine.isPartitionScanSupported();
+    }
 }
\ No newline at end of file
@@ -58,6 +58,7 @@ import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreDefinitionBuilder;
 import voldemort.store.readonly.BinarySearchStrategy;
+import voldemort.store.readonly.FanOutSearchStrategy;
 import voldemort.store.readonly.JsonStoreBuilder;
 import voldemort.store.readonly.ReadOnlyStorageEngine;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
@@ -87,7 +88,10 @@ public class ReadOnlyStorePerformanceTest {
               .withRequiredArg()
               .ofType(Integer.class)
               .describedAs("node-id");
-        parser.accepts("search-strategy", "class of the search strategy to use")
+        parser.accepts("search-strategy",
+                       "class of the search strategy to use, e.g. "
+                               + BinarySearchStrategy.class.getName() + " (default) or "
+                               + FanOutSearchStrategy.class.getName())
               .withRequiredArg()
               .describedAs("class_name");
         parser.accepts("build", "If present, first build the data");
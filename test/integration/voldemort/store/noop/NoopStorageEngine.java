@@ -61,6 +61,14 @@ public class NoopStorageEngine implements StorageEngine<ByteArray, byte[], byte[
         return null;
     }
 
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return null;
+    }
+
+    public ClosableIterator<ByteArray> keys(int partition) {
+        return null;
+    }
+
     public void truncate() {
 
     }
@@ -130,4 +138,8 @@ public class NoopStorageEngine implements StorageEngine<ByteArray, byte[], byte[
     public boolean isPartitionAware() {
         return false;
     }
+
+    public boolean isPartitionScanSupported() {
+        return false;
+    }
 }
@@ -17,10 +17,13 @@
 package voldemort.client;
 
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.net.Socket;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -42,10 +45,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import voldemort.Attempt;
 import voldemort.ServerTestUtils;
 import voldemort.TestUtils;
 import voldemort.VoldemortException;
 import voldemort.client.protocol.admin.AdminClient;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.client.protocol.admin.AdminClientConfig;
+import voldemort.client.protocol.pb.ProtoUtils;
+import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
 import voldemort.cluster.Zone;
@@ -54,9 +62,13 @@ import voldemort.routing.RoutingStrategyFactory;
 import voldemort.routing.RoutingStrategyType;
 import voldemort.serialization.SerializerDefinition;
 import voldemort.server.VoldemortServer;
+import voldemort.store.StorageEngine;
 import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreDefinitionBuilder;
+import voldemort.store.bdb.BdbPartitionSnapshot;
+import voldemort.store.bdb.BdbStorageEngine;
+import voldemort.store.caching.CachingStorageEngine;
 import voldemort.store.memory.InMemoryStorageConfiguration;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageEngine;
@@ -67,6 +79,7 @@ import voldemort.store.slop.strategy.HintedHandoffStrategyType;
 import voldemort.store.socket.SocketStoreFactory;
 import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
 import voldemort.utils.Pair;
 import voldemort.utils.RebalanceUtils;
 import voldemort.utils.Utils;
@@ -86,6 +99,7 @@ public class AdminServiceBasicTest extends TestCase {
     private static int NUM_RUNS = 100;
     private static int TEST_STREAM_KEYS_SIZE = 10000;
     private static String testStoreName = "test-replication-memory";
+    private static String cachedStoreName = "veggies";
     private static String storesXmlfile = "test/common/voldemort/config/stores.xml";
     private SocketStoreFactory socketStoreFactory = new ClientRequestExecutorPool(2,
                                                                                   10000,
@@ -115,6 +129,8 @@ public class AdminServiceBasicTest extends TestCase {
 
         servers = new VoldemortServer[2];
         storeDefs = new StoreDefinitionsMapper().readStoreList(new File(storesXmlfile));
+        Properties serverProperties = new Properties();
+        serverProperties.put("read.cache.size." + cachedStoreName, "1048576");
 
         servers[0] = ServerTestUtils.startVoldemortServer(socketStoreFactory,
                                                           ServerTestUtils.createServerConfig(useNio,
@@ -123,7 +139,7 @@ public class AdminServiceBasicTest extends TestCase {
                                                                                                       .getAbsolutePath(),
                                                                                              null,
                                                                                              storesXmlfile,
-                                                                                             new Properties()),
+                                                                                             serverProperties),
                                                           cluster);
         servers[1] = ServerTestUtils.startVoldemortServer(socketStoreFactory,
                                                           ServerTestUtils.createServerConfig(useNio,
@@ -132,7 +148,7 @@ public class AdminServiceBasicTest extends TestCase {
                                                                                                       .getAbsolutePath(),
                                                                                              null,
                                                                                              storesXmlfile,
-                                                                                             new Properties()),
+                                                                                             serverProperties),
                                                           cluster);
 
         adminClient = ServerTestUtils.getAdminClient(cluster);
@@ -1119,6 +1135,44 @@ public class AdminServiceBasicTest extends TestCase {
 
     }
 
+    @Test
+    public void testFetchConcurrentVersions() {
+        HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(100);
+        List<Integer> fetchPartitionsList = Arrays.asList(0, 2);
+
+        // insert two concurrent versions of every key into server-0 store
+        int fetchPartitionEntryCount = 0;
+        Store<ByteArray, byte[], byte[]> store = getStore(0, testStoreName);
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
+            store.put(entry.getKey(),
+                      new Versioned<byte[]>(entry.getValue(), new VectorClock().incremented(0, 1)),
+                      null);
+            store.put(entry.getKey(),
+                      new Versioned<byte[]>(entry.getValue(), new VectorClock().incremented(1, 1)),
+                      null);
+            if(isKeyPartition(entry.getKey(), 0, testStoreName, fetchPartitionsList)) {
+                fetchPartitionEntryCount += 2;
+            }
+        }
+
+        Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchIt = getAdminClient().fetchEntries(0,
+                                                                                             testStoreName,
+                                                                                             fetchPartitionsList,
+                                                                                             null,
+                                                                                             false);
+        int count = 0;
+        while(fetchIt.hasNext()) {
+            Pair<ByteArray, Versioned<byte[]>> entry = fetchIt.next();
+            assertTrue("Fetched entries should belong to asked partitions",
+                       isKeyPartition(entry.getFirst(), 0, testStoreName, fetchPartitionsList));
+            count++;
+        }
+
+        assertEquals("All versions for asked partitions should be received",
+                     fetchPartitionEntryCount,
+                     count);
+    }
+
     @Test
     public void testUpdate() {
         final HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_STREAM_KEYS_SIZE);
@@ -1151,6 +1205,136 @@ public class AdminServiceBasicTest extends TestCase {
         }
     }
 
+    @Test
+    public void testBulkLoad() {
+        // users is a bdb store, the memory stores fall back to plain updates
+        String storeName = "users";
+        HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_STREAM_KEYS_SIZE);
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = Lists.newArrayList();
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet())
+            entries.add(Pair.create(entry.getKey(), new Versioned<byte[]>(entry.getValue())));
+
+        // a newer version already on the node should survive the load
+        Store<ByteArray, byte[], byte[]> store = getStore(0, storeName);
+        ByteArray existingKey = entries.get(0).getFirst();
+        store.put(existingKey,
+                  new Versioned<byte[]>("existing".getBytes(),
+                                        new VectorClock().incremented(0, 1).incremented(0, 2)),
+                  null);
+
+        getAdminClient().bulkLoadEntries(0, storeName, entries.iterator(), null);
+
+        store = getStore(0, storeName);
+        assertEquals("existing", new String(store.get(existingKey, null).get(0).getValue()));
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
+            if(entry.getKey().equals(existingKey))
+                continue;
+            assertEquals("entry value should match",
+                         new String(entry.getValue()),
+                         new String(store.get(entry.getKey(), null).get(0).getValue()));
+        }
+
+        // other stores are updated entry by entry
+        getAdminClient().bulkLoadEntries(0, testStoreName, entries.iterator(), null);
+        store = getStore(0, testStoreName);
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet())
+            assertEquals("entry value should match",
+                         new String(entry.getValue()),
+                         new String(store.get(entry.getKey(), null).get(0).getValue()));
+    }
+
+    @Test
+    public void testBulkLoadCachedStore() {
+        StorageEngine<ByteArray, byte[], byte[]> engine = getServer(0).getStoreRepository()
+                                                                      .getStorageEngine(cachedStoreName);
+        assertTrue("Store should have a read cache", engine instanceof CachingStorageEngine);
+        HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_STREAM_KEYS_SIZE);
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = Lists.newArrayList();
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet())
+            entries.add(Pair.create(entry.getKey(),
+                                    new Versioned<byte[]>(entry.getValue(),
+                                                          new VectorClock().incremented(0, 2))));
+
+        // an older version read into the cache must not outlive the load
+        Store<ByteArray, byte[], byte[]> store = getStore(0, cachedStoreName);
+        ByteArray cachedKey = entries.get(0).getFirst();
+        store.put(cachedKey,
+                  new Versioned<byte[]>("cached".getBytes(), new VectorClock().incremented(0, 1)),
+                  null);
+        assertEquals("cached", new String(store.get(cachedKey, null).get(0).getValue()));
+
+        getAdminClient().bulkLoadEntries(0, cachedStoreName, entries.iterator(), null);
+
+        store = getStore(0, cachedStoreName);
+        for(Entry<ByteArray, byte[]> entry: entrySet.entrySet())
+            assertEquals("entry value should match",
+                         new String(entry.getValue()),
+                         new String(store.get(entry.getKey(), null).get(0).getValue()));
+    }
+
+    @Test
+    public void testFramedUpdateAndFetch() {
+        final HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_STREAM_KEYS_SIZE);
+        List<Integer> fetchPartitionsList = Arrays.asList(0, 2);
+        AdminClient framedClient = new AdminClient(cluster,
+                                                   new AdminClientConfig().setStreamFrameMaxEntries(100)
+                                                                          .setStreamFrameMaxBytes(4096)
+                                                                          .setStreamFrameCompression("lzf"));
+        try {
+            List<Pair<ByteArray, Versioned<byte[]>>> entries = Lists.newArrayList();
+            int fetchPartitionKeyCount = 0;
+            for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
+                entries.add(Pair.create(entry.getKey(), new Versioned<byte[]>(entry.getValue())));
+                if(isKeyPartition(entry.getKey(), 0, testStoreName, fetchPartitionsList))
+                    fetchPartitionKeyCount++;
+            }
+            framedClient.updateEntries(0, testStoreName, entries.iterator(), null);
+
+            Store<ByteArray, byte[], byte[]> store = getStore(0, testStoreName);
+            for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
+                assertEquals("entry value should match",
+                             new String(entry.getValue()),
+                             new String(store.get(entry.getKey(), null).get(0).getValue()));
+            }
+
+            Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchIt = framedClient.fetchEntries(0,
+                                                                                             testStoreName,
+                                                                                             fetchPartitionsList,
+                                                                                             null,
+                                                                                             false);
+            int count = 0;
+            while(fetchIt.hasNext()) {
+                Pair<ByteArray, Versioned<byte[]>> entry = fetchIt.next();
+                assertTrue("Fetched entries should belong to asked partitions",
+                           isKeyPartition(entry.getFirst(), 0, testStoreName, fetchPartitionsList));
+                assertEquals("entry value should match",
+                             new String(entrySet.get(entry.getFirst())),
+                             new String(entry.getSecond().getValue()));
+                count++;
+            }
+            assertEquals("All entries for asked partitions should be received",
+                         fetchPartitionKeyCount,
+                         count);
+
+            Iterator<ByteArray> keyIt = framedClient.fetchKeys(0,
+                                                               testStoreName,
+                                                               fetchPartitionsList,
+                                                               null,
+                                                               false);
+            count = 0;
+            while(keyIt.hasNext()) {
+                assertTrue("Fetched key should belong to asked partitions",
+                           isKeyPartition(keyIt.next(), 0, testStoreName, fetchPartitionsList));
+                count++;
+            }
+            assertEquals("All keys for asked partitions should be received",
+                         fetchPartitionKeyCount,
+                         count);
+        } finally {
+            framedClient.stop();
+        }
+    }
+
     @Test
     public void testUpdateSlops() {
         final List<Versioned<Slop>> entrySet = ServerTestUtils.createRandomSlops(0,
@@ -1225,6 +1409,10 @@ public class AdminServiceBasicTest extends TestCase {
      */
     @Test
     public void testFetchAndUpdateRW() {
+        checkFetchAndUpdateRW("test-recovery-data");
+    }
+
+    private void checkFetchAndUpdateRW(String storeName) {
         HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_STREAM_KEYS_SIZE);
         List<Integer> primaryMoved = Arrays.asList(0, 2);
         List<Integer> secondaryMoved = Arrays.asList(1, 4);
@@ -1238,11 +1426,11 @@ public class AdminServiceBasicTest extends TestCase {
 
         // insert it into server-0 store
         RoutingStrategy strategy = new RoutingStrategyFactory().updateRoutingStrategy(RebalanceUtils.getStoreDefinitionWithName(storeDefs,
-                                                                                                                                "test-recovery-data"),
+                                                                                                                                storeName),
                                                                                       cluster);
 
-        Store<ByteArray, byte[], byte[]> store0 = getStore(0, "test-recovery-data");
-        Store<ByteArray, byte[], byte[]> store1 = getStore(1, "test-recovery-data");
+        Store<ByteArray, byte[], byte[]> store0 = getStore(0, storeName);
+        Store<ByteArray, byte[], byte[]> store1 = getStore(1, storeName);
         for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
             store0.put(entry.getKey(), new Versioned<byte[]>(entry.getValue()), null);
             List<Integer> partitions = strategy.getPartitionList(entry.getKey().get());
@@ -1266,7 +1454,7 @@ public class AdminServiceBasicTest extends TestCase {
         AdminClient client = getAdminClient();
         int id = client.migratePartitions(0,
                                           1,
-                                          "test-recovery-data",
+                                          storeName,
                                           replicaToPartitions,
                                           null,
                                           cluster,
@@ -1282,7 +1470,153 @@ public class AdminServiceBasicTest extends TestCase {
                          new String(entry.getValue()),
                          new String(store1.get(entry.getKey(), null).get(0).getValue()));
         }
+        for(ByteArray key: entrySet.keySet()) {
+            if(!keysMoved.containsKey(key))
+                assertEquals("server1 store should only contain the moved partitions.",
+                             0,
+                             store1.get(key, null).size());
+        }
+    }
+
+    @Test
+    public void testFetchAndUpdateRWWithSnapshot() {
+        getServer(1).getVoldemortConfig().setRebalancingBdbFileShipping(true);
+        checkFetchAndUpdateRW("users");
+        checkFetchAndUpdateRW(cachedStoreName);
+
+        // the snapshot is removed from both nodes once it is loaded
+        for(VoldemortServer server: servers)
+            assertNoSnapshots(server);
+    }
+
+    @Test
+    public void testFetchPartitionSnapshotAbandoned() throws Exception {
+        // more data than the socket buffers hold, so that the snapshot is
+        // still being sent when the client goes away
+        Store<ByteArray, byte[], byte[]> store0 = getStore(0, "users");
+        for(int i = 0; i < 2000; i++)
+            store0.put(new ByteArray(("key-" + i).getBytes()),
+                       new Versioned<byte[]>(TestUtils.randomBytes(10 * 1024)),
+                       null);
+
+        HashMap<Integer, List<Integer>> replicaToPartitions = new HashMap<Integer, List<Integer>>();
+        replicaToPartitions.put(0, getServer(0).getMetadataStore()
+                                               .getCluster()
+                                               .getNodeById(0)
+                                               .getPartitionIds());
+        VAdminProto.FetchPartitionFilesRequest fetchRequest = VAdminProto.FetchPartitionFilesRequest.newBuilder()
+                                                                                                    .addAllReplicaToPartition(ProtoUtils.encodePartitionTuple(replicaToPartitions))
+                                                                                                    .setStore("users")
+                                                                                                    .build();
+        Socket socket = openAdminSocket(0);
+        try {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            ProtoUtils.writeMessage(output,
+                                    VAdminProto.VoldemortAdminRequest.newBuilder()
+                                                                     .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_FILES)
+                                                                     .setFetchPartitionFiles(fetchRequest)
+                                                                     .build());
+            output.flush();
+
+            // read the header and the start of the snapshot
+            DataInputStream input = new DataInputStream(socket.getInputStream());
+            byte[] header = new byte[input.readInt()];
+            input.readFully(header);
+            VAdminProto.FileEntry fileEntry = VAdminProto.FileEntry.parseFrom(header);
+            input.readFully(new byte[16 * 1024]);
+            assertTrue(fileEntry.getFileSizeBytes() > 1024 * 1024);
+        } finally {
+            socket.close();
+        }
+
+        TestUtils.assertWithBackoff(100, 10000, new Attempt() {
+
+            public void checkCondition() {
+                assertNoSnapshots(getServer(0));
+            }
+        });
+    }
+
+    @Test
+    public void testBulkLoadAbandoned() throws Exception {
+        final BdbStorageEngine engine = (BdbStorageEngine) getServer(0).getStoreRepository()
+                                                                       .getStorageEngine("users");
+        List<ByteArray> keys = Lists.newArrayList();
+        Socket socket = openAdminSocket(0);
+        try {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            for(int i = 0; i < 10; i++) {
+                ByteArray key = new ByteArray(("abandoned-" + i).getBytes());
+                keys.add(key);
+                VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
+                                                                                                                           .setStore("users")
+                                                                                                                           .setPartitionEntry(VAdminProto.PartitionEntry.newBuilder()
+                                                                                                                                                                        .setKey(ProtoUtils.encodeBytes(key))
+                                                                                                                                                                        .setVersioned(ProtoUtils.encodeVersioned(new Versioned<byte[]>(key.get()))));
+                if(i == 0)
+                    ProtoUtils.writeMessage(output,
+                                            VAdminProto.VoldemortAdminRequest.newBuilder()
+                                                                             .setType(VAdminProto.AdminRequestType.UPDATE_PARTITION_ENTRIES)
+                                                                             .setUpdatePartitionEntries(updateRequest.setBulkLoad(true))
+                                                                             .build());
+                else
+                    ProtoUtils.writeMessage(output, updateRequest.build());
+            }
+            output.flush();
+
+            TestUtils.assertWithBackoff(100, 10000, new Attempt() {
+
+                public void checkCondition() {
+                    assertTrue("The load should have started", engine.isBulkLoading());
+                }
+            });
+        } finally {
+            // go away without ending the stream
+            socket.close();
+        }
+
+        TestUtils.assertWithBackoff(100, 10000, new Attempt() {
 
+            public void checkCondition() {
+                assertFalse("The load should be aborted", engine.isBulkLoading());
+            }
+        });
+        Store<ByteArray, byte[], byte[]> store = getStore(0, "users");
+        for(ByteArray key: keys)
+            assertEquals("Abandoned entries should not be visible", 0, store.get(key, null).size());
+
+        // the next load goes ahead
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = Lists.newArrayList();
+        for(ByteArray key: keys)
+            entries.add(Pair.create(key, new Versioned<byte[]>(key.get())));
+        getAdminClient().bulkLoadEntries(0, "users", entries.iterator(), null);
+        for(ByteArray key: keys)
+            assertEquals(1, store.get(key, null).size());
+    }
+
+    /* Connects to the admin port of the node, ready to send a raw request */
+    private Socket openAdminSocket(int nodeId) throws IOException {
+        Node node = getServer(nodeId).getMetadataStore().getCluster().getNodeById(nodeId);
+        Socket socket = new Socket(node.getHost(), node.getAdminPort());
+        socket.getOutputStream().write(ByteUtils.getBytes(RequestFormatType.ADMIN_PROTOCOL_BUFFERS.getCode(),
+                                                          "UTF-8"));
+        byte[] response = new byte[2];
+        new DataInputStream(socket.getInputStream()).readFully(response);
+        assertEquals("ok", ByteUtils.getString(response, "UTF-8"));
+        return socket;
+    }
+
+    private void assertNoSnapshots(VoldemortServer server) {
+        for(String dirName: new String[] { server.getVoldemortConfig().getBdbDataDirectory(),
+                server.getVoldemortConfig().getBdbSnapshotDirectory() }) {
+            String[] fileNames = new File(dirName).list();
+            if(fileNames == null)
+                continue;
+            for(String fileName: fileNames) {
+                assertFalse("Snapshot " + fileName + " should be deleted",
+                            fileName.endsWith(BdbPartitionSnapshot.FILE_EXTENSION));
+            }
+        }
     }
 
 }
@@ -16,11 +16,15 @@
 
 package voldemort.client;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -32,6 +36,9 @@ import org.junit.runners.Parameterized.Parameters;
 import voldemort.ServerTestUtils;
 import voldemort.serialization.SerializerFactory;
 import voldemort.server.AbstractSocketService;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
 
 /**
  * 
@@ -109,6 +116,65 @@ public class SocketStoreClientFactoryTest extends AbstractStoreClientFactoryTest
         factories.add(getFactory(getValidBootstrapUrl()));
     }
 
+    @Test
+    public void testAsyncStoreClient() throws Exception {
+        AbstractStoreClientFactory factory = (AbstractStoreClientFactory) getFactory(getValidBootstrapUrl());
+
+        try {
+            AsyncStoreClient<String, String> client = factory.getAsyncStoreClient(getValidStoreName());
+            assertNull(client.get("hello").get(5, TimeUnit.SECONDS));
+
+            Version version = client.put("hello", "world").get(5, TimeUnit.SECONDS);
+            assertNotNull(version);
+            assertEquals("world", client.get("hello").get(5, TimeUnit.SECONDS).getValue());
+
+            client.put("hello", "there").get(5, TimeUnit.SECONDS);
+            Map<String, Versioned<String>> values = client.getAll(Arrays.asList("hello", "missing"))
+                                                          .get(5, TimeUnit.SECONDS);
+            assertEquals(1, values.size());
+            assertEquals("there", values.get("hello").getValue());
+
+            Versioned<String> versioned = client.get("hello").get(5, TimeUnit.SECONDS);
+            assertTrue(client.delete("hello", versioned.getVersion()).get(5, TimeUnit.SECONDS));
+            assertNull(client.get("hello").get(5, TimeUnit.SECONDS));
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testAsyncStoreClientBootstrapsOnce() throws Exception {
+        final AtomicInteger storesFetched = new AtomicInteger(0);
+        AbstractStoreClientFactory factory = new SocketStoreClientFactory(new ClientConfig().setBootstrapUrls(getValidBootstrapUrl())
+                                                                                             .setEnableLazy(useLazy)) {
+
+            @Override
+            protected List<Versioned<String>> getRemoteMetadata(String key, URI url) {
+                if(MetadataStore.STORES_KEY.equals(key))
+                    storesFetched.incrementAndGet();
+                return super.getRemoteMetadata(key, url);
+            }
+        };
+
+        try {
+            AsyncStoreClient<String, String> client = factory.getAsyncStoreClient(getValidStoreName());
+            assertEquals(1, storesFetched.get());
+
+            client.put("hello", "world").get(5, TimeUnit.SECONDS);
+            assertTrue(client.applyUpdate("hello", new AsyncUpdateAction<String>() {
+
+                @Override
+                public String update(String value) {
+                    return value + " again";
+                }
+            }).get(5, TimeUnit.SECONDS));
+            assertEquals("world again", client.get("hello").get(5, TimeUnit.SECONDS).getValue());
+            assertEquals("The client should only bootstrap once", 1, storesFetched.get());
+        } finally {
+            factory.close();
+        }
+    }
+
     @Test
     @Override
     public void testBootstrapServerDown() throws Exception {
@@ -44,6 +44,7 @@ import voldemort.server.rebalance.VoldemortRebalancingException;
 import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreDefinitionBuilder;
+import voldemort.store.bdb.BdbStorageConfiguration;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
 import voldemort.store.readonly.ReadOnlyStorageEngine;
@@ -91,24 +92,32 @@ public class AdminRebalanceTest extends TestCase {
     }
 
     public void startThreeNodeRW() throws IOException {
+        startThreeNodeRW(ServerTestUtils.getStoreDef("test",
+                                                     1,
+                                                     1,
+                                                     1,
+                                                     1,
+                                                     1,
+                                                     RoutingStrategyType.CONSISTENT_STRATEGY),
+                         ServerTestUtils.getStoreDef("test2",
+                                                     2,
+                                                     1,
+                                                     1,
+                                                     1,
+                                                     1,
+                                                     RoutingStrategyType.CONSISTENT_STRATEGY),
+                         new Properties());
+    }
+
+    public void startThreeNodeRW(StoreDefinition storeDef1,
+                                 StoreDefinition storeDef2,
+                                 Properties serverProperties) throws IOException {
         cluster = ServerTestUtils.getLocalCluster(3, new int[][] { { 0, 1, 2, 3 }, { 4, 5, 6, 7 },
                 {} });
 
         servers = new VoldemortServer[3];
-        storeDef1 = ServerTestUtils.getStoreDef("test",
-                                                1,
-                                                1,
-                                                1,
-                                                1,
-                                                1,
-                                                RoutingStrategyType.CONSISTENT_STRATEGY);
-        storeDef2 = ServerTestUtils.getStoreDef("test2",
-                                                2,
-                                                1,
-                                                1,
-                                                1,
-                                                1,
-                                                RoutingStrategyType.CONSISTENT_STRATEGY);
+        this.storeDef1 = storeDef1;
+        this.storeDef2 = storeDef2;
         targetCluster = RebalanceUtils.createUpdatedCluster(cluster, 2, Lists.newArrayList(0));
         File tempStoreXml = new File(TestUtils.createTempDir(), "stores.xml");
         FileUtils.writeStringToFile(tempStoreXml,
@@ -122,7 +131,7 @@ public class AdminRebalanceTest extends TestCase {
                                                                                                                .getAbsolutePath(),
                                                                                                       null,
                                                                                                       tempStoreXml.getAbsolutePath(),
-                                                                                                      new Properties()),
+                                                                                                      serverProperties),
                                                                    cluster);
         }
 
@@ -515,6 +524,98 @@ public class AdminRebalanceTest extends TestCase {
         }
     }
 
+    @Test
+    public void testRebalanceNodeRWParallelStreams() throws IOException {
+
+        try {
+            Properties serverProperties = new Properties();
+            serverProperties.setProperty("bdb.prefix.keys.with.partitionid", "true");
+            serverProperties.setProperty("max.parallel.partition.streams.rebalancing", "4");
+            startThreeNodeRW(getBdbStoreDef("test", 1), getBdbStoreDef("test2", 2), serverProperties);
+
+            // The secondary partitions of test2 come from a single donor and
+            // must be fetched as more than one stream
+            boolean split = false;
+            for(RebalancePartitionsInfo partitionPlan: plans) {
+                if(partitionPlan.getUnbalancedStoreList().contains("test2")
+                   && RebalanceUtils.splitReplicaToPartitionList(partitionPlan.getReplicaToAddPartitionList("test2"),
+                                                                 4).size() > 1) {
+                    split = true;
+                }
+            }
+            assertTrue("Plan should fetch test2 in parallel streams", split);
+            assertTrue(getServer(2).getStoreRepository()
+                                   .getStorageEngine("test2")
+                                   .isPartitionScanSupported());
+
+            HashMap<ByteArray, byte[]> entrySet = ServerTestUtils.createRandomKeyValuePairs(TEST_SIZE);
+            SocketStoreClientFactory factory = new SocketStoreClientFactory(new ClientConfig().setBootstrapUrls(cluster.getNodeById(0)
+                                                                                                                       .getSocketUrl()
+                                                                                                                       .toString()));
+            StoreClient<Object, Object> storeClient = factory.getStoreClient("test2");
+            RoutingStrategy strategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef2,
+                                                                                          cluster);
+            HashMap<ByteArray, byte[]> secondaryEntriesMoved = Maps.newHashMap();
+            for(Entry<ByteArray, byte[]> entry: entrySet.entrySet()) {
+                storeClient.put(new String(entry.getKey().get()), new String(entry.getValue()));
+                if(Lists.newArrayList(4, 5, 6, 7).contains(strategy.getPartitionList(entry.getKey()
+                                                                                          .get())
+                                                                   .get(0))) {
+                    secondaryEntriesMoved.put(entry.getKey(), entry.getValue());
+                }
+            }
+            factory.close();
+
+            for(RebalancePartitionsInfo partitionPlan: plans) {
+                VoldemortServer stealer = getServer(partitionPlan.getStealerId());
+                stealer.getMetadataStore().put(MetadataStore.SERVER_STATE_KEY,
+                                               MetadataStore.VoldemortState.REBALANCING_MASTER_SERVER);
+                stealer.getMetadataStore()
+                       .put(MetadataStore.REBALANCING_STEAL_INFO,
+                            new RebalancerState(Lists.newArrayList(RebalancePartitionsInfo.create(partitionPlan.toJsonString()))));
+            }
+            for(VoldemortServer server: servers) {
+                server.getMetadataStore().put(MetadataStore.CLUSTER_KEY, targetCluster);
+            }
+
+            for(RebalancePartitionsInfo currentPlan: plans) {
+                int asyncId = adminClient.rebalanceNode(currentPlan);
+                getAdminClient().waitForCompletion(currentPlan.getStealerId(),
+                                                   asyncId,
+                                                   300,
+                                                   TimeUnit.SECONDS);
+            }
+
+            Store<ByteArray, byte[], byte[]> storeTest2 = getStore(2, "test2");
+            for(Entry<ByteArray, byte[]> entry: secondaryEntriesMoved.entrySet()) {
+                assertEquals("entry should be present at store",
+                             1,
+                             storeTest2.get(entry.getKey(), null).size());
+                assertEquals("entry value should match",
+                             new String(entry.getValue()),
+                             new String(storeTest2.get(entry.getKey(), null).get(0).getValue()));
+            }
+        } finally {
+            shutDown();
+        }
+    }
+
+    private StoreDefinition getBdbStoreDef(String storeName, int replicationFactor) {
+        SerializerDefinition serDef = new SerializerDefinition("string");
+        return new StoreDefinitionBuilder().setName(storeName)
+                                           .setType(BdbStorageConfiguration.TYPE_NAME)
+                                           .setKeySerializer(serDef)
+                                           .setValueSerializer(serDef)
+                                           .setRoutingPolicy(RoutingTier.SERVER)
+                                           .setRoutingStrategyType(RoutingStrategyType.CONSISTENT_STRATEGY)
+                                           .setReplicationFactor(replicationFactor)
+                                           .setPreferredReads(1)
+                                           .setRequiredReads(1)
+                                           .setPreferredWrites(replicationFactor)
+                                           .setRequiredWrites(replicationFactor)
+                                           .build();
+    }
+
     @Test
     public void testRebalanceNodeRW2() throws IOException {
 
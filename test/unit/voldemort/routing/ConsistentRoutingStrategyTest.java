@@ -79,6 +79,20 @@ public class ConsistentRoutingStrategyTest extends TestCase {
         assertReplicationPartitions(getRouter(16, 3).getPartitionList(key), 16, 17, 1);
     }
 
+    public void testPreferenceListsAreShared() {
+        ConsistentRoutingStrategy router = getRouter(14, 3);
+        List<Node> nodes = router.routeRequest(key);
+        assertSame(nodes, router.routeRequest(key));
+        assertSame(router.getPartitionList(key), router.getReplicatingPartitionList(14));
+
+        try {
+            nodes.remove(0);
+            fail("Preference lists should not be modifiable");
+        } catch(UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
     public void testGetNodes() {
         getRouter(0, 3).getNodes().containsAll(getTestNodes());
     }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.niosocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.VoldemortTestConstants;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.server.protocol.RequestHandlerFactory;
+import voldemort.store.Store;
+import voldemort.store.socket.SocketStoreFactory;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+public class NioRequestWorkerPoolTest {
+
+    @Test
+    public void testFullQueueIsRejected() throws Exception {
+        NioRequestWorkerPool pool = new NioRequestWorkerPool(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        try {
+            assertTrue(pool.submit(null, blocker));
+            started.await();
+            assertTrue(pool.submit(null, blocker));
+            assertEquals(1, pool.getQueueDepth());
+            assertFalse("Queue is full, request should be rejected", pool.submit(null, blocker));
+            assertEquals(1, pool.getRejectedRequests());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testRequestsExecuteOnWorkers() throws Exception {
+        testConcurrentRequests(RequestFormatType.VOLDEMORT_V1);
+    }
+
+    @Test
+    public void testMultiplexedRequestsExecuteOnWorkers() throws Exception {
+        testConcurrentRequests(RequestFormatType.VOLDEMORT_V4);
+    }
+
+    private void testConcurrentRequests(RequestFormatType requestFormatType) throws Exception {
+        int port = ServerTestUtils.findFreePort();
+        RequestHandlerFactory factory = ServerTestUtils.getSocketRequestHandlerFactory(VoldemortTestConstants.getOneNodeClusterXml(),
+                                                                                       VoldemortTestConstants.getSimpleStoreDefinitionsXml(),
+                                                                                       ServerTestUtils.getStores("test",
+                                                                                                                 VoldemortTestConstants.getOneNodeClusterXml(),
+                                                                                                                 VoldemortTestConstants.getSimpleStoreDefinitionsXml()));
+        NioSocketService socketService = new NioSocketService(factory,
+                                                              port,
+                                                              32 * 1024,
+                                                              2,
+                                                              4,
+                                                              2,
+                                                              "client-request-service",
+                                                              false);
+        socketService.start();
+        SocketStoreFactory socketStoreFactory = new ClientRequestExecutorPool(2,
+                                                                              10000,
+                                                                              100000,
+                                                                              32 * 1024);
+        final Store<ByteArray, byte[], byte[]> store = ServerTestUtils.getSocketStore(socketStoreFactory,
+                                                                                      "test",
+                                                                                      port,
+                                                                                      requestFormatType);
+        try {
+            int numThreads = 8;
+            final int numRequests = 50;
+            final AtomicInteger failures = new AtomicInteger(0);
+            final CountDownLatch done = new CountDownLatch(numThreads);
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+            for(int i = 0; i < numThreads; i++) {
+                final int thread = i;
+                executor.execute(new Runnable() {
+
+                    public void run() {
+                        try {
+                            for(int j = 0; j < numRequests; j++) {
+                                ByteArray key = new ByteArray(("key-" + thread + "-" + j).getBytes());
+                                byte[] value = TestUtils.randomBytes(100);
+                                store.put(key, new Versioned<byte[]>(value), null);
+                                List<Versioned<byte[]>> found = store.get(key, null);
+                                if(found.size() != 1 || !new ByteArray(value).equals(new ByteArray(found.get(0)
+                                                                                                      .getValue())))
+                                    failures.incrementAndGet();
+                            }
+                        } catch(Exception e) {
+                            failures.incrementAndGet();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertEquals(0, failures.get());
+        } finally {
+            store.close();
+            socketStoreFactory.close();
+            socketService.stop();
+        }
+    }
+}
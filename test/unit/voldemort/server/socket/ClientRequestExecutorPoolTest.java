@@ -128,6 +128,28 @@ public class ClientRequestExecutorPoolTest extends TestCase {
         assertEquals(0, pool.getNumberOfCheckedInConnections());
     }
 
+    @Test
+    public void testTryCheckoutDoesNotWait() throws Exception {
+        List<ClientRequestExecutor> list = new ArrayList<ClientRequestExecutor>();
+
+        for(int i = 0; i < maxConnectionsPerNode; i++) {
+            ClientRequestExecutor sas = pool.tryCheckout(dest1);
+            assertNotNull("Sockets should be created while the pool has room", sas);
+            list.add(sas);
+        }
+
+        long startMs = System.currentTimeMillis();
+        assertNull(pool.tryCheckout(dest1));
+        assertTrue("Should not wait for the pool timeout",
+                   System.currentTimeMillis() - startMs < 500);
+
+        pool.checkin(dest1, list.get(0));
+        assertSame(list.get(0), pool.tryCheckout(dest1));
+
+        for(ClientRequestExecutor sas: list)
+            pool.checkin(dest1, sas);
+    }
+
     @Test
     public void testSocketClosedWhenCheckedInAfterPoolKeyClosed() throws Exception {
         ClientRequestExecutor sas1 = pool.checkout(dest1);
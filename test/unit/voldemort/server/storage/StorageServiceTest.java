@@ -29,25 +29,43 @@ public class StorageServiceTest extends TestCase {
 
     @Override
     public void setUp() {
+        storage = startStorage(1);
+    }
+
+    private StorageService startStorage(int storageOpenThreads) {
         File temp = TestUtils.createTempDir();
         VoldemortConfig config = new VoldemortConfig(0, temp.getAbsolutePath());
         new File(config.getMetadataDirectory()).mkdir();
         config.setBdbCacheSize(100000);
+        config.setStorageOpenThreads(storageOpenThreads);
         this.scheduler = new SchedulerService(1, new MockTime());
         this.cluster = ServerTestUtils.getLocalCluster(1);
         this.storeDefs = ServerTestUtils.getStoreDefs(2);
         this.storeRepository = new StoreRepository();
         MetadataStore mdStore = ServerTestUtils.createMetadataStore(cluster, storeDefs);
-        storage = new StorageService(storeRepository, mdStore, scheduler, config);
+        StorageService storage = new StorageService(storeRepository, mdStore, scheduler, config);
         storage.start();
+        return storage;
     }
 
     public void testStores() {
+        assertStoresOpen(storage);
+    }
+
+    public void testParallelOpen() {
+        storage.stop();
+        storage = startStorage(4);
+        assertStoresOpen(storage);
+    }
+
+    private void assertStoresOpen(StorageService storage) {
+        assertTrue(storage.getStoresOpening().isEmpty());
         StoreRepository repo = storage.getStoreRepository();
         for(StoreDefinition def: storeDefs) {
             // test local stores
             assertTrue("Missing local store '" + def.getName() + "'.",
                        repo.hasLocalStore(def.getName()));
+            assertTrue(storage.isStoreReady(def.getName()));
             assertEquals(def.getName(), repo.getLocalStore(def.getName()).getName());
 
             assertTrue("Missing storage engine '" + def.getName() + "'.",
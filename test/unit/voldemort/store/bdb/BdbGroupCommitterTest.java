@@ -0,0 +1,128 @@
+package voldemort.store.bdb;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileDeleteStrategy;
+
+import voldemort.TestUtils;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Lists;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+
+public class BdbGroupCommitterTest extends AbstractStorageEngineTest {
+
+    private Environment environment;
+    private Database database;
+    private File tempDir;
+    private BdbGroupCommitter groupCommitter;
+    private BdbStorageEngine store;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setTxnNoSync(true);
+        envConfig.setAllowCreate(true);
+        envConfig.setTransactional(true);
+        this.tempDir = TestUtils.createTempDir();
+        this.environment = new Environment(this.tempDir, envConfig);
+        DatabaseConfig databaseConfig = new DatabaseConfig();
+        databaseConfig.setAllowCreate(true);
+        databaseConfig.setTransactional(true);
+        databaseConfig.setSortedDuplicates(true);
+        this.database = environment.openDatabase(null, "test", databaseConfig);
+        this.groupCommitter = new BdbGroupCommitter(environment, 16);
+        this.store = new BdbStorageEngine("test",
+                                          environment,
+                                          database,
+                                          new BdbRuntimeConfig(),
+                                          groupCommitter);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        try {
+            store.close();
+            environment.close();
+        } finally {
+            FileDeleteStrategy.FORCE.delete(tempDir);
+        }
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    public void testInvalidBatchSize() {
+        try {
+            new BdbGroupCommitter(environment, 0);
+            fail("Batch size of 0 should not be allowed.");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testConcurrentWritesReportOwnFailures() throws Exception {
+        final int numThreads = 10;
+        final int numKeys = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final byte[] value = "value".getBytes();
+        List<Future<Integer>> results = Lists.newArrayList();
+        try {
+            for(int i = 0; i < numThreads; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+
+                    public Integer call() throws Exception {
+                        start.await();
+                        int obsolete = 0;
+                        for(int k = 0; k < numKeys; k++) {
+                            ByteArray key = new ByteArray(Integer.toString(k).getBytes());
+                            VectorClock clock = new VectorClock();
+                            clock.incrementVersion(0, 1);
+                            try {
+                                store.put(key, new Versioned<byte[]>(value, clock), null);
+                            } catch(ObsoleteVersionException e) {
+                                obsolete++;
+                            }
+                        }
+                        return obsolete;
+                    }
+                }));
+            }
+            start.countDown();
+            int obsolete = 0;
+            for(Future<Integer> result: results)
+                obsolete += result.get();
+
+            // exactly one put per key wins, every other one must be told its
+            // version is obsolete
+            assertEquals(numKeys * (numThreads - 1), obsolete);
+            for(int k = 0; k < numKeys; k++) {
+                ByteArray key = new ByteArray(Integer.toString(k).getBytes());
+                assertEquals(1, store.get(key, null).size());
+            }
+            assertEquals(numKeys * numThreads, groupCommitter.getWriteCount());
+            assertTrue(groupCommitter.getBatchCount() <= groupCommitter.getWriteCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
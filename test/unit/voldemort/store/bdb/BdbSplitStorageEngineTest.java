@@ -113,6 +113,32 @@ public class BdbSplitStorageEngineTest extends TestCase {
                                                                             + "storeB").exists()));
     }
 
+    public void testStaleSnapshotsDeletedOnStartup() throws Exception {
+        Props props = new Props();
+        props.put("node.id", 1);
+        props.put("voldemort.home", "test/common/voldemort/config");
+        VoldemortConfig voldemortConfig = new VoldemortConfig(props);
+        voldemortConfig.setBdbCacheSize(1 * 1024 * 1024);
+        voldemortConfig.setBdbDataDirectory(bdbMasterDir.toURI().getPath());
+        File snapshotDir = new File(bdbMasterDir, "snapshots");
+        voldemortConfig.setBdbSnapshotDirectory(snapshotDir.getAbsolutePath());
+
+        // left behind by a fetch that was running when the server went down
+        snapshotDir.mkdirs();
+        File staleSnapshot = new File(snapshotDir, "storeA-1" + BdbPartitionSnapshot.FILE_EXTENSION);
+        assertTrue(staleSnapshot.createNewFile());
+        // anything else in the directory is not ours to delete
+        File otherFile = new File(snapshotDir, "00000000.jdb");
+        assertTrue(otherFile.createNewFile());
+        File otherDir = new File(snapshotDir, "storeB" + BdbPartitionSnapshot.FILE_EXTENSION);
+        assertTrue(otherDir.mkdir());
+
+        bdbStorage = new BdbStorageConfiguration(voldemortConfig);
+        assertFalse("Stale snapshot should be deleted on startup", staleSnapshot.exists());
+        assertTrue("Other files should be kept", otherFile.exists());
+        assertTrue("Directories should be kept", otherDir.exists());
+    }
+
     public void testMultipleEnvironment() {
         // lets use all the default values.
         Props props = new Props();
@@ -18,6 +18,7 @@ package voldemort.store.bdb;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -29,6 +30,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.io.FileDeleteStrategy;
 
 import voldemort.TestUtils;
+import voldemort.VoldemortException;
 import voldemort.store.AbstractStorageEngineTest;
 import voldemort.store.StorageEngine;
 import voldemort.utils.ByteArray;
@@ -38,6 +40,8 @@ import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
 import com.sleepycat.je.Environment;
@@ -105,6 +109,197 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
         TestUtils.bytesEqual("cdef".getBytes(), vals.get(0).getValue());
     }
 
+    public void testPutAllFromSnapshot() throws Exception {
+        ByteArray existing = new ByteArray("key-0".getBytes());
+        VectorClock newer = new VectorClock().incremented(0, 1).incremented(0, 2);
+        store.put(existing, new Versioned<byte[]>("newer".getBytes(), newer), null);
+
+        File snapshot = new File(tempDir, "test" + BdbPartitionSnapshot.FILE_EXTENSION);
+        BdbPartitionSnapshot.Writer writer = new BdbPartitionSnapshot.Writer(snapshot);
+        for(int i = 0; i < 10; i++) {
+            byte[] bytes = ("key-" + i).getBytes();
+            writer.write(new ByteArray(bytes),
+                         new Versioned<byte[]>(bytes, new VectorClock().incremented(0, 1)));
+        }
+        writer.close();
+        assertEquals(10, writer.getNumEntries());
+
+        BdbPartitionSnapshot.Reader reader = new BdbPartitionSnapshot.Reader(snapshot);
+        assertEquals("The obsolete entry should be skipped", 9, store.putAll(reader, 3));
+        assertFalse(reader.hasNext());
+        reader.close();
+
+        assertEquals("newer", new String(store.get(existing, null).get(0).getValue()));
+        for(int i = 1; i < 10; i++) {
+            List<Versioned<byte[]>> vals = store.get(new ByteArray(("key-" + i).getBytes()), null);
+            assertEquals(1, vals.size());
+            assertEquals("key-" + i, new String(vals.get(0).getValue()));
+        }
+    }
+
+    public void testFilteredEntries() throws Exception {
+        VectorClock first = new VectorClock().incremented(0, 1);
+        VectorClock concurrent = new VectorClock().incremented(1, 1);
+        for(int i = 0; i < 10; i++) {
+            store.put(key(i), new Versioned<byte[]>(("first-" + i).getBytes(), first), null);
+            store.put(key(i),
+                      new Versioned<byte[]>(("concurrent-" + i).getBytes(), concurrent),
+                      null);
+        }
+
+        final List<ByteArray> asked = Lists.newArrayList();
+        ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> it = store.entries(new Predicate<ByteArray>() {
+
+            public boolean apply(ByteArray key) {
+                asked.add(key);
+                return new String(key.get()).compareTo("key-5") < 0;
+            }
+        });
+        List<String> values = Lists.newArrayList();
+        try {
+            while(it.hasNext()) {
+                Pair<ByteArray, Versioned<byte[]>> entry = it.next();
+                String key = new String(entry.getFirst().get());
+                String value = new String(entry.getSecond().getValue());
+                assertTrue(value + " should be a version of " + key,
+                           value.endsWith(key.substring("key".length())));
+                values.add(value);
+            }
+        } finally {
+            it.close();
+        }
+
+        assertEquals("The filter should be asked once per key", 10, asked.size());
+        assertEquals("Every version of the accepted keys should be read", 10, values.size());
+        for(int i = 0; i < 5; i++) {
+            assertTrue(values.contains("first-" + i));
+            assertTrue(values.contains("concurrent-" + i));
+        }
+    }
+
+    public void testBulkLoad() throws Exception {
+        VectorClock first = new VectorClock().incremented(0, 1);
+        VectorClock second = first.incremented(0, 2);
+        VectorClock concurrent = new VectorClock().incremented(1, 1);
+        store.put(key(0), new Versioned<byte[]>("stored".getBytes(), second), null);
+        store.put(key(1), new Versioned<byte[]>("stored".getBytes(), first), null);
+        store.put(key(2), new Versioned<byte[]>("stored".getBytes(), concurrent), null);
+
+        BdbStorageEngine.BulkLoad load = store.beginBulkLoad();
+        try {
+            store.beginBulkLoad();
+            fail("Only one bulk load should be allowed at a time.");
+        } catch(VoldemortException e) {
+            // expected
+        }
+        for(int i = 0; i < 10; i++) {
+            load.add(key(i), new Versioned<byte[]>("loaded".getBytes(), i == 1 ? second : first));
+            if(i == 5) {
+                load.add(key(i), new Versioned<byte[]>("reloaded".getBytes(), second));
+                load.add(key(i), new Versioned<byte[]>("obsolete".getBytes(), first));
+            }
+        }
+        assertEquals("The obsolete entry should be skipped", 11, load.getNumEntries());
+        assertEquals("Loaded entries should not be visible before publishing",
+                     0,
+                     store.get(key(3), null).size());
+        load.publish();
+
+        assertEquals("stored", new String(store.get(key(0), null).get(0).getValue()));
+        assertEquals(1, store.get(key(0), null).size());
+        assertEquals("loaded", new String(store.get(key(1), null).get(0).getValue()));
+        assertEquals(1, store.get(key(1), null).size());
+        assertEquals("Concurrent versions should both be kept", 2, store.get(key(2), null).size());
+        assertEquals("reloaded", new String(store.get(key(5), null).get(0).getValue()));
+        assertEquals(1, store.get(key(5), null).size());
+        for(int i = 3; i < 10; i++)
+            assertEquals(1, store.get(key(i), null).size());
+
+        // the published database takes writes as usual
+        store.put(key(10), new Versioned<byte[]>("put".getBytes(), first), null);
+        assertEquals("put", new String(store.get(key(10), null).get(0).getValue()));
+
+        load = store.beginBulkLoad();
+        load.add(key(11), new Versioned<byte[]>("aborted".getBytes(), first));
+        load.abort();
+        assertEquals("Aborted entries should not be visible", 0, store.get(key(11), null).size());
+        assertEquals(1, store.get(key(10), null).size());
+        store.beginBulkLoad().abort();
+    }
+
+    public void testBulkLoadRepeatedKeyOutOfOrder() throws Exception {
+        VectorClock first = new VectorClock().incremented(0, 1);
+        VectorClock second = first.incremented(0, 2);
+        VectorClock concurrent = new VectorClock().incremented(1, 1);
+
+        BdbStorageEngine.BulkLoad load = store.beginBulkLoad();
+        load.add(key(1), new Versioned<byte[]>("newer".getBytes(), second));
+        load.add(key(2), new Versioned<byte[]>("loaded".getBytes(), first));
+        load.add(key(1), new Versioned<byte[]>("older".getBytes(), first));
+        load.add(key(3), new Versioned<byte[]>("loaded".getBytes(), first));
+        load.add(key(2), new Versioned<byte[]>("concurrent".getBytes(), concurrent));
+        assertEquals("The obsolete entry should be skipped", 4, load.getNumEntries());
+        load.publish();
+
+        List<Versioned<byte[]>> vals = store.get(key(1), null);
+        assertEquals("A repeated key should not overwrite a newer version", 1, vals.size());
+        assertEquals("newer", new String(vals.get(0).getValue()));
+        assertEquals("Concurrent versions should both be kept", 2, store.get(key(2), null).size());
+        assertEquals(1, store.get(key(3), null).size());
+    }
+
+    public void testBulkLoadPublishWithConcurrentWrites() throws Exception {
+        VectorClock first = new VectorClock().incremented(0, 1);
+        final VectorClock second = first.incremented(0, 2);
+        for(int i = 0; i < 20000; i++)
+            store.put(key(i), new Versioned<byte[]>("stored".getBytes(), first), null);
+
+        BdbStorageEngine.BulkLoad load = store.beginBulkLoad();
+        for(int i = 20000; i < 20100; i++)
+            load.add(key(i), new Versioned<byte[]>("loaded".getBytes(), first));
+
+        // reads and writes keep going while the load is published
+        final AtomicBoolean publishing = new AtomicBoolean(true);
+        final AtomicInteger numWrites = new AtomicInteger(0);
+        final List<Throwable> errors = Lists.newArrayList();
+        Thread writer = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    for(int i = 0; publishing.get() && i < 10000; i++) {
+                        assertEquals(1, store.get(key(i), null).size());
+                        store.put(key(i), new Versioned<byte[]>("written".getBytes(), second), null);
+                        store.delete(key(10000 + i), second);
+                        numWrites.incrementAndGet();
+                    }
+                } catch(Throwable t) {
+                    errors.add(t);
+                }
+            }
+        });
+        writer.start();
+        load.publish();
+        publishing.set(false);
+        writer.join();
+
+        assertEquals("Requests should not fail while the load is published",
+                     Lists.newArrayList(),
+                     errors);
+        for(int i = 0; i < numWrites.get(); i++) {
+            List<Versioned<byte[]>> vals = store.get(key(i), null);
+            assertEquals(1, vals.size());
+            assertEquals("written", new String(vals.get(0).getValue()));
+            assertEquals("Deleted entries should stay deleted",
+                         0,
+                         store.get(key(10000 + i), null).size());
+        }
+        assertEquals("loaded", new String(store.get(key(20000), null).get(0).getValue()));
+    }
+
+    private static ByteArray key(int i) {
+        return new ByteArray(("key-" + i).getBytes());
+    }
+
     public void testEquals() {
         String name = "someName";
         assertEquals(new BdbStorageEngine(name, environment, database, runtimeConfig),
@@ -132,6 +327,51 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
         fail("No exception thrown for null database.");
     }
 
+    public void testGetAllMissingAndDuplicateKeys() {
+        checkGetAll(store);
+    }
+
+    public void testParallelGetAll() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            BdbRuntimeConfig parallelConfig = new BdbRuntimeConfig().setLockMode(LOCK_MODE)
+                                                                    .setParallelReadExecutor(executor,
+                                                                                             3)
+                                                                    .setParallelReadMinKeys(10);
+            checkGetAll(new BdbStorageEngine("test", environment, database, parallelConfig));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void checkGetAll(BdbStorageEngine engine) {
+        // store every third key, and give some keys two concurrent versions
+        for(int i = 0; i < 300; i += 3) {
+            ByteArray key = new ByteArray(Integer.toString(i).getBytes());
+            engine.put(key, new Versioned<byte[]>(key.get(), TestUtils.getClock(1)), null);
+            if(i % 2 == 0)
+                engine.put(key, new Versioned<byte[]>(key.get(), TestUtils.getClock(2)), null);
+        }
+
+        List<ByteArray> keys = Lists.newArrayList();
+        for(int i = 299; i >= -1; i--)
+            keys.add(new ByteArray(Integer.toString(i).getBytes()));
+        keys.add(new ByteArray("3".getBytes()));
+        keys.add(new ByteArray("~".getBytes()));
+
+        Map<ByteArray, List<Versioned<byte[]>>> result = engine.getAll(keys, null);
+        assertEquals(100, result.size());
+        for(int i = 0; i < 300; i++) {
+            ByteArray key = new ByteArray(Integer.toString(i).getBytes());
+            if(i % 3 != 0) {
+                assertFalse(result.containsKey(key));
+            } else {
+                assertEquals(i % 2 == 0 ? 2 : 1, result.get(key).size());
+                assertEquals(engine.get(key, null).size(), result.get(key).size());
+            }
+        }
+    }
+
     public void testConcurrentReadAndPut() throws Exception {
         ExecutorService executor = Executors.newFixedThreadPool(10);
         final CountDownLatch latch = new CountDownLatch(10);
@@ -0,0 +1,180 @@
+package voldemort.store.bdb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileDeleteStrategy;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.cluster.Cluster;
+import voldemort.routing.ConsistentRoutingStrategy;
+import voldemort.routing.RoutingStrategy;
+import voldemort.server.VoldemortConfig;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.store.StorageInitializationException;
+import voldemort.store.StoreUtils;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Props;
+import voldemort.versioning.Versioned;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+
+public class PartitionPrefixedBdbStorageEngineTest extends AbstractStorageEngineTest {
+
+    private Environment environment;
+    private Database database;
+    private File tempDir;
+    private PartitionPrefixedBdbStorageEngine store;
+    private RoutingStrategy routingStrategy;
+    private Cluster cluster;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setTxnNoSync(true);
+        envConfig.setAllowCreate(true);
+        envConfig.setTransactional(true);
+        this.tempDir = TestUtils.createTempDir();
+        this.environment = new Environment(this.tempDir, envConfig);
+        DatabaseConfig databaseConfig = new DatabaseConfig();
+        databaseConfig.setAllowCreate(true);
+        databaseConfig.setTransactional(true);
+        databaseConfig.setSortedDuplicates(true);
+        this.database = environment.openDatabase(null, "test", databaseConfig);
+        this.cluster = ServerTestUtils.getLocalCluster(2, new int[][] { { 0, 2, 4 }, { 1, 3, 5 } });
+        this.routingStrategy = new ConsistentRoutingStrategy(cluster.getNodes(), 1);
+        this.store = new PartitionPrefixedBdbStorageEngine("test",
+                                                           this.environment,
+                                                           this.database,
+                                                           new BdbRuntimeConfig(),
+                                                           routingStrategy);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        try {
+            store.close();
+            environment.close();
+        } finally {
+            FileDeleteStrategy.FORCE.delete(tempDir);
+        }
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    public void testPartitionScans() {
+        assertTrue(store.isPartitionScanSupported());
+
+        Map<Integer, Set<ByteArray>> partitionToKeys = new HashMap<Integer, Set<ByteArray>>();
+        for(int partition = 0; partition < cluster.getNumberOfPartitions(); partition++)
+            partitionToKeys.put(partition, new HashSet<ByteArray>());
+        for(int i = 0; i < 500; i++) {
+            ByteArray key = new ByteArray(TestUtils.randomBytes(10));
+            store.put(key, new Versioned<byte[]>(key.get()), null);
+            partitionToKeys.get(routingStrategy.getPartitionList(key.get()).get(0)).add(key);
+        }
+
+        for(int partition = 0; partition < cluster.getNumberOfPartitions(); partition++) {
+            Set<ByteArray> keys = new HashSet<ByteArray>();
+            ClosableIterator<ByteArray> keyIterator = store.keys(partition);
+            while(keyIterator.hasNext())
+                keys.add(keyIterator.next());
+            keyIterator.close();
+            assertEquals(partitionToKeys.get(partition), keys);
+
+            int numEntries = 0;
+            ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries = store.entries(partition);
+            while(entries.hasNext()) {
+                Pair<ByteArray, Versioned<byte[]>> entry = entries.next();
+                assertTrue(partitionToKeys.get(partition).contains(entry.getFirst()));
+                assertTrue(Arrays.equals(entry.getFirst().get(), entry.getSecond().getValue()));
+                numEntries++;
+            }
+            entries.close();
+            assertEquals(partitionToKeys.get(partition).size(), numEntries);
+        }
+
+        // scanning several partitions returns exactly their keys
+        List<Integer> partitions = Arrays.asList(1, 4);
+        Set<ByteArray> expected = new HashSet<ByteArray>(partitionToKeys.get(1));
+        expected.addAll(partitionToKeys.get(4));
+        Set<ByteArray> keys = new HashSet<ByteArray>();
+        ClosableIterator<ByteArray> keyIterator = StoreUtils.keys(store, partitions);
+        while(keyIterator.hasNext())
+            keys.add(keyIterator.next());
+        keyIterator.close();
+        assertEquals(expected, keys);
+    }
+
+    private BdbStorageConfiguration getBdbStorageConfiguration(File bdbDir, boolean prefixKeys) {
+        Props props = new Props();
+        props.put("node.id", 0);
+        props.put("voldemort.home", "test/common/voldemort/config");
+        VoldemortConfig voldemortConfig = new VoldemortConfig(props);
+        voldemortConfig.setBdbCacheSize(1024 * 1024);
+        voldemortConfig.setBdbDataDirectory(bdbDir.getAbsolutePath());
+        voldemortConfig.setBdbPrefixKeysWithPartitionId(prefixKeys);
+        return new BdbStorageConfiguration(voldemortConfig);
+    }
+
+    public void testKeyLayoutMismatchRefused() throws Exception {
+        File bdbDir = TestUtils.createTempDir();
+        try {
+            ByteArray key = new ByteArray("key".getBytes());
+            BdbStorageConfiguration config = getBdbStorageConfiguration(bdbDir, false);
+            StorageEngine<ByteArray, byte[], byte[]> plain = config.getStore("plain",
+                                                                             routingStrategy);
+            assertFalse(plain instanceof PartitionPrefixedBdbStorageEngine);
+            plain.put(key, new Versioned<byte[]>(key.get()), null);
+            plain.close();
+            // an empty store has no layout to keep
+            config.getStore("empty", routingStrategy).close();
+            config.close();
+
+            config = getBdbStorageConfiguration(bdbDir, true);
+            try {
+                config.getStore("plain", routingStrategy);
+                fail("Opened a store holding plain keys with the partition prefixed layout");
+            } catch(StorageInitializationException e) {
+                // expected
+            }
+            StorageEngine<ByteArray, byte[], byte[]> prefixed = config.getStore("empty",
+                                                                                routingStrategy);
+            assertTrue(prefixed instanceof PartitionPrefixedBdbStorageEngine);
+            prefixed.put(key, new Versioned<byte[]>(key.get()), null);
+            prefixed.close();
+            config.close();
+
+            config = getBdbStorageConfiguration(bdbDir, false);
+            try {
+                config.getStore("empty", routingStrategy);
+                fail("Opened a store holding partition prefixed keys with the plain layout");
+            } catch(StorageInitializationException e) {
+                // expected
+            }
+            plain = config.getStore("plain", routingStrategy);
+            assertEquals(1, plain.get(key, null).size());
+            plain.close();
+            config.close();
+        } finally {
+            FileDeleteStrategy.FORCE.delete(bdbDir);
+        }
+    }
+}
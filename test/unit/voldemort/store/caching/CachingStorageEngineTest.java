@@ -0,0 +1,121 @@
+package voldemort.store.caching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import voldemort.TestUtils;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+public class CachingStorageEngineTest extends AbstractStorageEngineTest {
+
+    private InMemoryStorageEngine<ByteArray, byte[], byte[]> inner;
+    private CachingStorageEngine store;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        this.inner = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        this.store = new CachingStorageEngine(inner, 1024 * 1024, 4);
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    @Override
+    public List<ByteArray> getKeys(int numKeys) {
+        List<ByteArray> keys = new ArrayList<ByteArray>(numKeys);
+        for(int i = 0; i < numKeys; i++)
+            keys.add(new ByteArray(TestUtils.randomBytes(10)));
+        return keys;
+    }
+
+    public void testReadsAreCached() {
+        ByteArray key = TestUtils.toByteArray("key");
+        store.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        assertEquals(1, store.get(key, null).size());
+        assertEquals(1, store.getMisses());
+
+        // a write that bypasses the cache is not seen until invalidation
+        inner.put(key, new Versioned<byte[]>("b".getBytes(), TestUtils.getClock(1, 1)), null);
+        assertEquals("a", new String(store.get(key, null).get(0).getValue()));
+        assertEquals(1, store.getHits());
+
+        store.clear();
+        assertEquals("b", new String(store.get(key, null).get(0).getValue()));
+    }
+
+    public void testWritesInvalidate() {
+        ByteArray key = TestUtils.toByteArray("key");
+        store.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        store.get(key, null);
+        store.put(key, new Versioned<byte[]>("b".getBytes(), TestUtils.getClock(1, 1)), null);
+        assertEquals("b", new String(store.get(key, null).get(0).getValue()));
+
+        store.delete(key, TestUtils.getClock(1, 1));
+        assertEquals(0, store.get(key, null).size());
+        assertEquals(0, store.getAll(Arrays.asList(key), null).size());
+
+        store.put(key, new Versioned<byte[]>("c".getBytes(), TestUtils.getClock(1, 1, 1)), null);
+        store.get(key, null);
+        store.truncate();
+        assertEquals(0, store.get(key, null).size());
+        // only the empty result read after the truncate is cached
+        assertEquals(1, store.getNumEntries());
+    }
+
+    public void testCachedValuesCannotBeModified() {
+        ByteArray key = TestUtils.toByteArray("key");
+        store.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        ((VectorClock) store.get(key, null).get(0).getVersion()).incrementVersion(2, 1);
+        ((VectorClock) store.get(key, null).get(0).getVersion()).incrementVersion(3, 1);
+        assertEquals(TestUtils.getClock(1), store.get(key, null).get(0).getVersion());
+    }
+
+    public void testReadRacingWriteIsNotCached() {
+        final ByteArray key = TestUtils.toByteArray("key");
+        final CachingStorageEngine[] cache = new CachingStorageEngine[1];
+        InMemoryStorageEngine<ByteArray, byte[], byte[]> racing = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test") {
+
+            private boolean raced = false;
+
+            @Override
+            public List<Versioned<byte[]>> get(ByteArray k, byte[] transforms) {
+                List<Versioned<byte[]>> values = super.get(k, transforms);
+                // a write lands after the read but before the cache is filled
+                if(!raced) {
+                    raced = true;
+                    cache[0].put(k,
+                                 new Versioned<byte[]>("b".getBytes(), TestUtils.getClock(1, 1)),
+                                 null);
+                }
+                return values;
+            }
+        };
+        racing.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        cache[0] = new CachingStorageEngine(racing, 1024 * 1024, 1);
+
+        assertEquals("a", new String(cache[0].get(key, null).get(0).getValue()));
+        assertEquals("b", new String(cache[0].get(key, null).get(0).getValue()));
+    }
+
+    public void testCapacityIsRespected() {
+        CachingStorageEngine small = new CachingStorageEngine(inner, 16 * 1024, 2);
+        for(int i = 0; i < 100; i++) {
+            ByteArray key = TestUtils.toByteArray(Integer.toString(i));
+            small.put(key, new Versioned<byte[]>(TestUtils.randomBytes(1000)), null);
+            small.get(key, null);
+        }
+        assertTrue(small.getSizeInBytes() <= small.getCapacityInBytes());
+        assertTrue(small.getNumEntries() < 100);
+        for(int i = 0; i < 100; i++)
+            assertEquals(1, small.get(TestUtils.toByteArray(Integer.toString(i)), null).size());
+    }
+}
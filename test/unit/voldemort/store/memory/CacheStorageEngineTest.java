@@ -24,8 +24,8 @@ import voldemort.utils.ByteArray;
 import voldemort.versioning.Versioned;
 
 /**
- * Does all the normal tests but also uses a high memory pressure test to make
- * sure that values are collected.
+ * Does all the normal tests but also checks that the cache stays within its
+ * capacity and keeps frequently read keys.
  * 
  * 
  */
@@ -33,12 +33,6 @@ public class CacheStorageEngineTest extends InMemoryStorageEngineTest {
 
     private static final int NUM_OBJECTS = 1000;
 
-    @Override
-    public void setUp() throws Exception {
-        super.setUp();
-        System.gc();
-    }
-
     @Override
     public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
         return new CacheStorageConfiguration().getStore("test");
@@ -63,4 +57,42 @@ public class CacheStorageEngineTest extends InMemoryStorageEngineTest {
                        null);
     }
 
+    public void testCapacityIsRespected() {
+        OffHeapCacheStorageEngine engine = new OffHeapCacheStorageEngine("test", 64 * 1024, 4, 64);
+        for(int i = 0; i < NUM_OBJECTS; i++)
+            engine.put(TestUtils.toByteArray(Integer.toString(i)),
+                       new Versioned<byte[]>(TestUtils.randomBytes(1000)),
+                       null);
+        assertTrue(engine.getSizeInBytes() <= engine.getCapacityInBytes());
+        assertTrue(engine.getEvictions() > 0);
+        assertTrue(engine.getNumEntries() < NUM_OBJECTS);
+        assertEquals(NUM_OBJECTS, engine.getNumEntries() + engine.getEvictions());
+
+        // values too large for a segment are not cached at all
+        ByteArray key = TestUtils.toByteArray("large");
+        engine.put(key, new Versioned<byte[]>(TestUtils.randomBytes(32 * 1024)), null);
+        assertEquals(0, engine.get(key, null).size());
+        engine.close();
+    }
+
+    public void testFrequentlyReadKeysSurvive() {
+        OffHeapCacheStorageEngine engine = new OffHeapCacheStorageEngine("test", 16 * 1024, 1, 64);
+        ByteArray hot = TestUtils.toByteArray("hot");
+        byte[] value = TestUtils.randomBytes(500);
+        engine.put(hot, new Versioned<byte[]>(value), null);
+        for(int i = 0; i < 200; i++) {
+            assertEquals(1, engine.get(hot, null).size());
+            engine.put(TestUtils.toByteArray(Integer.toString(i)),
+                       new Versioned<byte[]>(TestUtils.randomBytes(500)),
+                       null);
+        }
+        List<Versioned<byte[]>> found = engine.get(hot, null);
+        assertEquals(1, found.size());
+        assertTrue(TestUtils.bytesEqual(value, found.get(0).getValue()));
+        assertEquals(201, engine.getHits());
+        assertEquals(0, engine.getMisses());
+        assertTrue(engine.getEvictions() > 0);
+        engine.close();
+    }
+
 }
@@ -24,6 +24,7 @@ import java.util.List;
 import junit.framework.TestCase;
 import voldemort.ServerTestUtils;
 import voldemort.client.rebalance.RebalancePartitionsInfo;
+import voldemort.cluster.Cluster;
 import voldemort.server.rebalance.RebalancerState;
 import voldemort.store.metadata.MetadataStore.VoldemortState;
 import voldemort.utils.ByteArray;
@@ -35,6 +36,7 @@ import voldemort.xml.ClusterMapper;
 import voldemort.xml.StoreDefinitionsMapper;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class MetadataStoreTest extends TestCase {
 
@@ -179,6 +181,53 @@ public class MetadataStoreTest extends TestCase {
                      VoldemortState.NORMAL_SERVER);
     }
 
+    public void testSnapshotTracksUpdates() {
+        Cluster cluster = ServerTestUtils.getLocalCluster(2, new int[][] { { 0, 1 }, { 2, 3 } });
+        MetadataStore store = ServerTestUtils.createMetadataStore(cluster,
+                                                                  ServerTestUtils.getStoreDefs(1));
+        MetadataSnapshot snapshot = store.getSnapshot();
+        assertEquals(VoldemortState.NORMAL_SERVER, snapshot.getServerState());
+        assertEquals("test0", snapshot.getStoreDef("test0").getName());
+        assertFalse(snapshot.hasStoreDef("unknown"));
+        assertEquals(Sets.newHashSet(0, 1), snapshot.getPartitionIds(0));
+
+        HashMap<Integer, List<Integer>> replicaToPartition = Maps.newHashMap();
+        replicaToPartition.put(0, Arrays.asList(0));
+        replicaToPartition.put(1, Arrays.asList(2));
+        HashMap<String, HashMap<Integer, List<Integer>>> storeToReplicaToPartitionList = Maps.newHashMap();
+        storeToReplicaToPartitionList.put("test0", replicaToPartition);
+        store.addRebalancingState(new RebalancePartitionsInfo(0,
+                                                              1,
+                                                              storeToReplicaToPartitionList,
+                                                              storeToReplicaToPartitionList,
+                                                              cluster,
+                                                              0));
+
+        // the old snapshot is unaffected, the new one sees the steal info
+        assertEquals(VoldemortState.NORMAL_SERVER, snapshot.getServerState());
+        snapshot = store.getSnapshot();
+        assertEquals(VoldemortState.REBALANCING_MASTER_SERVER, snapshot.getServerState());
+
+        RebalancerState rebalancerState = store.getRebalancerState();
+        List<Integer> nodePartitions = cluster.getNodeById(0).getPartitionIds();
+        int[][] keyPartitionLists = { { 0, 2 }, { 1, 2 }, { 2, 0 }, { 2, 1 }, { 3, 0 }, { 0, 3 } };
+        for(int[] keyPartitions: keyPartitionLists) {
+            List<Integer> partitions = Arrays.asList(keyPartitions[0], keyPartitions[1]);
+            assertEquals("Steal info should match for " + partitions,
+                         rebalancerState.find("test0", partitions, nodePartitions),
+                         snapshot.findStealInfo("test0", partitions));
+            assertNull(snapshot.findStealInfo("unknown", partitions));
+        }
+        assertNotNull(snapshot.findStealInfo("test0", Arrays.asList(0, 2)));
+        assertNotNull(snapshot.findStealInfo("test0", Arrays.asList(2, 0)));
+        assertNull(snapshot.findStealInfo("test0", Arrays.asList(1, 2)));
+
+        store.cleanAllRebalancingState();
+        snapshot = store.getSnapshot();
+        assertEquals(VoldemortState.NORMAL_SERVER, snapshot.getServerState());
+        assertNull(snapshot.findStealInfo("test0", Arrays.asList(0, 2)));
+    }
+
     private void checkValues(Versioned<byte[]> value, List<Versioned<byte[]>> list, ByteArray key) {
         assertEquals("should return exactly one value ", 1, list.size());
 
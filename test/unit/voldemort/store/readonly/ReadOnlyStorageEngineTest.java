@@ -42,7 +42,10 @@ import voldemort.serialization.SerializerDefinition;
 import voldemort.serialization.SerializerFactory;
 import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
+import voldemort.store.readonly.chunk.BloomFilter;
+import voldemort.store.readonly.chunk.ChunkedFileSet;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
 import voldemort.utils.ClosableIterator;
 import voldemort.utils.Pair;
 import voldemort.utils.Utils;
@@ -66,7 +69,12 @@ public class ReadOnlyStorageEngineTest {
                 { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V1 },
                 { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V1 },
                 { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 },
-                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 } });
+                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 },
+                { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V3 },
+                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V3 },
+                { new FanOutSearchStrategy(2), ReadOnlyStorageFormat.READONLY_V0 },
+                { new FanOutSearchStrategy(2), ReadOnlyStorageFormat.READONLY_V2 },
+                { new FanOutSearchStrategy(2), ReadOnlyStorageFormat.READONLY_V3 } });
     }
 
     private File dir;
@@ -108,6 +116,10 @@ public class ReadOnlyStorageEngineTest {
                 // 8 (upper 8 bytes of md5) + 4 (position)
                 this.indexEntrySize = 12;
                 break;
+            case READONLY_V3:
+                // 8 (upper 8 bytes of md5) + 8 (position)
+                this.indexEntrySize = 16;
+                break;
             default:
                 throw new VoldemortException("Unsupported storage format type");
 
@@ -208,6 +220,39 @@ public class ReadOnlyStorageEngineTest {
         testData.delete();
     }
 
+    @Test
+    public void canGetValuesFromMappedDataFiles() throws Exception {
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType,
+                                                                                              true);
+        for(Map.Entry<String, String> entry: testData.getData().entrySet()) {
+            for(Node node: testData.routeRequest(entry.getKey())) {
+                Store<String, String, String> store = testData.getNodeStores().get(node.getId());
+                List<Versioned<String>> found = store.get(entry.getKey(), null);
+                assertEquals("Lookup failure for '" + entry.getKey() + "' for node "
+                             + node.getId() + ".", 1, found.size());
+                assertEquals(entry.getValue(), found.get(0).getValue());
+            }
+        }
+
+        for(int j = 0; j < TEST_SIZE; j++) {
+            String key = TestUtils.randomLetters(10);
+            if(!testData.getData().containsKey(key)) {
+                for(int k = 0; k < testData.getNodeStores().size(); k++)
+                    assertEquals("Found key in store where it should not be.",
+                                 0,
+                                 testData.getNodeStores().get(k).get(key, null).size());
+            }
+        }
+        testData.delete();
+    }
+
     /**
      * Do lookups on keys not in the store and test that the keys are not found.
      */
@@ -354,6 +399,132 @@ public class ReadOnlyStorageEngineTest {
 
     }
 
+    @Test
+    public void canGetValuesWithBloomFilters() throws Exception {
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType,
+                                                                                              false,
+                                                                                              BloomFilter.DEFAULT_BITS_PER_KEY);
+        for(ReadOnlyStorageEngine engine: testData.getReadOnlyStores().values())
+            assertTrue(engine.getChunkedFileSet().hasBloomFilters());
+
+        for(Map.Entry<String, String> entry: testData.getData().entrySet()) {
+            for(Node node: testData.routeRequest(entry.getKey())) {
+                Store<String, String, String> store = testData.getNodeStores().get(node.getId());
+                List<Versioned<String>> found = store.get(entry.getKey(), null);
+                assertEquals("Lookup failure for '" + entry.getKey() + "' for node "
+                             + node.getId() + ".", 1, found.size());
+                assertEquals(entry.getValue(), found.get(0).getValue());
+            }
+        }
+
+        for(int j = 0; j < TEST_SIZE; j++) {
+            String key = TestUtils.randomLetters(10);
+            if(!testData.getData().containsKey(key)) {
+                for(int k = 0; k < testData.getNodeStores().size(); k++)
+                    assertEquals("Found key in store where it should not be.",
+                                 0,
+                                 testData.getNodeStores().get(k).get(key, null).size());
+            }
+        }
+        testData.delete();
+    }
+
+    @Test
+    public void testNonBlockingSwap() throws Exception {
+        File versionDir = new File(dir, "version-0");
+        createStoreFiles(versionDir, this.indexEntrySize * 5, 4 * 5 * 10, this.node, 2);
+
+        ReadOnlyStorageEngine engine = new ReadOnlyStorageEngine("test",
+                                                                 strategy,
+                                                                 routingStrategy,
+                                                                 0,
+                                                                 dir,
+                                                                 2,
+                                                                 0,
+                                                                 true,
+                                                                 true,
+                                                                 true);
+        assertVersionsExist(dir, 0);
+
+        // hold a reference on the current version as an in-flight read would
+        ChunkedFileSet oldFileSet = engine.getChunkedFileSet();
+        assertTrue(oldFileSet.acquire());
+
+        File newDirv1 = new File(dir, "version-1");
+        createStoreFiles(newDirv1, 0, 0, this.node, 2);
+        engine.swapFiles(newDirv1.getAbsolutePath());
+        assertVersionsExist(dir, 0, 1);
+        assertEquals(1, engine.getCurrentVersionId());
+        assertTrue(new File(dir, "latest").getCanonicalPath().contains("version-1"));
+        assertTrue(engine.getChunkedFileSet() != oldFileSet);
+        assertEquals(0, engine.get(new ByteArray("abc".getBytes()), null).size());
+
+        // the old version stays open until the last reference is released
+        assertTrue(oldFileSet.acquire());
+        oldFileSet.release();
+        oldFileSet.release();
+        assertFalse(oldFileSet.acquire());
+
+        // a failed swap leaves the current version in place
+        File newDirv2 = new File(dir, "version-2");
+        createStoreFiles(newDirv2, this.indexEntrySize * 5, 4 * 5 * 10, this.node, 2);
+        for(File file: newDirv2.listFiles()) {
+            if(file.getName().endsWith(".data"))
+                file.delete();
+        }
+        try {
+            engine.swapFiles(newDirv2.getAbsolutePath());
+            fail("Should have thrown an exception since the data files are missing");
+        } catch(VoldemortException e) {}
+        assertEquals(1, engine.getCurrentVersionId());
+        assertEquals(0, engine.get(new ByteArray("abc".getBytes()), null).size());
+
+        engine.close();
+        try {
+            engine.get(new ByteArray("abc".getBytes()), null);
+            fail("Should have thrown an exception since the store is closed");
+        } catch(VoldemortException e) {}
+    }
+
+    @Test
+    public void testSwapToCorruptChunkRollsBack() throws Exception {
+        for(boolean nonBlockingSwap: new boolean[] { false, true }) {
+            Utils.rm(dir);
+            createStoreFiles(new File(dir, "version-0"), 0, 0, this.node, 2);
+            ReadOnlyStorageEngine engine = new ReadOnlyStorageEngine("test",
+                                                                     strategy,
+                                                                     routingStrategy,
+                                                                     0,
+                                                                     dir,
+                                                                     2,
+                                                                     0,
+                                                                     false,
+                                                                     nonBlockingSwap,
+                                                                     false);
+
+            // a version whose chunks only fail once their files are opened
+            File newDirv1 = new File(dir, "version-1");
+            createStoreFiles(newDirv1, 0, 0, this.node, 2);
+            corruptBloomFilters(newDirv1);
+            try {
+                engine.swapFiles(newDirv1.getAbsolutePath());
+                fail("Should have thrown an exception since the bloom filters are corrupt");
+            } catch(VoldemortException e) {}
+
+            assertEquals(0, engine.getCurrentVersionId());
+            assertTrue(new File(dir, "latest").getCanonicalPath().contains("version-0"));
+            assertEquals(0, engine.get(new ByteArray("abc".getBytes()), null).size());
+            engine.close();
+        }
+    }
+
     @Test
     public void testSwapRollbackFail() throws IOException {
         ReadOnlyStorageEngine engine = new ReadOnlyStorageEngine("test",
@@ -524,7 +695,8 @@ public class ReadOnlyStorageEngineTest {
                 keyIterator = storeEntry.getValue().keys();
                 entryIterator = storeEntry.getValue().entries();
             } catch(Exception e) {
-                if(storageType.compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0) {
+                if(storageType == ReadOnlyStorageFormat.READONLY_V2
+                   || storageType == ReadOnlyStorageFormat.READONLY_V3) {
                     fail("Should not have thrown exception since this version supports iteration");
                 } else {
                     return;
@@ -583,6 +755,32 @@ public class ReadOnlyStorageEngineTest {
         assertFalse("Found version directory that should not exist.", versionDir.exists());
     }
 
+    /* Declares bloom filters in the metadata and writes an invalid one per chunk */
+    private void corruptBloomFilters(File dir) throws IOException {
+        ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+        metadata.add(ReadOnlyStorageMetadata.FORMAT, storageType.getCode());
+        metadata.add(ReadOnlyStorageMetadata.BLOOM_FILTER, Boolean.toString(true));
+        BufferedWriter writer = new BufferedWriter(new FileWriter(new File(dir, ".metadata")));
+        writer.write(metadata.toJsonString());
+        writer.close();
+
+        for(File index: dir.listFiles()) {
+            if(index.getName().endsWith(".index")) {
+                String name = index.getName();
+                FileOutputStream bloomOs = new FileOutputStream(new File(dir,
+                                                                         name.substring(0,
+                                                                                        name.length()
+                                                                                                - ".index".length())
+                                                                                 + ".bloom"));
+                // current hash scheme, but no hash functions
+                byte[] bloom = new byte[8];
+                ByteUtils.writeInt(bloom, 1 << 16, 0);
+                bloomOs.write(bloom);
+                bloomOs.close();
+            }
+        }
+    }
+
     private void createStoreFiles(File dir, int indexBytes, int dataBytes, Node node, int numChunks)
             throws IOException, FileNotFoundException {
         ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
@@ -630,7 +828,8 @@ public class ReadOnlyStorageEngineTest {
                 }
             }
                 break;
-            case READONLY_V2: {
+            case READONLY_V2:
+            case READONLY_V3: {
                 // Assuming number of replicas = 1, since all these tests use a
                 // store with replication factor of 1
                 for(Integer partitionId: node.getPartitionIds()) {
@@ -92,6 +92,50 @@ public class ReadOnlyStorageEngineTestInstance {
                                                            SerializerDefinition valueSerDef,
                                                            ReadOnlyStorageFormat type)
             throws Exception {
+        return create(strategy,
+                      baseDir,
+                      testSize,
+                      numNodes,
+                      repFactor,
+                      keySerDef,
+                      valueSerDef,
+                      type,
+                      false);
+    }
+
+    public static ReadOnlyStorageEngineTestInstance create(SearchStrategy strategy,
+                                                           File baseDir,
+                                                           int testSize,
+                                                           int numNodes,
+                                                           int repFactor,
+                                                           SerializerDefinition keySerDef,
+                                                           SerializerDefinition valueSerDef,
+                                                           ReadOnlyStorageFormat type,
+                                                           boolean mmapDataFiles)
+            throws Exception {
+        return create(strategy,
+                      baseDir,
+                      testSize,
+                      numNodes,
+                      repFactor,
+                      keySerDef,
+                      valueSerDef,
+                      type,
+                      mmapDataFiles,
+                      0);
+    }
+
+    public static ReadOnlyStorageEngineTestInstance create(SearchStrategy strategy,
+                                                           File baseDir,
+                                                           int testSize,
+                                                           int numNodes,
+                                                           int repFactor,
+                                                           SerializerDefinition keySerDef,
+                                                           SerializerDefinition valueSerDef,
+                                                           ReadOnlyStorageFormat type,
+                                                           boolean mmapDataFiles,
+                                                           int bloomFilterBitsPerKey)
+            throws Exception {
         // create some test data
         Map<String, String> data = createTestData(testSize);
         JsonReader reader = makeTestDataReader(data, baseDir);
@@ -134,7 +178,8 @@ public class ReadOnlyStorageEngineTestInstance {
                                                              1,
                                                              2,
                                                              10000,
-                                                             false);
+                                                             false,
+                                                             bloomFilterBitsPerKey);
         storeBuilder.build(type);
 
         File nodeDir = TestUtils.createTempDir(baseDir);
@@ -161,7 +206,9 @@ public class ReadOnlyStorageEngineTestInstance {
                                                                                     router,
                                                                                     i,
                                                                                     currNode,
-                                                                                    1);
+                                                                                    1,
+                                                                                    0,
+                                                                                    mmapDataFiles);
             readOnlyStores.put(i, readOnlyStorageEngine);
             Store<ByteArray, byte[], byte[]> innerStore = new CompressingStore(readOnlyStorageEngine,
                                                                                keyCompressionStrat,
@@ -34,7 +34,8 @@ public class SearchStrategyTest {
     public static Collection<Object[]> configs() {
         return Arrays.asList(new Object[][] { { new BinarySearchStrategy(), 4 },
                 { new InterpolationSearchStrategy(), 4 }, { new BinarySearchStrategy(), 16 },
-                { new InterpolationSearchStrategy(), 16 } });
+                { new InterpolationSearchStrategy(), 16 }, { new FanOutSearchStrategy(), 4 },
+                { new FanOutSearchStrategy(), 16 } });
     }
 
     public SearchStrategyTest(SearchStrategy strategy, int keyHashSize) {
@@ -108,6 +109,31 @@ public class SearchStrategyTest {
         }
     }
 
+    @Test
+    public void testLargePositions() {
+        Random rand = new Random(48534543);
+        int size = 100;
+        byte[][] keys = new byte[size][];
+        long[] values = new long[size];
+        for(int i = 0; i < size; i++) {
+            byte[] key = new byte[keyHashSize];
+            rand.nextBytes(key);
+            values[i] = Integer.MAX_VALUE + (long) rand.nextInt(1000000);
+            keys[i] = key;
+        }
+        ByteBuffer index = makeLargeIndex(keys, values);
+        for(int i = 0; i < size; i++)
+            assertEquals(values[i], strategy.indexOf(index,
+                                                     keys[i],
+                                                     index.limit(),
+                                                     ReadOnlyUtils.LARGE_POSITION_SIZE));
+        for(int i = 0; i < 10; i++)
+            assertEquals(-1, strategy.indexOf(index,
+                                              new byte[keyHashSize],
+                                              index.limit(),
+                                              ReadOnlyUtils.LARGE_POSITION_SIZE));
+    }
+
     public void print(byte[][] keys, int[] positions) {
         for(int i = 0; i < keys.length; i++) {
             System.out.println(ByteUtils.toHexString(keys[i]) + "\t" + positions[i]);
@@ -144,6 +170,26 @@ public class SearchStrategyTest {
         return buffer;
     }
 
+    public ByteBuffer makeLargeIndex(byte[][] keys, long[] positions) {
+        Map<byte[], Long> m = new HashMap<byte[], Long>();
+        for(int i = 0; i < keys.length; i++)
+            m.put(keys[i], positions[i]);
+        byte[][] copy = keys.clone();
+        Arrays.sort(copy, new Comparator<byte[]>() {
+
+            public int compare(byte[] b1, byte[] b2) {
+                return ByteUtils.compare(b1, b2);
+            }
+        });
+        ByteBuffer buffer = ByteBuffer.allocate((keyHashSize + ByteUtils.SIZE_OF_LONG)
+                                                * copy.length);
+        for(int i = 0; i < copy.length; i++) {
+            buffer.put(copy[i]);
+            buffer.putLong(m.get(copy[i]));
+        }
+        return buffer;
+    }
+
     public byte[] key(int v1, int v2, int v3, int v4) {
         byte[] bytes = new byte[keyHashSize];
         switch(keyHashSize) {
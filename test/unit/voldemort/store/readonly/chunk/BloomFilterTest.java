@@ -0,0 +1,150 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.VoldemortException;
+import voldemort.store.readonly.ReadOnlyUtils;
+import voldemort.utils.ByteUtils;
+
+public class BloomFilterTest {
+
+    private static final int NUM_KEYS = 10000;
+
+    private List<byte[]> makeKeys(int start, int count, int keySize) {
+        List<byte[]> keys = new ArrayList<byte[]>();
+        for(int i = start; i < start + count; i++)
+            keys.add(ByteUtils.copy(ByteUtils.md5(Integer.toString(i).getBytes()), 0, keySize));
+        return keys;
+    }
+
+    private int countFalsePositives(BloomFilter filter, int keySize) {
+        int falsePositives = 0;
+        for(byte[] key: makeKeys(NUM_KEYS, NUM_KEYS, keySize)) {
+            if(filter.mightContain(key))
+                falsePositives++;
+        }
+        return falsePositives;
+    }
+
+    /* Keys, as stored in a V2 index, that all fall in the given chunk */
+    private List<byte[]> makeChunkKeys(int start, int count, int chunk, int numChunks) {
+        List<byte[]> keys = new ArrayList<byte[]>();
+        for(int i = start; keys.size() < count; i++) {
+            byte[] key = ByteUtils.copy(ByteUtils.md5(Integer.toString(i).getBytes()), 0, 8);
+            if(ReadOnlyUtils.chunk(key, numChunks) == chunk)
+                keys.add(key);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(NUM_KEYS, BloomFilter.DEFAULT_BITS_PER_KEY);
+        List<byte[]> keys = makeKeys(0, NUM_KEYS, 8);
+        for(byte[] key: keys)
+            filter.add(key);
+        for(byte[] key: keys)
+            assertTrue(filter.mightContain(key));
+
+        // ~1% expected with 10 bits per key
+        assertTrue(countFalsePositives(filter, 8) < NUM_KEYS / 20);
+    }
+
+    @Test
+    public void testSerialization() {
+        BloomFilter filter = new BloomFilter(NUM_KEYS, 6);
+        for(byte[] key: makeKeys(0, NUM_KEYS, 16))
+            filter.add(key);
+
+        BloomFilter copy = new BloomFilter(ByteBuffer.wrap(filter.toByteArray()));
+        assertEquals(filter.getNumHashes(), copy.getNumHashes());
+        assertEquals(filter.getNumBits(), copy.getNumBits());
+        for(byte[] key: makeKeys(0, NUM_KEYS, 16))
+            assertTrue(copy.mightContain(key));
+        assertEquals(countFalsePositives(filter, 16), countFalsePositives(copy, 16));
+    }
+
+    @Test
+    public void testFromIndex() throws IOException {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(index);
+        List<byte[]> keys = makeKeys(0, NUM_KEYS, 8);
+        for(int i = 0; i < keys.size(); i++) {
+            output.write(keys.get(i));
+            output.writeLong(i);
+        }
+        output.close();
+
+        BloomFilter filter = BloomFilter.fromIndex(new ByteArrayInputStream(index.toByteArray()),
+                                                   index.size(),
+                                                   8,
+                                                   8,
+                                                   BloomFilter.DEFAULT_BITS_PER_KEY);
+        for(byte[] key: keys)
+            assertTrue(filter.mightContain(key));
+        assertTrue(countFalsePositives(filter, 8) < NUM_KEYS / 20);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        BloomFilter filter = new BloomFilter(0, BloomFilter.DEFAULT_BITS_PER_KEY);
+        for(byte[] key: makeKeys(0, 100, 8))
+            assertFalse(filter.mightContain(key));
+    }
+
+    @Test
+    public void testSingleChunkFalsePositiveRate() {
+        // the bit count is a multiple of the chunk count, as it is for a
+        // default sized filter of a chunk with a round number of keys
+        int numChunks = 8;
+        BloomFilter filter = new BloomFilter(NUM_KEYS, BloomFilter.DEFAULT_BITS_PER_KEY);
+        assertEquals(0, filter.getNumBits() % numChunks);
+
+        List<byte[]> keys = makeChunkKeys(0, NUM_KEYS, 3, numChunks);
+        for(byte[] key: keys)
+            filter.add(key);
+        for(byte[] key: keys)
+            assertTrue(filter.mightContain(key));
+
+        // probe absent keys that would be routed to the same chunk
+        int falsePositives = 0;
+        for(byte[] key: makeChunkKeys(numChunks * NUM_KEYS * 2, NUM_KEYS, 3, numChunks)) {
+            if(filter.mightContain(key))
+                falsePositives++;
+        }
+        // ~1% expected with 10 bits per key
+        assertTrue("False positive rate " + falsePositives + "/" + NUM_KEYS,
+                   falsePositives < NUM_KEYS / 50);
+    }
+
+    @Test
+    public void testHashSchemeHeader() {
+        byte[] bytes = new BloomFilter(NUM_KEYS, 6).toByteArray();
+        assertTrue(BloomFilter.isSupported(ByteBuffer.wrap(bytes)));
+        assertEquals(4, new BloomFilter(ByteBuffer.wrap(bytes)).getNumHashes());
+
+        for(int scheme: new int[] { 0, 7 }) {
+            ByteUtils.writeInt(bytes, (scheme << 16) | 4, 0);
+            assertFalse(BloomFilter.isSupported(ByteBuffer.wrap(bytes)));
+            try {
+                new BloomFilter(ByteBuffer.wrap(bytes));
+                fail("Unknown hash scheme should be rejected");
+            } catch(VoldemortException e) {
+                // expected
+            }
+        }
+    }
+}
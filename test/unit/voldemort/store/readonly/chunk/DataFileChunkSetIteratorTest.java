@@ -74,7 +74,7 @@ public class DataFileChunkSetIteratorTest {
         Assert.assertEquals(numberOfEntriesPerChunk % numberOfEntriesPerCollision, 0);
 
         List<DataFileChunk> dataFiles = Lists.newArrayList();
-        List<Integer> dataFileSizes = Lists.newArrayList();
+        List<Long> dataFileSizes = Lists.newArrayList();
 
         File tempFolder = TestUtils.createTempDir();
         int currentEntry = 0;
@@ -118,7 +118,7 @@ public class DataFileChunkSetIteratorTest {
             }
 
             dataFiles.add(new LocalDataFileChunk(new FileInputStream(chunkFile).getChannel()));
-            dataFileSizes.add((int) chunkFile.length());
+            dataFileSizes.add(chunkFile.length());
         }
 
         DataFileChunkSet chunkSet = new DataFileChunkSet(dataFiles, dataFileSizes);
@@ -0,0 +1,109 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.utils.ByteUtils;
+
+public class IndexFanOutTest {
+
+    private static final int KEY_SIZE = 8;
+    private static final int POSITION_SIZE = 4;
+
+    private List<byte[]> makeSortedKeys(int count) {
+        List<byte[]> keys = new ArrayList<byte[]>();
+        for(int i = 0; i < count; i++)
+            keys.add(ByteUtils.copy(ByteUtils.md5(Integer.toString(i).getBytes()), 0, KEY_SIZE));
+        Collections.sort(keys, new Comparator<byte[]>() {
+
+            public int compare(byte[] b1, byte[] b2) {
+                return ByteUtils.compare(b1, b2);
+            }
+        });
+        return keys;
+    }
+
+    private ByteBuffer makeIndex(List<byte[]> keys) {
+        ByteBuffer index = ByteBuffer.allocate(keys.size() * (KEY_SIZE + POSITION_SIZE));
+        for(int i = 0; i < keys.size(); i++) {
+            index.put(keys.get(i));
+            index.putInt(i);
+        }
+        return index;
+    }
+
+    @Test
+    public void testRangesContainKeys() {
+        List<byte[]> keys = makeSortedKeys(5000);
+        IndexFanOut fanOut = IndexFanOut.build(makeIndex(keys),
+                                               keys.size() * (KEY_SIZE + POSITION_SIZE),
+                                               KEY_SIZE,
+                                               POSITION_SIZE,
+                                               8);
+        // 5000 / 2^10 is at most 8 entries per bucket
+        assertEquals(10, fanOut.getBits());
+        for(int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            assertTrue(fanOut.startEntry(key) <= i);
+            assertTrue(i < fanOut.endEntry(key));
+        }
+    }
+
+    @Test
+    public void testRangesExcludeOnlySmallerAndLargerKeys() {
+        List<byte[]> keys = makeSortedKeys(1000);
+        IndexFanOut fanOut = IndexFanOut.build(makeIndex(keys),
+                                               keys.size() * (KEY_SIZE + POSITION_SIZE),
+                                               KEY_SIZE,
+                                               POSITION_SIZE,
+                                               4);
+        for(int i = 1000; i < 2000; i++) {
+            byte[] missing = ByteUtils.copy(ByteUtils.md5(Integer.toString(i).getBytes()),
+                                            0,
+                                            KEY_SIZE);
+            int start = fanOut.startEntry(missing);
+            int end = fanOut.endEntry(missing);
+            assertTrue(start <= end);
+            if(start > 0)
+                assertTrue(ByteUtils.compare(keys.get(start - 1), missing) < 0);
+            if(end < keys.size())
+                assertTrue(ByteUtils.compare(keys.get(end), missing) > 0);
+        }
+
+        byte[] highest = new byte[KEY_SIZE];
+        Arrays.fill(highest, (byte) 0xff);
+        assertEquals(0, fanOut.startEntry(new byte[KEY_SIZE]));
+        assertEquals(keys.size(), fanOut.endEntry(highest));
+    }
+
+    @Test
+    public void testEmptyAndSmallIndexes() {
+        IndexFanOut empty = IndexFanOut.build(ByteBuffer.allocate(0),
+                                              0,
+                                              KEY_SIZE,
+                                              POSITION_SIZE,
+                                              64);
+        assertEquals(0, empty.getBits());
+        assertEquals(0, empty.startEntry(new byte[KEY_SIZE]));
+        assertEquals(0, empty.endEntry(new byte[KEY_SIZE]));
+
+        List<byte[]> keys = makeSortedKeys(10);
+        IndexFanOut small = IndexFanOut.build(makeIndex(keys),
+                                              keys.size() * (KEY_SIZE + POSITION_SIZE),
+                                              KEY_SIZE,
+                                              POSITION_SIZE,
+                                              64);
+        assertEquals(0, small.getBits());
+        assertEquals(0, small.startEntry(keys.get(5)));
+        assertEquals(keys.size(), small.endEntry(keys.get(5)));
+    }
+}
@@ -0,0 +1,79 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.TestUtils;
+import voldemort.utils.ByteUtils;
+
+public class MappedDataFileTest {
+
+    private static final int SEGMENT_SIZE = 16;
+
+    private File file;
+    private byte[] contents;
+    private FileChannel channel;
+    private MappedDataFile mapped;
+
+    @Before
+    public void setUp() throws IOException {
+        contents = new byte[10 * SEGMENT_SIZE + 5];
+        new Random(5432).nextBytes(contents);
+        file = File.createTempFile("mapped", ".data", TestUtils.createTempDir());
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(contents);
+        os.close();
+        channel = new FileInputStream(file).getChannel();
+        mapped = new MappedDataFile(channel, file.length(), SEGMENT_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        channel.close();
+        file.delete();
+    }
+
+    @Test
+    public void testReadsAcrossSegments() {
+        assertEquals(contents.length, mapped.length());
+        for(int position = 0; position + ByteUtils.SIZE_OF_INT <= contents.length; position++) {
+            assertEquals(ByteUtils.readInt(contents, position), mapped.getInt(position));
+            assertEquals(ByteUtils.readShort(contents, position), mapped.getShort(position));
+        }
+    }
+
+    @Test
+    public void testSlices() {
+        for(int size = 0; size < 3 * SEGMENT_SIZE; size += 5) {
+            for(int position = 0; position + size <= contents.length; position += 3) {
+                ByteBuffer slice = mapped.slice(position, size);
+                assertEquals(size, slice.remaining());
+                assertTrue(slice.isReadOnly());
+                byte[] bytes = new byte[size];
+                slice.get(bytes);
+                assertArrayEquals(ByteUtils.copy(contents, position, position + size), bytes);
+            }
+        }
+    }
+
+    @Test
+    public void testMatches() {
+        byte[] key = ByteUtils.copy(contents, SEGMENT_SIZE - 3, SEGMENT_SIZE + 7);
+        assertTrue(mapped.matches(SEGMENT_SIZE - 3, key));
+        assertFalse(mapped.matches(SEGMENT_SIZE - 2, key));
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.store.routed;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import voldemort.ServerTestUtils;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.server.AbstractSocketService;
+import voldemort.server.RequestRoutingType;
+import voldemort.server.StoreRepository;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
+import voldemort.store.socket.SocketDestination;
+import voldemort.store.socket.SocketStore;
+import voldemort.store.socket.clientrequest.ClientRequestExecutor;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+public class BatchingNonblockingStoreTest extends TestCase {
+
+    private ExecutorService threadPool;
+
+    private ScheduledExecutorService scheduler;
+
+    private InMemoryStorageEngine<ByteArray, byte[], byte[]> engine;
+
+    private AtomicInteger getAllRequests;
+
+    private NonblockingStore innerStore;
+
+    @Override
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(4);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        engine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        getAllRequests = new AtomicInteger(0);
+
+        for(int i = 0; i < 10; i++)
+            engine.put(key(i), Versioned.value(new byte[] { (byte) i }), null);
+
+        innerStore = new ThreadPoolBasedNonblockingStoreImpl(threadPool, engine) {
+
+            @Override
+            public void submitGetAllRequest(Iterable<ByteArray> keys,
+                                            Map<ByteArray, byte[]> transforms,
+                                            NonblockingStoreCallback callback,
+                                            long timeoutMs) {
+                getAllRequests.incrementAndGet();
+                super.submitGetAllRequest(keys, transforms, callback, timeoutMs);
+            }
+
+        };
+    }
+
+    @Override
+    public void tearDown() {
+        scheduler.shutdownNow();
+        threadPool.shutdownNow();
+    }
+
+    public void testGetsAreCoalesced() throws Exception {
+        BatchingNonblockingStore store = new BatchingNonblockingStore(innerStore,
+                                                                      scheduler,
+                                                                      TimeUnit.MILLISECONDS.toMicros(50),
+                                                                      100);
+        int numGets = 12;
+        CountDownLatch latch = new CountDownLatch(numGets);
+        Map<Integer, Object> results = new ConcurrentHashMap<Integer, Object>();
+
+        // Ask for some keys twice and one that doesn't exist.
+        for(int i = 0; i < numGets; i++)
+            store.submitGetRequest(key(i % 11), null, new ResultCallback(i, results, latch), 1000);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, getAllRequests.get());
+        assertEquals(1, store.getBatchCount());
+        assertEquals(numGets, store.getBatchedRequestCount());
+
+        for(int i = 0; i < numGets; i++) {
+            List<?> versioneds = (List<?>) results.get(i);
+
+            if(i % 11 == 10) {
+                assertEquals(0, versioneds.size());
+            } else {
+                assertEquals(1, versioneds.size());
+                byte[] value = (byte[]) ((Versioned<?>) versioneds.get(0)).getValue();
+                assertEquals(i % 11, value[0]);
+            }
+        }
+    }
+
+    public void testGetAllReceivesOnlyItsKeys() throws Exception {
+        BatchingNonblockingStore store = new BatchingNonblockingStore(innerStore,
+                                                                      scheduler,
+                                                                      TimeUnit.MILLISECONDS.toMicros(50),
+                                                                      100);
+        CountDownLatch latch = new CountDownLatch(2);
+        Map<Integer, Object> results = new ConcurrentHashMap<Integer, Object>();
+
+        store.submitGetRequest(key(1), null, new ResultCallback(0, results, latch), 1000);
+        store.submitGetAllRequest(Arrays.asList(key(2), key(3), key(10)),
+                                  null,
+                                  new ResultCallback(1, results, latch),
+                                  1000);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, getAllRequests.get());
+        assertEquals(1, ((List<?>) results.get(0)).size());
+
+        Map<?, ?> values = (Map<?, ?>) results.get(1);
+        assertEquals(2, values.size());
+        assertTrue(values.containsKey(key(2)));
+        assertTrue(values.containsKey(key(3)));
+    }
+
+    public void testFullBatchIsSentImmediately() throws Exception {
+        BatchingNonblockingStore store = new BatchingNonblockingStore(innerStore,
+                                                                      scheduler,
+                                                                      TimeUnit.SECONDS.toMicros(60),
+                                                                      2);
+        CountDownLatch latch = new CountDownLatch(2);
+        Map<Integer, Object> results = new ConcurrentHashMap<Integer, Object>();
+
+        store.submitGetRequest(key(1), null, new ResultCallback(0, results, latch), 1000);
+        store.submitGetRequest(key(2), null, new ResultCallback(1, results, latch), 1000);
+
+        assertTrue("Batch should not wait for the window once it's full",
+                   latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, store.getBatchCount());
+    }
+
+    public void testSingleRequestIsNotBatched() throws Exception {
+        BatchingNonblockingStore store = new BatchingNonblockingStore(innerStore,
+                                                                      scheduler,
+                                                                      100,
+                                                                      100);
+        CountDownLatch latch = new CountDownLatch(1);
+        Map<Integer, Object> results = new ConcurrentHashMap<Integer, Object>();
+
+        store.submitGetRequest(key(1), null, new ResultCallback(0, results, latch), 1000);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, getAllRequests.get());
+        assertEquals(0, store.getBatchCount());
+        assertEquals(1, ((List<?>) results.get(0)).size());
+    }
+
+    public void testScheduledBatchDoesNotWaitForConnection() throws Exception {
+        int port = ServerTestUtils.findFreePort();
+        StoreRepository repository = new StoreRepository();
+        repository.addLocalStore(engine);
+        AbstractSocketService server = ServerTestUtils.getSocketService(true,
+                                                                        ServerTestUtils.getSocketRequestHandlerFactory(repository),
+                                                                        port,
+                                                                        2,
+                                                                        2,
+                                                                        10000);
+        server.start();
+
+        // One connection and a checkout timeout far longer than the test.
+        ClientRequestExecutorPool pool = new ClientRequestExecutorPool(1, 30000, 30000, 32 * 1024);
+
+        try {
+            SocketStore socketStore = pool.create(engine.getName(),
+                                                  "localhost",
+                                                  port,
+                                                  RequestFormatType.VOLDEMORT_V1,
+                                                  RequestRoutingType.NORMAL);
+            BatchingNonblockingStore store = new BatchingNonblockingStore(socketStore,
+                                                                          scheduler,
+                                                                          TimeUnit.MILLISECONDS.toMicros(10),
+                                                                          100);
+            SocketDestination destination = new SocketDestination("localhost",
+                                                                   port,
+                                                                   RequestFormatType.VOLDEMORT_V1);
+            ClientRequestExecutor executor = pool.checkout(destination);
+            CountDownLatch latch = new CountDownLatch(2);
+            Map<Integer, Object> results = new ConcurrentHashMap<Integer, Object>();
+
+            store.submitGetRequest(key(1), null, new ResultCallback(0, results, latch), 10000);
+            store.submitGetRequest(key(2), null, new ResultCallback(1, results, latch), 10000);
+
+            // The batch can't be sent while the only connection is held, but
+            // the scheduler has to stay free for everything else.
+            ScheduledFuture<?> other = scheduler.schedule(new Runnable() {
+
+                public void run() {}
+
+            }, 50, TimeUnit.MILLISECONDS);
+            other.get(5, TimeUnit.SECONDS);
+            assertEquals(2, latch.getCount());
+
+            pool.checkin(destination, executor);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(1, store.getBatchCount());
+
+            for(int i = 0; i < 2; i++) {
+                List<?> versioneds = (List<?>) results.get(i);
+                assertEquals(1, versioneds.size());
+                assertEquals(i + 1, ((byte[]) ((Versioned<?>) versioneds.get(0)).getValue())[0]);
+            }
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    private static ByteArray key(int i) {
+        return new ByteArray(("key" + i).getBytes());
+    }
+
+    private static class ResultCallback implements NonblockingStoreCallback {
+
+        private final int id;
+
+        private final Map<Integer, Object> results;
+
+        private final CountDownLatch latch;
+
+        public ResultCallback(int id, Map<Integer, Object> results, CountDownLatch latch) {
+            this.id = id;
+            this.results = results;
+            this.latch = latch;
+        }
+
+        public void requestComplete(Object result, long requestTime) {
+            results.put(id, result);
+            latch.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+import voldemort.client.ClientConfig;
+import voldemort.cluster.Node;
+
+public class HedgedRequestPolicyTest extends TestCase {
+
+    public void testNoDelayUntilEnoughSamples() {
+        HedgedRequestPolicy policy = new HedgedRequestPolicy(95, 100);
+
+        for(int i = 0; i < 99; i++)
+            policy.recordResponseTime(0, i);
+
+        assertEquals(-1, policy.getHedgeDelayMs(0));
+
+        policy.recordResponseTime(0, 99);
+        assertEquals(94, policy.getHedgeDelayMs(0));
+    }
+
+    public void testDelayFollowsRecentSamples() {
+        HedgedRequestPolicy policy = new HedgedRequestPolicy(50, 100);
+
+        for(int i = 0; i < 100; i++)
+            policy.recordResponseTime(0, 10);
+
+        assertEquals(10, policy.getHedgeDelayMs(0));
+
+        // Old samples are overwritten by new ones.
+        for(int i = 0; i < 100; i++)
+            policy.recordResponseTime(0, 20);
+
+        assertEquals(20, policy.getHedgeDelayMs(0));
+    }
+
+    public void testDelayIsTrackedPerNode() {
+        HedgedRequestPolicy policy = new HedgedRequestPolicy(50, 100);
+
+        for(int i = 0; i < 100; i++) {
+            policy.recordResponseTime(0, 10);
+            policy.recordResponseTime(1, 50);
+        }
+
+        assertEquals(10, policy.getHedgeDelayMs(0));
+        assertEquals(50, policy.getHedgeDelayMs(1));
+        assertEquals(-1, policy.getHedgeDelayMs(2));
+
+        Node node0 = new Node(0, "localhost", 8080, 6666, 6667, Arrays.asList(0));
+        Node node1 = new Node(1, "localhost", 8081, 6668, 6669, Arrays.asList(1));
+        Node node2 = new Node(2, "localhost", 8082, 6670, 6671, Arrays.asList(2));
+
+        // The slowest node asked decides, and no node may lack samples.
+        assertEquals(10, policy.getHedgeDelayMs(Arrays.asList(node0)));
+        assertEquals(50, policy.getHedgeDelayMs(Arrays.asList(node0, node1)));
+        assertEquals(-1, policy.getHedgeDelayMs(Arrays.asList(node0, node2)));
+    }
+
+    public void testPercentileCanBeSetPerStore() {
+        Properties properties = new Properties();
+        properties.setProperty(ClientConfig.HEDGED_REQUEST_PERCENTILE_PROPERTY, "95");
+        properties.setProperty(ClientConfig.HEDGED_REQUEST_PERCENTILE_PROPERTY + ".slow-store",
+                               "99.9");
+        properties.setProperty(ClientConfig.HEDGED_REQUEST_PERCENTILE_PROPERTY + ".bulk-store",
+                               "0");
+        ClientConfig config = new ClientConfig(properties);
+
+        assertEquals(95.0, config.getHedgedRequestPercentile("test"));
+        assertEquals(99.9, config.getHedgedRequestPercentile("slow-store"));
+        assertEquals(0.0, config.getHedgedRequestPercentile("bulk-store"));
+    }
+
+    public void testInvalidPercentile() {
+        try {
+            new HedgedRequestPolicy(0);
+            fail("Percentile of 0 should be rejected");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new HedgedRequestPolicy(100);
+            fail("Percentile of 100 should be rejected");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
@@ -31,8 +31,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -48,6 +50,7 @@ import voldemort.VoldemortTestConstants;
 import voldemort.client.RoutingTier;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
+import voldemort.cluster.Zone;
 import voldemort.cluster.failuredetector.BannagePeriodFailureDetector;
 import voldemort.cluster.failuredetector.FailureDetector;
 import voldemort.cluster.failuredetector.FailureDetectorConfig;
@@ -66,6 +69,8 @@ import voldemort.store.StoreDefinition;
 import voldemort.store.StoreDefinitionBuilder;
 import voldemort.store.UnreachableStoreException;
 import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
 import voldemort.store.slop.strategy.HintedHandoffStrategyType;
 import voldemort.store.stats.StatTrackingStore;
 import voldemort.store.stats.Tracked;
@@ -361,6 +366,78 @@ public class RoutedStoreTest extends AbstractByteArrayStoreTest {
                                   4);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAsyncBasicOperationsWithFailures() throws Exception {
+        // Only the pipeline routed store is a nonblocking store.
+        if(!isPipelineRoutedStoreEnabled)
+            return;
+
+        int failures = 2;
+        RoutedStore routedStore = getStore(cluster,
+                                           cluster.getNumberOfNodes() - failures,
+                                           cluster.getNumberOfNodes() - failures,
+                                           4,
+                                           failures);
+        NonblockingStore store = (NonblockingStore) routedStore;
+        VectorClock clock = getClock(1);
+        Versioned<byte[]> versioned = new Versioned<byte[]>(aValue, clock);
+
+        // the failing nodes come first, so the master is found only after
+        // they failed
+        WaitingCallback callback = new WaitingCallback();
+        store.submitPutRequest(aKey, versioned, aTransform, callback, 1000L);
+        callback.getResult();
+        assertNOrMoreEqual(routedStore, cluster.getNumberOfNodes() - failures, aKey, versioned);
+
+        callback = new WaitingCallback();
+        store.submitGetAllRequest(Arrays.asList(aKey), null, callback, 1000L);
+        Map<ByteArray, List<Versioned<byte[]>>> all = (Map<ByteArray, List<Versioned<byte[]>>>) callback.getResult();
+        assertEquals(1, all.size());
+        assertTrue(all.get(aKey).contains(versioned));
+
+        callback = new WaitingCallback();
+        store.submitDeleteRequest(aKey, versioned.getVersion(), callback, 1000L);
+        assertTrue((Boolean) callback.getResult());
+        assertNEqual(routedStore, 0, aKey, versioned);
+    }
+
+    @Test
+    public void testAsyncBasicOperationFailure() throws Exception {
+        // Only the pipeline routed store is a nonblocking store.
+        if(!isPipelineRoutedStoreEnabled)
+            return;
+
+        VectorClock clock = getClock(1);
+        Versioned<byte[]> versioned = new Versioned<byte[]>(aValue, clock);
+        NonblockingStore store = (NonblockingStore) getStore(cluster,
+                                                             cluster.getNumberOfNodes() - 2,
+                                                             cluster.getNumberOfNodes() - 2,
+                                                             4,
+                                                             4,
+                                                             0,
+                                                             RoutingStrategyType.TO_ALL_STRATEGY,
+                                                             new UnreachableStoreException("no go"));
+
+        WaitingCallback callback = new WaitingCallback();
+        store.submitPutRequest(aKey, versioned, aTransform, callback, 1000L);
+        try {
+            callback.getResult();
+            fail("Put succeeded with too few operational nodes.");
+        } catch(InsufficientOperationalNodesException e) {
+            // expected
+        }
+
+        callback = new WaitingCallback();
+        store.submitDeleteRequest(aKey, versioned.getVersion(), callback, 1000L);
+        try {
+            callback.getResult();
+            fail("Delete succeeded with too few operational nodes.");
+        } catch(InsufficientOperationalNodesException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testPutIncrementsVersion() throws Exception {
         Store<ByteArray, byte[], byte[]> store = getStore();
@@ -1238,6 +1315,137 @@ public class RoutedStoreTest extends AbstractByteArrayStoreTest {
         assertEquals(2, versioneds.size());
     }
 
+    @Test
+    public void testGetReturnsOnceRequiredReadsSucceed() throws Exception {
+        // Only the pipeline routed store stops waiting at the required reads.
+        if(!isPipelineRoutedStoreEnabled)
+            return;
+
+        cluster = VoldemortTestConstants.getThreeNodeCluster();
+        StoreDefinition storeDef = ServerTestUtils.getStoreDef("test",
+                                                               3,
+                                                               3,
+                                                               1,
+                                                               3,
+                                                               1,
+                                                               RoutingStrategyType.CONSISTENT_STRATEGY);
+
+        int sleepTimeMs = 1000;
+        Map<Integer, Store<ByteArray, byte[], byte[]>> subStores = Maps.newHashMap();
+        Map<Integer, Store<ByteArray, byte[], byte[]>> sleepySubStores = Maps.newHashMap();
+
+        for(Node node: cluster.getNodes()) {
+            Store<ByteArray, byte[], byte[]> store = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+            subStores.put(node.getId(), store);
+
+            // Leave only one of the nodes fast.
+            if(!sleepySubStores.isEmpty())
+                store = new SleepyStore<ByteArray, byte[], byte[]>(sleepTimeMs, store);
+
+            sleepySubStores.put(node.getId(), store);
+        }
+
+        setFailureDetector(subStores);
+
+        routedStoreThreadPool = Executors.newFixedThreadPool(cluster.getNumberOfNodes());
+        RoutedStoreFactory routedStoreFactory = new RoutedStoreFactory(isPipelineRoutedStoreEnabled,
+                                                                       routedStoreThreadPool,
+                                                                       10000L);
+
+        RoutedStore routedStore = routedStoreFactory.create(cluster,
+                                                            storeDef,
+                                                            subStores,
+                                                            true,
+                                                            failureDetector);
+        routedStore.put(aKey, Versioned.value(aValue), null);
+
+        routedStore = routedStoreFactory.create(cluster,
+                                                storeDef,
+                                                sleepySubStores,
+                                                true,
+                                                failureDetector);
+
+        long start = System.nanoTime();
+        List<Versioned<byte[]>> versioneds = routedStore.get(aKey, null);
+        long elapsed = (System.nanoTime() - start) / Time.NS_PER_MS;
+
+        assertEquals(1, versioneds.size());
+        assertTrue(elapsed + " < " + sleepTimeMs, elapsed < sleepTimeMs);
+    }
+
+    @Test
+    public void testSlowGetIsHedged() throws Exception {
+        // Only the pipeline routed store hedges requests.
+        if(!isPipelineRoutedStoreEnabled)
+            return;
+
+        cluster = VoldemortTestConstants.getThreeNodeCluster();
+        StoreDefinition storeDef = ServerTestUtils.getStoreDef("test",
+                                                               3,
+                                                               1,
+                                                               1,
+                                                               3,
+                                                               1,
+                                                               RoutingStrategyType.CONSISTENT_STRATEGY);
+        RoutingStrategy routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                            cluster);
+        int slowNodeId = routingStrategy.routeRequest(aKey.get()).get(0).getId();
+
+        int sleepTimeMs = 1000;
+        Map<Integer, Store<ByteArray, byte[], byte[]>> subStores = Maps.newHashMap();
+
+        for(Node node: cluster.getNodes()) {
+            Store<ByteArray, byte[], byte[]> store = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+            store.put(aKey, Versioned.value(aValue), null);
+
+            if(node.getId() == slowNodeId)
+                store = new SleepyStore<ByteArray, byte[], byte[]>(sleepTimeMs, store);
+
+            subStores.put(node.getId(), store);
+        }
+
+        setFailureDetector(subStores);
+
+        routedStoreThreadPool = Executors.newFixedThreadPool(cluster.getNumberOfNodes());
+        RoutedStoreFactory routedStoreFactory = new RoutedStoreFactory(isPipelineRoutedStoreEnabled,
+                                                                       routedStoreThreadPool,
+                                                                       10000L);
+        Map<Integer, NonblockingStore> nonblockingStores = Maps.newHashMap();
+
+        for(Map.Entry<Integer, Store<ByteArray, byte[], byte[]>> entry: subStores.entrySet())
+            nonblockingStores.put(entry.getKey(),
+                                  routedStoreFactory.toNonblockingStore(entry.getValue()));
+
+        // Pretend we've seen plenty of fast responses already.
+        HedgedRequestPolicy hedgedRequestPolicy = new HedgedRequestPolicy(90);
+
+        for(Node node: cluster.getNodes()) {
+            for(int i = 0; i < HedgedRequestPolicy.DEFAULT_SAMPLE_SIZE; i++)
+                hedgedRequestPolicy.recordResponseTime(node.getId(), 5);
+        }
+
+        RoutedStore routedStore = new PipelineRoutedStore("test",
+                                                          subStores,
+                                                          nonblockingStores,
+                                                          null,
+                                                          null,
+                                                          cluster,
+                                                          storeDef,
+                                                          false,
+                                                          Zone.DEFAULT_ZONE_ID,
+                                                          10000L,
+                                                          failureDetector,
+                                                          hedgedRequestPolicy,
+                                                          routedStoreThreadPool);
+
+        long start = System.nanoTime();
+        List<Versioned<byte[]>> versioneds = routedStore.get(aKey, null);
+        long elapsed = (System.nanoTime() - start) / Time.NS_PER_MS;
+
+        assertEquals(1, versioneds.size());
+        assertTrue(elapsed + " < " + sleepTimeMs, elapsed < sleepTimeMs);
+    }
+
     @Test
     public void testPutDeleteZoneRouting() throws Exception {
         cluster = VoldemortTestConstants.getEightNodeClusterWithZones();
@@ -1348,4 +1556,26 @@ public class RoutedStoreTest extends AbstractByteArrayStoreTest {
                                                                                  .setStoreVerifier(create(subStores));
         failureDetector = create(failureDetectorConfig, false);
     }
+
+    private static class WaitingCallback implements NonblockingStoreCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile Object result;
+
+        public void requestComplete(Object result, long requestTime) {
+            this.result = result;
+            latch.countDown();
+        }
+
+        public Object getResult() throws Exception {
+            assertTrue("Request did not complete", latch.await(5, TimeUnit.SECONDS));
+
+            if(result instanceof Exception)
+                throw (Exception) result;
+
+            return result;
+        }
+
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008-2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+public class StatTrackingNonblockingStoreTest extends TestCase {
+
+    private ExecutorService threadPool;
+
+    private StoreStats stats;
+
+    private StatTrackingNonblockingStore store;
+
+    @Override
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(2);
+        stats = new StoreStats();
+        store = new StatTrackingNonblockingStore(new ThreadPoolBasedNonblockingStoreImpl(threadPool,
+                                                                                         new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test")),
+                                                 stats);
+    }
+
+    @Override
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    public void testRequestsAreTracked() throws Exception {
+        ByteArray key = new ByteArray("key".getBytes());
+        VectorClock clock = new VectorClock().incremented(0, 1);
+        Waiter waiter = new Waiter();
+
+        store.submitPutRequest(key, new Versioned<byte[]>(new byte[10], clock), null, waiter, 1000);
+        waiter.await();
+        store.submitPutRequest(key, new Versioned<byte[]>(new byte[10], clock), null, waiter, 1000);
+        waiter.await();
+        store.submitGetRequest(key, null, waiter, 1000);
+        waiter.await();
+        store.submitGetAllRequest(Arrays.asList(key, new ByteArray("missing".getBytes())),
+                                  null,
+                                  waiter,
+                                  1000);
+        waiter.await();
+        store.submitDeleteRequest(key, clock, waiter, 1000);
+        waiter.await();
+
+        assertEquals(2, stats.getCount(Tracked.PUT));
+        assertEquals("The second put should be obsolete", 1, stats.getCount(Tracked.OBSOLETE));
+        assertEquals(1, stats.getCount(Tracked.GET));
+        assertEquals(0, stats.getNumEmptyResponses(Tracked.GET));
+        assertEquals(1, stats.getCount(Tracked.GET_ALL));
+        assertEquals(1, stats.getNumEmptyResponses(Tracked.GET_ALL));
+        assertEquals(1, stats.getCount(Tracked.DELETE));
+        assertEquals(0, stats.getCount(Tracked.EXCEPTION));
+    }
+
+    private static class Waiter implements NonblockingStoreCallback {
+
+        private CountDownLatch latch = new CountDownLatch(1);
+
+        public void requestComplete(Object result, long requestTime) {
+            latch.countDown();
+        }
+
+        public void await() throws InterruptedException {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            latch = new CountDownLatch(1);
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ import org.junit.Test;
 import voldemort.utils.Time;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static voldemort.utils.Time.NS_PER_MS;
@@ -92,4 +93,62 @@ public class StatsTest  {
         assertEquals(0, rc.getMaxSizeInBytes());
         assertEquals(0, rc.getGetAllAggregatedCount());
     }
+
+    @Test
+    public void percentilesAreAccurate() {
+        RequestCounter rc = getTestRequestCounter();
+        assertEquals(0, rc.getLatencyPercentileInMs(99), 0.0d);
+
+        // 1..1000 ms
+        for(long duration = 1; duration <= 1000; duration++)
+            rc.addRequest(duration * NS_PER_MS);
+
+        // Buckets are within 12.5% of the value, and never underestimate it
+        for(double percentile: new double[] { 50, 95, 99, 99.9 }) {
+            double expected = percentile * 10;
+            double found = rc.getLatencyPercentileInMs(percentile);
+            assertTrue(percentile + ": " + found, found >= expected - 1);
+            assertTrue(percentile + ": " + found, found <= expected * 1.125);
+        }
+        assertEquals(1000, rc.getLatencyPercentileInMs(100), 0.0d);
+    }
+
+    @Test
+    public void bucketsCoverAllValues() {
+        long previousUpperBound = -1;
+        for(int bucket = 0; bucket <= RequestCounter.getBucket(Long.MAX_VALUE); bucket++) {
+            long upperBound = RequestCounter.getBucketUpperBoundUs(bucket);
+            assertEquals(bucket, RequestCounter.getBucket(previousUpperBound + 1));
+            assertEquals(bucket, RequestCounter.getBucket(upperBound));
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    public void concurrentRequestsAreNotDropped() throws InterruptedException {
+        final RequestCounter rc = getTestRequestCounter();
+        final int numThreads = 8;
+        final int numRequests = 10000;
+        Thread[] threads = new Thread[numThreads];
+
+        for(int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    for(int j = 0; j < numRequests; j++)
+                        rc.addRequest(NS_PER_MS, 1, 10, 0);
+                }
+            };
+            threads[i].start();
+        }
+
+        for(Thread thread: threads)
+            thread.join();
+
+        assertEquals(numThreads * numRequests, rc.getCount());
+        assertEquals(numThreads * numRequests, rc.getTotalCount());
+        assertEquals(numThreads * numRequests, rc.getNumEmptyResponses());
+        assertEquals(1, rc.getAverageTimeInMs(), 0.0d);
+    }
 }
@@ -17,6 +17,7 @@
 package voldemort.utils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -78,4 +79,31 @@ public class RebalanceUtilsTest extends TestCase {
         assertEquals(generatedCluster.getNodeById(3).getPartitionIds().size(), 0);
 
     }
+
+    public void testSplitReplicaToPartitionList() {
+        HashMap<Integer, List<Integer>> replicaToPartitionList = new HashMap<Integer, List<Integer>>();
+        replicaToPartitionList.put(0, Lists.newArrayList(0, 4, 8));
+        replicaToPartitionList.put(1, Lists.newArrayList(2, 5));
+
+        List<HashMap<Integer, List<Integer>>> splits = RebalanceUtils.splitReplicaToPartitionList(replicaToPartitionList,
+                                                                                                  1);
+        assertEquals(1, splits.size());
+        assertEquals(replicaToPartitionList, splits.get(0));
+
+        splits = RebalanceUtils.splitReplicaToPartitionList(replicaToPartitionList, 2);
+        assertEquals(2, splits.size());
+        assertEquals(Lists.newArrayList(0, 4), splits.get(0).get(0));
+        assertEquals(Lists.newArrayList(2), splits.get(0).get(1));
+        assertEquals(Lists.newArrayList(8), splits.get(1).get(0));
+        assertEquals(Lists.newArrayList(5), splits.get(1).get(1));
+
+        // more splits than partitions gives one stream per partition
+        splits = RebalanceUtils.splitReplicaToPartitionList(replicaToPartitionList, 10);
+        assertEquals(5, splits.size());
+        for(HashMap<Integer, List<Integer>> split: splits) {
+            assertEquals(1, split.size());
+        }
+        assertEquals(RebalanceUtils.flattenPartitionTuples(replicaToPartitionList).size(),
+                     splits.size());
+    }
 }